@@ -0,0 +1,79 @@
+package com.edgarmtz.engine.assets;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asset being loaded by an {@link AssetPipeline}, returned right away so it can be stored and checked every frame
+ * until the asset is ready
+ * @param <T> Loaded asset
+ */
+public class AssetHandle<T> {
+    private final String name;
+    private final CompletableFuture<T> future;
+
+    AssetHandle(String name){
+        this.name = name;
+        future = new CompletableFuture<>();
+    }
+
+    /**
+     * @return Name the asset was requested with
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return If the asset was uploaded and can be used
+     */
+    public boolean isReady(){
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * @return If loading or uploading the asset threw an exception
+     */
+    public boolean isFailed(){
+        return future.isCompletedExceptionally();
+    }
+
+    /**
+     * @return Loaded asset, null while it's still loading
+     * @throws IllegalStateException if the asset couldn't be loaded, caused by the exception thrown
+     */
+    public T get(){
+        return getOrDefault(null);
+    }
+
+    /**
+     * @param placeholder Value used while the asset is loading, like a plain texture
+     * @return Loaded asset or the placeholder
+     * @throws IllegalStateException if the asset couldn't be loaded, caused by the exception thrown
+     */
+    public T getOrDefault(T placeholder){
+        if(!future.isDone())
+            return placeholder;
+        try{
+            return future.join();
+        } catch (RuntimeException e){
+            throw new IllegalStateException("Couldn't load asset " + name, e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Future completed with the asset, actions chained to it run in the thread uploading assets or in a worker if
+     * the loader failed
+     * @return Future of the loaded asset
+     */
+    public CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    void complete(T asset){
+        future.complete(asset);
+    }
+
+    void fail(Throwable error){
+        future.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,200 @@
+package com.edgarmtz.engine.assets;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares assets by resource path, every {@link #acquire(String)} of a path returns the same handle and must be paired
+ * with a {@link #release(String)}. Assets nobody references stay loaded so acquiring them again is free, until the
+ * memory they take goes over a budget and the least recently used ones are deleted. Must be used from the thread
+ * processing the pipeline's uploads
+ * @param <T> Loaded asset
+ */
+public class AssetManager<T> {
+    private final AssetPipeline pipeline;
+    private final AssetType<?, T> type;
+    private final long gpuBudget;
+    private final long hostBudget;
+    // Least recently used first
+    private final Map<String, Entry<T>> entries;
+    private long gpuBytes;
+    private long hostBytes;
+    private int hits;
+    private int misses;
+    private int evictions;
+    private boolean closed;
+
+    /**
+     * @param pipeline Pipeline loading assets not in memory
+     * @param type How assets are loaded, measured and deleted
+     * @param gpuBudget Bytes of gpu memory loaded assets can use before unreferenced ones are deleted
+     * @param hostBudget Bytes of system memory loaded assets can use before unreferenced ones are deleted
+     */
+    public AssetManager(AssetPipeline pipeline, AssetType<?, T> type, long gpuBudget, long hostBudget){
+        this.pipeline = pipeline;
+        this.type = type;
+        this.gpuBudget = gpuBudget;
+        this.hostBudget = hostBudget;
+        entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a reference to an asset, loading it if it isn't in memory or failed before
+     * @param path Resource path of the asset
+     * @return Handle shared by every reference to the path
+     */
+    public AssetHandle<T> acquire(String path){
+        Entry<T> entry = entries.remove(path);
+        if(entry != null && !entry.handle.isFailed()){
+            hits++;
+            entry.references++;
+            entries.put(path, entry);
+            return entry.handle;
+        }
+        misses++;
+        Entry<T> loaded = new Entry<>(load(type, path));
+        // Holders of the failed handle still release it
+        loaded.references = entry == null ? 1 : entry.references + 1;
+        entries.put(path, loaded);
+        // Only successful uploads run it, in the thread processing uploads
+        loaded.handle.getFuture().thenAccept(asset -> uploaded(path, loaded, asset));
+        return loaded.handle;
+    }
+
+    /**
+     * Removes a reference to an asset, once none is left it may be deleted to stay inside the budget
+     * @param path Resource path of the asset
+     * @throws IllegalStateException if the asset isn't acquired
+     */
+    public void release(String path){
+        Entry<T> entry = entries.get(path);
+        if(entry == null || entry.references == 0)
+            throw new IllegalStateException("Asset " + path + " isn't acquired");
+        entry.references--;
+        // Moved to the end as the most recently used
+        entries.remove(path);
+        entries.put(path, entry);
+        if(entry.references == 0)
+            trim();
+    }
+
+    /**
+     * Same as {@link #release(String)} with the handle's path
+     */
+    public void release(AssetHandle<T> handle){
+        release(handle.getName());
+    }
+
+    /**
+     * Deletes unreferenced assets, least recently used first, until both budgets are met
+     */
+    private void trim(){
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        while((gpuBytes > gpuBudget || hostBytes > hostBudget) && iterator.hasNext()){
+            Entry<T> entry = iterator.next();
+            // Assets still loading are measured and trimmed once uploaded
+            if(entry.references > 0 || !entry.handle.isReady())
+                continue;
+            iterator.remove();
+            dispose(entry);
+            evictions++;
+        }
+    }
+
+    private void uploaded(String path, Entry<T> entry, T asset){
+        if(closed || entries.get(path) != entry){
+            type.dispose(asset);
+            return;
+        }
+        entry.gpuBytes = type.getGpuBytes(asset);
+        entry.hostBytes = type.getHostBytes(asset);
+        gpuBytes += entry.gpuBytes;
+        hostBytes += entry.hostBytes;
+        trim();
+    }
+
+    private void dispose(Entry<T> entry){
+        gpuBytes -= entry.gpuBytes;
+        hostBytes -= entry.hostBytes;
+        type.dispose(entry.handle.get());
+    }
+
+    private <D> AssetHandle<T> load(AssetType<D, T> type, String path){
+        return pipeline.load(path, () -> type.load(path), type::upload);
+    }
+
+    /**
+     * @param path Resource path of the asset
+     * @return References to the asset, 0 if it's unreferenced or not in memory
+     */
+    public int getReferences(String path){
+        Entry<T> entry = entries.get(path);
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * @return Assets in memory or loading, referenced or not
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * @return Acquires that found the asset in memory or loading
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Acquires that had to load the asset
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Unreferenced assets deleted to stay inside the budget
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Estimated gpu bytes of uploaded assets
+     */
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    /**
+     * @return Estimated system memory bytes of uploaded assets
+     */
+    public long getHostBytes() {
+        return hostBytes;
+    }
+
+    /**
+     * Deletes every asset, referenced or not, assets still loading are deleted once uploaded
+     */
+    public void cleanup(){
+        closed = true;
+        for (Entry<T> entry : entries.values()) {
+            if(entry.handle.isReady())
+                dispose(entry);
+        }
+        entries.clear();
+    }
+
+    private static class Entry<T> {
+        private final AssetHandle<T> handle;
+        private int references;
+        private long gpuBytes;
+        private long hostBytes;
+
+        private Entry(AssetHandle<T> handle){
+            this.handle = handle;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.edgarmtz.engine.assets;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads assets without blocking the game loop. Reading files, decoding and any cpu processing run in a pool of
+ * worker threads, the results wait in a queue until the thread owning the OpenGL context uploads them with
+ * {@link #processUploads(long)}, spending at most a time budget every frame
+ */
+public class AssetPipeline {
+    /**
+     * Nanoseconds each frame can spend uploading assets
+     */
+    public static final long DEFAULT_UPLOAD_BUDGET = 2_000_000L;
+
+    private final ExecutorService workers;
+    private final Queue<Upload<?, ?>> uploads;
+    private final AtomicInteger queueDepth;
+    private final AtomicInteger loadingCount;
+    private volatile boolean closed;
+    private int frameUploads;
+    private long frameUploadTime;
+
+    /**
+     * @param threads Amount of worker threads, they don't keep the application alive
+     */
+    public AssetPipeline(int threads){
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "asset-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        uploads = new ConcurrentLinkedQueue<>();
+        queueDepth = new AtomicInteger();
+        loadingCount = new AtomicInteger();
+    }
+
+    /**
+     * Starts loading an asset in a worker thread
+     * @param name Name used in error messages
+     * @param loader Reads and prepares the asset's data, runs in a worker thread so it can't use OpenGL
+     * @param uploader Creates the asset from the data, runs in the thread calling {@link #processUploads(long)}
+     * @param <D> Data prepared by the worker
+     * @param <T> Loaded asset
+     * @return Handle completed once the asset is uploaded or fails
+     */
+    public <D, T> AssetHandle<T> load(String name, Callable<D> loader, AssetUploader<D, T> uploader){
+        AssetHandle<T> handle = new AssetHandle<>(name);
+        loadingCount.incrementAndGet();
+        workers.execute(new LoadTask<>(handle, loader, uploader));
+        return handle;
+    }
+
+    /**
+     * Uploads assets whose data is ready until the budget is spent, at least one is uploaded if any is waiting so an
+     * asset taking longer than the budget doesn't block the queue. Must be called every frame from the thread owning
+     * the OpenGL context
+     * @param budget Nanoseconds that can be spent, an upload started before it runs out isn't interrupted
+     * @return Assets uploaded
+     */
+    public int processUploads(long budget){
+        long start = System.nanoTime();
+        int uploaded = 0;
+        Upload<?, ?> upload;
+        while((uploaded == 0 || System.nanoTime() - start < budget) && (upload = uploads.poll()) != null){
+            queueDepth.decrementAndGet();
+            upload.run();
+            uploaded++;
+        }
+        frameUploads = uploaded;
+        frameUploadTime = System.nanoTime() - start;
+        return uploaded;
+    }
+
+    /**
+     * @return Assets with their data ready waiting to be uploaded
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return Assets still being read or prepared by workers
+     */
+    public int getLoadingCount() {
+        return loadingCount.get();
+    }
+
+    /**
+     * @return Assets uploaded by the last {@link #processUploads(long)}
+     */
+    public int getFrameUploads() {
+        return frameUploads;
+    }
+
+    /**
+     * @return Nanoseconds the last {@link #processUploads(long)} took
+     */
+    public long getFrameUploadTime() {
+        return frameUploadTime;
+    }
+
+    /**
+     * Stops the workers, assets not uploaded yet fail. Workers still running a loader that ignores interrupts fail
+     * their asset and release it's data once the loader returns
+     */
+    public void cleanup(){
+        // Set before draining, a worker queueing after the drain sees it and takes it's upload back
+        closed = true;
+        for (Runnable task : workers.shutdownNow())
+            ((LoadTask<?, ?>) task).cancel();
+        Upload<?, ?> upload;
+        while((upload = uploads.poll()) != null){
+            queueDepth.decrementAndGet();
+            upload.cancel();
+        }
+    }
+
+    /**
+     * Work done by a worker, queues the data for uploading once it's ready
+     */
+    private class LoadTask<D, T> implements Runnable {
+        private final AssetHandle<T> handle;
+        private final Callable<D> loader;
+        private final AssetUploader<D, T> uploader;
+
+        private LoadTask(AssetHandle<T> handle, Callable<D> loader, AssetUploader<D, T> uploader){
+            this.handle = handle;
+            this.loader = loader;
+            this.uploader = uploader;
+        }
+
+        @Override
+        public void run() {
+            try{
+                if(closed){
+                    handle.fail(new Exception("Asset pipeline closed before loading " + handle.getName()));
+                    return;
+                }
+                Upload<D, T> upload = new Upload<>(handle, loader.call(), uploader);
+                // Counted before it's visible so the depth never goes below zero
+                queueDepth.incrementAndGet();
+                uploads.add(upload);
+                // Cleanup may have drained the queue before the upload was added, whoever removes it cancels it
+                if(closed && uploads.remove(upload)){
+                    queueDepth.decrementAndGet();
+                    upload.cancel();
+                }
+            } catch (Throwable e){
+                handle.fail(e);
+            } finally {
+                loadingCount.decrementAndGet();
+            }
+        }
+
+        private void cancel(){
+            loadingCount.decrementAndGet();
+            handle.fail(new Exception("Asset pipeline closed before loading " + handle.getName()));
+        }
+    }
+
+    /**
+     * Data ready to be uploaded
+     */
+    private static class Upload<D, T> {
+        private final AssetHandle<T> handle;
+        private final D data;
+        private final AssetUploader<D, T> uploader;
+
+        private Upload(AssetHandle<T> handle, D data, AssetUploader<D, T> uploader){
+            this.handle = handle;
+            this.data = data;
+            this.uploader = uploader;
+        }
+
+        private void run(){
+            try{
+                handle.complete(uploader.upload(data));
+            } catch (Throwable e){
+                handle.fail(e);
+            }
+        }
+
+        private void cancel(){
+            // Data holding native memory, like decoded images, is released
+            if(data instanceof AutoCloseable){
+                try{
+                    ((AutoCloseable) data).close();
+                } catch (Exception e){
+                    e.printStackTrace();
+                }
+            }
+            handle.fail(new Exception("Asset pipeline closed before uploading " + handle.getName()));
+        }
+    }
+}
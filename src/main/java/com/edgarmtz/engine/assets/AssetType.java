@@ -0,0 +1,39 @@
+package com.edgarmtz.engine.assets;
+
+/**
+ * Describes how an {@link AssetManager} loads, measures and deletes one kind of asset
+ * @param <D> Data prepared by a worker thread
+ * @param <T> Loaded asset
+ */
+public interface AssetType<D, T> {
+    /**
+     * Reads and prepares an asset's data, runs in a worker thread so it can't use OpenGL
+     * @param path Resource path of the asset
+     * @return Data passed to {@link #upload(Object)}
+     * @throws Exception if the asset can't be read
+     */
+    D load(String path) throws Exception;
+
+    /**
+     * Creates the asset from it's data, runs in the thread owning the OpenGL context
+     * @param data Value returned by {@link #load(String)}
+     * @return Loaded asset
+     * @throws Exception if the asset can't be created
+     */
+    T upload(D data) throws Exception;
+
+    /**
+     * @return Estimated bytes the asset takes in gpu memory
+     */
+    long getGpuBytes(T asset);
+
+    /**
+     * @return Estimated bytes the asset keeps in system memory
+     */
+    long getHostBytes(T asset);
+
+    /**
+     * Deletes the asset, runs in the thread owning the OpenGL context
+     */
+    void dispose(T asset);
+}
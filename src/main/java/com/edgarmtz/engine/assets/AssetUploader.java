@@ -0,0 +1,16 @@
+package com.edgarmtz.engine.assets;
+
+/**
+ * Last step of loading an asset, turns data prepared by a worker thread into the object used while drawing. It's
+ * called from the thread processing the upload queue, the one owning the OpenGL context
+ * @param <D> Data prepared by the worker
+ * @param <T> Loaded asset
+ */
+public interface AssetUploader<D, T> {
+    /**
+     * @param data Value returned by the asset's loader
+     * @return Loaded asset
+     * @throws Exception if the asset can't be created
+     */
+    T upload(D data) throws Exception;
+}
@@ -0,0 +1,51 @@
+package com.edgarmtz.engine.assets;
+
+import com.edgarmtz.engine.graphics.Texture;
+import com.edgarmtz.engine.graphics.TextureCache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Textures loaded from image files through their binary files in a {@link TextureCache}, the pipeline's workers build
+ * missing files and map them so uploading only copies each level
+ */
+public class CompiledTextureAssetType implements AssetType<ByteBuffer, Texture> {
+    private final TextureCache textureCache;
+
+    /**
+     * @param textureCache Where binary files are read from and written to
+     */
+    public CompiledTextureAssetType(TextureCache textureCache){
+        this.textureCache = textureCache;
+    }
+
+    @Override
+    public ByteBuffer load(String path) throws Exception {
+        return textureCache.read(path);
+    }
+
+    @Override
+    public Texture upload(ByteBuffer data) {
+        Texture texture = TextureCache.upload(data);
+        texture.setShared(true);
+        return texture;
+    }
+
+    @Override
+    public long getGpuBytes(Texture asset) {
+        return asset.getGpuBytes();
+    }
+
+    /**
+     * Levels are only kept in gpu
+     */
+    @Override
+    public long getHostBytes(Texture asset) {
+        return 0;
+    }
+
+    @Override
+    public void dispose(Texture asset) {
+        asset.cleanup();
+    }
+}
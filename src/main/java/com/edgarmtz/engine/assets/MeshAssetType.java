@@ -0,0 +1,50 @@
+package com.edgarmtz.engine.assets;
+
+import com.edgarmtz.engine.graphics.Mesh;
+import com.edgarmtz.engine.graphics.MeshCache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Meshes loaded from obj files through their binary files in a {@link MeshCache}
+ */
+public class MeshAssetType implements AssetType<ByteBuffer, Mesh> {
+    private final MeshCache meshCache;
+
+    /**
+     * @param meshCache Where binary files are read from and written to
+     */
+    public MeshAssetType(MeshCache meshCache){
+        this.meshCache = meshCache;
+    }
+
+    @Override
+    public ByteBuffer load(String path) throws Exception {
+        return meshCache.read(path);
+    }
+
+    @Override
+    public Mesh upload(ByteBuffer data) {
+        Mesh mesh = MeshCache.upload(data);
+        mesh.setShared(true);
+        return mesh;
+    }
+
+    @Override
+    public long getGpuBytes(Mesh asset) {
+        return asset.getGpuBytes();
+    }
+
+    /**
+     * Vertices are only kept in gpu
+     */
+    @Override
+    public long getHostBytes(Mesh asset) {
+        return 0;
+    }
+
+    @Override
+    public void dispose(Mesh asset) {
+        asset.cleanup();
+    }
+}
@@ -0,0 +1,62 @@
+package com.edgarmtz.engine.assets;
+
+import com.edgarmtz.engine.graphics.PixelBufferPool;
+import com.edgarmtz.engine.graphics.PngTextureDecoder;
+import com.edgarmtz.engine.graphics.Texture;
+import com.edgarmtz.engine.graphics.TextureData;
+import com.edgarmtz.engine.graphics.TextureDecoder;
+
+/**
+ * Textures decoded from image files, pixels are released as soon as they're uploaded
+ */
+public class TextureAssetType implements AssetType<TextureData, Texture> {
+    private final TextureDecoder decoder;
+
+    /**
+     * Decodes png images with {@link PngTextureDecoder} into buffers of the shared pool
+     */
+    public TextureAssetType(){
+        this(new PngTextureDecoder(PixelBufferPool.getShared()));
+    }
+
+    /**
+     * @param decoder Decoder used by the pipeline's workers
+     */
+    public TextureAssetType(TextureDecoder decoder){
+        this.decoder = decoder;
+    }
+
+    @Override
+    public TextureData load(String path) throws Exception {
+        return decoder.decode(path);
+    }
+
+    @Override
+    public Texture upload(TextureData data) {
+        try{
+            Texture texture = new Texture(data);
+            texture.setShared(true);
+            return texture;
+        } finally {
+            data.close();
+        }
+    }
+
+    @Override
+    public long getGpuBytes(Texture asset) {
+        return asset.getGpuBytes();
+    }
+
+    /**
+     * Pixels are only kept in gpu
+     */
+    @Override
+    public long getHostBytes(Texture asset) {
+        return 0;
+    }
+
+    @Override
+    public void dispose(Texture asset) {
+        asset.cleanup();
+    }
+}
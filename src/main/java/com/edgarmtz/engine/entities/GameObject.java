@@ -1,64 +1,285 @@
 package com.edgarmtz.engine.entities;
 
+import com.edgarmtz.engine.graphics.LevelOfDetail;
 import com.edgarmtz.engine.graphics.Mesh;
+import com.edgarmtz.engine.physics.Bounds;
+import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
 /**
- * Represents any object in the game with it's model, position and size
+ * Represents any object in the game with it's model, position and size. Position, rotation and scale live in a
+ * {@link TransformStore}, the object only keeps the index of it's transform
  */
 public class GameObject {
+    /**
+     * Largest simplification error allowed on screen, in pixels
+     */
+    private static final float MAX_PIXEL_ERROR = 1.0f;
+
     private final Mesh mesh;
-    private  final Vector3f position;
-    private float scale;
-    private  final Vector3f rotation;
+    private final LevelOfDetail levelOfDetail;
+    private final Bounds bounds;
+    private final TransformStore transforms;
+    private final int transform;
+    private final Bounds worldBounds;
+    private boolean boundsChanged;
+    private final Matrix4f worldMatrix;
+    /**
+     * Values of the last matrix read, from the store or from the world matrix
+     */
+    private final float[] matrixValues;
+    private final Matrix4f modelViewMatrix;
+    /**
+     * Transform version the world matrix was calculated from
+     */
+    private int worldVersion;
+    private boolean modelViewChanged;
+    private int viewVersion;
+    /**
+     * Graph propagating the world matrix from a parent, null if position, rotation and scale are already in world
+     */
+    SceneGraph sceneGraph;
+    int sceneNode;
 
     /**
-     * Associates object with it's model and sets a default position and size
+     * Associates object with it's model and stores it's transform in the given store
      * @param mesh Model's mesh
+     * @param transforms Store where position, rotation and scale are kept
      */
-    public GameObject(Mesh mesh){
+    public GameObject(Mesh mesh, TransformStore transforms){
+        this(mesh, null, mesh == null ? null : mesh.getBounds(), transforms);
+    }
+
+    /**
+     * Creates an object without a model, it can't be drawn but it's found by spatial queries through it's bounds
+     * @param bounds Box and sphere enclosing the object in it's own coordinates
+     * @param transforms Store where position, rotation and scale are kept
+     */
+    public GameObject(Bounds bounds, TransformStore transforms){
+        this(null, null, bounds, transforms);
+    }
+
+    /**
+     * Associates object with several versions of it's model, the one drawn depends on the object's distance to the
+     * camera
+     * @param levelOfDetail Model's meshes from the most to the least detailed
+     * @param transforms Store where position, rotation and scale are kept
+     */
+    public GameObject(LevelOfDetail levelOfDetail, TransformStore transforms){
+        this(levelOfDetail.getMesh(0), levelOfDetail, levelOfDetail.getMesh(0).getBounds(), transforms);
+    }
+
+    private GameObject(Mesh mesh, LevelOfDetail levelOfDetail, Bounds bounds, TransformStore transforms){
         this.mesh = mesh;
-        position = new Vector3f(0,0,0);
-        scale = 1;
-        rotation = new Vector3f(0,0,0);
+        this.levelOfDetail = levelOfDetail;
+        this.bounds = bounds;
+        this.transforms = transforms;
+        transform = transforms.allocate();
+        worldBounds = new Bounds();
+        worldMatrix = new Matrix4f();
+        matrixValues = new float[16];
+        modelViewMatrix = new Matrix4f();
+        worldVersion = transforms.getVersion(transform) - 1;
     }
 
     public Mesh getMesh() {
         return mesh;
     }
 
-    public Vector3f getPosition() {
-        return position;
+    /**
+     * @return Box and sphere enclosing the object's model in model coordinates
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Picks the mesh to draw projecting each level's error on screen, a level is used if it's error covers less than
+     * {@link #MAX_PIXEL_ERROR} pixels
+     * @param cameraPosition Camera position in world
+     * @param fov Vertical field of view in radians
+     * @param viewportHeight Height of the window in pixels
+     * @return Least detailed mesh that looks the same as the original one
+     */
+    public Mesh getMesh(Vector3f cameraPosition, float fov, int viewportHeight) {
+        if(levelOfDetail == null)
+            return mesh;
+        // World values, a scene graph child's own transform is relative to it's parent
+        getWorldMatrix().get(matrixValues);
+        float[] world = matrixValues;
+        float dx = world[12] - cameraPosition.x;
+        float dy = world[13] - cameraPosition.y;
+        float dz = world[14] - cameraPosition.z;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if(distance == 0)
+            return mesh;
+        // Largest axis scale so the error is never underestimated
+        float scaleX = world[0] * world[0] + world[1] * world[1] + world[2] * world[2];
+        float scaleY = world[4] * world[4] + world[5] * world[5] + world[6] * world[6];
+        float scaleZ = world[8] * world[8] + world[9] * world[9] + world[10] * world[10];
+        float scale = (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+        float pixelsPerUnit = scale * viewportHeight / (2 * (float) Math.tan(fov / 2) * distance);
+        return levelOfDetail.getMesh(levelOfDetail.selectLevel(pixelsPerUnit, MAX_PIXEL_ERROR));
+    }
+
+    public LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+
+    /**
+     * @return Store holding this object's transform
+     */
+    public TransformStore getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * @return Index of this object's transform in it's store
+     */
+    public int getTransformIndex() {
+        return transform;
+    }
+
+    /**
+     * Position lives in the store, changes must be made through {@link #setPosition(float, float, float)}
+     * @param dest Vector where the position is copied
+     * @return dest
+     */
+    public Vector3f getPosition(Vector3f dest) {
+        return transforms.getPosition(transform, dest);
     }
 
     public void setPosition(float x, float y, float z){
-        this.position.x = x;
-        this.position.y = y;
-        this.position.z = z;
+        transforms.setPosition(transform, x, y, z);
+        transformChanged();
     }
 
     public float getScale() {
-        return scale;
+        return transforms.getScale(transform);
     }
 
     public void setScale(float scale) {
-        this.scale = scale;
+        transforms.setScale(transform, scale);
+        transformChanged();
     }
 
-    public Vector3f getRotation() {
-        return rotation;
+    /**
+     * Rotation lives in the store, changes must be made through {@link #setRotation(float, float, float)}
+     * @param dest Vector where the rotation in degrees is copied
+     * @return dest
+     */
+    public Vector3f getRotation(Vector3f dest) {
+        return transforms.getRotation(transform, dest);
     }
 
     public void setRotation(float x, float y, float z){
-        this.rotation.x = x;
-        this.rotation.y = y;
-        this.rotation.z = z;
+        transforms.setRotation(transform, x, y, z);
+        transformChanged();
+    }
+
+    /**
+     * Bounds are only recalculated after the object's transform changes
+     * @return Box and sphere enclosing the object in world coordinates
+     */
+    public Bounds getWorldBounds() {
+        getWorldMatrix();
+        if(boundsChanged){
+            worldMatrix.get(matrixValues);
+            worldBounds.transform(bounds, matrixValues);
+            boundsChanged = false;
+        }
+        return worldBounds;
+    }
+
+    /**
+     * Matrix is only recalculated after the object's transform changes, objects in a {@link SceneGraph} get it from
+     * the graph when it's updated
+     * @return Matrix moving the object's model into the world
+     */
+    public Matrix4f getWorldMatrix() {
+        int version = transforms.getVersion(transform);
+        if(worldVersion != version && sceneGraph == null){
+            transforms.getMatrix(transform, matrixValues, 0);
+            worldMatrix.set(matrixValues);
+            worldVersion = version;
+            modelViewChanged = true;
+            boundsChanged = true;
+        }
+        return worldMatrix;
+    }
+
+    /**
+     * Calculates the matrix defined by position, rotation and scale, relative to the parent for objects in a
+     * {@link SceneGraph}
+     * @param dest Matrix where the result is written
+     * @return dest
+     */
+    public Matrix4f getLocalMatrix(Matrix4f dest) {
+        transforms.getMatrix(transform, matrixValues, 0);
+        return dest.set(matrixValues);
+    }
+
+    /**
+     * Sets the world matrix calculated by the scene graph
+     * @param values Matrix values in column major order
+     * @param offset Index of the first value
+     */
+    void setWorldMatrix(float[] values, int offset) {
+        worldMatrix.set(values, offset);
+        worldVersion = transforms.getVersion(transform);
+        modelViewChanged = true;
+        boundsChanged = true;
+    }
+
+    /**
+     * Multiplies the view matrix by the world matrix only if the object or the view changed since the last call
+     * @param viewMatrix Camera's view matrix
+     * @param viewVersion Number that changes every time the view matrix changes
+     * @return If the world matrix changed since the last call
+     */
+    public boolean updateModelViewMatrix(Matrix4f viewMatrix, int viewVersion) {
+        getWorldMatrix();
+        boolean changed = modelViewChanged;
+        if(changed || this.viewVersion != viewVersion){
+            viewMatrix.mul(worldMatrix, modelViewMatrix);
+            this.viewVersion = viewVersion;
+            modelViewChanged = false;
+        }
+        return changed;
+    }
+
+    /**
+     * @return View times world matrix as of the last {@link #updateModelViewMatrix(Matrix4f, int)} call
+     */
+    public Matrix4f getModelViewMatrix() {
+        return modelViewMatrix;
+    }
+
+    /**
+     * @return Graph this object belongs to, null if it doesn't have a parent
+     */
+    public SceneGraph getSceneGraph() {
+        return sceneGraph;
+    }
+
+    /**
+     * Changes made in bulk through the store aren't seen by scene graphs, objects in a graph must use the setters
+     */
+    private void transformChanged() {
+        if(sceneGraph != null)
+            sceneGraph.markChanged(sceneNode);
     }
 
     /**
-     * Deletes any temporary data stored in systems memory
+     * Deletes any temporary data stored in systems memory and releases the object's transform, shared meshes and
+     * levels of detail are left for their owner to delete
      */
     public void cleanup(){
-        mesh.cleanup();
+        transforms.free(transform);
+        if(levelOfDetail != null){
+            if(!levelOfDetail.isShared())
+                levelOfDetail.cleanup();
+        } else if(mesh != null && !mesh.isShared())
+            mesh.cleanup();
     }
 }
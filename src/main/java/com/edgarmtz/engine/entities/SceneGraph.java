@@ -0,0 +1,329 @@
+package com.edgarmtz.engine.entities;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchy of objects where each object's position, rotation and scale are relative to it's parent. Nodes are
+ * stored in breadth first order in flat arrays, so parents always come before their children and updating the whole
+ * graph is a single pass through memory. Only objects that changed and their descendants are recalculated
+ */
+public class SceneGraph {
+    /**
+     * Parent of nodes attached directly to the world
+     */
+    public static final int NO_PARENT = -1;
+    private static final int NO_NODE = -1;
+    private static final int MATRIX_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Node data indexed by node id, ids don't change when the graph is reordered
+    private int[] parents;
+    // Children of each node linked through their siblings, so a subtree is visited without scanning every node
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] previousSiblings;
+    private GameObject[] gameObjects;
+    private int[] nodeSlots;
+    private int nodeCapacity;
+    private int nextNode;
+    private int[] freeNodes;
+    private int freeNodeCount;
+
+    // Node data indexed by slot, slots are sorted in breadth first order
+    private int[] slotNodes;
+    private int[] slotParents;
+    private float[] worldMatrices;
+    private boolean[] changed;
+    private boolean[] updated;
+    private int slotCount;
+
+    private boolean structureChanged;
+    private int firstChangedSlot;
+    private final float[] localValues;
+    private int updatedNodes;
+
+    public SceneGraph(){
+        nodeCapacity = INITIAL_CAPACITY;
+        parents = new int[nodeCapacity];
+        firstChildren = new int[nodeCapacity];
+        nextSiblings = new int[nodeCapacity];
+        previousSiblings = new int[nodeCapacity];
+        gameObjects = new GameObject[nodeCapacity];
+        nodeSlots = new int[nodeCapacity];
+        freeNodes = new int[nodeCapacity];
+        slotNodes = new int[0];
+        slotParents = new int[0];
+        worldMatrices = new float[0];
+        changed = new boolean[0];
+        updated = new boolean[0];
+        localValues = new float[MATRIX_SIZE];
+        firstChangedSlot = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Adds an object to the graph, from now on it's position, rotation and scale are relative to it's parent
+     * @param gameObject Object not in any graph
+     * @param parent Parent node or {@link #NO_PARENT}
+     * @return Node id, used to attach children or remove the object
+     */
+    public int add(GameObject gameObject, int parent){
+        if(gameObject.sceneGraph != null)
+            throw new IllegalArgumentException("Object already belongs to a scene graph");
+        if(parent != NO_PARENT && !contains(parent))
+            throw new IllegalArgumentException("Parent node " + parent + " doesn't exist");
+        int node;
+        if(freeNodeCount > 0){
+            node = freeNodes[--freeNodeCount];
+        } else {
+            if(nextNode == nodeCapacity)
+                growNodes(nodeCapacity * 2);
+            node = nextNode++;
+        }
+        parents[node] = parent;
+        firstChildren[node] = NO_NODE;
+        link(node);
+        gameObjects[node] = gameObject;
+        gameObject.sceneGraph = this;
+        gameObject.sceneNode = node;
+        structureChanged = true;
+        return node;
+    }
+
+    /**
+     * Moves a node and all of it's descendants under another parent
+     * @param node Node to move
+     * @param parent New parent or {@link #NO_PARENT}, can't be a descendant of the node
+     */
+    public void setParent(int node, int parent){
+        if(!contains(node))
+            throw new IllegalArgumentException("Node " + node + " doesn't exist");
+        if(parent != NO_PARENT && !contains(parent))
+            throw new IllegalArgumentException("Parent node " + parent + " doesn't exist");
+        for (int ancestor = parent; ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+            if(ancestor == node)
+                throw new IllegalArgumentException("Node " + node + " can't be it's own ancestor");
+        }
+        unlink(node);
+        parents[node] = parent;
+        link(node);
+        structureChanged = true;
+    }
+
+    /**
+     * Removes a node and all of it's descendants, their objects keep their last world matrix. Only the removed
+     * nodes are visited
+     * @param node Node to remove
+     */
+    public void remove(int node){
+        if(!contains(node))
+            return;
+        // Leaves go first, a node is detached once it's last child was
+        int current = node;
+        while(true){
+            while(firstChildren[current] != NO_NODE)
+                current = firstChildren[current];
+            int parent = parents[current];
+            unlink(current);
+            detach(current);
+            if(current == node)
+                break;
+            current = parent;
+        }
+        structureChanged = true;
+    }
+
+    /**
+     * @param node Node id
+     * @return If the node is in the graph
+     */
+    public boolean contains(int node){
+        return node >= 0 && node < nextNode && gameObjects[node] != null;
+    }
+
+    /**
+     * Called by objects when their position, rotation or scale change
+     * @param node Changed node
+     */
+    void markChanged(int node){
+        if(structureChanged)
+            return;
+        int slot = nodeSlots[node];
+        changed[slot] = true;
+        firstChangedSlot = Math.min(firstChangedSlot, slot);
+    }
+
+    /**
+     * Recalculates world matrices of changed nodes and their descendants, parents are always updated before their
+     * children so a single pass is enough. Call it once per frame after objects move and before they are drawn
+     * @return Amount of nodes recalculated
+     */
+    public int update(){
+        if(structureChanged)
+            rebuildOrder();
+        updatedNodes = 0;
+        if(firstChangedSlot >= slotCount)
+            return 0;
+
+        int firstSlot = firstChangedSlot;
+        Arrays.fill(updated, firstSlot, slotCount, false);
+        for (int slot = firstSlot; slot < slotCount; slot++) {
+            int parentSlot = slotParents[slot];
+            // Parents before the first changed slot weren't updated in this pass
+            if(!changed[slot] && (parentSlot < firstSlot || !updated[parentSlot]))
+                continue;
+            changed[slot] = false;
+            updated[slot] = true;
+            updatedNodes++;
+
+            GameObject gameObject = gameObjects[slotNodes[slot]];
+            gameObject.getTransforms().getMatrix(gameObject.getTransformIndex(), localValues, 0);
+            int offset = slot * MATRIX_SIZE;
+            if(parentSlot == NO_PARENT)
+                System.arraycopy(localValues, 0, worldMatrices, offset, MATRIX_SIZE);
+            else
+                multiply(worldMatrices, parentSlot * MATRIX_SIZE, localValues, worldMatrices, offset);
+            gameObject.setWorldMatrix(worldMatrices, offset);
+        }
+        firstChangedSlot = Integer.MAX_VALUE;
+        return updatedNodes;
+    }
+
+    /**
+     * @return Amount of objects in the graph
+     */
+    public int size() {
+        if(structureChanged)
+            rebuildOrder();
+        return slotCount;
+    }
+
+    /**
+     * @param index Position in breadth first order, between 0 and {@link #size()}
+     * @return Object at that position
+     */
+    public GameObject getGameObject(int index) {
+        if(structureChanged)
+            rebuildOrder();
+        return gameObjects[slotNodes[index]];
+    }
+
+    /**
+     * @param node Node id
+     * @return Object stored in the node
+     */
+    public GameObject getNodeObject(int node) {
+        return gameObjects[node];
+    }
+
+    /**
+     * @param node Node id
+     * @return Parent node or {@link #NO_PARENT}
+     */
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * @return Nodes recalculated by the last {@link #update()}
+     */
+    public int getUpdatedNodes() {
+        return updatedNodes;
+    }
+
+    /**
+     * Sorts nodes in breadth first order, children of the same parent end up next to each other
+     */
+    private void rebuildOrder(){
+        structureChanged = false;
+        if(slotNodes.length < nextNode){
+            slotNodes = new int[nodeCapacity];
+            slotParents = new int[nodeCapacity];
+            worldMatrices = new float[nodeCapacity * MATRIX_SIZE];
+            changed = new boolean[nodeCapacity];
+            updated = new boolean[nodeCapacity];
+        }
+        Arrays.fill(nodeSlots, 0, nextNode, -1);
+        slotCount = 0;
+        for (int node = 0; node < nextNode; node++) {
+            if(gameObjects[node] != null && parents[node] == NO_PARENT)
+                slotNodes[slotCount++] = node;
+        }
+        // Slots double as the queue, each processed slot appends it's children
+        for (int head = 0; head < slotCount; head++) {
+            int node = slotNodes[head];
+            nodeSlots[node] = head;
+            for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+                slotNodes[slotCount] = child;
+                slotParents[slotCount] = head;
+                slotCount++;
+            }
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if(parents[slotNodes[slot]] == NO_PARENT)
+                slotParents[slot] = NO_PARENT;
+        }
+
+        Arrays.fill(changed, 0, slotCount, true);
+        firstChangedSlot = 0;
+    }
+
+    /**
+     * Adds a node to it's parent's children, first so it doesn't need to find the last one
+     */
+    private void link(int node){
+        int parent = parents[node];
+        previousSiblings[node] = NO_NODE;
+        nextSiblings[node] = NO_NODE;
+        if(parent == NO_PARENT)
+            return;
+        int first = firstChildren[parent];
+        nextSiblings[node] = first;
+        if(first != NO_NODE)
+            previousSiblings[first] = node;
+        firstChildren[parent] = node;
+    }
+
+    private void unlink(int node){
+        int parent = parents[node];
+        if(parent == NO_PARENT)
+            return;
+        int previous = previousSiblings[node], next = nextSiblings[node];
+        if(previous == NO_NODE)
+            firstChildren[parent] = next;
+        else
+            nextSiblings[previous] = next;
+        if(next != NO_NODE)
+            previousSiblings[next] = previous;
+    }
+
+    private void detach(int node){
+        gameObjects[node].sceneGraph = null;
+        gameObjects[node] = null;
+        freeNodes[freeNodeCount++] = node;
+    }
+
+    private void growNodes(int capacity){
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+        gameObjects = Arrays.copyOf(gameObjects, capacity);
+        nodeSlots = Arrays.copyOf(nodeSlots, capacity);
+        freeNodes = Arrays.copyOf(freeNodes, capacity);
+        nodeCapacity = capacity;
+    }
+
+    /**
+     * Multiplies two column major matrices
+     */
+    private static void multiply(float[] left, int leftOffset, float[] right, float[] dest, int destOffset){
+        for (int column = 0; column < 4; column++) {
+            float r0 = right[column * 4], r1 = right[column * 4 + 1];
+            float r2 = right[column * 4 + 2], r3 = right[column * 4 + 3];
+            for (int row = 0; row < 4; row++) {
+                dest[destOffset + column * 4 + row] = left[leftOffset + row] * r0 + left[leftOffset + 4 + row] * r1
+                        + left[leftOffset + 8 + row] * r2 + left[leftOffset + 12 + row] * r3;
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.edgarmtz.engine.entities;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * Position, rotation and scale of many objects stored as one array per component instead of one object per
+ * transform, so loops over every object read memory in order. Each object is identified by it's index in the arrays
+ */
+public class TransformStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MATRIX_SIZE = 16;
+
+    private float[] positionX;
+    private float[] positionY;
+    private float[] positionZ;
+    private float[] rotationX;
+    private float[] rotationY;
+    private float[] rotationZ;
+    private float[] scale;
+    /**
+     * Increased every time a transform changes, objects compare it to know if their matrices are outdated
+     */
+    private int[] versions;
+    private int capacity;
+    private int count;
+    private int[] freeIndices;
+    private int freeCount;
+    /**
+     * Marks transforms waiting in the free list so a repeated free can't hand the same index to two objects
+     */
+    private boolean[] freed;
+
+    public TransformStore(){
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity Amount of transforms stored before the arrays grow
+     */
+    public TransformStore(int capacity){
+        this.capacity = Math.max(capacity, 1);
+        positionX = new float[this.capacity];
+        positionY = new float[this.capacity];
+        positionZ = new float[this.capacity];
+        rotationX = new float[this.capacity];
+        rotationY = new float[this.capacity];
+        rotationZ = new float[this.capacity];
+        scale = new float[this.capacity];
+        versions = new int[this.capacity];
+        freeIndices = new int[this.capacity];
+        freed = new boolean[this.capacity];
+    }
+
+    /**
+     * Reserves a transform at the origin, without rotation and with scale 1
+     * @return Index of the transform
+     */
+    public int allocate(){
+        int index;
+        if(freeCount > 0){
+            index = freeIndices[--freeCount];
+            freed[index] = false;
+        } else {
+            if(count == capacity)
+                grow(capacity * 2);
+            index = count++;
+        }
+        positionX[index] = positionY[index] = positionZ[index] = 0;
+        rotationX[index] = rotationY[index] = rotationZ[index] = 0;
+        scale[index] = 1;
+        versions[index]++;
+        return index;
+    }
+
+    /**
+     * Makes a transform available for new objects
+     * @param index Transform index
+     * @throws IllegalArgumentException If the transform was never allocated or was already freed
+     */
+    public void free(int index){
+        if(index < 0 || index >= count || freed[index])
+            throw new IllegalArgumentException("Transform " + index + " isn't allocated");
+        freed[index] = true;
+        freeIndices[freeCount++] = index;
+    }
+
+    public void setPosition(int index, float x, float y, float z){
+        positionX[index] = x;
+        positionY[index] = y;
+        positionZ[index] = z;
+        versions[index]++;
+    }
+
+    public void setRotation(int index, float x, float y, float z){
+        rotationX[index] = x;
+        rotationY[index] = y;
+        rotationZ[index] = z;
+        versions[index]++;
+    }
+
+    public void setScale(int index, float scale){
+        this.scale[index] = scale;
+        versions[index]++;
+    }
+
+    /**
+     * @param index Transform index
+     * @param dest Vector where the position is copied
+     * @return dest
+     */
+    public Vector3f getPosition(int index, Vector3f dest){
+        dest.x = positionX[index];
+        dest.y = positionY[index];
+        dest.z = positionZ[index];
+        return dest;
+    }
+
+    /**
+     * @param index Transform index
+     * @param dest Vector where the rotation in degrees is copied
+     * @return dest
+     */
+    public Vector3f getRotation(int index, Vector3f dest){
+        dest.x = rotationX[index];
+        dest.y = rotationY[index];
+        dest.z = rotationZ[index];
+        return dest;
+    }
+
+    public float getPositionX(int index){
+        return positionX[index];
+    }
+
+    public float getPositionY(int index){
+        return positionY[index];
+    }
+
+    public float getPositionZ(int index){
+        return positionZ[index];
+    }
+
+    public float getScale(int index){
+        return scale[index];
+    }
+
+    /**
+     * @param index Transform index
+     * @return Number that changes every time the transform changes
+     */
+    public int getVersion(int index){
+        return versions[index];
+    }
+
+    /**
+     * Moves a range of transforms by the same displacement
+     * @param from First transform index
+     * @param to Index after the last transform
+     */
+    public void translate(int from, int to, float x, float y, float z){
+        for (int i = from; i < to; i++) {
+            positionX[i] += x;
+            positionY[i] += y;
+            positionZ[i] += z;
+        }
+        markChanged(from, to);
+    }
+
+    /**
+     * Rotates a range of transforms by the same angles
+     * @param from First transform index
+     * @param to Index after the last transform
+     */
+    public void rotate(int from, int to, float x, float y, float z){
+        for (int i = from; i < to; i++) {
+            rotationX[i] += x;
+            rotationY[i] += y;
+            rotationZ[i] += z;
+        }
+        markChanged(from, to);
+    }
+
+    /**
+     * Moves a range of transforms by their velocities
+     * @param from First transform index
+     * @param to Index after the last transform
+     * @param velocityX Velocity x component of every transform, indexed the same way as the store
+     * @param velocityY Velocity y component of every transform
+     * @param velocityZ Velocity z component of every transform
+     * @param interval Elapsed time
+     */
+    public void integrate(int from, int to, float[] velocityX, float[] velocityY, float[] velocityZ, float interval){
+        for (int i = from; i < to; i++) {
+            positionX[i] += velocityX[i] * interval;
+            positionY[i] += velocityY[i] * interval;
+            positionZ[i] += velocityZ[i] * interval;
+        }
+        markChanged(from, to);
+    }
+
+    /**
+     * Calculates model matrices for a range of transforms, same as
+     * {@link com.edgarmtz.engine.physics.Transformation#getModelMatrix(GameObject, org.joml.Matrix4f)} for each of them
+     * @param from First transform index
+     * @param to Index after the last transform
+     * @param dest Matrices values in column major order, sixteen values per transform
+     * @param offset Index in dest where the first matrix is written
+     */
+    public void getMatrices(int from, int to, float[] dest, int offset){
+        for (int i = from; i < to; i++)
+            getMatrix(i, dest, offset + (i - from) * MATRIX_SIZE);
+    }
+
+    /**
+     * @return Index after the last transform ever allocated, free transforms in between are included
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * Writes translation times rotation around x, y and z by the negated angles times scale, different transforms
+     * can be calculated from different threads as long as each one writes into it's own array
+     * @param index Transform index
+     * @param dest Matrix values in column major order
+     * @param offset Index in dest where the matrix is written
+     */
+    public void getMatrix(int index, float[] dest, int offset){
+        double ax = Math.toRadians(-rotationX[index]);
+        double ay = Math.toRadians(-rotationY[index]);
+        double az = Math.toRadians(-rotationZ[index]);
+        float cx = (float) Math.cos(ax), sx = (float) Math.sin(ax);
+        float cy = (float) Math.cos(ay), sy = (float) Math.sin(ay);
+        float cz = (float) Math.cos(az), sz = (float) Math.sin(az);
+        float s = scale[index];
+        // Columns of Rx * Ry * Rz multiplied by scale
+        dest[offset] = cy * cz * s;
+        dest[offset + 1] = (sx * sy * cz + cx * sz) * s;
+        dest[offset + 2] = (-cx * sy * cz + sx * sz) * s;
+        dest[offset + 3] = 0;
+        dest[offset + 4] = -cy * sz * s;
+        dest[offset + 5] = (-sx * sy * sz + cx * cz) * s;
+        dest[offset + 6] = (cx * sy * sz + sx * cz) * s;
+        dest[offset + 7] = 0;
+        dest[offset + 8] = sy * s;
+        dest[offset + 9] = -sx * cy * s;
+        dest[offset + 10] = cx * cy * s;
+        dest[offset + 11] = 0;
+        dest[offset + 12] = positionX[index];
+        dest[offset + 13] = positionY[index];
+        dest[offset + 14] = positionZ[index];
+        dest[offset + 15] = 1;
+    }
+
+    private void markChanged(int from, int to){
+        for (int i = from; i < to; i++)
+            versions[i]++;
+    }
+
+    private void grow(int capacity){
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        positionZ = Arrays.copyOf(positionZ, capacity);
+        rotationX = Arrays.copyOf(rotationX, capacity);
+        rotationY = Arrays.copyOf(rotationY, capacity);
+        rotationZ = Arrays.copyOf(rotationZ, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        freeIndices = Arrays.copyOf(freeIndices, capacity);
+        freed = Arrays.copyOf(freed, capacity);
+        this.capacity = capacity;
+    }
+}
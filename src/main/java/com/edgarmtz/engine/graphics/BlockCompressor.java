@@ -0,0 +1,413 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses RGBA images into {@link TextureFormat#BC1} or {@link TextureFormat#BC3} blocks on the cpu, and decompresses
+ * them back for gpus without support for them. Each block's two colors are found along the axis the block's colors
+ * vary the most and then fitted to the colors chosen by each pixel
+ */
+public class BlockCompressor {
+    private static final int BLOCK_SIZE = 4;
+    private static final int BLOCK_PIXELS = BLOCK_SIZE * BLOCK_SIZE;
+    // BC1 pixels with less alpha are stored as transparent
+    private static final int OPAQUE_ALPHA = 128;
+    private static final int REFINE_ITERATIONS = 2;
+    // How much of the first color each index of a block takes
+    private static final float[] FOUR_COLOR_WEIGHTS = {1, 0, 2 / 3f, 1 / 3f};
+    private static final float[] THREE_COLOR_WEIGHTS = {1, 0, 1 / 2f};
+    private static final int TRANSPARENT_INDEX = 3;
+
+    /**
+     * @param level Image or mipmap level, any size
+     * @param format {@link TextureFormat#BC1} or {@link TextureFormat#BC3}
+     * @param target Buffer where blocks are written from left to right and top to bottom starting at it's current
+     *               position, position is moved after the last block
+     * @throws IllegalArgumentException if the format isn't compressed
+     */
+    public static void compress(TextureData level, TextureFormat format, ByteBuffer target){
+        checkFormat(format);
+        ByteBuffer pixels = level.getPixels();
+        int width = level.getWidth();
+        int height = level.getHeight();
+        BlockEncoder encoder = new BlockEncoder();
+        for (int y = 0; y < height; y += BLOCK_SIZE) {
+            for (int x = 0; x < width; x += BLOCK_SIZE) {
+                encoder.load(pixels, width, height, x, y);
+                if(format == TextureFormat.BC3)
+                    encoder.writeAlpha(target);
+                encoder.writeColor(target, format == TextureFormat.BC1);
+            }
+        }
+    }
+
+    /**
+     * @param blocks Buffer with the blocks of a level starting at it's position, position isn't changed
+     * @param format {@link TextureFormat#BC1} or {@link TextureFormat#BC3}
+     * @param width Level width in pixels
+     * @param height Level height in pixels
+     * @param pixels Buffer with space for 4 bytes per pixel starting at it's position, position isn't changed
+     * @throws IllegalArgumentException if the format isn't compressed
+     */
+    public static void decompress(ByteBuffer blocks, TextureFormat format, int width, int height, ByteBuffer pixels){
+        checkFormat(format);
+        boolean alphaBlocks = format == TextureFormat.BC3;
+        int[] colors = new int[4 * 4];
+        int[] alphas = new int[8];
+        int block = blocks.position();
+        int start = pixels.position();
+        for (int y = 0; y < height; y += BLOCK_SIZE) {
+            for (int x = 0; x < width; x += BLOCK_SIZE) {
+                long alphaIndices = 0;
+                if(alphaBlocks){
+                    alphaPalette(blocks.get(block) & 0xFF, blocks.get(block + 1) & 0xFF, alphas);
+                    for (int i = 0; i < 6; i++)
+                        alphaIndices |= (long) (blocks.get(block + 2 + i) & 0xFF) << (8 * i);
+                    block += 8;
+                }
+                int color0 = getShort(blocks, block);
+                int color1 = getShort(blocks, block + 2);
+                int indices = getShort(blocks, block + 4) | getShort(blocks, block + 6) << 16;
+                block += 8;
+                // BC3 colors always use four colors
+                colorPalette(color0, color1, alphaBlocks || color0 > color1, colors);
+
+                for (int i = 0; i < BLOCK_PIXELS; i++) {
+                    int pixelX = x + i % BLOCK_SIZE;
+                    int pixelY = y + i / BLOCK_SIZE;
+                    if(pixelX >= width || pixelY >= height)
+                        continue;
+                    int color = ((indices >>> (2 * i)) & 3) * 4;
+                    int pixel = start + (pixelY * width + pixelX) * 4;
+                    pixels.put(pixel, (byte) colors[color]);
+                    pixels.put(pixel + 1, (byte) colors[color + 1]);
+                    pixels.put(pixel + 2, (byte) colors[color + 2]);
+                    pixels.put(pixel + 3, (byte) (alphaBlocks ? alphas[(int) (alphaIndices >>> (3 * i)) & 7]
+                            : colors[color + 3]));
+                }
+            }
+        }
+    }
+
+    private static void checkFormat(TextureFormat format){
+        if(format != TextureFormat.BC1 && format != TextureFormat.BC3)
+            throw new IllegalArgumentException("Can't compress into " + format);
+    }
+
+    /**
+     * Decodes the four RGBA colors a block's indices choose from
+     * @param fourColor Else the third color is in the middle and the fourth is transparent black
+     */
+    private static void colorPalette(int color0, int color1, boolean fourColor, int[] colors){
+        expand(color0, colors, 0);
+        expand(color1, colors, 4);
+        for (int channel = 0; channel < 3; channel++) {
+            int first = colors[channel];
+            int second = colors[4 + channel];
+            if(fourColor){
+                colors[8 + channel] = (2 * first + second) / 3;
+                colors[12 + channel] = (first + 2 * second) / 3;
+            } else {
+                colors[8 + channel] = (first + second) / 2;
+                colors[12 + channel] = 0;
+            }
+        }
+        colors[11] = 255;
+        colors[15] = fourColor ? 255 : 0;
+    }
+
+    private static void expand(int color, int[] colors, int offset){
+        int red = color >>> 11;
+        int green = (color >>> 5) & 0x3F;
+        int blue = color & 0x1F;
+        colors[offset] = (red << 3) | (red >>> 2);
+        colors[offset + 1] = (green << 2) | (green >>> 4);
+        colors[offset + 2] = (blue << 3) | (blue >>> 2);
+        colors[offset + 3] = 255;
+    }
+
+    /**
+     * Decodes the eight alphas a BC3 block's indices choose from
+     */
+    private static void alphaPalette(int alpha0, int alpha1, int[] alphas){
+        alphas[0] = alpha0;
+        alphas[1] = alpha1;
+        if(alpha0 > alpha1){
+            for (int i = 1; i < 7; i++)
+                alphas[i + 1] = ((7 - i) * alpha0 + i * alpha1) / 7;
+        } else {
+            for (int i = 1; i < 5; i++)
+                alphas[i + 1] = ((5 - i) * alpha0 + i * alpha1) / 5;
+            alphas[6] = 0;
+            alphas[7] = 255;
+        }
+    }
+
+    private static int getShort(ByteBuffer buffer, int index){
+        return (buffer.get(index) & 0xFF) | (buffer.get(index + 1) & 0xFF) << 8;
+    }
+
+    /**
+     * Encodes one block at a time, keeps the block's pixels between calls
+     */
+    private static class BlockEncoder {
+        private final int[] red = new int[BLOCK_PIXELS];
+        private final int[] green = new int[BLOCK_PIXELS];
+        private final int[] blue = new int[BLOCK_PIXELS];
+        private final int[] alpha = new int[BLOCK_PIXELS];
+        private final boolean[] used = new boolean[BLOCK_PIXELS];
+        private final int[] indices = new int[BLOCK_PIXELS];
+        private final int[] colors = new int[4 * 4];
+        private final float[] start = new float[3];
+        private final float[] end = new float[3];
+        private final float[] sumA = new float[3];
+        private final float[] sumB = new float[3];
+
+        /**
+         * Reads the block starting at a pixel, pixels past the image's border repeat the last row or column
+         */
+        private void load(ByteBuffer pixels, int width, int height, int x, int y){
+            int offset = pixels.position();
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                int pixelX = Math.min(x + i % BLOCK_SIZE, width - 1);
+                int pixelY = Math.min(y + i / BLOCK_SIZE, height - 1);
+                int pixel = offset + (pixelY * width + pixelX) * 4;
+                red[i] = pixels.get(pixel) & 0xFF;
+                green[i] = pixels.get(pixel + 1) & 0xFF;
+                blue[i] = pixels.get(pixel + 2) & 0xFF;
+                alpha[i] = pixels.get(pixel + 3) & 0xFF;
+            }
+        }
+
+        private void writeAlpha(ByteBuffer target){
+            int max = 0;
+            int min = 255;
+            for (int value : alpha) {
+                max = Math.max(max, value);
+                min = Math.min(min, value);
+            }
+            long bits = 0;
+            if(max > min){
+                int range = max - min;
+                for (int i = 0; i < BLOCK_PIXELS; i++) {
+                    int step = ((max - alpha[i]) * 7 + range / 2) / range;
+                    // Index 0 is the maximum, 1 the minimum and the rest go from one to the other
+                    int index = step == 0 ? 0 : step == 7 ? 1 : step + 1;
+                    bits |= (long) index << (3 * i);
+                }
+            }
+            target.put((byte) max).put((byte) min);
+            for (int i = 0; i < 6; i++)
+                target.put((byte) (bits >>> (8 * i)));
+        }
+
+        /**
+         * @param transparency If pixels with little alpha are stored as transparent, only BC1 blocks can
+         */
+        private void writeColor(ByteBuffer target, boolean transparency){
+            boolean threeColor = false;
+            int count = 0;
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                used[i] = !transparency || alpha[i] >= OPAQUE_ALPHA;
+                threeColor |= !used[i];
+                if(used[i])
+                    count++;
+            }
+            if(count == 0){
+                putColors(target, 0, 0, -1);
+                return;
+            }
+            float[] weights = threeColor ? THREE_COLOR_WEIGHTS : FOUR_COLOR_WEIGHTS;
+
+            findEndpoints(count);
+            int color0 = pack(start);
+            int color1 = pack(end);
+            long error = fit(color0, color1, weights);
+            for (int iteration = 0; iteration < REFINE_ITERATIONS; iteration++) {
+                if(!refine(weights))
+                    break;
+                int refined0 = pack(start);
+                int refined1 = pack(end);
+                if(refined0 == color0 && refined1 == color1)
+                    break;
+                long refinedError = fit(refined0, refined1, weights);
+                if(refinedError >= error)
+                    break;
+                color0 = refined0;
+                color1 = refined1;
+                error = refinedError;
+            }
+            fit(color0, color1, weights);
+
+            // Four color blocks need the first color to be bigger and three color blocks the opposite
+            if(threeColor ? color0 > color1 : color0 < color1){
+                int swap = color0;
+                color0 = color1;
+                color1 = swap;
+                // Three color blocks keep the middle and transparent indices
+                for (int i = 0; i < BLOCK_PIXELS; i++) {
+                    if(!threeColor || indices[i] < 2)
+                        indices[i] ^= 1;
+                }
+            } else if(!threeColor && color0 == color1){
+                Arrays.fill(indices, 0);
+            }
+            int bits = 0;
+            for (int i = 0; i < BLOCK_PIXELS; i++)
+                bits |= indices[i] << (2 * i);
+            putColors(target, color0, color1, bits);
+        }
+
+        /**
+         * Places the colors at both ends of the used pixels projected on the axis they vary the most
+         */
+        private void findEndpoints(int count){
+            float meanRed = 0, meanGreen = 0, meanBlue = 0;
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                if(!used[i])
+                    continue;
+                meanRed += red[i];
+                meanGreen += green[i];
+                meanBlue += blue[i];
+            }
+            meanRed /= count;
+            meanGreen /= count;
+            meanBlue /= count;
+
+            float rr = 0, rg = 0, rb = 0, gg = 0, gb = 0, bb = 0;
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                if(!used[i])
+                    continue;
+                float r = red[i] - meanRed;
+                float g = green[i] - meanGreen;
+                float b = blue[i] - meanBlue;
+                rr += r * r;
+                rg += r * g;
+                rb += r * b;
+                gg += g * g;
+                gb += g * b;
+                bb += b * b;
+            }
+            // Power iteration towards the covariance's main eigenvector, starting from the column that varies the most
+            float axisRed = rr, axisGreen = rg, axisBlue = rb;
+            if(gg > rr && gg >= bb){
+                axisRed = rg;
+                axisGreen = gg;
+                axisBlue = gb;
+            } else if(bb > rr){
+                axisRed = rb;
+                axisGreen = gb;
+                axisBlue = bb;
+            }
+            if(axisRed == 0 && axisGreen == 0 && axisBlue == 0)
+                axisRed = axisGreen = axisBlue = 1;
+            for (int iteration = 0; iteration < 8; iteration++) {
+                float r = rr * axisRed + rg * axisGreen + rb * axisBlue;
+                float g = rg * axisRed + gg * axisGreen + gb * axisBlue;
+                float b = rb * axisRed + gb * axisGreen + bb * axisBlue;
+                float length = Math.max(Math.abs(r), Math.max(Math.abs(g), Math.abs(b)));
+                if(length == 0)
+                    break;
+                axisRed = r / length;
+                axisGreen = g / length;
+                axisBlue = b / length;
+            }
+
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            float lengthSquared = axisRed * axisRed + axisGreen * axisGreen + axisBlue * axisBlue;
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                if(!used[i])
+                    continue;
+                float t = ((red[i] - meanRed) * axisRed + (green[i] - meanGreen) * axisGreen
+                        + (blue[i] - meanBlue) * axisBlue) / lengthSquared;
+                min = Math.min(min, t);
+                max = Math.max(max, t);
+            }
+            start[0] = meanRed + axisRed * max;
+            start[1] = meanGreen + axisGreen * max;
+            start[2] = meanBlue + axisBlue * max;
+            end[0] = meanRed + axisRed * min;
+            end[1] = meanGreen + axisGreen * min;
+            end[2] = meanBlue + axisBlue * min;
+        }
+
+        /**
+         * Chooses the closest color for every used pixel, unused pixels get the transparent index
+         * @return Sum of the squared differences between pixels and their colors
+         */
+        private long fit(int color0, int color1, float[] weights){
+            colorPalette(color0, color1, weights == FOUR_COLOR_WEIGHTS, colors);
+            long error = 0;
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                if(!used[i]){
+                    indices[i] = TRANSPARENT_INDEX;
+                    continue;
+                }
+                int best = 0;
+                int bestDistance = Integer.MAX_VALUE;
+                for (int index = 0; index < weights.length; index++) {
+                    int r = red[i] - colors[index * 4];
+                    int g = green[i] - colors[index * 4 + 1];
+                    int b = blue[i] - colors[index * 4 + 2];
+                    int distance = r * r + g * g + b * b;
+                    if(distance < bestDistance){
+                        bestDistance = distance;
+                        best = index;
+                    }
+                }
+                indices[i] = best;
+                error += bestDistance;
+            }
+            return error;
+        }
+
+        /**
+         * Finds the two colors closest to the used pixels in the least squares sense, keeping the indices chosen
+         * @return False if every pixel chose the same weight, so the colors can't be solved
+         */
+        private boolean refine(float[] weights){
+            float aa = 0, ab = 0, bb = 0;
+            Arrays.fill(sumA, 0);
+            Arrays.fill(sumB, 0);
+            for (int i = 0; i < BLOCK_PIXELS; i++) {
+                if(!used[i])
+                    continue;
+                float a = weights[indices[i]];
+                float b = 1 - a;
+                aa += a * a;
+                ab += a * b;
+                bb += b * b;
+                sumA[0] += a * red[i];
+                sumA[1] += a * green[i];
+                sumA[2] += a * blue[i];
+                sumB[0] += b * red[i];
+                sumB[1] += b * green[i];
+                sumB[2] += b * blue[i];
+            }
+            float determinant = aa * bb - ab * ab;
+            if(Math.abs(determinant) < 1e-6f)
+                return false;
+            for (int channel = 0; channel < 3; channel++) {
+                start[channel] = (bb * sumA[channel] - ab * sumB[channel]) / determinant;
+                end[channel] = (aa * sumB[channel] - ab * sumA[channel]) / determinant;
+            }
+            return true;
+        }
+
+        private static int pack(float[] color){
+            int red = Math.round(Math.max(0, Math.min(color[0], 255)) * 31 / 255);
+            int green = Math.round(Math.max(0, Math.min(color[1], 255)) * 63 / 255);
+            int blue = Math.round(Math.max(0, Math.min(color[2], 255)) * 31 / 255);
+            return red << 11 | green << 5 | blue;
+        }
+
+        private static void putColors(ByteBuffer target, int color0, int color1, int indices){
+            target.put((byte) color0).put((byte) (color0 >>> 8));
+            target.put((byte) color1).put((byte) (color1 >>> 8));
+            for (int i = 0; i < 4; i++)
+                target.put((byte) (indices >>> (8 * i)));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.edgarmtz.engine.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stream buffer living only in system memory with a simulated gpu finishing each frame a fixed amount of frames after
+ * it's submitted, used to check allocation and fence handling without OpenGL
+ */
+public class CpuStreamBuffer extends RingStreamBuffer {
+    private final ByteBuffer memory;
+    private final int latency;
+    private long submittedFrames;
+    private long completedFrames;
+    private long flushedBytes;
+
+    /**
+     * @param frameSize Bytes available to each frame
+     * @param sections Amount of frames in flight
+     * @param latency Frames the simulated gpu runs behind the cpu
+     */
+    public CpuStreamBuffer(int frameSize, int sections, int latency){
+        super(frameSize, sections);
+        this.latency = latency;
+        memory = MemoryUtil.memAlloc(sectionSize * sections);
+    }
+
+    @Override
+    public ByteBuffer getMemory() {
+        return memory;
+    }
+
+    @Override
+    public void flush(int offset, int size) {
+        if(offset < 0 || offset + size > memory.capacity())
+            throw new IndexOutOfBoundsException("Flushed range outside the buffer");
+        flushedBytes += size;
+    }
+
+    @Override
+    public int getBufferId() {
+        return 0;
+    }
+
+    @Override
+    protected long createFence() {
+        submittedFrames++;
+        completedFrames = Math.max(completedFrames, submittedFrames - latency);
+        // Fences are numbered by frame, starting at 1
+        return submittedFrames;
+    }
+
+    @Override
+    protected boolean waitFence(long fence) {
+        if(fence <= completedFrames)
+            return false;
+        completedFrames = fence;
+        return true;
+    }
+
+    @Override
+    protected void deleteFence(long fence) {
+    }
+
+    /**
+     * @return Frames the simulated gpu has finished
+     */
+    public long getCompletedFrames() {
+        return completedFrames;
+    }
+
+    public long getFlushedBytes() {
+        return flushedBytes;
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        MemoryUtil.memFree(memory);
+    }
+}
@@ -0,0 +1,57 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.opengl.GL30C.glBindVertexArray;
+import static org.lwjgl.opengl.GL31C.glDrawElementsInstanced;
+
+/**
+ * Sends every call straight to OpenGL, must be used from the thread owning the context
+ */
+public class GLGraphicsDevice implements GraphicsDevice {
+    @Override
+    public void useProgram(int programId) {
+        glUseProgram(programId);
+    }
+
+    @Override
+    public void bindTexture(int textureId) {
+        glBindTexture(GL_TEXTURE_2D, textureId);
+    }
+
+    @Override
+    public void bindVertexArray(int vaoId) {
+        glBindVertexArray(vaoId);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int location) {
+        glEnableVertexAttribArray(location);
+    }
+
+    @Override
+    public void setUniform(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void setUniform(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void setUniformMatrix(int location, FloatBuffer value) {
+        glUniformMatrix4fv(location, false, value);
+    }
+
+    @Override
+    public void drawElements(int count, int indexType) {
+        glDrawElements(GL_TRIANGLES, count, indexType, 0);
+    }
+
+    @Override
+    public void drawElementsInstanced(int count, int indexType, int instances) {
+        glDrawElementsInstanced(GL_TRIANGLES, count, indexType, 0, instances);
+    }
+}
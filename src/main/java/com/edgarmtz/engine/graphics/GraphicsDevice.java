@@ -0,0 +1,51 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.FloatBuffer;
+
+/**
+ * OpenGL calls made while drawing, implemented by {@link GLGraphicsDevice} to reach the gpu and by
+ * {@link RecordingGraphicsDevice} to inspect which calls are made without one
+ */
+public interface GraphicsDevice {
+    /**
+     * @param programId Shader program installed for the next draws
+     */
+    void useProgram(int programId);
+
+    /**
+     * @param textureId Texture bound to the first texture unit, 0 for none
+     */
+    void bindTexture(int textureId);
+
+    /**
+     * @param vaoId Vertex array object used by the next draws, 0 for none
+     */
+    void bindVertexArray(int vaoId);
+
+    void enableVertexAttribArray(int location);
+
+    void setUniform(int location, int value);
+
+    void setUniform(int location, float x, float y, float z);
+
+    /**
+     * @param location Uniform location
+     * @param value Buffer positioned at a 4x4 matrix in column major order
+     */
+    void setUniformMatrix(int location, FloatBuffer value);
+
+    /**
+     * Draws triangles with the bound vertex array's index buffer
+     * @param count Amount of indices
+     * @param indexType GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    void drawElements(int count, int indexType);
+
+    /**
+     * Draws the bound vertex array several times, reading per instance attributes once per copy
+     * @param count Amount of indices
+     * @param indexType GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     * @param instances Amount of copies
+     */
+    void drawElementsInstanced(int count, int indexType, int instances);
+}
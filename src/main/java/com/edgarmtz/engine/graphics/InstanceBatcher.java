@@ -0,0 +1,137 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Groups objects that share the same model so all of them are drawn with a single call, each group packs the
+ * matrices of it's objects one after another ready to be copied into an instance buffer. Groups are kept in the
+ * order their first object was added and objects keep the order they were added in
+ * @param <K> Type of the value objects are grouped by, usually {@link Mesh}
+ */
+public class InstanceBatcher<K> {
+    private static final int MATRIX_SIZE = 16;
+    private static final int INITIAL_INSTANCES = 16;
+
+    private final Map<K, Batch<K>> batchesByKey;
+    private final List<Batch<K>> batches;
+    private int batchCount;
+
+    public InstanceBatcher(){
+        batchesByKey = new IdentityHashMap<>();
+        batches = new ArrayList<>();
+    }
+
+    /**
+     * Removes every object, buffers are kept for the next frame
+     */
+    public void clear(){
+        for (int i = 0; i < batchCount; i++)
+            batches.get(i).clear();
+        batchesByKey.clear();
+        batchCount = 0;
+    }
+
+    /**
+     * Adds an object to the group of it's key
+     * @param key Value compared by identity to group objects
+     * @param matrices Buffer with the object's matrix
+     * @param offset Index of the first matrix value in the buffer, values are read in column major order
+     */
+    public void add(K key, FloatBuffer matrices, int offset){
+        Batch<K> batch = batchesByKey.get(key);
+        if(batch == null){
+            if(batchCount == batches.size())
+                batches.add(new Batch<K>());
+            batch = batches.get(batchCount++);
+            batch.key = key;
+            batchesByKey.put(key, batch);
+        }
+        batch.add(matrices, offset);
+    }
+
+    /**
+     * @return Amount of groups, each one needs a draw call
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @param index Number between 0 and {@link #getBatchCount()}
+     * @return Group in the position it was created
+     */
+    public Batch<K> getBatch(int index) {
+        return batches.get(index);
+    }
+
+    /**
+     * Deletes matrices buffers
+     */
+    public void cleanup(){
+        for (Batch<K> batch : batches)
+            batch.cleanup();
+        batches.clear();
+        batchesByKey.clear();
+        batchCount = 0;
+    }
+
+    /**
+     * Objects sharing a key and their matrices
+     */
+    public static class Batch<K> {
+        private K key;
+        private FloatBuffer matrices;
+        private int instanceCount;
+
+        private Batch(){
+            matrices = memAllocFloat(INITIAL_INSTANCES * MATRIX_SIZE);
+        }
+
+        private void add(FloatBuffer source, int offset){
+            if((instanceCount + 1) * MATRIX_SIZE > matrices.capacity()){
+                FloatBuffer grown = memAllocFloat(matrices.capacity() * 2);
+                matrices.clear();
+                grown.put(matrices);
+                memFree(matrices);
+                matrices = grown;
+            }
+            matrices.limit(matrices.capacity());
+            int target = instanceCount * MATRIX_SIZE;
+            for (int i = 0; i < MATRIX_SIZE; i++)
+                matrices.put(target + i, source.get(offset + i));
+            instanceCount++;
+        }
+
+        private void clear(){
+            key = null;
+            instanceCount = 0;
+        }
+
+        private void cleanup(){
+            memFree(matrices);
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public int getInstanceCount() {
+            return instanceCount;
+        }
+
+        /**
+         * @return Buffer with every matrix of the group in the order they were added, from position 0 to the limit
+         */
+        public FloatBuffer getMatrices() {
+            matrices.position(0);
+            matrices.limit(instanceCount * MATRIX_SIZE);
+            return matrices;
+        }
+    }
+}
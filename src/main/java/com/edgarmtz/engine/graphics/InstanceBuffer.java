@@ -0,0 +1,76 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.opengl.GL33C.glVertexAttribDivisor;
+
+/**
+ * Region of a stream buffer with one 4x4 matrix per drawn copy of a model, the shader reads each matrix column from
+ * consecutive locations starting at {@link VertexFormat#INSTANCE_MATRIX} and advances once per instance
+ */
+public class InstanceBuffer {
+    private static final int MATRIX_SIZE = 16;
+    private static final int COLUMN_BYTES = 4 * Float.BYTES;
+    private static final int MATRIX_BYTES = MATRIX_SIZE * Float.BYTES;
+
+    private final StreamBuffer stream;
+    private int offset;
+    private int instanceCount;
+
+    /**
+     * @param stream Buffer where each frame's matrices are written
+     */
+    public InstanceBuffer(StreamBuffer stream){
+        this.stream = stream;
+    }
+
+    /**
+     * Copies matrices into the current frame region of the stream buffer
+     * @param matrices Matrices values in column major order, from position to limit
+     * @return False if the frame region doesn't have space left
+     */
+    public boolean upload(FloatBuffer matrices){
+        int size = matrices.remaining() * Float.BYTES;
+        int allocation = stream.allocate(size, MATRIX_BYTES);
+        if(allocation < 0)
+            return false;
+        // Bulk copy through a float view, duplicates keep both buffers positions untouched
+        ByteBuffer memory = stream.getMemory();
+        ByteBuffer region = memory.duplicate();
+        region.position(allocation);
+        region.order(memory.order()).asFloatBuffer().put(matrices.duplicate());
+        stream.flush(allocation, size);
+        offset = allocation;
+        instanceCount = size / MATRIX_BYTES;
+        return true;
+    }
+
+    /**
+     * Points the instance matrix locations of the bound VAO to this buffer
+     */
+    void bindAttributes(){
+        glBindBuffer(GL_ARRAY_BUFFER, stream.getBufferId());
+        for (int column = 0; column < 4; column++) {
+            int location = VertexFormat.INSTANCE_MATRIX + column;
+            glEnableVertexAttribArray(location);
+            glVertexAttribPointer(location, 4, GL_FLOAT, false, MATRIX_BYTES, offset + column * COLUMN_BYTES);
+            glVertexAttribDivisor(location, 1);
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    void unbindAttributes(){
+        for (int column = 0; column < 4; column++)
+            glDisableVertexAttribArray(VertexFormat.INSTANCE_MATRIX + column);
+    }
+
+    /**
+     * @return Matrices uploaded by the last {@link #upload(FloatBuffer)}
+     */
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+}
@@ -0,0 +1,96 @@
+package com.edgarmtz.engine.graphics;
+
+import java.util.List;
+
+/**
+ * Group of meshes representing the same model with less triangles each, the simplest mesh whose error can't be
+ * noticed on screen is drawn
+ */
+public class LevelOfDetail {
+    private final Mesh[] meshes;
+    private final float[] errors;
+    private boolean shared;
+
+    /**
+     * Loads every level into gpu
+     * @param levels Simplified models from the most to the least detailed, as generated by
+     *               {@link MeshSimplifier#generateLevels(MeshData, int, float)}
+     */
+    public LevelOfDetail(List<MeshSimplifier.Level> levels){
+        meshes = new Mesh[levels.size()];
+        errors = new float[levels.size()];
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = new Mesh(levels.get(i).getMeshData());
+            errors[i] = levels.get(i).getError();
+        }
+    }
+
+    /**
+     * @param meshes Meshes from the most to the least detailed
+     * @param errors Largest distance of each mesh to the original surface, in model units
+     */
+    public LevelOfDetail(Mesh[] meshes, float[] errors){
+        this.meshes = meshes;
+        this.errors = errors;
+    }
+
+    /**
+     * Picks the least detailed level whose error projected on screen is small enough
+     * @param pixelsPerUnit Pixels a model unit covers on screen at the object's distance
+     * @param maxPixelError Largest error allowed in pixels
+     * @return Index of the level
+     */
+    public int selectLevel(float pixelsPerUnit, float maxPixelError){
+        for (int i = meshes.length - 1; i > 0; i--) {
+            if(errors[i] * pixelsPerUnit <= maxPixelError)
+                return i;
+        }
+        return 0;
+    }
+
+    public Mesh getMesh(int level) {
+        return meshes[level];
+    }
+
+    public float getError(int level) {
+        return errors[level];
+    }
+
+    public int getLevelCount() {
+        return meshes.length;
+    }
+
+    /**
+     * Sets the same texture to every level
+     * @param texture Model's texture
+     */
+    public void setTexture(Texture texture) {
+        for (Mesh mesh : meshes)
+            mesh.setTexture(texture);
+    }
+
+    /**
+     * @return If the levels are used by several objects, see {@link #setShared(boolean)}
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Shared levels are deleted by whoever shares them instead of by the objects using them
+     * @param shared If the levels are used by several objects
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Deletes any temporary data stored in systems memory, shared meshes are left for their owner to delete
+     */
+    public void cleanup(){
+        for (Mesh mesh : meshes) {
+            if(!mesh.isShared())
+                mesh.cleanup();
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package com.edgarmtz.engine.graphics;
 
+import com.edgarmtz.engine.physics.Bounds;
 import org.joml.Vector3f;
 import org.lwjgl.system.MemoryUtil;
 
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-import static org.lwjgl.opengl.GL11C.GL_FLOAT;
 import static org.lwjgl.opengl.GL15C.*;
 import static org.lwjgl.opengl.GL20C.*;
 import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
@@ -20,86 +20,201 @@ import static org.lwjgl.opengl.GL30C.glGenVertexArrays;
  */
 public class Mesh {
     private static final Vector3f DEFAULT_COLOR = new Vector3f(1.0f, 1.0f, 1.0f);
+    private static final Vector3f NO_POSITION_SCALE = new Vector3f(1.0f, 1.0f, 1.0f);
+    private static final Vector3f NO_POSITION_OFFSET = new Vector3f(0.0f, 0.0f, 0.0f);
+    /**
+     * Meshes with up to this amount of vertices store their indices as 16 bit values
+     */
+    static final int MAX_SHORT_INDEX_VERTICES = 1 << 16;
 
+    private final VertexFormat format;
     private int vertexCount;
+    private int indexType;
     private int vaoId;
     private List<Integer> vboIdList;
     private Vector3f color;
     private Texture texture;
+    private Vector3f positionScale = NO_POSITION_SCALE;
+    private Vector3f positionOffset = NO_POSITION_OFFSET;
+    private Bounds bounds;
+    private long gpuBytes;
+    private boolean shared;
 
     /**
-     * Creates buffers with model's data and store them in gpu memory to be drawn later
+     * Creates buffers with model's data and store them in gpu memory to be drawn later, attributes are interleaved
+     * in a single buffer with {@link VertexFormat#POSITION_TEXTURE_NORMAL} format
      * @param positions Model vertices position
      * @param textureCoordinates Texture coordinates where it would be applied
      * @param normals Normal vectors position
      * @param indices Vertices indices grouped to define model faces
      */
     public Mesh(float[] positions, float[] textureCoordinates, float[] normals, int[]indices){
-        int vboId;
-        vboIdList = new ArrayList<>();
+        this(new MeshData(positions, textureCoordinates, normals, indices));
+    }
 
-        FloatBuffer verticesBuffer = null;
-        FloatBuffer textureCoordBuffer = null;
-        FloatBuffer vecNormalsBuffer = null;
-        IntBuffer indexBuffer = null;
+    /**
+     * Creates buffers with a model's data read into system memory, see {@link #Mesh(float[], float[], float[], int[])}
+     * @param meshData Model vertices and faces
+     */
+    public Mesh(MeshData meshData){
+        this.format = VertexFormat.POSITION_TEXTURE_NORMAL;
+        bounds = Bounds.of(meshData.getPositions(), meshData.getVertexCount());
+        upload(meshData.getVertexCount(), meshData.getIndices(), buffer -> format.pack(meshData, buffer));
+    }
 
+    /**
+     * Creates buffers with a model packed by {@link VertexQuantizer}, the shader decodes positions with the model
+     * scale and offset
+     * @param meshData Packed model vertices and faces
+     */
+    public Mesh(QuantizedMeshData meshData){
+        this.format = meshData.getFormat();
+        this.positionScale = meshData.getPositionScale();
+        this.positionOffset = meshData.getPositionOffset();
+        bounds = meshData.getBounds();
+        upload(meshData.getVertexCount(), meshData.getIndices(), buffer -> buffer.put(meshData.getVertices().duplicate()));
+    }
 
+    /**
+     * Creates buffers from data already laid out as {@link VertexFormat#POSITION_TEXTURE_NORMAL} vertices, see
+     * {@link #Mesh(VertexFormat, ByteBuffer, ByteBuffer, int)}
+     * @param vertices Direct buffer with position, texture coordinates and normal vector of each vertex
+     * @param indices Direct buffer with vertices indices grouped to define model faces
+     * @param indexType Type of each index, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public Mesh(ByteBuffer vertices, ByteBuffer indices, int indexType){
+        this(VertexFormat.POSITION_TEXTURE_NORMAL, vertices, indices, indexType);
+    }
+
+    /**
+     * Creates buffers from data already laid out as gpu expects it, buffers are uploaded as they are without being
+     * copied so they can be backed by memory mapped files. Bounds are read from the vertices, see
+     * {@link #Mesh(VertexFormat, ByteBuffer, ByteBuffer, int, Bounds)} to skip it
+     * @param format Layout of every vertex in the vertices buffer
+     * @param vertices Direct buffer with every vertex attributes interleaved
+     * @param indices Direct buffer with vertices indices grouped to define model faces
+     * @param indexType Type of each index, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public Mesh(VertexFormat format, ByteBuffer vertices, ByteBuffer indices, int indexType){
+        this(format, vertices, indices, indexType, computeBounds(format, vertices, NO_POSITION_SCALE,
+                NO_POSITION_OFFSET));
+    }
+
+    /**
+     * Creates buffers from data already laid out as gpu expects it with bounds computed beforehand, like the ones
+     * stored in a {@link MeshCache} file
+     * @param format Layout of every vertex in the vertices buffer
+     * @param vertices Direct buffer with every vertex attributes interleaved
+     * @param indices Direct buffer with vertices indices grouped to define model faces
+     * @param indexType Type of each index, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     * @param bounds Box and sphere enclosing the model in it's own coordinates
+     */
+    public Mesh(VertexFormat format, ByteBuffer vertices, ByteBuffer indices, int indexType, Bounds bounds){
+        this.format = format;
+        this.bounds = bounds;
+        uploadBuffers(vertices, indices, indexType);
+    }
+
+    /**
+     * Writes vertices and indices into a single temporary allocation and loads them into gpu
+     * @param vertexCount Amount of vertices
+     * @param indices Vertices indices grouped to define model faces
+     * @param vertexWriter Writes every vertex laid out as the mesh format defines
+     */
+    private void upload(int vertexCount, int[] indices, Consumer<ByteBuffer> vertexWriter){
+        boolean shortIndices = vertexCount <= MAX_SHORT_INDEX_VERTICES;
+        int verticesSize = vertexCount * format.getStride();
+        int indicesSize = indices.length * (shortIndices ? Short.BYTES : Integer.BYTES);
+
+        ByteBuffer buffer = MemoryUtil.memAlloc(verticesSize + indicesSize);
         try{
-            color = DEFAULT_COLOR;
-            vertexCount = indices.length;
-
-            vaoId = glGenVertexArrays();
-            glBindVertexArray(vaoId);
-
-            //Positions
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            verticesBuffer = MemoryUtil.memAllocFloat(positions.length);
-            verticesBuffer.put(positions).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, verticesBuffer, GL_STATIC_DRAW);
-            glEnableVertexAttribArray(0);
-            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-            //Color
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            textureCoordBuffer = MemoryUtil.memAllocFloat(textureCoordinates.length);
-            textureCoordBuffer.put(textureCoordinates).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, textureCoordBuffer, GL_STATIC_DRAW);
-            glEnableVertexAttribArray(1);
-            glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
-
-            // Normals VBO
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            vecNormalsBuffer = MemoryUtil.memAllocFloat(normals.length);
-            vecNormalsBuffer.put(normals).flip();
-            glBindBuffer(GL_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ARRAY_BUFFER, vecNormalsBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(2, 3, GL_FLOAT, false, 0, 0);
-
-            //Index
-            vboId = glGenBuffers();
-            vboIdList.add(vboId);
-            indexBuffer = MemoryUtil.memAllocInt(indices.length);
-            indexBuffer.put(indices).flip();
-            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
-
-            glBindBuffer(GL_ARRAY_BUFFER, 0);
-            glBindVertexArray(0);
+            vertexWriter.accept(buffer);
+            for (int index : indices) {
+                if(shortIndices)
+                    buffer.putShort((short) index);
+                else
+                    buffer.putInt(index);
+            }
+            // Slices start at the buffer position
+            buffer.flip();
+
+            ByteBuffer vertices = MemoryUtil.memSlice(buffer, 0, verticesSize);
+            ByteBuffer indexBuffer = MemoryUtil.memSlice(buffer, verticesSize, indicesSize);
+            uploadBuffers(vertices, indexBuffer, shortIndices ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT);
         } finally {
-            if(verticesBuffer != null)
-                MemoryUtil.memFree(verticesBuffer);
-            if(textureCoordBuffer != null)
-                MemoryUtil.memFree(textureCoordBuffer);
-            if(vecNormalsBuffer != null)
-                MemoryUtil.memFree(vecNormalsBuffer);
-            if(indexBuffer != null)
-                MemoryUtil.memFree(indexBuffer);
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    /**
+     * Stores vertices in a single buffer and configures every attribute stride and offset in the model's VAO
+     * @param vertices Vertices laid out as the mesh format defines
+     * @param indices Vertices indices grouped to define model faces
+     * @param indexType Type of each index, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    private void uploadBuffers(ByteBuffer vertices, ByteBuffer indices, int indexType){
+        int vboId;
+        vboIdList = new ArrayList<>();
+        color = DEFAULT_COLOR;
+        this.indexType = indexType;
+        vertexCount = indices.remaining() / (indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES);
+        gpuBytes = vertices.remaining() + indices.remaining();
+
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        //Vertices
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        VertexFormat.Attribute[] attributes = format.getAttributes();
+        for (int i = 0; i < attributes.length; i++) {
+            VertexFormat.Attribute attribute = attributes[i];
+            glEnableVertexAttribArray(attribute.getLocation());
+            glVertexAttribPointer(attribute.getLocation(), attribute.getComponents(), attribute.getType(),
+                    attribute.isNormalized(), format.getStride(), format.getOffset(i));
+        }
+
+        //Index
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Reads every vertex position decoded the same way the shader does, once for the box and once more for the
+     * sphere radius instead of decoding them into a temporary array
+     * @param format Layout of every vertex
+     * @param vertices Vertices laid out as the format defines
+     * @param positionScale Value decoded positions are multiplied by
+     * @param positionOffset Value added to decoded positions after scaling them
+     * @return Bounds of the model in it's own coordinates
+     */
+    static Bounds computeBounds(VertexFormat format, ByteBuffer vertices, Vector3f positionScale,
+                                Vector3f positionOffset){
+        int position = format.indexOf(VertexFormat.POSITION);
+        VertexFormat.Attribute attribute = format.getAttributes()[position];
+        int count = vertices.remaining() / format.getStride();
+        int start = vertices.position() + format.getOffset(position);
+        Bounds bounds = new Bounds();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                int offset = start + i * format.getStride();
+                float x = attribute.read(vertices, offset, 0) * positionScale.x + positionOffset.x;
+                float y = attribute.read(vertices, offset, 1) * positionScale.y + positionOffset.y;
+                float z = attribute.read(vertices, offset, 2) * positionScale.z + positionOffset.z;
+                if(pass == 0)
+                    bounds.include(x, y, z);
+                else
+                    bounds.includeInSphere(x, y, z);
+            }
         }
+        return bounds;
     }
 
     public int getVaoId() {
@@ -110,8 +225,55 @@ public class Mesh {
         return vertexCount;
     }
 
+    public VertexFormat getFormat() {
+        return format;
+    }
+
     /**
-     * Deletes any temporary data stored in systems memory
+     * @return Value positions read from the vertex buffer are multiplied by
+     */
+    public Vector3f getPositionScale() {
+        return positionScale;
+    }
+
+    /**
+     * @return Value added to positions read from the vertex buffer after scaling them
+     */
+    public Vector3f getPositionOffset() {
+        return positionOffset;
+    }
+
+    /**
+     * @return Box and sphere enclosing the model in it's own coordinates
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return Bytes of vertex and index buffers in gpu
+     */
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    /**
+     * @return If the mesh is used by several objects, see {@link #setShared(boolean)}
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Shared meshes are deleted by whoever shares them, like an asset manager, instead of by the objects using them
+     * @param shared If the mesh is used by several objects
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Deletes any temporary data stored in systems memory, the texture is deleted too unless it's shared
      */
     public void cleanup(){
         glDisableVertexAttribArray(0);
@@ -122,7 +284,7 @@ public class Mesh {
             glDeleteBuffers(vboId);
         }
 
-        if (isTextured())
+        if (isTextured() && !texture.isShared())
             texture.cleanup();
 
         //delete VAO
@@ -134,24 +296,62 @@ public class Mesh {
      * Indicates gpu to draw the model with it's defined data
      */
     public void render(){
+        bind();
+
+        //Dibujar vertices
+        glDrawElements(GL_TRIANGLES,  this.getVertexCount(), indexType, 0);
+
+        unbind();
+    }
+
+    /**
+     * Draws the model through a state cache, texture and vertex array are only bound if they aren't already
+     * @param state Current OpenGL state
+     */
+    public void render(RenderState state){
+        bind(state);
+        state.drawElements(vertexCount, indexType);
+    }
+
+    /**
+     * Draws the model once for every matrix in the instance buffer with a single call
+     * @param state Current OpenGL state
+     * @param instances Matrices of every copy, read by a shader with a per instance matrix
+     */
+    public void renderInstanced(RenderState state, InstanceBuffer instances){
+        bind(state);
+        instances.bindAttributes();
+
+        state.drawElementsInstanced(vertexCount, indexType, instances.getInstanceCount());
+
+        instances.unbindAttributes();
+    }
+
+    private void bind(RenderState state){
+        state.bindTexture(isTextured() ? texture.getId() : 0);
+        if(state.bindVertexArray(vaoId)){
+            // Another draw may have disabled them in this VAO
+            for (VertexFormat.Attribute attribute : format.getAttributes())
+                state.getDevice().enableVertexAttribArray(attribute.getLocation());
+        }
+    }
+
+    private void bind(){
         // Activate first texture unit
         glActiveTexture(GL_TEXTURE0);
         // Bind the texture
         glBindTexture(GL_TEXTURE_2D, texture.getId());
         //bind al VAO
         glBindVertexArray(this.getVaoId());
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glEnableVertexAttribArray(2);
-
-        //Dibujar vertices
-        glDrawElements(GL_TRIANGLES,  this.getVertexCount(), GL_UNSIGNED_INT, 0);
+        for (VertexFormat.Attribute attribute : format.getAttributes())
+            glEnableVertexAttribArray(attribute.getLocation());
+    }
 
+    private void unbind(){
         //recuperar estado
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(0);
+        for (VertexFormat.Attribute attribute : format.getAttributes())
+            glDisableVertexAttribArray(attribute.getLocation());
         glBindVertexArray(0);
-
     }
 
     public Vector3f getColor() {
@@ -0,0 +1,205 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.physics.Bounds;
+import com.edgarmtz.engine.utils.Resources;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.opengl.GL11C.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11C.GL_UNSIGNED_SHORT;
+
+/**
+ * Stores models read from obj files in a binary file laid out as gpu expects it, so following loads map the file and
+ * upload it without parsing or copying.
+ * <p>
+ * File layout, every value in native byte order:
+ * <pre>
+ * header    magic, version, byte order, vertex size, vertex count, index count, index size (7 ints),
+ *           source obj CRC32 (long), bounds min xyz, max xyz and sphere radius (7 floats)
+ * vertices  vertex count * {@link VertexFormat#POSITION_TEXTURE_NORMAL} stride bytes
+ * indices   index count * index size bytes, padded to 4 bytes
+ * checksum  CRC32 of every previous byte (long)
+ * </pre>
+ */
+public class MeshCache {
+    private static final int MAGIC = 0x4D534843;
+    private static final int VERSION = 2;
+    private static final int BOUNDS_START = 7 * Integer.BYTES + Long.BYTES;
+    private static final int HEADER_SIZE = BOUNDS_START + 7 * Float.BYTES;
+    private static final int BIG_ENDIAN = 1;
+    private static final int LITTLE_ENDIAN = 2;
+    private static final String EXTENSION = ".mesh";
+
+    private final Path directory;
+
+    /**
+     * @param directory Where binary files will be stored
+     */
+    public MeshCache(Path directory){
+        this.directory = directory;
+    }
+
+    /**
+     * Loads a model from its binary file, if it doesn't exist or was made from a different version of the obj file
+     * it's rebuilt first
+     * @param fileName Obj file
+     * @return Mesh representing target file's model
+     * @throws Exception If obj file doesn't exists or binary file can't be written
+     */
+    public Mesh loadMesh(String fileName) throws Exception {
+        return upload(read(fileName));
+    }
+
+    /**
+     * Maps a model's binary file into memory rebuilding it first if needed, doesn't use OpenGL so it can run in any
+     * thread
+     * @param fileName Obj file
+     * @return Whole binary file, read by {@link #upload(ByteBuffer)}
+     * @throws Exception If obj file doesn't exists or binary file can't be written
+     */
+    public ByteBuffer read(String fileName) throws Exception {
+        long sourceHash = Resources.hashResource(fileName);
+        Path cacheFile = getCacheFile(fileName);
+
+        if(!Files.exists(cacheFile) || !isValid(cacheFile, sourceHash))
+            write(ObjLoader.loadMeshData(fileName), sourceHash, cacheFile);
+
+        // Mapping stays valid after the channel is closed
+        try(FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)){
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            file.order(ByteOrder.nativeOrder());
+            return file;
+        }
+    }
+
+    /**
+     * Loads a binary file mapped by {@link #read(String)} into gpu, must be called from the thread owning the context.
+     * Bounds are read from the header instead of the vertices
+     * @param file Whole binary file
+     * @return Mesh representing the file's model
+     */
+    public static Mesh upload(ByteBuffer file){
+        int vertexCount = file.getInt(4 * Integer.BYTES);
+        int indexCount = file.getInt(5 * Integer.BYTES);
+        int indexSize = file.getInt(6 * Integer.BYTES);
+
+        int verticesEnd = HEADER_SIZE + vertexCount * VertexFormat.POSITION_TEXTURE_NORMAL.getStride();
+        ByteBuffer vertices = slice(file, HEADER_SIZE, verticesEnd);
+        ByteBuffer indices = slice(file, verticesEnd, verticesEnd + indexCount * indexSize);
+        Bounds bounds = new Bounds(file.getFloat(BOUNDS_START), file.getFloat(BOUNDS_START + Float.BYTES),
+                file.getFloat(BOUNDS_START + 2 * Float.BYTES), file.getFloat(BOUNDS_START + 3 * Float.BYTES),
+                file.getFloat(BOUNDS_START + 4 * Float.BYTES), file.getFloat(BOUNDS_START + 5 * Float.BYTES),
+                file.getFloat(BOUNDS_START + 6 * Float.BYTES));
+        return new Mesh(VertexFormat.POSITION_TEXTURE_NORMAL, vertices, indices,
+                indexSize == Short.BYTES ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT, bounds);
+    }
+
+    /**
+     * Writes a model into a binary file, file is written completely before replacing an existing one
+     * @param meshData Model vertices and faces
+     * @param sourceHash CRC32 of the obj file the model was read from
+     * @param cacheFile Binary file
+     * @throws Exception if file can't be written
+     */
+    public static void write(MeshData meshData, long sourceHash, Path cacheFile) throws Exception {
+        VertexFormat format = VertexFormat.POSITION_TEXTURE_NORMAL;
+        int[] indices = meshData.getIndices();
+        int vertexCount = meshData.getVertexCount();
+        int indexSize = vertexCount <= Mesh.MAX_SHORT_INDEX_VERTICES ? Short.BYTES : Integer.BYTES;
+        int indicesSize = (indices.length * indexSize + 3) & ~3;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + vertexCount * format.getStride()
+                + indicesSize + Long.BYTES).order(ByteOrder.nativeOrder());
+        Bounds bounds = Bounds.of(meshData.getPositions(), vertexCount);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(getByteOrderId()).putInt(format.getStride())
+                .putInt(vertexCount).putInt(indices.length).putInt(indexSize).putLong(sourceHash);
+        buffer.putFloat(bounds.getMin().x).putFloat(bounds.getMin().y).putFloat(bounds.getMin().z)
+                .putFloat(bounds.getMax().x).putFloat(bounds.getMax().y).putFloat(bounds.getMax().z)
+                .putFloat(bounds.getRadius());
+        format.pack(meshData, buffer);
+        int indicesStart = buffer.position();
+        for(int index : indices){
+            if(indexSize == Short.BYTES)
+                buffer.putShort((short) index);
+            else
+                buffer.putInt(index);
+        }
+        buffer.position(indicesStart + indicesSize);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(checksum.getValue());
+        buffer.flip();
+
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        Path temporaryFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Checks a binary file was written by this version on a machine with the same byte order, from the same obj
+     * file and that it's content isn't damaged
+     * @param cacheFile Binary file
+     * @param sourceHash CRC32 of the obj file
+     * @return If file can be used
+     * @throws Exception if file can't be read
+     */
+    private static boolean isValid(Path cacheFile, long sourceHash) throws Exception {
+        try(FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER_SIZE + Long.BYTES || size > Integer.MAX_VALUE)
+                return false;
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            file.order(ByteOrder.nativeOrder());
+            if(file.getInt(0) != MAGIC || file.getInt(Integer.BYTES) != VERSION
+                    || file.getInt(2 * Integer.BYTES) != getByteOrderId()
+                    || file.getInt(3 * Integer.BYTES) != VertexFormat.POSITION_TEXTURE_NORMAL.getStride()
+                    || file.getLong(7 * Integer.BYTES) != sourceHash)
+                return false;
+
+            long vertexCount = file.getInt(4 * Integer.BYTES);
+            long indexCount = file.getInt(5 * Integer.BYTES);
+            long indexSize = file.getInt(6 * Integer.BYTES);
+            long expectedSize = HEADER_SIZE + vertexCount * VertexFormat.POSITION_TEXTURE_NORMAL.getStride()
+                    + ((indexCount * indexSize + 3) & ~3) + Long.BYTES;
+            if(expectedSize != size)
+                return false;
+
+            CRC32 checksum = new CRC32();
+            checksum.update(slice(file, 0, (int) size - Long.BYTES));
+            return file.getLong((int) size - Long.BYTES) == checksum.getValue();
+        }
+    }
+
+    /**
+     * @param fileName Obj file
+     * @return Binary file associated to the obj file
+     */
+    public Path getCacheFile(String fileName){
+        String name = fileName.startsWith("/") ? fileName.substring(1) : fileName;
+        return directory.resolve(name.replace('/', '_').replace('\\', '_') + EXTENSION);
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int start, int end){
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start).limit(end);
+        return duplicate.slice().order(buffer.order());
+    }
+
+    static int getByteOrderId(){
+        return ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN : LITTLE_ENDIAN;
+    }
+}
@@ -0,0 +1,44 @@
+package com.edgarmtz.engine.graphics;
+
+/**
+ * Stores a model's vertices and faces in system memory before they are loaded into gpu as a {@link Mesh}
+ */
+public class MeshData {
+    private final float[] positions;
+    private final float[] textureCoordinates;
+    private final float[] normals;
+    private final int[] indices;
+
+    /**
+     * @param positions Model vertices position, three values per vertex
+     * @param textureCoordinates Texture coordinates of each vertex, two values per vertex
+     * @param normals Normal vector of each vertex, three values per vertex
+     * @param indices Vertices indices grouped to define model faces
+     */
+    public MeshData(float[] positions, float[] textureCoordinates, float[] normals, int[] indices){
+        this.positions = positions;
+        this.textureCoordinates = textureCoordinates;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getTextureCoordinates() {
+        return textureCoordinates;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+}
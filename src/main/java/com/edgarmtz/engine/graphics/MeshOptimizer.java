@@ -0,0 +1,432 @@
+package com.edgarmtz.engine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Reorders a model's triangles and vertices so gpu reuses more transformed vertices, draws less hidden pixels and
+ * fetches vertex data sequentially. Works only with system memory data so it can run before any gpu upload
+ */
+public class MeshOptimizer {
+    /**
+     * Post transform cache size assumed by the vertex cache optimization
+     */
+    public static final int CACHE_SIZE = 32;
+    /**
+     * FIFO cache size used to split triangles into clusters while reordering them to reduce overdraw
+     */
+    private static final int CLUSTER_CACHE_SIZE = 16;
+    /**
+     * Overdraw optimization may increase clusters ACMR up to this factor
+     */
+    public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int MAX_VALENCE_SCORE = 32;
+    private static final float[] CACHE_POSITION_SCORES = new float[CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_SCORE];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if(i < 3) {
+                CACHE_POSITION_SCORES[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f - (i - 3) / (float) (CACHE_SIZE - 3);
+                CACHE_POSITION_SCORES[i] = (float) Math.pow(scaler, CACHE_DECAY_POWER);
+            }
+        }
+        for (int i = 1; i < MAX_VALENCE_SCORE; i++)
+            VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Runs every optimization: vertex cache, overdraw and vertex fetch, in that order
+     * @param meshData Model vertices and faces
+     * @return Model with the same triangles reordered
+     */
+    public static MeshData optimize(MeshData meshData){
+        int[] indices = optimizeVertexCache(meshData.getIndices(), meshData.getVertexCount());
+        indices = optimizeOverdraw(indices, meshData.getPositions(), DEFAULT_OVERDRAW_THRESHOLD);
+        return optimizeVertexFetch(new MeshData(meshData.getPositions(), meshData.getTextureCoordinates(),
+                meshData.getNormals(), indices));
+    }
+
+    /**
+     * Reorders triangles with Tom Forsyth's linear speed vertex cache optimization, triangles using vertices recently
+     * used or used by few remaining triangles are drawn first
+     * @param indices Vertices indices, three per triangle
+     * @param vertexCount Amount of vertices referenced by indices
+     * @return New indices array with triangles reordered
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount){
+        int triangleCount = indices.length / 3;
+        int[] result = new int[triangleCount * 3];
+        if(triangleCount == 0)
+            return result;
+
+        // Triangles using each vertex, live triangles are kept at the start of each vertex range
+        int[] remaining = new int[vertexCount];
+        for (int i = 0; i < triangleCount * 3; i++)
+            remaining[indices[i]]++;
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++)
+            adjacencyOffsets[v + 1] = adjacencyOffsets[v] + remaining[v];
+        int[] adjacency = new int[triangleCount * 3];
+        int[] filled = new int[vertexCount];
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                adjacency[adjacencyOffsets[v] + filled[v]++] = t;
+            }
+        }
+
+        int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++)
+            vertexScores[v] = vertexScore(-1, remaining[v]);
+        float[] triangleScores = new float[triangleCount];
+        int bestTriangle = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScores[t] = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]]
+                    + vertexScores[indices[t * 3 + 2]];
+            if(triangleScores[t] > triangleScores[bestTriangle])
+                bestTriangle = t;
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] nextCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int scanCursor = 0;
+
+        for (int output = 0; output < triangleCount; output++) {
+            if(bestTriangle < 0){
+                // Nothing in cache touches a live triangle, continue with the next one in input order
+                while(emitted[scanCursor])
+                    scanCursor++;
+                bestTriangle = scanCursor;
+            }
+
+            emitted[bestTriangle] = true;
+            int a = indices[bestTriangle * 3];
+            int b = indices[bestTriangle * 3 + 1];
+            int c = indices[bestTriangle * 3 + 2];
+            result[output * 3] = a;
+            result[output * 3 + 1] = b;
+            result[output * 3 + 2] = c;
+            triangleScores[bestTriangle] = Float.NEGATIVE_INFINITY;
+            removeTriangle(bestTriangle, a, adjacency, adjacencyOffsets, remaining);
+            removeTriangle(bestTriangle, b, adjacency, adjacencyOffsets, remaining);
+            removeTriangle(bestTriangle, c, adjacency, adjacencyOffsets, remaining);
+
+            // Triangle vertices move to the front of the cache, the rest keep their order
+            int nextCount = 0;
+            nextCache[nextCount++] = a;
+            nextCache[nextCount++] = b;
+            nextCache[nextCount++] = c;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if(v != a && v != b && v != c)
+                    nextCache[nextCount++] = v;
+            }
+
+            for (int i = 0; i < nextCount; i++) {
+                int v = nextCache[i];
+                cachePositions[v] = i < CACHE_SIZE ? i : -1;
+                float score = vertexScore(cachePositions[v], remaining[v]);
+                float delta = score - vertexScores[v];
+                vertexScores[v] = score;
+                for (int j = adjacencyOffsets[v], end = adjacencyOffsets[v] + remaining[v]; j < end; j++)
+                    triangleScores[adjacency[j]] += delta;
+            }
+
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheCount = Math.min(nextCount, CACHE_SIZE);
+
+            bestTriangle = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                for (int j = adjacencyOffsets[v], end = adjacencyOffsets[v] + remaining[v]; j < end; j++) {
+                    int t = adjacency[j];
+                    if(triangleScores[t] > bestScore){
+                        bestScore = triangleScores[t];
+                        bestTriangle = t;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reorders triangles to reduce overdraw keeping most of the vertex cache efficiency, following Sander et al.
+     * "Fast Triangle Reordering for Vertex Locality and Reduced Overdraw". Triangles are split into clusters at
+     * points where the vertex cache would be flushed anyway, then clusters facing outwards from the model center are
+     * drawn first so they occlude the rest
+     * @param indices Vertex cache optimized indices, three per triangle
+     * @param positions Vertices position, three values per vertex
+     * @param threshold How much each cluster ACMR may grow when it's split into smaller clusters, 1.05 allows 5%
+     * @return New indices array with triangles reordered
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] positions, float threshold){
+        int triangleCount = indices.length / 3;
+        if(triangleCount == 0)
+            return new int[0];
+        int vertexCount = positions.length / 3;
+
+        int[] clusterStarts = findClusters(indices, vertexCount, threshold);
+        int clusterCount = clusterStarts.length - 1;
+
+        float meshX = 0, meshY = 0, meshZ = 0;
+        for (int i = 0; i < triangleCount * 3; i++) {
+            meshX += positions[indices[i] * 3];
+            meshY += positions[indices[i] * 3 + 1];
+            meshZ += positions[indices[i] * 3 + 2];
+        }
+        meshX /= triangleCount * 3;
+        meshY /= triangleCount * 3;
+        meshZ /= triangleCount * 3;
+
+        float[] sortKeys = new float[clusterCount];
+        Integer[] order = new Integer[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            float centroidX = 0, centroidY = 0, centroidZ = 0, totalArea = 0;
+            float normalX = 0, normalY = 0, normalZ = 0;
+            for (int t = clusterStarts[cluster]; t < clusterStarts[cluster + 1]; t++) {
+                int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, c = indices[t * 3 + 2] * 3;
+                float abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1];
+                float abZ = positions[b + 2] - positions[a + 2];
+                float acX = positions[c] - positions[a], acY = positions[c + 1] - positions[a + 1];
+                float acZ = positions[c + 2] - positions[a + 2];
+                float crossX = abY * acZ - abZ * acY;
+                float crossY = abZ * acX - abX * acZ;
+                float crossZ = abX * acY - abY * acX;
+                float area = (float) Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+
+                centroidX += (positions[a] + positions[b] + positions[c]) / 3 * area;
+                centroidY += (positions[a + 1] + positions[b + 1] + positions[c + 1]) / 3 * area;
+                centroidZ += (positions[a + 2] + positions[b + 2] + positions[c + 2]) / 3 * area;
+                normalX += crossX;
+                normalY += crossY;
+                normalZ += crossZ;
+                totalArea += area;
+            }
+            float inverseArea = totalArea == 0 ? 0 : 1 / totalArea;
+            float normalLength = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+            float inverseNormal = normalLength == 0 ? 0 : 1 / normalLength;
+            sortKeys[cluster] = (centroidX * inverseArea - meshX) * normalX * inverseNormal
+                    + (centroidY * inverseArea - meshY) * normalY * inverseNormal
+                    + (centroidZ * inverseArea - meshZ) * normalZ * inverseNormal;
+            order[cluster] = cluster;
+        }
+
+        // Stable sort keeps clusters with equal keys in cache optimized order
+        Arrays.sort(order, (first, second) -> Float.compare(sortKeys[second], sortKeys[first]));
+
+        int[] result = new int[triangleCount * 3];
+        int output = 0;
+        for (int cluster : order) {
+            int start = clusterStarts[cluster] * 3;
+            int length = (clusterStarts[cluster + 1] - clusterStarts[cluster]) * 3;
+            System.arraycopy(indices, start, result, output, length);
+            output += length;
+        }
+        return result;
+    }
+
+    /**
+     * Finds triangles where a FIFO cache misses all three vertices, then splits the triangles between them into
+     * smaller clusters wherever the running ACMR is already within the threshold of the whole cluster ACMR
+     * @return First triangle of every cluster followed by the amount of triangles
+     */
+    private static int[] findClusters(int[] indices, int vertexCount, float threshold){
+        int triangleCount = indices.length / 3;
+        int[] timestamps = new int[vertexCount];
+        int[] time = {CLUSTER_CACHE_SIZE + 1};
+
+        int[] hardBoundaries = new int[triangleCount + 1];
+        int hardCount = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            if(updateFifoCache(indices, t, timestamps, time, CLUSTER_CACHE_SIZE) == 3 || t == 0)
+                hardBoundaries[hardCount++] = t;
+        }
+        hardBoundaries[hardCount] = triangleCount;
+
+        int[] boundaries = new int[triangleCount + 1];
+        int boundaryCount = 0;
+        for (int h = 0; h < hardCount; h++) {
+            int start = hardBoundaries[h];
+            int end = hardBoundaries[h + 1];
+
+            time[0] += CLUSTER_CACHE_SIZE + 1;
+            int clusterMisses = 0;
+            for (int t = start; t < end; t++)
+                clusterMisses += updateFifoCache(indices, t, timestamps, time, CLUSTER_CACHE_SIZE);
+            float clusterThreshold = threshold * clusterMisses / (end - start);
+
+            boundaries[boundaryCount++] = start;
+            time[0] += CLUSTER_CACHE_SIZE + 1;
+            int runningMisses = 0;
+            int runningTriangles = 0;
+            for (int t = start; t < end - 1; t++) {
+                runningMisses += updateFifoCache(indices, t, timestamps, time, CLUSTER_CACHE_SIZE);
+                runningTriangles++;
+                if(runningMisses / (float) runningTriangles <= clusterThreshold){
+                    boundaries[boundaryCount++] = t + 1;
+                    time[0] += CLUSTER_CACHE_SIZE + 1;
+                    runningMisses = 0;
+                    runningTriangles = 0;
+                }
+            }
+        }
+        boundaries[boundaryCount] = triangleCount;
+        return Arrays.copyOf(boundaries, boundaryCount + 1);
+    }
+
+    /**
+     * Renumbers vertices in the order indices first use them so gpu reads vertex data sequentially, vertices not
+     * used by any triangle are removed
+     * @param meshData Model vertices and faces
+     * @return Model with vertices reordered
+     */
+    public static MeshData optimizeVertexFetch(MeshData meshData){
+        int[] indices = meshData.getIndices();
+        float[] positions = meshData.getPositions();
+        float[] textureCoordinates = meshData.getTextureCoordinates();
+        float[] normals = meshData.getNormals();
+
+        int[] remap = new int[meshData.getVertexCount()];
+        Arrays.fill(remap, -1);
+        int[] newIndices = new int[indices.length];
+        int newVertexCount = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int vertex = indices[i];
+            if(remap[vertex] < 0)
+                remap[vertex] = newVertexCount++;
+            newIndices[i] = remap[vertex];
+        }
+
+        float[] newPositions = new float[newVertexCount * 3];
+        float[] newTextureCoordinates = new float[newVertexCount * 2];
+        float[] newNormals = new float[newVertexCount * 3];
+        for (int vertex = 0; vertex < remap.length; vertex++) {
+            int target = remap[vertex];
+            if(target < 0)
+                continue;
+            System.arraycopy(positions, vertex * 3, newPositions, target * 3, 3);
+            System.arraycopy(textureCoordinates, vertex * 2, newTextureCoordinates, target * 2, 2);
+            System.arraycopy(normals, vertex * 3, newNormals, target * 3, 3);
+        }
+        return new MeshData(newPositions, newTextureCoordinates, newNormals, newIndices);
+    }
+
+    /**
+     * Simulates a FIFO post transform cache to measure how many vertices gpu would transform
+     * @param indices Vertices indices, three per triangle
+     * @param vertexCount Amount of vertices referenced by indices
+     * @param cacheSize Amount of vertices cache holds
+     * @return Cache efficiency measures
+     */
+    public static CacheStatistics analyzeVertexCache(int[] indices, int vertexCount, int cacheSize){
+        int triangleCount = indices.length / 3;
+        int[] timestamps = new int[vertexCount];
+        int[] time = {cacheSize + 1};
+        boolean[] used = new boolean[vertexCount];
+        int usedVertices = 0;
+        int misses = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            misses += updateFifoCache(indices, t, timestamps, time, cacheSize);
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                if(!used[v]){
+                    used[v] = true;
+                    usedVertices++;
+                }
+            }
+        }
+        return new CacheStatistics(misses, triangleCount, usedVertices);
+    }
+
+    /**
+     * Adds a triangle vertices to a FIFO cache, a vertex is cached if less than cache size misses happened since it
+     * was added
+     * @return Amount of vertices that weren't in cache
+     */
+    private static int updateFifoCache(int[] indices, int triangle, int[] timestamps, int[] time, int cacheSize){
+        int misses = 0;
+        for (int k = 0; k < 3; k++) {
+            int v = indices[triangle * 3 + k];
+            if(time[0] - timestamps[v] > cacheSize){
+                timestamps[v] = time[0]++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    private static void removeTriangle(int triangle, int vertex, int[] adjacency, int[] adjacencyOffsets,
+                                       int[] remaining){
+        int start = adjacencyOffsets[vertex];
+        int last = start + remaining[vertex] - 1;
+        for (int j = start; j <= last; j++) {
+            if(adjacency[j] == triangle){
+                adjacency[j] = adjacency[last];
+                adjacency[last] = triangle;
+                remaining[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static float vertexScore(int cachePosition, int remainingTriangles){
+        if(remainingTriangles == 0)
+            return -1;
+        float score = cachePosition < 0 ? 0 : CACHE_POSITION_SCORES[cachePosition];
+        if(remainingTriangles < MAX_VALENCE_SCORE)
+            return score + VALENCE_SCORES[remainingTriangles];
+        return score + VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Results of a vertex cache simulation
+     */
+    public static class CacheStatistics {
+        private final int misses;
+        private final int triangleCount;
+        private final int vertexCount;
+
+        public CacheStatistics(int misses, int triangleCount, int vertexCount){
+            this.misses = misses;
+            this.triangleCount = triangleCount;
+            this.vertexCount = vertexCount;
+        }
+
+        /**
+         * @return Amount of vertices transformed
+         */
+        public int getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return Average cache miss ratio: vertices transformed per triangle, 0.5 is the best possible value for
+         * regular grids and 3 the worst
+         */
+        public float getAcmr() {
+            return triangleCount == 0 ? 0 : misses / (float) triangleCount;
+        }
+
+        /**
+         * @return Average transformed to vertex ratio: times each vertex is transformed, 1 is optimal
+         */
+        public float getAtvr() {
+            return vertexCount == 0 ? 0 : misses / (float) vertexCount;
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.TripleIndexMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reduces a model's triangles collapsing edges in order of their quadric error (Garland and Heckbert, "Surface
+ * Simplification Using Quadric Error Metrics"). Vertices are always collapsed into an existing vertex so texture
+ * coordinates and normal vectors are kept without interpolation
+ */
+public class MeshSimplifier {
+    /**
+     * Quadric values: symmetric matrix a00 a01 a02 a11 a12 a22, vector b0 b1 b2, constant c and total weight
+     */
+    private static final int QUADRIC_SIZE = 11;
+    /**
+     * Weight of the planes keeping open borders in place, relative to the faces planes
+     */
+    private static final double BORDER_WEIGHT = 10;
+    /**
+     * Smallest cosine allowed between a triangle normal before and after a collapse
+     */
+    private static final float MIN_NORMAL_COSINE = 0.25f;
+
+    private static final byte INTERIOR = 0;
+    private static final byte SEAM = 1;
+    private static final byte BORDER = 2;
+    private static final byte LOCKED = 3;
+
+    /**
+     * Generates simplified copies of a model, each one with a fraction of the triangles of the previous level
+     * @param meshData Model vertices and faces, used as the first level
+     * @param levelCount Amount of levels including the original model
+     * @param reduction Fraction of triangles each level keeps from the previous one, 0.5 halves them
+     * @return Levels from the most to the least detailed, may be less than requested if the model can't be
+     * simplified anymore
+     */
+    public static List<Level> generateLevels(MeshData meshData, int levelCount, float reduction){
+        int[] targets = new int[Math.max(levelCount - 1, 0)];
+        float target = meshData.getIndices().length / 3f;
+        for (int i = 0; i < targets.length; i++) {
+            target *= reduction;
+            targets[i] = (int) target;
+        }
+        List<Level> levels = new ArrayList<>();
+        levels.add(new Level(meshData, 0));
+        int triangleCount = meshData.getIndices().length / 3;
+        for (Level level : simplify(meshData, targets, Float.MAX_VALUE)) {
+            int levelTriangles = level.getMeshData().getIndices().length / 3;
+            if(levelTriangles >= triangleCount)
+                break;
+            levels.add(level);
+            triangleCount = levelTriangles;
+        }
+        return levels;
+    }
+
+    /**
+     * Collapses edges until the model has the target amount of triangles or the next collapse exceeds the error, the
+     * level error may end above maxError once it's measured against the original positions
+     * @param meshData Model vertices and faces
+     * @param targetTriangleCount Desired amount of triangles
+     * @param maxError Largest distance allowed between the simplified and the original surface
+     * @return Simplified model and the error introduced
+     */
+    public static Level simplify(MeshData meshData, int targetTriangleCount, float maxError){
+        return simplify(meshData, new int[]{targetTriangleCount}, maxError).get(0);
+    }
+
+    /**
+     * Simplifies a model several times in a single pass, collapses continue from the previous target so errors are
+     * always measured against the original surface
+     * @param meshData Model vertices and faces
+     * @param targetTriangleCounts Desired amount of triangles of each level, from the largest to the smallest
+     * @param maxError Largest distance allowed between the simplified and the original surface
+     * @return A simplified model for each target
+     */
+    private static List<Level> simplify(MeshData meshData, int[] targetTriangleCounts, float maxError){
+        float[] positions = meshData.getPositions();
+        int vertexCount = meshData.getVertexCount();
+        int[] indices = meshData.getIndices().clone();
+        int indexCount = indices.length;
+
+        // Vertices sharing a position but not texture coordinates or normals are collapsed together, adding zero turns
+        // -0 into 0 so both weld
+        TripleIndexMap positionIds = new TripleIndexMap(vertexCount);
+        int[] positionOf = new int[vertexCount];
+        int[] positionVertex = new int[vertexCount];
+        int[] wedgeCounts = new int[vertexCount];
+        int positionCount = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int id = positionIds.putIfAbsent(Float.floatToIntBits(positions[v * 3] + 0f),
+                    Float.floatToIntBits(positions[v * 3 + 1] + 0f), Float.floatToIntBits(positions[v * 3 + 2] + 0f),
+                    positionCount);
+            if(id == TripleIndexMap.NO_VALUE){
+                id = positionCount++;
+                positionVertex[id] = v;
+            }
+            positionOf[v] = id;
+            wedgeCounts[id]++;
+        }
+
+        // Triangles already collapsed in the model, like the ones meeting at a sphere pole, would make their edges
+        // look shared by three triangles and lock them
+        float[] faceNormals = new float[indexCount];
+        indexCount = removeDegenerate(indices, indexCount, positionOf, faceNormals);
+        double[] quadrics = new double[positionCount * QUADRIC_SIZE];
+        float[] normal = new float[3];
+        for (int i = 0; i < indexCount; i += 3) {
+            int a = indices[i], b = indices[i + 1], c = indices[i + 2];
+            float area = triangleNormal(positions, a, b, c, normal);
+            if(area == 0)
+                continue;
+            System.arraycopy(normal, 0, faceNormals, i, 3);
+            double distance = -(normal[0] * positions[a * 3] + normal[1] * positions[a * 3 + 1]
+                    + normal[2] * positions[a * 3 + 2]);
+            for (int k = 0; k < 3; k++)
+                addPlane(quadrics, positionOf[indices[i + k]], normal[0], normal[1], normal[2], distance, area);
+        }
+
+        byte[] kinds = new byte[positionCount];
+        for (int p = 0; p < positionCount; p++)
+            kinds[p] = wedgeCounts[p] > 1 ? SEAM : INTERIOR;
+        long[] edges = collectEdges(indices, indexCount, positionOf);
+        for (int start = 0; start < edges.length; ) {
+            int end = start + 1;
+            while(end < edges.length && edges[end] == edges[start])
+                end++;
+            int p = (int) (edges[start] >>> 32), q = (int) edges[start];
+            if(end - start > 2){
+                kinds[p] = LOCKED;
+                kinds[q] = LOCKED;
+            } else if(end - start == 1){
+                kinds[p] = kinds[p] == LOCKED ? LOCKED : BORDER;
+                kinds[q] = kinds[q] == LOCKED ? LOCKED : BORDER;
+            }
+            start = end;
+        }
+        addBorderPlanes(positions, indices, indexCount, positionOf, positionVertex, edges, quadrics);
+
+        List<Level> levels = new ArrayList<>();
+        boolean[] locked = new boolean[positionCount];
+        // Position each one was collapsed into, itself while it's still in the model
+        int[] representatives = new int[positionCount];
+        for (int p = 0; p < positionCount; p++)
+            representatives[p] = p;
+        float error = 0;
+        int triangleCount = indexCount / 3;
+        for (int targetTriangleCount : targetTriangleCounts) {
+            while(triangleCount > targetTriangleCount){
+                indexCount = removeDegenerate(indices, indexCount, positionOf, faceNormals);
+                triangleCount = indexCount / 3;
+                if(triangleCount <= targetTriangleCount)
+                    break;
+
+                // Triangles around each position
+                int[] adjacencyOffsets = new int[positionCount + 1];
+                for (int i = 0; i < indexCount; i++)
+                    adjacencyOffsets[positionOf[indices[i]] + 1]++;
+                for (int p = 0; p < positionCount; p++)
+                    adjacencyOffsets[p + 1] += adjacencyOffsets[p];
+                int[] adjacency = new int[indexCount];
+                int[] filled = new int[positionCount];
+                for (int i = 0; i < indexCount; i++) {
+                    int p = positionOf[indices[i]];
+                    adjacency[adjacencyOffsets[p] + filled[p]++] = i / 3;
+                }
+
+                // Cheapest allowed direction of every edge, sorted by error
+                edges = collectEdges(indices, indexCount, positionOf);
+                long[] candidates = new long[edges.length];
+                int[] sources = new int[edges.length];
+                int[] targets = new int[edges.length];
+                int candidateCount = 0;
+                for (int start = 0; start < edges.length; ) {
+                    int end = start + 1;
+                    while(end < edges.length && edges[end] == edges[start])
+                        end++;
+                    int p = (int) (edges[start] >>> 32), q = (int) edges[start];
+                    boolean border = end - start == 1;
+                    start = end;
+
+                    boolean forward = canCollapse(kinds, p, q, border);
+                    boolean backward = canCollapse(kinds, q, p, border);
+                    if(!forward && !backward)
+                        continue;
+                    float forwardError = forward ? collapseError(quadrics, p, q, positions, positionVertex) :
+                            Float.POSITIVE_INFINITY;
+                    float backwardError = backward ? collapseError(quadrics, q, p, positions, positionVertex) :
+                            Float.POSITIVE_INFINITY;
+                    boolean useForward = forwardError <= backwardError;
+                    float candidateError = useForward ? forwardError : backwardError;
+                    if(candidateError > maxError)
+                        continue;
+                    sources[candidateCount] = useForward ? p : q;
+                    targets[candidateCount] = useForward ? q : p;
+                    // Non negative floats bits sort in the same order as their values
+                    candidates[candidateCount] = ((long) Float.floatToIntBits(candidateError) << 32)
+                            | candidateCount;
+                    candidateCount++;
+                }
+                Arrays.sort(candidates, 0, candidateCount);
+
+                Arrays.fill(locked, false);
+                int collapses = 0;
+                for (int c = 0; c < candidateCount && triangleCount > targetTriangleCount; c++) {
+                    int candidate = (int) candidates[c];
+                    int p = sources[candidate], q = targets[candidate];
+                    if(locked[p] || locked[q])
+                        continue;
+                    if(flipsTriangles(indices, positions, positionOf, positionVertex, adjacency, adjacencyOffsets,
+                            faceNormals, p, q))
+                        continue;
+                    if(wedgeCounts[p] > 1 && !keepsWedges(indices, positionOf, adjacency, adjacencyOffsets, p, q))
+                        continue;
+
+                    triangleCount -= collapse(indices, positionOf, adjacency, adjacencyOffsets, p, q, locked);
+                    representatives[p] = q;
+                    for (int k = 0; k < QUADRIC_SIZE; k++)
+                        quadrics[q * QUADRIC_SIZE + k] += quadrics[p * QUADRIC_SIZE + k];
+                    error = Math.max(error, Float.intBitsToFloat((int) (candidates[c] >>> 32)));
+                    collapses++;
+                }
+                if(collapses == 0)
+                    break;
+            }
+
+            indexCount = removeDegenerate(indices, indexCount, positionOf, faceNormals);
+            triangleCount = indexCount / 3;
+            error = Math.max(error, measureDeviation(positions, indices, indexCount, positionOf, positionVertex,
+                    representatives));
+            MeshData simplified = new MeshData(positions, meshData.getTextureCoordinates(), meshData.getNormals(),
+                    Arrays.copyOf(indices, indexCount));
+            levels.add(new Level(MeshOptimizer.optimize(simplified), error));
+        }
+        return levels;
+    }
+
+    /**
+     * Quadric errors are averaged over the planes of a position so curved surfaces can move further than them. Every
+     * original position is measured against the triangles around the position it was collapsed into, the distance to
+     * part of the surface is never less than the distance to all of it
+     * @return Largest distance from an original position to the simplified surface, or more
+     */
+    private static float measureDeviation(float[] positions, int[] indices, int indexCount, int[] positionOf,
+                                          int[] positionVertex, int[] representatives){
+        int positionCount = representatives.length;
+        int[] adjacencyOffsets = new int[positionCount + 1];
+        for (int i = 0; i < indexCount; i++)
+            adjacencyOffsets[positionOf[indices[i]] + 1]++;
+        for (int p = 0; p < positionCount; p++)
+            adjacencyOffsets[p + 1] += adjacencyOffsets[p];
+        int[] adjacency = new int[indexCount];
+        int[] filled = new int[positionCount];
+        for (int i = 0; i < indexCount; i++) {
+            int p = positionOf[indices[i]];
+            adjacency[adjacencyOffsets[p] + filled[p]++] = i / 3;
+        }
+
+        float deviation = 0;
+        for (int p = 0; p < positionCount; p++) {
+            int representative = p;
+            while(representatives[representative] != representative)
+                representative = representatives[representative];
+            // Shortens the chain for the next positions collapsed through this one
+            representatives[p] = representative;
+            if(representative == p || adjacencyOffsets[representative] == adjacencyOffsets[representative + 1])
+                continue;
+            int vertex = positionVertex[p] * 3;
+            float closest = Float.POSITIVE_INFINITY;
+            for (int j = adjacencyOffsets[representative]; j < adjacencyOffsets[representative + 1]; j++) {
+                int triangle = adjacency[j] * 3;
+                closest = Math.min(closest, pointTriangleDistance(positions, vertex, indices[triangle] * 3,
+                        indices[triangle + 1] * 3, indices[triangle + 2] * 3));
+            }
+            deviation = Math.max(deviation, closest);
+        }
+        return deviation;
+    }
+
+    /**
+     * Distance from a point to the closest point of a triangle, following Ericson's "Real-Time Collision Detection"
+     * @param point Offset of the point in positions
+     * @param a Offset of the first corner in positions
+     * @param b Offset of the second corner in positions
+     * @param c Offset of the third corner in positions
+     */
+    static float pointTriangleDistance(float[] positions, int point, int a, int b, int c){
+        double abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1];
+        double abZ = positions[b + 2] - positions[a + 2];
+        double acX = positions[c] - positions[a], acY = positions[c + 1] - positions[a + 1];
+        double acZ = positions[c + 2] - positions[a + 2];
+        double crossX = abY * acZ - abZ * acY, crossY = abZ * acX - abX * acZ, crossZ = abX * acY - abY * acX;
+        // Corners on a line, the triangle is it's edges
+        if(crossX * crossX + crossY * crossY + crossZ * crossZ == 0){
+            return Math.min(pointSegmentDistance(positions, point, a, b),
+                    Math.min(pointSegmentDistance(positions, point, b, c), pointSegmentDistance(positions, point, c, a)));
+        }
+
+        double apX = positions[point] - positions[a], apY = positions[point + 1] - positions[a + 1];
+        double apZ = positions[point + 2] - positions[a + 2];
+        double d1 = abX * apX + abY * apY + abZ * apZ;
+        double d2 = acX * apX + acY * apY + acZ * apZ;
+        if(d1 <= 0 && d2 <= 0)
+            return distance(positions, point, positions[a], positions[a + 1], positions[a + 2]);
+
+        double bpX = positions[point] - positions[b], bpY = positions[point + 1] - positions[b + 1];
+        double bpZ = positions[point + 2] - positions[b + 2];
+        double d3 = abX * bpX + abY * bpY + abZ * bpZ;
+        double d4 = acX * bpX + acY * bpY + acZ * bpZ;
+        if(d3 >= 0 && d4 <= d3)
+            return distance(positions, point, positions[b], positions[b + 1], positions[b + 2]);
+
+        double vc = d1 * d4 - d3 * d2;
+        if(vc <= 0 && d1 >= 0 && d3 <= 0)
+            return pointSegmentDistance(positions, point, a, b);
+
+        double cpX = positions[point] - positions[c], cpY = positions[point + 1] - positions[c + 1];
+        double cpZ = positions[point + 2] - positions[c + 2];
+        double d5 = abX * cpX + abY * cpY + abZ * cpZ;
+        double d6 = acX * cpX + acY * cpY + acZ * cpZ;
+        if(d6 >= 0 && d5 <= d6)
+            return distance(positions, point, positions[c], positions[c + 1], positions[c + 2]);
+
+        double vb = d5 * d2 - d1 * d6;
+        if(vb <= 0 && d2 >= 0 && d6 <= 0)
+            return pointSegmentDistance(positions, point, a, c);
+
+        double va = d3 * d6 - d5 * d4;
+        if(va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0)
+            return pointSegmentDistance(positions, point, b, c);
+
+        // Inside the triangle, the distance is the one to it's plane
+        return (float) Math.abs((apX * crossX + apY * crossY + apZ * crossZ)
+                / Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ));
+    }
+
+    private static float pointSegmentDistance(float[] positions, int point, int a, int b){
+        double abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1];
+        double abZ = positions[b + 2] - positions[a + 2];
+        double length = abX * abX + abY * abY + abZ * abZ;
+        double t = length == 0 ? 0 : ((positions[point] - positions[a]) * abX
+                + (positions[point + 1] - positions[a + 1]) * abY + (positions[point + 2] - positions[a + 2]) * abZ)
+                / length;
+        t = Math.max(0, Math.min(1, t));
+        return distance(positions, point, positions[a] + abX * t, positions[a + 1] + abY * t,
+                positions[a + 2] + abZ * t);
+    }
+
+    private static float distance(float[] positions, int point, double x, double y, double z){
+        double dx = positions[point] - x, dy = positions[point + 1] - y, dz = positions[point + 2] - z;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Border positions only move along the border into another border position, seams only move into another seam
+     * or border so texture coordinates keep their discontinuities
+     */
+    private static boolean canCollapse(byte[] kinds, int source, int target, boolean borderEdge){
+        switch (kinds[source]) {
+            case INTERIOR:
+                return true;
+            case SEAM:
+                return kinds[target] == SEAM || kinds[target] == BORDER;
+            case BORDER:
+                return borderEdge && kinds[target] == BORDER;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Moves every vertex at the source position into a vertex at the target position, vertices are matched through
+     * the triangles they share so seams keep their texture coordinates
+     * @return Amount of triangles removed
+     */
+    private static int collapse(int[] indices, int[] positionOf, int[] adjacency, int[] adjacencyOffsets, int source,
+                                int target, boolean[] locked){
+        int removed = 0;
+        for (int j = adjacencyOffsets[source]; j < adjacencyOffsets[source + 1]; j++) {
+            int triangle = adjacency[j] * 3;
+            for (int k = 0; k < 3; k++) {
+                int position = positionOf[indices[triangle + k]];
+                if(position == target)
+                    removed++;
+                locked[position] = true;
+            }
+        }
+        for (int j = adjacencyOffsets[source]; j < adjacencyOffsets[source + 1]; j++) {
+            int triangle = adjacency[j] * 3;
+            int sourceVertex = -1, targetVertex = -1;
+            for (int k = 0; k < 3; k++) {
+                int position = positionOf[indices[triangle + k]];
+                if(position == source)
+                    sourceVertex = indices[triangle + k];
+                else if(position == target)
+                    targetVertex = indices[triangle + k];
+            }
+            if(sourceVertex >= 0 && targetVertex >= 0)
+                replaceVertex(indices, adjacency, adjacencyOffsets, source, sourceVertex, targetVertex);
+        }
+        locked[source] = true;
+        locked[target] = true;
+        return removed;
+    }
+
+    private static void replaceVertex(int[] indices, int[] adjacency, int[] adjacencyOffsets, int source, int vertex,
+                                      int replacement){
+        for (int j = adjacencyOffsets[source]; j < adjacencyOffsets[source + 1]; j++) {
+            int triangle = adjacency[j] * 3;
+            for (int k = 0; k < 3; k++) {
+                if(indices[triangle + k] == vertex)
+                    indices[triangle + k] = replacement;
+            }
+        }
+    }
+
+    /**
+     * Every vertex at a seam position must share a triangle with the target, otherwise it would have to take the
+     * texture coordinates of the other side of the seam
+     * @return If each vertex at source has a vertex at target to be replaced with
+     */
+    private static boolean keepsWedges(int[] indices, int[] positionOf, int[] adjacency, int[] adjacencyOffsets,
+                                       int source, int target){
+        for (int j = adjacencyOffsets[source]; j < adjacencyOffsets[source + 1]; j++) {
+            int vertex = sourceVertex(indices, positionOf, adjacency[j] * 3, source);
+            boolean shared = false;
+            for (int l = adjacencyOffsets[source]; l < adjacencyOffsets[source + 1] && !shared; l++) {
+                int triangle = adjacency[l] * 3;
+                shared = sourceVertex(indices, positionOf, triangle, source) == vertex
+                        && (positionOf[indices[triangle]] == target || positionOf[indices[triangle + 1]] == target
+                        || positionOf[indices[triangle + 2]] == target);
+            }
+            if(!shared)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param triangle Index of the triangle's first corner
+     * @return Triangle vertex at the position
+     */
+    private static int sourceVertex(int[] indices, int[] positionOf, int triangle, int position){
+        for (int k = 0; k < 2; k++) {
+            if(positionOf[indices[triangle + k]] == position)
+                return indices[triangle + k];
+        }
+        return indices[triangle + 2];
+    }
+
+    /**
+     * Triangles are compared with their normal before the first collapse too, a series of collapses each turning a
+     * triangle a bit must not flip it
+     * @return If moving source into target turns any triangle around source upside down
+     */
+    private static boolean flipsTriangles(int[] indices, float[] positions, int[] positionOf, int[] positionVertex,
+                                          int[] adjacency, int[] adjacencyOffsets, float[] faceNormals, int source,
+                                          int target){
+        float[] before = new float[3];
+        float[] after = new float[3];
+        int targetVertex = positionVertex[target];
+        for (int j = adjacencyOffsets[source]; j < adjacencyOffsets[source + 1]; j++) {
+            int triangle = adjacency[j] * 3;
+            int a = indices[triangle], b = indices[triangle + 1], c = indices[triangle + 2];
+            int pa = positionOf[a], pb = positionOf[b], pc = positionOf[c];
+            if(pa == target || pb == target || pc == target)
+                continue;
+            float areaBefore = triangleNormal(positions, a, b, c, before);
+            float areaAfter = triangleNormal(positions, pa == source ? targetVertex : a,
+                    pb == source ? targetVertex : b, pc == source ? targetVertex : c, after);
+            if(areaBefore == 0)
+                continue;
+            if(areaAfter == 0 || before[0] * after[0] + before[1] * after[1] + before[2] * after[2] < MIN_NORMAL_COSINE)
+                return true;
+            float original = faceNormals[triangle] * after[0] + faceNormals[triangle + 1] * after[1]
+                    + faceNormals[triangle + 2] * after[2];
+            if(original < MIN_NORMAL_COSINE)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Root mean square distance from the target position to the planes accumulated by both positions
+     */
+    private static float collapseError(double[] quadrics, int source, int target, float[] positions,
+                                       int[] positionVertex){
+        int s = source * QUADRIC_SIZE, t = target * QUADRIC_SIZE;
+        int vertex = positionVertex[target] * 3;
+        double x = positions[vertex], y = positions[vertex + 1], z = positions[vertex + 2];
+        double a00 = quadrics[s] + quadrics[t], a01 = quadrics[s + 1] + quadrics[t + 1];
+        double a02 = quadrics[s + 2] + quadrics[t + 2], a11 = quadrics[s + 3] + quadrics[t + 3];
+        double a12 = quadrics[s + 4] + quadrics[t + 4], a22 = quadrics[s + 5] + quadrics[t + 5];
+        double b0 = quadrics[s + 6] + quadrics[t + 6], b1 = quadrics[s + 7] + quadrics[t + 7];
+        double b2 = quadrics[s + 8] + quadrics[t + 8], c = quadrics[s + 9] + quadrics[t + 9];
+        double weight = quadrics[s + 10] + quadrics[t + 10];
+        double cost = x * (a00 * x + a01 * y + a02 * z) + y * (a01 * x + a11 * y + a12 * z)
+                + z * (a02 * x + a12 * y + a22 * z) + 2 * (b0 * x + b1 * y + b2 * z) + c;
+        if(weight <= 0)
+            return 0;
+        return (float) Math.sqrt(Math.max(cost, 0) / weight);
+    }
+
+    private static void addPlane(double[] quadrics, int position, double nx, double ny, double nz, double distance,
+                                 double weight){
+        int q = position * QUADRIC_SIZE;
+        quadrics[q] += weight * nx * nx;
+        quadrics[q + 1] += weight * nx * ny;
+        quadrics[q + 2] += weight * nx * nz;
+        quadrics[q + 3] += weight * ny * ny;
+        quadrics[q + 4] += weight * ny * nz;
+        quadrics[q + 5] += weight * nz * nz;
+        quadrics[q + 6] += weight * nx * distance;
+        quadrics[q + 7] += weight * ny * distance;
+        quadrics[q + 8] += weight * nz * distance;
+        quadrics[q + 9] += weight * distance * distance;
+        quadrics[q + 10] += weight;
+    }
+
+    /**
+     * Adds to both ends of every open edge a plane perpendicular to it's triangle so borders resist moving inwards
+     */
+    private static void addBorderPlanes(float[] positions, int[] indices, int indexCount, int[] positionOf,
+                                        int[] positionVertex, long[] edges, double[] quadrics){
+        float[] normal = new float[3];
+        for (int i = 0; i < indexCount; i += 3) {
+            for (int k = 0; k < 3; k++) {
+                int p = positionOf[indices[i + k]], q = positionOf[indices[i + (k + 1) % 3]];
+                long key = p < q ? ((long) p << 32) | q : ((long) q << 32) | p;
+                int found = Arrays.binarySearch(edges, key);
+                boolean border = (found == 0 || edges[found - 1] != key)
+                        && (found == edges.length - 1 || edges[found + 1] != key);
+                if(!border)
+                    continue;
+                if(triangleNormal(positions, indices[i], indices[i + 1], indices[i + 2], normal) == 0)
+                    continue;
+                int a = positionVertex[p] * 3, b = positionVertex[q] * 3;
+                float ex = positions[b] - positions[a], ey = positions[b + 1] - positions[a + 1];
+                float ez = positions[b + 2] - positions[a + 2];
+                float nx = ey * normal[2] - ez * normal[1];
+                float ny = ez * normal[0] - ex * normal[2];
+                float nz = ex * normal[1] - ey * normal[0];
+                float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if(length == 0)
+                    continue;
+                nx /= length;
+                ny /= length;
+                nz /= length;
+                double distance = -(nx * positions[a] + ny * positions[a + 1] + nz * positions[a + 2]);
+                double weight = BORDER_WEIGHT * (ex * ex + ey * ey + ez * ez);
+                addPlane(quadrics, p, nx, ny, nz, distance, weight);
+                addPlane(quadrics, q, nx, ny, nz, distance, weight);
+            }
+        }
+    }
+
+    /**
+     * @return Every triangle edge as two position ids, smaller first, sorted so repeated edges are adjacent
+     */
+    private static long[] collectEdges(int[] indices, int indexCount, int[] positionOf){
+        long[] edges = new long[indexCount];
+        for (int i = 0; i < indexCount; i += 3) {
+            for (int k = 0; k < 3; k++) {
+                int p = positionOf[indices[i + k]], q = positionOf[indices[i + (k + 1) % 3]];
+                edges[i + k] = p < q ? ((long) p << 32) | q : ((long) q << 32) | p;
+            }
+        }
+        Arrays.sort(edges);
+        return edges;
+    }
+
+    /**
+     * Removes triangles with two corners at the same position
+     * @param faceNormals Normal of every triangle before simplifying, moved along with it's triangle
+     * @return New amount of indices
+     */
+    private static int removeDegenerate(int[] indices, int indexCount, int[] positionOf, float[] faceNormals){
+        int write = 0;
+        for (int i = 0; i < indexCount; i += 3) {
+            int pa = positionOf[indices[i]], pb = positionOf[indices[i + 1]], pc = positionOf[indices[i + 2]];
+            if(pa == pb || pb == pc || pa == pc)
+                continue;
+            System.arraycopy(faceNormals, i, faceNormals, write, 3);
+            indices[write++] = indices[i];
+            indices[write++] = indices[i + 1];
+            indices[write++] = indices[i + 2];
+        }
+        return write;
+    }
+
+    /**
+     * Writes a triangle unit normal
+     * @return Triangle area, 0 if triangle is degenerate
+     */
+    private static float triangleNormal(float[] positions, int a, int b, int c, float[] target){
+        a *= 3;
+        b *= 3;
+        c *= 3;
+        float abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1];
+        float abZ = positions[b + 2] - positions[a + 2];
+        float acX = positions[c] - positions[a], acY = positions[c + 1] - positions[a + 1];
+        float acZ = positions[c + 2] - positions[a + 2];
+        float x = abY * acZ - abZ * acY;
+        float y = abZ * acX - abX * acZ;
+        float z = abX * acY - abY * acX;
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if(length == 0)
+            return 0;
+        target[0] = x / length;
+        target[1] = y / length;
+        target[2] = z / length;
+        return length / 2;
+    }
+
+    /**
+     * A model simplified to a level of detail
+     */
+    public static class Level {
+        private final MeshData meshData;
+        private final float error;
+
+        /**
+         * @param meshData Simplified model
+         * @param error Largest distance between simplified and original surface, in model units
+         */
+        public Level(MeshData meshData, float error){
+            this.meshData = meshData;
+            this.error = error;
+        }
+
+        public MeshData getMeshData() {
+            return meshData;
+        }
+
+        public float getError() {
+            return error;
+        }
+    }
+}
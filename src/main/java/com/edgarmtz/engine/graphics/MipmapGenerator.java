@@ -0,0 +1,140 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Makes mipmap levels on the cpu instead of with glGenerateMipmap, so they can be made once and stored. Each pixel of
+ * a level averages the area it covers in the previous one, borders of odd sized levels are weighted by how much of
+ * them is covered. Colors are averaged in linear space and weighted by alpha, so levels don't get darker and
+ * transparent pixels don't bleed their color into opaque ones
+ */
+public class MipmapGenerator {
+    private static final int LINEAR_STEPS = 4096;
+
+    private final PixelBufferPool pool;
+    private final float[] toLinear;
+    private final byte[] fromLinear;
+
+    /**
+     * @param pool Where level buffers are taken from
+     * @param srgb If colors are stored in sRGB, as images painted or photographed usually are, else they're averaged
+     *             as they're stored
+     */
+    public MipmapGenerator(PixelBufferPool pool, boolean srgb){
+        this.pool = pool;
+        toLinear = new float[256];
+        for (int i = 0; i < toLinear.length; i++) {
+            float value = i / 255f;
+            toLinear[i] = srgb ? (float) (value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4))
+                    : value;
+        }
+        fromLinear = new byte[LINEAR_STEPS + 1];
+        for (int i = 0; i < fromLinear.length; i++) {
+            double value = (double) i / LINEAR_STEPS;
+            if(srgb)
+                value = value <= 0.0031308 ? value * 12.92 : 1.055 * Math.pow(value, 1 / 2.4) - 0.055;
+            fromLinear[i] = (byte) Math.round(value * 255);
+        }
+    }
+
+    /**
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @return Levels from the image down to 1x1
+     */
+    public static int getLevelCount(int width, int height){
+        return Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(Math.max(width, height), 1));
+    }
+
+    /**
+     * Makes the level following an image, half it's size rounded down and at least 1 pixel
+     * @param level Image or a level made by this method
+     * @return Following level, must be closed once it's used
+     */
+    public TextureData downsample(TextureData level){
+        int sourceWidth = level.getWidth();
+        int sourceHeight = level.getHeight();
+        int width = Math.max(1, sourceWidth / 2);
+        int height = Math.max(1, sourceHeight / 2);
+        Footprint columns = new Footprint(sourceWidth, width);
+        Footprint rows = new Footprint(sourceHeight, height);
+
+        ByteBuffer source = level.getPixels();
+        int start = source.position();
+        ByteBuffer pixels = pool.acquire(width * height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float red = 0, green = 0, blue = 0, alpha = 0;
+                float plainRed = 0, plainGreen = 0, plainBlue = 0;
+                for (int j = 0; j < rows.count; j++) {
+                    float rowWeight = rows.weights[y * rows.count + j];
+                    int row = start + (rows.first[y] + j) * sourceWidth * 4;
+                    for (int i = 0; i < columns.count; i++) {
+                        float weight = rowWeight * columns.weights[x * columns.count + i];
+                        if(weight == 0)
+                            continue;
+                        int pixel = row + (columns.first[x] + i) * 4;
+                        float r = toLinear[source.get(pixel) & 0xFF];
+                        float g = toLinear[source.get(pixel + 1) & 0xFF];
+                        float b = toLinear[source.get(pixel + 2) & 0xFF];
+                        float a = weight * (source.get(pixel + 3) & 0xFF) / 255f;
+                        red += r * a;
+                        green += g * a;
+                        blue += b * a;
+                        alpha += a;
+                        plainRed += r * weight;
+                        plainGreen += g * weight;
+                        plainBlue += b * weight;
+                    }
+                }
+                // Completely transparent areas keep their color for filtering
+                if(alpha > 0){
+                    red /= alpha;
+                    green /= alpha;
+                    blue /= alpha;
+                } else {
+                    red = plainRed;
+                    green = plainGreen;
+                    blue = plainBlue;
+                }
+                int pixel = (y * width + x) * 4;
+                pixels.put(pixel, encode(red));
+                pixels.put(pixel + 1, encode(green));
+                pixels.put(pixel + 2, encode(blue));
+                pixels.put(pixel + 3, (byte) Math.round(Math.min(alpha, 1) * 255));
+            }
+        }
+        return new TextureData(width, height, pixels, pool::release);
+    }
+
+    private byte encode(float linear){
+        return fromLinear[Math.round(Math.max(0, Math.min(linear, 1)) * LINEAR_STEPS)];
+    }
+
+    /**
+     * Source pixels each target pixel covers along one axis and how much of each one, weights of a pixel add up to 1
+     */
+    private static class Footprint {
+        private final int count;
+        private final int[] first;
+        private final float[] weights;
+
+        private Footprint(int sourceSize, int size){
+            float scale = (float) sourceSize / size;
+            // A pixel starting in the middle of a source pixel covers one more
+            count = sourceSize % size == 0 ? sourceSize / size : (int) Math.ceil(scale) + 1;
+            first = new int[size];
+            weights = new float[size * count];
+            for (int i = 0; i < size; i++) {
+                float start = i * scale;
+                float end = start + scale;
+                first[i] = (int) start;
+                for (int j = 0; j < count; j++) {
+                    int pixel = first[i] + j;
+                    float covered = Math.min(end, pixel + 1) - Math.max(start, pixel);
+                    weights[i * count + j] = pixel < sourceSize && covered > 0 ? covered / scale : 0;
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package com.edgarmtz.engine.graphics;
 
+import com.edgarmtz.engine.utils.FloatList;
+import com.edgarmtz.engine.utils.IntList;
 import com.edgarmtz.engine.utils.Resources;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
+import com.edgarmtz.engine.utils.TripleIndexMap;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Provides functionality to work with obj files
  */
 public class ObjLoader {
+    /**
+     * Amount of chunks each thread parses in average, more chunks than threads balances uneven lines
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int BOUNDARY_SEARCH_SIZE = 4096;
 
     /**
      * Loads a obj file and converts it into a mesh representing the file's model
@@ -19,158 +36,285 @@ public class ObjLoader {
      * @throws Exception If file doesn't exists or it's content can't be parsed
      */
     public static Mesh loadMesh(String fileName) throws Exception {
-        List<Vector3f> vertices = new ArrayList<>();
-        List<Vector2f> textures = new ArrayList<>();
-        List<Vector3f> normals  = new ArrayList<>();
-        List<Face> faces        = new ArrayList<>();
-
-        List<String> fileLines = Resources.loadResourceLines(fileName);
-
-        for (String line: fileLines) {
-            String[] tokens = line.split("\\s+");
-            switch (tokens[0]) {
-                case "v":
-                    vertices.add(new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    ));
-                    break;
-                case "vt":
-                    textures.add(new Vector2f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2])
-                    ));
-                    break;
-                case "vn":
-                    normals.add(new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    ));
-                    break;
-                case "f":
-                    faces.add(new Face(tokens[1], tokens[2], tokens[3]));
-                    break;
-                default:
-                    break;
-            }
+        return new Mesh(loadMeshData(fileName));
+    }
+
+    /**
+     * Loads a obj file splitting it into chunks parsed by several threads, produces exactly the same mesh as
+     * {@link #loadMesh(String)}. Files packed inside a jar can't be mapped and are loaded by a single thread
+     * @param fileName Obj file
+     * @param threads Amount of threads parsing the file
+     * @return Mesh representing target file's model
+     * @throws Exception If file doesn't exists or it's content can't be parsed
+     */
+    public static Mesh loadMesh(String fileName, int threads) throws Exception {
+        return new Mesh(loadMeshData(fileName, threads));
+    }
+
+    /**
+     * Loads a obj file parsing it with several threads and optionally reorders it's triangles and vertices with
+     * {@link MeshOptimizer} so it renders faster, optimized meshes draw the same triangles in a different order
+     * @param fileName Obj file
+     * @param threads Amount of threads parsing the file
+     * @param optimize If the model is optimized before it's loaded into gpu
+     * @return Mesh representing target file's model
+     * @throws Exception If file doesn't exists or it's content can't be parsed
+     */
+    public static Mesh loadMesh(String fileName, int threads, boolean optimize) throws Exception {
+        return new Mesh(loadMeshData(fileName, threads, optimize));
+    }
+
+    /**
+     * Reads a obj file's model into system memory without loading it into gpu
+     * @param fileName Obj file
+     * @return Model's vertices and faces
+     * @throws Exception If file doesn't exists or it's content can't be parsed
+     */
+    public static MeshData loadMeshData(String fileName) throws Exception {
+        ObjParser parser = new ObjParser();
+        try(InputStream in = Resources.loadResource(fileName)){
+            if(in == null)
+                throw new Exception("Couldn't find obj file " + fileName);
+            parser.parse(in);
         }
-        return reorderLists(vertices, textures, normals, faces);
+        return reorderLists(parser.getPositions(), parser.getTexturesCoord(), parser.getNormalsCoord(),
+                parser.getFaceCorners());
     }
 
     /**
-     * Orders file read data so it can be converted into a valid model
-     * @param verticesCoord Vertices position list
-     * @param texturesCoord Texture position list
-     * @param normalsCoord Normal vectors position list
-     * @param faces List of faces formed in the model
-     * @return Mesh made with properly related data
+     * Reads a obj file's model into system memory parsing it with several threads, see
+     * {@link #loadMesh(String, int)}
+     * @param fileName Obj file
+     * @param threads Amount of threads parsing the file
+     * @return Model's vertices and faces
+     * @throws Exception If file doesn't exists or it's content can't be parsed
      */
-    private static Mesh reorderLists(List<Vector3f> verticesCoord, List<Vector2f> texturesCoord, List<Vector3f> normalsCoord, List<Face> faces ) {
-        List<Integer> indices = new ArrayList<>();
-
-        float[] verticesArray = new float[verticesCoord.size() * 3];
-        int i = 0;
-        for (Vector3f vertexCoord : verticesCoord) {
-            verticesArray[i * 3] = vertexCoord.x;
-            verticesArray[i * 3 + 1] = vertexCoord.y;
-            verticesArray[i * 3 + 2] = vertexCoord.z;
-            i++;
+    public static MeshData loadMeshData(String fileName, int threads) throws Exception {
+        Path path = Resources.getResourcePath(fileName);
+        if(threads <= 1 || path == null)
+            return loadMeshData(fileName);
+
+        List<ObjParser> parsers;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long[] boundaries = findChunkBoundaries(channel, threads * CHUNKS_PER_THREAD);
+            parsers = parseChunks(channel, boundaries, threads);
+        }
+
+        int positionsSize = 0, texturesSize = 0, normalsSize = 0, cornersSize = 0;
+        for(ObjParser parser : parsers){
+            positionsSize += parser.getPositions().size();
+            texturesSize += parser.getTexturesCoord().size();
+            normalsSize += parser.getNormalsCoord().size();
+            cornersSize += parser.getFaceCorners().size();
+        }
+        FloatList positions = new FloatList(positionsSize);
+        FloatList texturesCoord = new FloatList(texturesSize);
+        FloatList normalsCoord = new FloatList(normalsSize);
+        IntList faceCorners = new IntList(cornersSize);
+        for(ObjParser parser : parsers){
+            rebaseRelativeCorners(parser, positions.size() / 3, texturesCoord.size() / 2, normalsCoord.size() / 3);
+            positions.addAll(parser.getPositions());
+            texturesCoord.addAll(parser.getTexturesCoord());
+            normalsCoord.addAll(parser.getNormalsCoord());
+            faceCorners.addAll(parser.getFaceCorners());
         }
-        float[] texturesArray = new float[verticesCoord.size() * 2];
-        float[] normalsArray = new float[verticesCoord.size() * 3];
+        return reorderLists(positions, texturesCoord, normalsCoord, faceCorners);
+    }
+
+    /**
+     * Reads a obj file's model into system memory parsing it with several threads, see
+     * {@link #loadMesh(String, int, boolean)}
+     * @param fileName Obj file
+     * @param threads Amount of threads parsing the file
+     * @param optimize If the model is reordered by {@link MeshOptimizer#optimize(MeshData)}
+     * @return Model's vertices and faces
+     * @throws Exception If file doesn't exists or it's content can't be parsed
+     */
+    public static MeshData loadMeshData(String fileName, int threads, boolean optimize) throws Exception {
+        MeshData meshData = loadMeshData(fileName, threads);
+        return optimize ? MeshOptimizer.optimize(meshData) : meshData;
+    }
+
+    /**
+     * Splits a file into ranges that start at the beginning of a line
+     * @param channel Obj file
+     * @param chunks Desired amount of ranges
+     * @return Start of every range followed by the file size
+     * @throws Exception if file can't be read
+     */
+    private static long[] findChunkBoundaries(FileChannel channel, int chunks) throws Exception {
+        long size = channel.size();
+        long chunkSize = Math.max(size / chunks + 1, MIN_CHUNK_SIZE);
+        ByteBuffer search = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
 
-        for (Face face: faces){
-            IndexGroup[] faceVertexIndices = face.getIndexGroups();
-            for (IndexGroup indexValue : faceVertexIndices){
-                processFaceVertex(indexValue, texturesCoord, normalsCoord, indices, texturesArray, normalsArray);
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long start = 0;
+        while(size - start > chunkSize){
+            long position = start + chunkSize;
+            long lineStart = -1;
+            while(lineStart < 0 && position < size){
+                search.clear();
+                int read = channel.read(search, position);
+                for(int i = 0; i < read && lineStart < 0; i++){
+                    if(search.get(i) == '\n')
+                        lineStart = position + i + 1;
+                }
+                position += Math.max(read, 0);
             }
+            if(lineStart < 0 || lineStart >= size)
+                break;
+            if(lineStart - start > Integer.MAX_VALUE)
+                throw new Exception("Obj line too long to be mapped");
+            boundaries.add(lineStart);
+            start = lineStart;
         }
-        int[] indicesArray = indices.stream().mapToInt((Integer v) -> v).toArray();
-        return new Mesh(verticesArray, texturesArray, normalsArray, indicesArray);
+        if(size - start > Integer.MAX_VALUE)
+            throw new Exception("Obj chunk too big to be mapped");
+
+        long[] result = new long[boundaries.size() + 1];
+        for(int i = 0; i < boundaries.size(); i++)
+            result[i] = boundaries.get(i);
+        result[boundaries.size()] = size;
+        return result;
     }
 
     /**
-     * Groups and order vertices indices, texture position and normal  vector to correctly represent a face
-     * @param indices Vertices indices
-     * @param texturesCoord Texture position
-     * @param normalsCoord Normal Vector
-     * @param indicesList Resulting indices list
-     * @param texturesArray Resulting texture array
-     * @param normalsArray Resulting normal vectors array
+     * Maps every file range into memory and parses them in parallel
+     * @param channel Obj file
+     * @param boundaries Ranges limits as returned by {@link #findChunkBoundaries(FileChannel, int)}
+     * @param threads Amount of threads parsing ranges
+     * @return A parser for each range in file order
+     * @throws Exception if a range can't be mapped or parsed
      */
-    private static void processFaceVertex(IndexGroup indices, List<Vector2f> texturesCoord, List<Vector3f> normalsCoord,
-                                          List<Integer> indicesList, float[] texturesArray, float[] normalsArray) {
-        int positionIndex = indices.indexPosition;
-        indicesList.add(positionIndex);
-
-        if(indices.indexTextureCoordinate >= 0) {
-            Vector2f texture = texturesCoord.get(indices.indexTextureCoordinate);
-            texturesArray[positionIndex * 2] = texture.x;
-            texturesArray[positionIndex * 2 + 1] = 1 - texture.y;
+    private static List<ObjParser> parseChunks(FileChannel channel, long[] boundaries, int threads) throws Exception {
+        List<Callable<ObjParser>> tasks = new ArrayList<>();
+        for(int i = 0; i < boundaries.length - 1; i++){
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i],
+                    boundaries[i + 1] - boundaries[i]);
+            tasks.add(() -> {
+                ObjParser parser = new ObjParser();
+                parser.parse(chunk, 0, chunk.limit());
+                return parser;
+            });
         }
 
-        if(indices.indexVecNormal >= 0) {
-            Vector3f normal = normalsCoord.get(indices.indexVecNormal);
-            normalsArray[positionIndex * 3] = normal.x;
-            normalsArray[positionIndex * 3 + 1] = normal.y;
-            normalsArray[positionIndex * 3 + 2] = normal.z;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            List<ObjParser> parsers = new ArrayList<>();
+            for(Future<ObjParser> result : pool.invokeAll(tasks))
+                parsers.add(result.get());
+            return parsers;
+        } catch (ExecutionException e){
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            pool.shutdown();
         }
     }
 
     /**
-     * Stores a face point's vertex, texture and normal vector's indices
+     * Offsets indices resolved from negative obj indices by the elements read in previous chunks
+     * @param parser Chunk parser
+     * @param positionBase Amount of positions read before the chunk
+     * @param textureBase Amount of texture coordinates read before the chunk
+     * @param normalBase Amount of normal vectors read before the chunk
      */
-    protected static class IndexGroup{
-        public static final int NO_VALUE = -1;
-        public int indexPosition;
-        public int indexTextureCoordinate;
-        public int indexVecNormal;
-
-        public IndexGroup(){
-            indexPosition = NO_VALUE;
-            indexTextureCoordinate = NO_VALUE;
-            indexVecNormal = NO_VALUE;
+    private static void rebaseRelativeCorners(ObjParser parser, int positionBase, int textureBase, int normalBase) {
+        IntList faceCorners = parser.getFaceCorners();
+        IntList relativeCorners = parser.getRelativeCorners();
+        int[] bases = {positionBase, textureBase, normalBase};
+        for(int i = 0; i < relativeCorners.size(); i++){
+            int offset = relativeCorners.get(i);
+            faceCorners.set(offset, faceCorners.get(offset) + bases[offset % ObjParser.CORNER_SIZE]);
         }
     }
 
     /**
-     * Represents a model's face with three points
+     * Orders file read data so it can be converted into a valid model, every distinct combination of position,
+     * texture coordinate and normal vector used by a face becomes a single vertex shared by all faces using it
+     * @param verticesCoord Vertices position list
+     * @param texturesCoord Texture position list
+     * @param normalsCoord Normal vectors position list
+     * @param faceCorners Indices of every triangle point in the model
+     * @return Model data made with properly related data
+     * @throws Exception if a face uses a position, texture coordinate or normal vector the file doesn't have
      */
-    protected static class Face {
-        private IndexGroup[] indexGroups = new IndexGroup[3];
+    private static MeshData reorderLists(FloatList verticesCoord, FloatList texturesCoord, FloatList normalsCoord,
+                                     IntList faceCorners) throws Exception {
+        int cornerCount = faceCorners.size() / ObjParser.CORNER_SIZE;
+        int expectedVertices = Math.max(verticesCoord.size() / 3, cornerCount / 6);
+        TripleIndexMap vertexIndices = new TripleIndexMap(expectedVertices);
+        FloatList positions = new FloatList(expectedVertices * 3);
+        FloatList textures = new FloatList(expectedVertices * 2);
+        FloatList normals = new FloatList(expectedVertices * 3);
+        int[] indicesArray = new int[cornerCount];
 
-        public Face(String v0, String v1, String v2){
-            indexGroups[0] = parseLine(v0);
-            indexGroups[1] = parseLine(v1);
-            indexGroups[2] = parseLine(v2);
-        }
+        int[] corners = faceCorners.getValues();
+        for (int i = 0; i < cornerCount; i++){
+            int offset = i * ObjParser.CORNER_SIZE;
+            int positionIndex = corners[offset];
+            int textureIndex = corners[offset + 1];
+            int normalIndex = corners[offset + 2];
+            checkIndex(positionIndex, verticesCoord.size() / 3, false, "position", i);
+            checkIndex(textureIndex, texturesCoord.size() / 2, true, "texture coordinate", i);
+            checkIndex(normalIndex, normalsCoord.size() / 3, true, "normal vector", i);
 
-        /**
-         * parse line from obj file into a polygon's line
-         * @param line Extracted text from obj file
-         * @return One point data
-         */
-        public IndexGroup parseLine(String line){
-            IndexGroup indexGroup = new IndexGroup();
-            String[] lineTokens = line.split("/");
-            int length = lineTokens.length;
-            indexGroup.indexPosition = Integer.parseInt(lineTokens[0]) - 1;
-            if(length > 1) {
-                String textureCoordinate = lineTokens[1];
-                indexGroup.indexTextureCoordinate = textureCoordinate.length() > 0 ?
-                        Integer.parseInt(textureCoordinate) - 1 : IndexGroup.NO_VALUE;
-                if(length > 2) {
-                    indexGroup.indexVecNormal = Integer.parseInt(lineTokens[2]) - 1;
-                }
+            int vertexIndex = positions.size() / 3;
+            int existingIndex = vertexIndices.putIfAbsent(positionIndex, textureIndex, normalIndex, vertexIndex);
+            if (existingIndex != TripleIndexMap.NO_VALUE) {
+                indicesArray[i] = existingIndex;
+            } else {
+                processFaceVertex(positionIndex, textureIndex, normalIndex, verticesCoord, texturesCoord, normalsCoord,
+                        positions, textures, normals);
+                indicesArray[i] = vertexIndex;
             }
-            return indexGroup;
         }
+        return new MeshData(positions.toArray(), textures.toArray(), normals.toArray(), indicesArray);
+    }
 
-        public IndexGroup[] getIndexGroups() {
-            return indexGroups;
-        }
+    /**
+     * @param index Zero based index used by a face point
+     * @param count Amount of elements in the file
+     * @param optional If the point can leave the element out with {@link ObjParser#NO_VALUE}
+     * @param element Element name used in the message
+     * @param corner Face point, used to tell which face is wrong
+     * @throws Exception if the index isn't one of the file elements
+     */
+    private static void checkIndex(int index, int count, boolean optional, String element, int corner)
+            throws Exception {
+        if(index >= count || (index < 0 && !(optional && index == ObjParser.NO_VALUE)))
+            throw new Exception("Invalid obj face " + (corner / 3 + 1) + ", " + element + " " + (index + 1)
+                    + " doesn't exist, file has " + count);
     }
-}
 
+    /**
+     * Appends the data of a new vertex formed by a face point
+     * @param positionIndex Vertex position index
+     * @param textureIndex Texture position index or {@link ObjParser#NO_VALUE}
+     * @param normalIndex Normal vector index or {@link ObjParser#NO_VALUE}
+     * @param verticesCoord Vertices position
+     * @param texturesCoord Texture position
+     * @param normalsCoord Normal Vector
+     * @param positions Resulting positions list
+     * @param textures Resulting texture list
+     * @param normals Resulting normal vectors list
+     */
+    private static void processFaceVertex(int positionIndex, int textureIndex, int normalIndex,
+                                          FloatList verticesCoord, FloatList texturesCoord, FloatList normalsCoord,
+                                          FloatList positions, FloatList textures, FloatList normals) {
+        positions.add(verticesCoord.get(positionIndex * 3),
+                verticesCoord.get(positionIndex * 3 + 1),
+                verticesCoord.get(positionIndex * 3 + 2));
+
+        if(textureIndex >= 0)
+            textures.add(texturesCoord.get(textureIndex * 2), 1 - texturesCoord.get(textureIndex * 2 + 1));
+        else
+            textures.add(0, 0);
+
+        if(normalIndex >= 0)
+            normals.add(normalsCoord.get(normalIndex * 3), normalsCoord.get(normalIndex * 3 + 1),
+                    normalsCoord.get(normalIndex * 3 + 2));
+        else
+            normals.add(0, 0, 0);
+    }
+}
@@ -0,0 +1,380 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.FloatList;
+import com.edgarmtz.engine.utils.IntList;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizes obj file content straight from its bytes into primitive arrays, no line strings, tokens or vectors are
+ * created while reading
+ */
+public class ObjParser {
+    public static final int NO_VALUE = -1;
+    /**
+     * Amount of ints stored per face corner: position, texture coordinate and normal vector indices
+     */
+    public static final int CORNER_SIZE = 3;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long MANTISSA_LIMIT = 100_000_000_000_000_000L;
+    private static final int EXACT_MANTISSA_LIMIT = 1 << 24;
+    private static final float[] POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final FloatList positions;
+    private final FloatList texturesCoord;
+    private final FloatList normalsCoord;
+    private final IntList faceCorners;
+    private final IntList relativeCorners;
+    private final IntList polygon;
+    private final IntList polygonRelativeMasks;
+
+    private ByteBuffer data;
+    private int cursor;
+    private int end;
+
+    public ObjParser(){
+        positions = new FloatList();
+        texturesCoord = new FloatList();
+        normalsCoord = new FloatList();
+        faceCorners = new IntList();
+        relativeCorners = new IntList();
+        polygon = new IntList(4 * CORNER_SIZE);
+        polygonRelativeMasks = new IntList(4);
+    }
+
+    /**
+     * Reads an obj stream by blocks, only the unfinished line at the end of each block is kept between reads
+     * @param in Obj file content
+     * @throws Exception if stream can't be read or it's content can't be parsed
+     */
+    public void parse(InputStream in) throws Exception{
+        byte[] block = new byte[BLOCK_SIZE];
+        int filled = 0;
+        int read;
+        while((read = in.read(block, filled, block.length - filled)) != -1){
+            filled += read;
+            int lineEnd = filled;
+            while(lineEnd > 0 && block[lineEnd - 1] != '\n')
+                lineEnd--;
+
+            if(lineEnd == 0){
+                // A single line doesn't fit, grow block to keep reading it
+                if(filled == block.length){
+                    byte[] grown = new byte[block.length * 2];
+                    System.arraycopy(block, 0, grown, 0, filled);
+                    block = grown;
+                }
+                continue;
+            }
+
+            parse(ByteBuffer.wrap(block), 0, lineEnd);
+            System.arraycopy(block, lineEnd, block, 0, filled - lineEnd);
+            filled -= lineEnd;
+        }
+        if(filled > 0)
+            parse(ByteBuffer.wrap(block), 0, filled);
+    }
+
+    /**
+     * Parses every line contained in a range of bytes, range must start at the beginning of a line
+     * @param data Obj file content
+     * @param start First byte to parse
+     * @param end Position after the last byte to parse
+     * @throws Exception if content can't be parsed
+     */
+    public void parse(ByteBuffer data, int start, int end) throws Exception{
+        this.data = data;
+        this.cursor = start;
+        this.end = end;
+
+        while(cursor < end){
+            skipBlanks();
+            if(cursor < end){
+                byte first = data.get(cursor);
+                if(first == 'v'){
+                    parseVertexLine();
+                } else if(first == 'f' && isBlank(cursor + 1)){
+                    cursor++;
+                    parseFace();
+                }
+            }
+            skipLine();
+        }
+        this.data = null;
+    }
+
+    /**
+     * Reads position, texture coordinate or normal vector lines
+     * @throws Exception if line numbers can't be parsed
+     */
+    private void parseVertexLine() throws Exception{
+        int next = cursor + 1;
+        if(isBlank(next)){
+            cursor = next;
+            positions.add(readFloat(), readFloat(), readFloat());
+        } else if(next < end && isBlank(next + 1)){
+            byte type = data.get(next);
+            cursor = next + 1;
+            if(type == 't')
+                texturesCoord.add(readFloat(), readFloat());
+            else if(type == 'n')
+                normalsCoord.add(readFloat(), readFloat(), readFloat());
+        }
+    }
+
+    /**
+     * Reads every point of a face and splits it into triangles sharing its first point
+     * @throws Exception if face indices can't be parsed
+     */
+    private void parseFace() throws Exception{
+        polygon.clear();
+        polygonRelativeMasks.clear();
+        skipBlanks();
+        while(cursor < end && !isLineEnd(data.get(cursor))){
+            int relativeMask = 0;
+            int index = readInt();
+            if(index < 0)
+                relativeMask |= 1;
+            int positionIndex = resolveIndex(index, positions.size() / 3);
+            int textureIndex = NO_VALUE;
+            int normalIndex = NO_VALUE;
+            if(cursor < end && data.get(cursor) == '/'){
+                cursor++;
+                if(cursor < end && data.get(cursor) != '/'){
+                    index = readInt();
+                    if(index < 0)
+                        relativeMask |= 1 << 1;
+                    textureIndex = resolveIndex(index, texturesCoord.size() / 2);
+                }
+                if(cursor < end && data.get(cursor) == '/'){
+                    cursor++;
+                    index = readInt();
+                    if(index < 0)
+                        relativeMask |= 1 << 2;
+                    normalIndex = resolveIndex(index, normalsCoord.size() / 3);
+                }
+            }
+            polygon.add(positionIndex, textureIndex, normalIndex);
+            polygonRelativeMasks.add(relativeMask);
+            skipBlanks();
+        }
+
+        int corners = polygon.size() / CORNER_SIZE;
+        for(int i = 2; i < corners; i++){
+            addCorner(0);
+            addCorner(i - 1);
+            addCorner(i);
+        }
+    }
+
+    private void addCorner(int corner){
+        int relativeMask = polygonRelativeMasks.get(corner);
+        if(relativeMask != 0){
+            for(int i = 0; i < CORNER_SIZE; i++){
+                if((relativeMask & (1 << i)) != 0)
+                    relativeCorners.add(faceCorners.size() + i);
+            }
+        }
+        int offset = corner * CORNER_SIZE;
+        faceCorners.add(polygon.get(offset), polygon.get(offset + 1), polygon.get(offset + 2));
+    }
+
+    /**
+     * Converts an obj index into a zero based index
+     * @param index One based index, negative values count backwards from the last element read
+     * @param count Amount of elements read so far by this parser
+     * @return Zero based index
+     * @throws Exception if index is zero
+     */
+    private int resolveIndex(int index, int count) throws Exception{
+        if(index > 0)
+            return index - 1;
+        if(index < 0)
+            return count + index;
+        throw new Exception("Invalid obj index 0 at byte " + cursor);
+    }
+
+    /**
+     * Reads a decimal number, values with up to 7 significant digits and a small exponent are computed exactly
+     * with a single float operation, any other value falls back to {@link Float#parseFloat(String)}
+     * @return Parsed number
+     * @throws Exception if there isn't a number in the current position
+     */
+    private float readFloat() throws Exception{
+        skipBlanks();
+        int start = cursor;
+        boolean negative = false;
+        if(cursor < end){
+            byte sign = data.get(cursor);
+            if(sign == '-' || sign == '+'){
+                negative = sign == '-';
+                cursor++;
+            }
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean exact = true;
+        int digit;
+        while((digit = digitAt(cursor)) >= 0){
+            if(mantissa < MANTISSA_LIMIT)
+                mantissa = mantissa * 10 + digit;
+            else
+                exact = false;
+            digits = true;
+            cursor++;
+        }
+        if(cursor < end && data.get(cursor) == '.'){
+            cursor++;
+            while((digit = digitAt(cursor)) >= 0){
+                if(mantissa < MANTISSA_LIMIT){
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                }
+                digits = true;
+                cursor++;
+            }
+        }
+        if(digits && cursor < end && (data.get(cursor) == 'e' || data.get(cursor) == 'E')){
+            cursor++;
+            boolean negativeExponent = false;
+            if(cursor < end && (data.get(cursor) == '-' || data.get(cursor) == '+')){
+                negativeExponent = data.get(cursor) == '-';
+                cursor++;
+            }
+            int exponentValue = 0;
+            boolean exponentDigits = false;
+            while((digit = digitAt(cursor)) >= 0){
+                if(exponentValue < 1000)
+                    exponentValue = exponentValue * 10 + digit;
+                exponentDigits = true;
+                cursor++;
+            }
+            if(!exponentDigits)
+                exact = false;
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+
+        if(!digits || !exact || !isTokenEnd(cursor) || mantissa >= EXACT_MANTISSA_LIMIT
+                || exponent < -10 || exponent > 10)
+            return parseToken(start);
+
+        float value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the whole token starting at a position with the standard library, used for numbers the fast path
+     * can't compute exactly or for special values like NaN
+     * @param start Token first byte
+     * @return Parsed number
+     * @throws Exception if token isn't a number
+     */
+    private float parseToken(int start) throws Exception{
+        cursor = start;
+        while(!isTokenEnd(cursor))
+            cursor++;
+        byte[] token = new byte[cursor - start];
+        for(int i = 0; i < token.length; i++)
+            token[i] = data.get(start + i);
+        String text = new String(token, StandardCharsets.US_ASCII);
+        try{
+            return Float.parseFloat(text);
+        } catch (NumberFormatException e){
+            throw new Exception("Invalid obj number '" + text + "' at byte " + start);
+        }
+    }
+
+    /**
+     * Reads a signed integer
+     * @return Parsed number
+     * @throws Exception if there isn't an integer in the current position
+     */
+    private int readInt() throws Exception{
+        boolean negative = false;
+        if(cursor < end && data.get(cursor) == '-'){
+            negative = true;
+            cursor++;
+        }
+        int start = cursor;
+        int value = 0;
+        int digit;
+        while((digit = digitAt(cursor)) >= 0){
+            value = value * 10 + digit;
+            cursor++;
+        }
+        if(cursor == start)
+            throw new Exception("Invalid obj index at byte " + cursor);
+        return negative ? -value : value;
+    }
+
+    private int digitAt(int index){
+        if(index >= end)
+            return -1;
+        int digit = data.get(index) - '0';
+        return digit >= 0 && digit <= 9 ? digit : -1;
+    }
+
+    private boolean isBlank(int index){
+        if(index >= end)
+            return false;
+        byte value = data.get(index);
+        return value == ' ' || value == '\t';
+    }
+
+    private boolean isTokenEnd(int index){
+        if(index >= end)
+            return true;
+        byte value = data.get(index);
+        return value == ' ' || value == '\t' || isLineEnd(value);
+    }
+
+    private static boolean isLineEnd(byte value){
+        return value == '\n' || value == '\r';
+    }
+
+    private void skipBlanks(){
+        while(isBlank(cursor))
+            cursor++;
+    }
+
+    private void skipLine(){
+        while(cursor < end && data.get(cursor) != '\n')
+            cursor++;
+        cursor++;
+    }
+
+    public FloatList getPositions() {
+        return positions;
+    }
+
+    public FloatList getTexturesCoord() {
+        return texturesCoord;
+    }
+
+    public FloatList getNormalsCoord() {
+        return normalsCoord;
+    }
+
+    /**
+     * @return Indices of every triangle point, {@link #CORNER_SIZE} values per point
+     */
+    public IntList getFaceCorners() {
+        return faceCorners;
+    }
+
+    /**
+     * Face corner values resolved from negative indices are relative to the data read by this parser, when the
+     * parsed bytes are only a part of a file they must be offset by the amount of elements read before them
+     * @return Offsets in {@link #getFaceCorners()} of every value resolved from a negative index
+     */
+    public IntList getRelativeCorners() {
+        return relativeCorners;
+    }
+}
@@ -0,0 +1,71 @@
+package com.edgarmtz.engine.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15C.*;
+
+/**
+ * Stream buffer for drivers without buffer storage, writes go to system memory and are copied on flush. The buffer
+ * storage is replaced at the start of every frame so the driver never waits for the gpu to release the old one
+ */
+public class OrphaningStreamBuffer extends RingStreamBuffer {
+    private final int bufferId;
+    private final ByteBuffer memory;
+
+    /**
+     * @param frameSize Bytes available to each frame
+     */
+    public OrphaningStreamBuffer(int frameSize){
+        // The driver keeps the frames in flight, a single section is enough
+        super(frameSize, 1);
+        bufferId = glGenBuffers();
+        memory = MemoryUtil.memAlloc(sectionSize);
+    }
+
+    @Override
+    protected void sectionStarted(int section) {
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        glBufferData(GL_ARRAY_BUFFER, sectionSize, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    public ByteBuffer getMemory() {
+        return memory;
+    }
+
+    @Override
+    public void flush(int offset, int size) {
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        glBufferSubData(GL_ARRAY_BUFFER, offset, MemoryUtil.memSlice(memory, offset, size));
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    @Override
+    protected long createFence() {
+        return 0;
+    }
+
+    @Override
+    protected boolean waitFence(long fence) {
+        return false;
+    }
+
+    @Override
+    protected void deleteFence(long fence) {
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        glDeleteBuffers(bufferId);
+        MemoryUtil.memFree(memory);
+    }
+}
@@ -0,0 +1,78 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL30C.glMapBufferRange;
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.opengl.GL44C.*;
+
+/**
+ * Stream buffer mapped once for it's whole life, the cpu writes straight into memory the gpu reads and fences keep
+ * it from overwriting a section still in use
+ */
+public class PersistentStreamBuffer extends RingStreamBuffer {
+    private static final int FLAGS = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+    private static final long WAIT_TIMEOUT = 1_000_000;
+
+    private final int bufferId;
+    private final ByteBuffer memory;
+
+    /**
+     * @param frameSize Bytes available to each frame
+     * @param sections Amount of frames in flight
+     */
+    public PersistentStreamBuffer(int frameSize, int sections){
+        super(frameSize, sections);
+        long size = (long) sectionSize * sections;
+        bufferId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        glBufferStorage(GL_ARRAY_BUFFER, size, FLAGS);
+        memory = glMapBufferRange(GL_ARRAY_BUFFER, 0, size, FLAGS);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    public ByteBuffer getMemory() {
+        return memory;
+    }
+
+    @Override
+    public void flush(int offset, int size) {
+        // Coherent mapping, writes are seen by the gpu without flushing
+    }
+
+    @Override
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    @Override
+    protected long createFence() {
+        return glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    @Override
+    protected boolean waitFence(long fence) {
+        int result = glClientWaitSync(fence, 0, 0);
+        if(result == GL_ALREADY_SIGNALED || result == GL_CONDITION_SATISFIED)
+            return false;
+        while (result == GL_TIMEOUT_EXPIRED)
+            result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, WAIT_TIMEOUT);
+        return true;
+    }
+
+    @Override
+    protected void deleteFence(long fence) {
+        glDeleteSync(fence);
+    }
+
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        glUnmapBuffer(GL_ARRAY_BUFFER);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glDeleteBuffers(bufferId);
+    }
+}
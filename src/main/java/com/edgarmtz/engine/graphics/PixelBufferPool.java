@@ -0,0 +1,132 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Reuses off-heap buffers for decoded images, so streaming textures doesn't keep allocating direct memory the garbage
+ * collector frees late. Buffers come from {@link org.lwjgl.system.MemoryUtil#memAlloc(int)}, backed by jemalloc
+ * when it's available, and are grouped by power of two sizes. Can be used from several threads
+ */
+public class PixelBufferPool {
+    /**
+     * Bytes of released buffers kept for reuse, enough for four 4K images
+     */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 256L << 20;
+    private static final int MIN_SIZE_BITS = 12;
+    // Bigger buffers are allocated with their exact size and freed when released
+    private static final int MAX_SIZE_BITS = 30;
+    private static final PixelBufferPool SHARED = new PixelBufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+    private final long maxPooledBytes;
+    private final List<ArrayDeque<ByteBuffer>> released;
+    private long pooledBytes;
+    private long usedBytes;
+    private long peakBytes;
+    private int allocations;
+    private int reuses;
+
+    /**
+     * @param maxPooledBytes Bytes of released buffers kept for reuse, buffers released past it are freed
+     */
+    public PixelBufferPool(long maxPooledBytes){
+        this.maxPooledBytes = maxPooledBytes;
+        released = new ArrayList<>();
+        for (int bits = 0; bits <= MAX_SIZE_BITS; bits++)
+            released.add(new ArrayDeque<>());
+    }
+
+    /**
+     * @return Pool shared by the engine's default decoders
+     */
+    public static PixelBufferPool getShared(){
+        return SHARED;
+    }
+
+    /**
+     * @param size Bytes needed
+     * @return Buffer with position 0 and limit size, it's content is undefined
+     */
+    public synchronized ByteBuffer acquire(int size){
+        int bits = Math.max(MIN_SIZE_BITS, Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        ByteBuffer buffer = bits <= MAX_SIZE_BITS ? released.get(bits).poll() : null;
+        if(buffer != null){
+            pooledBytes -= buffer.capacity();
+            reuses++;
+        } else {
+            buffer = memAlloc(bits <= MAX_SIZE_BITS ? 1 << bits : size);
+            allocations++;
+        }
+        usedBytes += buffer.capacity();
+        peakBytes = Math.max(peakBytes, usedBytes + pooledBytes);
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer made by {@link #acquire(int)}, it can't be used after
+     * @param buffer Buffer to reuse
+     */
+    public synchronized void release(ByteBuffer buffer){
+        int capacity = buffer.capacity();
+        usedBytes -= capacity;
+        int bits = Integer.numberOfTrailingZeros(capacity);
+        if(capacity == 1 << bits && bits <= MAX_SIZE_BITS && pooledBytes + capacity <= maxPooledBytes){
+            released.get(bits).push(buffer);
+            pooledBytes += capacity;
+        } else {
+            memFree(buffer);
+        }
+    }
+
+    /**
+     * @return Bytes of buffers acquired and not released
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return Bytes of released buffers waiting to be reused
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * @return Most bytes used and pooled at the same time
+     */
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * @return Buffers allocated because none of the size was pooled
+     */
+    public synchronized int getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * @return Buffers acquired from the pool without allocating
+     */
+    public synchronized int getReuses() {
+        return reuses;
+    }
+
+    /**
+     * Frees every pooled buffer, the pool can still be used after
+     */
+    public synchronized void cleanup(){
+        for (ArrayDeque<ByteBuffer> buffers : released) {
+            for (ByteBuffer buffer : buffers)
+                memFree(buffer);
+            buffers.clear();
+        }
+        pooledBytes = 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.edgarmtz.engine.graphics;
+
+import de.matthiasmann.twl.utils.PNGDecoder;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes png images with {@link PNGDecoder} into buffers of a {@link PixelBufferPool}, written in java so it works
+ * everywhere but it's slower than {@link StbTextureDecoder}
+ */
+public class PngTextureDecoder implements TextureDecoder {
+    private final PixelBufferPool pool;
+
+    /**
+     * @param pool Where pixel buffers are taken from and given back once images are closed
+     */
+    public PngTextureDecoder(PixelBufferPool pool){
+        this.pool = pool;
+    }
+
+    @Override
+    public TextureData decode(ByteBuffer image) throws Exception {
+        PNGDecoder pngDecoder = new PNGDecoder(new ByteBufferInputStream(image.duplicate()));
+        int stride = pngDecoder.getWidth() * 4;
+        ByteBuffer pixels = pool.acquire(stride * pngDecoder.getHeight());
+        try{
+            pngDecoder.decode(pixels, stride, PNGDecoder.Format.RGBA);
+        } catch (Exception e){
+            pool.release(pixels);
+            throw e;
+        }
+        pixels.flip();
+        return new TextureData(pngDecoder.getWidth(), pngDecoder.getHeight(), pixels, pool::release);
+    }
+
+    /**
+     * Reads a buffer from position to limit without copying it first
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if(!buffer.hasRemaining())
+                return length == 0 ? 0 : -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
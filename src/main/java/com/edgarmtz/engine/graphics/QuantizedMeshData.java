@@ -0,0 +1,104 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.physics.Bounds;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores a model whose vertices were packed into compact types by {@link VertexQuantizer}, together with the data the
+ * shader needs to decode them and the error introduced while packing
+ */
+public class QuantizedMeshData {
+    private final VertexFormat format;
+    private final ByteBuffer vertices;
+    private final int vertexCount;
+    private final int[] indices;
+    private final Vector3f positionScale;
+    private final Vector3f positionOffset;
+    private final float maxPositionError;
+    private final float maxNormalError;
+    private final float maxTextureCoordinateError;
+    private final Bounds bounds;
+
+    /**
+     * @param format Layout of each packed vertex
+     * @param vertices Packed vertices
+     * @param vertexCount Amount of vertices
+     * @param indices Vertices indices grouped to define model faces
+     * @param positionScale Value decoded positions are multiplied by
+     * @param positionOffset Value added to decoded positions after scaling them
+     * @param maxPositionError Largest distance between an original and a decoded position
+     * @param maxNormalError Largest angle in degrees between an original and a decoded normal vector
+     * @param maxTextureCoordinateError Largest difference between an original and a decoded texture coordinate
+     * @param bounds Box and sphere enclosing the decoded positions
+     */
+    public QuantizedMeshData(VertexFormat format, ByteBuffer vertices, int vertexCount, int[] indices,
+                             Vector3f positionScale, Vector3f positionOffset, float maxPositionError,
+                             float maxNormalError, float maxTextureCoordinateError, Bounds bounds){
+        this.format = format;
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.indices = indices;
+        this.positionScale = positionScale;
+        this.positionOffset = positionOffset;
+        this.maxPositionError = maxPositionError;
+        this.maxNormalError = maxNormalError;
+        this.maxTextureCoordinateError = maxTextureCoordinateError;
+        this.bounds = bounds;
+    }
+
+    public VertexFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return Packed vertices from position 0 to the buffer limit
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public Vector3f getPositionScale() {
+        return positionScale;
+    }
+
+    public Vector3f getPositionOffset() {
+        return positionOffset;
+    }
+
+    public float getMaxPositionError() {
+        return maxPositionError;
+    }
+
+    public float getMaxNormalError() {
+        return maxNormalError;
+    }
+
+    public float getMaxTextureCoordinateError() {
+        return maxTextureCoordinateError;
+    }
+
+    /**
+     * @return Box and sphere enclosing the model as the shader decodes it, computed while packing so the mesh doesn't
+     * read the vertices again
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return Bytes used by each vertex once packed
+     */
+    public int getBytesPerVertex() {
+        return format.getStride();
+    }
+}
@@ -0,0 +1,86 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes down every call instead of making it, used to check which state changes and draws a frame makes without
+ * a gpu
+ */
+public class RecordingGraphicsDevice implements GraphicsDevice {
+    private final List<String> calls;
+
+    public RecordingGraphicsDevice(){
+        calls = new ArrayList<>();
+    }
+
+    @Override
+    public void useProgram(int programId) {
+        calls.add("useProgram " + programId);
+    }
+
+    @Override
+    public void bindTexture(int textureId) {
+        calls.add("bindTexture " + textureId);
+    }
+
+    @Override
+    public void bindVertexArray(int vaoId) {
+        calls.add("bindVertexArray " + vaoId);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int location) {
+        calls.add("enableVertexAttribArray " + location);
+    }
+
+    @Override
+    public void setUniform(int location, int value) {
+        calls.add("uniform " + location + " " + value);
+    }
+
+    @Override
+    public void setUniform(int location, float x, float y, float z) {
+        calls.add("uniform " + location + " " + x + " " + y + " " + z);
+    }
+
+    @Override
+    public void setUniformMatrix(int location, FloatBuffer value) {
+        calls.add("uniformMatrix " + location);
+    }
+
+    @Override
+    public void drawElements(int count, int indexType) {
+        calls.add("drawElements " + count);
+    }
+
+    @Override
+    public void drawElementsInstanced(int count, int indexType, int instances) {
+        calls.add("drawElementsInstanced " + count + " " + instances);
+    }
+
+    /**
+     * @return Calls in the order they were made
+     */
+    public List<String> getCalls() {
+        return calls;
+    }
+
+    /**
+     * @param prefix Start of the call, like "bindTexture"
+     * @return Amount of calls starting with the prefix
+     */
+    public int count(String prefix) {
+        int count = 0;
+        for (String call : calls) {
+            if(call.startsWith(prefix))
+                count++;
+        }
+        return count;
+    }
+
+    public void clear() {
+        calls.clear();
+    }
+}
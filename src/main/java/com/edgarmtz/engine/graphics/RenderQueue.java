@@ -0,0 +1,116 @@
+package com.edgarmtz.engine.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Orders a frame's draws so objects sharing a program, texture and mesh are drawn one after another. Each draw gets
+ * a 64 bit key, from the most to the least significant bits: program, texture, mesh and depth, and keys are sorted
+ * with a radix sort. Draws with the same key keep the order they were added in
+ */
+public class RenderQueue {
+    private static final int PROGRAM_BITS = 8;
+    private static final int TEXTURE_BITS = 16;
+    private static final int MESH_BITS = 16;
+    private static final int DEPTH_BITS = 24;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] keys;
+    private int[] items;
+    private long[] sortedKeys;
+    private int[] sortedItems;
+    private final int[] counts;
+    private int size;
+
+    public RenderQueue(){
+        keys = new long[INITIAL_CAPACITY];
+        items = new int[INITIAL_CAPACITY];
+        sortedKeys = new long[INITIAL_CAPACITY];
+        sortedItems = new int[INITIAL_CAPACITY];
+        counts = new int[RADIX];
+    }
+
+    /**
+     * Packs the state a draw needs into a key, ids are truncated to their bits so different ids may share a value,
+     * that only makes the order less effective
+     * @param program Shader program id
+     * @param texture Texture id, 0 if not textured
+     * @param mesh Vertex array id
+     * @param depth Distance to the camera between 0 and 1, nearer objects are drawn first within the same state
+     * @return Sort key
+     */
+    public static long createKey(int program, int texture, int mesh, float depth){
+        long quantizedDepth = (long) (Math.min(Math.max(depth, 0), 1) * ((1 << DEPTH_BITS) - 1));
+        return ((long) (program & ((1 << PROGRAM_BITS) - 1)) << (TEXTURE_BITS + MESH_BITS + DEPTH_BITS))
+                | ((long) (texture & ((1 << TEXTURE_BITS) - 1)) << (MESH_BITS + DEPTH_BITS))
+                | ((long) (mesh & ((1 << MESH_BITS) - 1)) << DEPTH_BITS)
+                | quantizedDepth;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * @param key Key made by {@link #createKey(int, int, int, float)}
+     * @param item Number identifying the draw, returned by {@link #getItem(int)}
+     */
+    public void add(long key, int item){
+        if(size == keys.length){
+            keys = Arrays.copyOf(keys, size * 2);
+            items = Arrays.copyOf(items, size * 2);
+            sortedKeys = new long[size * 2];
+            sortedItems = new int[size * 2];
+        }
+        keys[size] = key;
+        items[size] = item;
+        size++;
+    }
+
+    /**
+     * Least significant digit radix sort, eight bits per pass, passes where every key has the same digit are skipped
+     */
+    public void sort(){
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++)
+                counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+            if(size == 0 || counts[(int) (keys[0] >>> shift) & (RADIX - 1)] == size)
+                continue;
+            int total = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int target = counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+                sortedKeys[target] = keys[i];
+                sortedItems[target] = items[i];
+            }
+            long[] swapKeys = keys;
+            keys = sortedKeys;
+            sortedKeys = swapKeys;
+            int[] swapItems = items;
+            items = sortedItems;
+            sortedItems = swapItems;
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @param index Position after sorting
+     * @return Item added with the key in that position
+     */
+    public int getItem(int index){
+        return items[index];
+    }
+
+    public long getKey(int index){
+        return keys[index];
+    }
+}
@@ -0,0 +1,113 @@
+package com.edgarmtz.engine.graphics;
+
+/**
+ * Remembers the program, texture and vertex array last bound and skips calls that would bind the same one again,
+ * uniform values are remembered by each {@link ShaderProgram}. Anything changing OpenGL state without going through
+ * this class must be followed by {@link #invalidate()}
+ */
+public class RenderState {
+    private static final int NONE = -1;
+
+    private final GraphicsDevice device;
+    private int program;
+    private int texture;
+    private int vertexArray;
+
+    private int stateChanges;
+    private int avoidedStateChanges;
+    private int drawCalls;
+
+    /**
+     * @param device Where calls that change something are sent
+     */
+    public RenderState(GraphicsDevice device){
+        this.device = device;
+        invalidate();
+    }
+
+    /**
+     * Forgets every value and resets the counters, call it at the start of every frame
+     */
+    public void beginFrame(){
+        invalidate();
+        stateChanges = 0;
+        avoidedStateChanges = 0;
+        drawCalls = 0;
+    }
+
+    /**
+     * Forgets every value so the next calls are always sent
+     */
+    public void invalidate(){
+        program = NONE;
+        texture = NONE;
+        vertexArray = NONE;
+    }
+
+    public void useProgram(int programId){
+        if(program == programId){
+            avoidedStateChanges++;
+            return;
+        }
+        device.useProgram(programId);
+        program = programId;
+        stateChanges++;
+    }
+
+    public void bindTexture(int textureId){
+        if(texture == textureId){
+            avoidedStateChanges++;
+            return;
+        }
+        device.bindTexture(textureId);
+        texture = textureId;
+        stateChanges++;
+    }
+
+    /**
+     * @param vaoId Vertex array object to bind
+     * @return If it wasn't bound already
+     */
+    public boolean bindVertexArray(int vaoId){
+        if(vertexArray == vaoId){
+            avoidedStateChanges++;
+            return false;
+        }
+        device.bindVertexArray(vaoId);
+        vertexArray = vaoId;
+        stateChanges++;
+        return true;
+    }
+
+    public void drawElements(int count, int indexType){
+        device.drawElements(count, indexType);
+        drawCalls++;
+    }
+
+    public void drawElementsInstanced(int count, int indexType, int instances){
+        device.drawElementsInstanced(count, indexType, instances);
+        drawCalls++;
+    }
+
+    public GraphicsDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * @return Programs, textures and vertex arrays bound since the frame began
+     */
+    public int getStateChanges() {
+        return stateChanges;
+    }
+
+    /**
+     * @return Binds skipped since the frame began because the same value was already bound
+     */
+    public int getAvoidedStateChanges() {
+        return avoidedStateChanges;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+}
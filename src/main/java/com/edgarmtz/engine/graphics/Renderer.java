@@ -2,24 +2,93 @@ package com.edgarmtz.engine.graphics;
 
 import com.edgarmtz.engine.entities.Camera;
 import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.SceneGraph;
+import com.edgarmtz.engine.physics.BoundingVolumeHierarchy;
+import com.edgarmtz.engine.physics.Frustum;
+import com.edgarmtz.engine.physics.TransformStage;
 import com.edgarmtz.engine.physics.Transformation;
 import com.edgarmtz.engine.utils.Resources;
 import org.joml.Matrix4f;
 import org.lwjgl.opengl.GL11;
 
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Groups all objects that need to be drawn and controls data used in every draw call made by the engine
  */
 public class Renderer {
 
     private ShaderProgram shaderProgram;
+    private ShaderProgram instancedShaderProgram;
     private static final float FOV = (float) Math.toRadians((60.0f));
     private static final float Z_NEAR = 0.01f;
     private static final float Z_FAR = 250.0f;
+    /**
+     * Bytes of per frame data, grows when a frame needs more
+     */
+    private static final int STREAM_FRAME_SIZE = 1 << 20;
+    private static final int MATRIX_BYTES = 16 * Float.BYTES;
+    private static final int FRAME_BLOCK_BINDING = 0;
+    private static final int MESH_BLOCK_BINDING = 1;
     private final Transformation transformation;
+    private final Frustum frustum;
+    private final List<GameObject> visibleObjects;
+    private final TransformStage transformStage;
+    private GameObject[] frameObjects;
+    private final InstanceBatcher<Mesh> instanceBatcher;
+    private StreamBuffer streamBuffer;
+    /**
+     * Stalls counted by stream buffers replaced with bigger ones
+     */
+    private int retiredStreamStalls;
+    private InstanceBuffer instanceBuffer;
+    private boolean instancing;
+    private final RenderQueue renderQueue;
+    private final RenderState renderState;
+    private final UniformBlock frameBlock;
+    private final int projectionMatrixMember;
+    private final UniformBlock meshBlock;
+    private final int colorMember;
+    private final int useColorMember;
+    private final int positionScaleMember;
+    private final int octahedralNormalsMember;
+    private final int positionOffsetMember;
+    private int worldMatrixUniform;
+    private int samplerUniform;
+    private int instancedSamplerUniform;
+    private Matrix4f projectionMatrix;
+    private Mesh[] visibleMeshes;
+    private final Matrix4f previousViewMatrix;
+    private int viewVersion;
+    private int drawnObjects;
+    private int culledObjects;
+    private int recomputedMatrices;
+    private int reusedMatrices;
+    private int drawCalls;
 
     public Renderer(){
         transformation = new Transformation();
+        frustum = new Frustum();
+        visibleObjects = new ArrayList<>();
+        transformStage = new TransformStage();
+        frameObjects = new GameObject[0];
+        instanceBatcher = new InstanceBatcher<>();
+        renderQueue = new RenderQueue();
+        renderState = new RenderState(new GLGraphicsDevice());
+        // Same order as the blocks declared in shader code
+        frameBlock = new UniformBlock(FRAME_BLOCK_BINDING);
+        projectionMatrixMember = frameBlock.addMatrix4();
+        meshBlock = new UniformBlock(MESH_BLOCK_BINDING);
+        colorMember = meshBlock.addVector3();
+        useColorMember = meshBlock.addInt();
+        positionScaleMember = meshBlock.addVector3();
+        octahedralNormalsMember = meshBlock.addInt();
+        positionOffsetMember = meshBlock.addVector3();
+        visibleMeshes = new Mesh[0];
+        previousViewMatrix = new Matrix4f();
     }
 
     /**
@@ -31,11 +100,37 @@ public class Renderer {
         shaderProgram.createVertexShader(Resources.loadResourceContent("/shaders/VertexShader.vert"));
         shaderProgram.createFragmentShader(Resources.loadResourceContent("/shaders/FragmentShader.frag"));
         shaderProgram.link();
-        shaderProgram.createUniform("projectionMatrix");
-        shaderProgram.createUniform("worldMatrix");
-        shaderProgram.createUniform("texture_sampler");
-        shaderProgram.createUniform("color");
-        shaderProgram.createUniform("useColor");
+        worldMatrixUniform = shaderProgram.createUniform("worldMatrix");
+        samplerUniform = shaderProgram.createUniform("texture_sampler");
+        shaderProgram.bindUniformBlock("FrameBlock", FRAME_BLOCK_BINDING);
+        shaderProgram.bindUniformBlock("MeshBlock", MESH_BLOCK_BINDING);
+
+        instancedShaderProgram = new ShaderProgram();
+        instancedShaderProgram.createVertexShader(
+                Resources.loadResourceContent("/shaders/InstancedVertexShader.vert"));
+        instancedShaderProgram.createFragmentShader(Resources.loadResourceContent("/shaders/FragmentShader.frag"));
+        instancedShaderProgram.link();
+        instancedSamplerUniform = instancedShaderProgram.createUniform("texture_sampler");
+        instancedShaderProgram.bindUniformBlock("FrameBlock", FRAME_BLOCK_BINDING);
+        instancedShaderProgram.bindUniformBlock("MeshBlock", MESH_BLOCK_BINDING);
+        streamBuffer = StreamBuffer.create(STREAM_FRAME_SIZE);
+        instanceBuffer = new InstanceBuffer(streamBuffer);
+    }
+
+    /**
+     * Draws every copy of the same mesh with a single call instead of one call per object
+     * @param instancing If objects are grouped by mesh
+     */
+    public void setInstancing(boolean instancing) {
+        this.instancing = instancing;
+    }
+
+    /**
+     * Culls objects and calculates their matrices with batch kernels, faster when most objects move every frame
+     * @param batchKernels If the batch kernels are used, see {@link TransformStage#setBatchKernels(boolean)}
+     */
+    public void setBatchKernels(boolean batchKernels) {
+        transformStage.setBatchKernels(batchKernels);
     }
 
     /**
@@ -45,6 +140,58 @@ public class Renderer {
      * @param gameObjects Array of objects to be drawn
      */
     public void render(WindowManager window, Camera camera, GameObject[] gameObjects){
+        Matrix4f viewMatrix = beginFrame(window, camera);
+
+        renderObjects(window, camera, viewMatrix, gameObjects, gameObjects.length);
+        culledObjects = gameObjects.length - drawnObjects;
+
+        endFrame();
+    }
+
+    /**
+     * Draws objects stored in a spatial index, only branches inside camera's view are visited
+     * @param window Where render will take place
+     * @param camera Indicates displacement to put into objects
+     * @param scene Index with every object in game, must be refitted after objects move
+     */
+    public void render(WindowManager window, Camera camera, BoundingVolumeHierarchy scene){
+        Matrix4f viewMatrix = beginFrame(window, camera);
+
+        visibleObjects.clear();
+        scene.queryFrustum(frustum, visibleObjects);
+        frameObjects = visibleObjects.toArray(frameObjects);
+        renderObjects(window, camera, viewMatrix, frameObjects, visibleObjects.size());
+        culledObjects = scene.size() - drawnObjects;
+
+        endFrame();
+    }
+
+    /**
+     * Updates world matrices of the objects that moved and draws every object in the hierarchy
+     * @param window Where render will take place
+     * @param camera Indicates displacement to put into objects
+     * @param scene Hierarchy with every object in game
+     */
+    public void render(WindowManager window, Camera camera, SceneGraph scene){
+        scene.update();
+        Matrix4f viewMatrix = beginFrame(window, camera);
+
+        int size = scene.size();
+        if(frameObjects.length < size)
+            frameObjects = new GameObject[size];
+        for (int i = 0; i < size; i++)
+            frameObjects[i] = scene.getGameObject(i);
+        renderObjects(window, camera, viewMatrix, frameObjects, size);
+        culledObjects = size - drawnObjects;
+
+        endFrame();
+    }
+
+    /**
+     * Clears the screen, binds the shader program and writes the values shared by every object
+     * @return Camera's view matrix
+     */
+    private Matrix4f beginFrame(WindowManager window, Camera camera){
         clear();
 
         if(window.isResized()){
@@ -52,27 +199,219 @@ public class Renderer {
             window.setResized(false);
         }
 
-        shaderProgram.bind();
+        streamBuffer.beginFrame();
+        ShaderProgram program = instancing ? instancedShaderProgram : shaderProgram;
+        renderState.beginFrame();
+        shaderProgram.getUniformState().resetCounters();
+        instancedShaderProgram.getUniformState().resetCounters();
+        renderState.useProgram(program.getId());
 
-        shaderProgram.setUniform("texture_sampler", 0);
+        // Programs keep the value so it's only sent the first frame
+        program.setUniform(instancing ? instancedSamplerUniform : samplerUniform, 0);
 
-        Matrix4f projectionMatrix = transformation.getProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        shaderProgram.setUniform("projectionMatrix", projectionMatrix);
+        projectionMatrix = transformation.getProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
+        writeFrameBlock();
 
         Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+        frustum.update(projectionMatrix, viewMatrix);
+        // Objects reuse their model view matrix until the camera moves
+        if(!viewMatrix.equals(previousViewMatrix)){
+            previousViewMatrix.set(viewMatrix);
+            viewVersion++;
+        }
+        return viewMatrix;
+    }
+
+    /**
+     * Culls objects and calculates their matrices in parallel, then draws the visible ones in this thread
+     */
+    private void renderObjects(WindowManager window, Camera camera, Matrix4f viewMatrix, GameObject[] gameObjects,
+                               int count){
+        transformStage.compute(gameObjects, count, frustum, viewMatrix, viewVersion);
+        drawnObjects = transformStage.getVisibleCount();
+        recomputedMatrices = transformStage.getRecomputedMatrices();
+        reusedMatrices = transformStage.getReusedMatrices();
+        if(instancing){
+            renderInstanced(window, camera, gameObjects);
+            return;
+        }
+        // Sorted by state so consecutive objects sharing a texture or mesh don't bind them again
+        if(visibleMeshes.length < drawnObjects)
+            visibleMeshes = new Mesh[drawnObjects];
+        renderQueue.clear();
+        for (int i = 0; i < drawnObjects; i++) {
+            int index = transformStage.getVisibleIndex(i);
+            Mesh mesh = gameObjects[index].getMesh(camera.getPosition(), FOV, window.getHeight());
+            visibleMeshes[i] = mesh;
+            float depth = -transformStage.getMatrix(index).get(index * 16 + 14) / Z_FAR;
+            renderQueue.add(RenderQueue.createKey(shaderProgram.getId(),
+                    mesh.isTextured() ? mesh.getTexture().getId() : 0, mesh.getVaoId(), depth), i);
+        }
+        renderQueue.sort();
+        // Consecutive objects sharing a mesh share it's block too
+        int meshChanges = 0;
+        Mesh previousMesh = null;
+        for (int i = 0; i < renderQueue.size(); i++) {
+            Mesh mesh = visibleMeshes[renderQueue.getItem(i)];
+            if(mesh != previousMesh)
+                meshChanges++;
+            previousMesh = mesh;
+        }
+        ensureStreamSize(frameBlock.getStreamSize() + meshChanges * meshBlock.getStreamSize());
+        previousMesh = null;
+        for (int i = 0; i < renderQueue.size(); i++) {
+            int visible = renderQueue.getItem(i);
+            Mesh mesh = visibleMeshes[visible];
+            if(mesh != previousMesh)
+                writeMeshBlock(mesh);
+            previousMesh = mesh;
+            renderObject(mesh, transformStage.getMatrix(transformStage.getVisibleIndex(visible)));
+        }
+        Arrays.fill(visibleMeshes, 0, drawnObjects, null);
+        drawCalls = renderState.getDrawCalls();
+    }
 
-        for (GameObject gameObject : gameObjects) {
-            Mesh mesh = gameObject.getMesh();
-            Matrix4f worldMatrix = transformation.getModelViewMatrix(gameObject, viewMatrix);
-            shaderProgram.setUniform("worldMatrix", worldMatrix);
-            shaderProgram.setUniform("color", mesh.getColor());
-            shaderProgram.setUniform("useColor", mesh.isTextured() ? 0 : 1);
-            mesh.render();
+    /**
+     * Groups visible objects by the mesh picked for them and draws each group at once
+     */
+    private void renderInstanced(WindowManager window, Camera camera, GameObject[] gameObjects){
+        instanceBatcher.clear();
+        for (int i = 0; i < drawnObjects; i++) {
+            int index = transformStage.getVisibleIndex(i);
+            Mesh mesh = gameObjects[index].getMesh(camera.getPosition(), FOV, window.getHeight());
+            instanceBatcher.add(mesh, transformStage.getMatrix(index), index * 16);
+        }
+        drawCalls = instanceBatcher.getBatchCount();
+        ensureStreamSize(frameBlock.getStreamSize() + drawCalls * meshBlock.getStreamSize()
+                + drawnObjects * MATRIX_BYTES + drawCalls * MATRIX_BYTES);
+        for (int i = 0; i < drawCalls; i++) {
+            InstanceBatcher.Batch<Mesh> batch = instanceBatcher.getBatch(i);
+            Mesh mesh = batch.getKey();
+            writeMeshBlock(mesh);
+            if(!instanceBuffer.upload(batch.getMatrices()))
+                throw new IllegalStateException("Couldn't fit instance matrices in the stream buffer");
+            mesh.renderInstanced(renderState, instanceBuffer);
         }
+    }
+
+    /**
+     * Replaces the stream buffer with a bigger one if this frame's data doesn't fit. The old one is deleted right away,
+     * the driver keeps it's storage alive until draws already issued with it finish
+     * @param size Bytes the frame needs including alignment
+     */
+    private void ensureStreamSize(int size){
+        if(size <= streamBuffer.getFrameSize())
+            return;
+        retiredStreamStalls += streamBuffer.getStalls();
+        streamBuffer.cleanup();
+        streamBuffer = StreamBuffer.create(Math.max(size, streamBuffer.getFrameSize() * 2));
+        instanceBuffer = new InstanceBuffer(streamBuffer);
+        streamBuffer.beginFrame();
+        // Deleting the old buffer unbound the frame's values
+        writeFrameBlock();
+    }
 
+    /**
+     * Marks the end of the frame's data in the stream buffer and removes the program
+     */
+    private void endFrame(){
+        streamBuffer.endFrame();
         shaderProgram.unbind();
     }
 
+    private void renderObject(Mesh mesh, FloatBuffer modelViewMatrix){
+        shaderProgram.setUniform(worldMatrixUniform, modelViewMatrix);
+        mesh.render(renderState);
+    }
+
+    /**
+     * Writes the projection matrix into the stream buffer and binds it for every program
+     */
+    private void writeFrameBlock(){
+        if(!frameBlock.begin(streamBuffer))
+            throw new IllegalStateException("Couldn't fit frame uniforms in the stream buffer");
+        frameBlock.setMatrix4(projectionMatrixMember, projectionMatrix);
+        frameBlock.bind();
+    }
+
+    /**
+     * Writes the values of a mesh into the stream buffer and binds them for the next draws
+     */
+    private void writeMeshBlock(Mesh mesh){
+        if(!meshBlock.begin(streamBuffer))
+            throw new IllegalStateException("Couldn't fit mesh uniforms in the stream buffer");
+        meshBlock.setVector3(colorMember, mesh.getColor());
+        meshBlock.setInt(useColorMember, mesh.isTextured() ? 0 : 1);
+        meshBlock.setVector3(positionScaleMember, mesh.getPositionScale());
+        meshBlock.setInt(octahedralNormalsMember, mesh.getFormat().hasOctahedralNormals() ? 1 : 0);
+        meshBlock.setVector3(positionOffsetMember, mesh.getPositionOffset());
+        meshBlock.bind();
+    }
+
+    /**
+     * @return Objects drawn in the last frame
+     */
+    public int getDrawnObjects() {
+        return drawnObjects;
+    }
+
+    /**
+     * @return Draw calls made in the last frame, one per mesh when instancing is enabled
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return Programs, textures and vertex arrays bound in the last frame
+     */
+    public int getStateChanges() {
+        return renderState.getStateChanges();
+    }
+
+    /**
+     * @return Binds skipped in the last frame because the same value was already bound
+     */
+    public int getAvoidedStateChanges() {
+        return renderState.getAvoidedStateChanges();
+    }
+
+    /**
+     * @return Uniform uploads skipped in the last frame because the value didn't change
+     */
+    public int getAvoidedUniformUploads() {
+        return shaderProgram.getUniformState().getAvoidedUploads()
+                + instancedShaderProgram.getUniformState().getAvoidedUploads();
+    }
+
+    /**
+     * @return Frames that had to wait for the gpu to release stream buffer memory
+     */
+    public int getStreamStalls() {
+        return retiredStreamStalls + streamBuffer.getStalls();
+    }
+
+    /**
+     * @return Objects skipped in the last frame because they were outside camera's view
+     */
+    public int getCulledObjects() {
+        return culledObjects;
+    }
+
+    /**
+     * @return World matrices recalculated in the last frame because their objects moved
+     */
+    public int getRecomputedMatrices() {
+        return recomputedMatrices;
+    }
+
+    /**
+     * @return World matrices drawn in the last frame without recalculating them
+     */
+    public int getReusedMatrices() {
+        return reusedMatrices;
+    }
+
     /**
      * Clears stuff drawn
      */
@@ -87,5 +426,13 @@ public class Renderer {
         if(shaderProgram != null){
             shaderProgram.cleanup();
         }
+        if(instancedShaderProgram != null){
+            instancedShaderProgram.cleanup();
+        }
+        if(streamBuffer != null){
+            streamBuffer.cleanup();
+        }
+        instanceBatcher.cleanup();
+        transformStage.cleanup();
     }
 }
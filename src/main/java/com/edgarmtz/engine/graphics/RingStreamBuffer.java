@@ -0,0 +1,112 @@
+package com.edgarmtz.engine.graphics;
+
+/**
+ * Splits a buffer into one section per frame in flight, each frame allocates linearly inside it's section and a fence
+ * placed at the end of the frame tells when the section can be written again
+ */
+public abstract class RingStreamBuffer implements StreamBuffer {
+    /**
+     * Frames the cpu can prepare while the gpu is still drawing previous ones
+     */
+    public static final int DEFAULT_SECTIONS = 3;
+    /**
+     * Largest alignment allowed, sections start at multiples of it
+     */
+    public static final int MAX_ALIGNMENT = 256;
+    private static final long NO_FENCE = 0;
+
+    protected final int sectionSize;
+    protected final int sections;
+    private final long[] fences;
+    private int section;
+    private int sectionOffset;
+    private int stalls;
+
+    /**
+     * @param frameSize Bytes available to each frame, rounded up to {@link #MAX_ALIGNMENT}
+     * @param sections Amount of frames in flight
+     */
+    protected RingStreamBuffer(int frameSize, int sections){
+        this.sectionSize = (frameSize + MAX_ALIGNMENT - 1) / MAX_ALIGNMENT * MAX_ALIGNMENT;
+        this.sections = sections;
+        fences = new long[sections];
+        // First frame starts at section 0
+        section = sections - 1;
+    }
+
+    @Override
+    public void beginFrame() {
+        section = (section + 1) % sections;
+        long fence = fences[section];
+        if(fence != NO_FENCE){
+            if(waitFence(fence))
+                stalls++;
+            deleteFence(fence);
+            fences[section] = NO_FENCE;
+        }
+        sectionOffset = 0;
+        sectionStarted(section);
+    }
+
+    @Override
+    public int allocate(int size, int alignment) {
+        if(alignment <= 0 || alignment > MAX_ALIGNMENT || (alignment & (alignment - 1)) != 0)
+            throw new IllegalArgumentException("Alignment must be a power of two up to " + MAX_ALIGNMENT);
+        int start = (sectionOffset + alignment - 1) & -alignment;
+        if(start + size > sectionSize)
+            return -1;
+        sectionOffset = start + size;
+        return section * sectionSize + start;
+    }
+
+    @Override
+    public void endFrame() {
+        fences[section] = createFence();
+    }
+
+    @Override
+    public int getFrameSize() {
+        return sectionSize;
+    }
+
+    @Override
+    public int getStalls() {
+        return stalls;
+    }
+
+    /**
+     * @return Bytes allocated in the current frame
+     */
+    public int getFrameUsage() {
+        return sectionOffset;
+    }
+
+    @Override
+    public void cleanup() {
+        for (int i = 0; i < sections; i++) {
+            if(fences[i] != NO_FENCE)
+                deleteFence(fences[i]);
+            fences[i] = NO_FENCE;
+        }
+    }
+
+    /**
+     * @return Fence signaled once the gpu finishes every command sent so far, 0 if not needed
+     */
+    protected abstract long createFence();
+
+    /**
+     * Blocks until the fence is signaled
+     * @return If it had to wait
+     */
+    protected abstract boolean waitFence(long fence);
+
+    protected abstract void deleteFence(long fence);
+
+    /**
+     * Called once a section is safe to write
+     * @param section Section index
+     */
+    protected void sectionStarted(int section) {
+    }
+}
@@ -2,25 +2,30 @@ package com.edgarmtz.engine.graphics;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
-import org.lwjgl.system.MemoryStack;
 
 import java.nio.FloatBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
 
 /**
- * Manages all shaders programs loaded into gpu
+ * Manages all shaders programs loaded into gpu. Uniforms are set through the handle returned by
+ * {@link #createUniform(String)}, values equal to the last one sent are skipped
  */
 public class ShaderProgram {
     private final int programId;
     private int vertexShaderId;
     private int fragmentShaderId;
     private final Map<String, Integer> uniforms;
+    private final UniformState uniformState;
 
     public ShaderProgram() throws Exception{
         uniforms = new HashMap<>();
+        uniformState = new UniformState(new GLGraphicsDevice());
         programId = glCreateProgram();
         if (programId == 0)
             throw new Exception("Couldn't create openGl program");
@@ -110,28 +115,123 @@ public class ShaderProgram {
         if(programId != 0){
             glDeleteProgram(programId);
         }
+        uniformState.cleanup();
     }
 
-    public void createUniform(String name) throws Exception {
+    /**
+     * @return Program id in gpu
+     */
+    public int getId() {
+        return programId;
+    }
+
+    /**
+     * @param name Uniform name in shader code
+     * @return Handle registered for the uniform, -1 if the compiler removed it
+     * @throws IllegalArgumentException if the uniform was never created
+     */
+    public int getUniform(String name) {
+        Integer uniform = uniforms.get(name);
+        if(uniform == null)
+            throw new IllegalArgumentException("Uniform " + name + " wasn't created");
+        return uniform;
+    }
+
+    /**
+     * @param name Uniform name in shader code
+     * @return Location of the uniform in the program, -1 if the compiler removed it
+     * @throws IllegalArgumentException if the uniform was never created
+     */
+    public int getUniformLocation(String name) {
+        int uniform = getUniform(name);
+        return uniform < 0 ? -1 : uniformState.getLocation(uniform);
+    }
+
+    /**
+     * @param name Uniform name in shader code
+     * @return Handle used to set the uniform
+     * @throws Exception if the uniform doesn't exist
+     */
+    public int createUniform(String name) throws Exception {
         int uniformLocation = glGetUniformLocation(programId, name);
         if(uniformLocation < 0)
             throw new Exception("Could not find uniform " + name);
-        uniforms.put(name, uniformLocation);
+        int uniform = uniformState.addUniform(uniformLocation);
+        uniforms.put(name, uniform);
+        return uniform;
+    }
+
+    /**
+     * Registers a uniform the shader compiler may remove when no output depends on it, values set to a removed
+     * uniform are ignored
+     * @param name Uniform name in shader code
+     * @return Handle used to set the uniform, -1 if it was removed
+     */
+    public int createOptionalUniform(String name) {
+        int uniform = uniformState.addUniform(glGetUniformLocation(programId, name));
+        uniforms.put(name, uniform);
+        return uniform;
+    }
+
+    /**
+     * Connects a uniform block of the program to the binding point a {@link UniformBlock} is bound to
+     * @param name Block name in shader code
+     * @param binding Binding point
+     * @throws Exception if the block doesn't exist
+     */
+    public void bindUniformBlock(String name, int binding) throws Exception {
+        int blockIndex = glGetUniformBlockIndex(programId, name);
+        if(blockIndex == GL_INVALID_INDEX)
+            throw new Exception("Could not find uniform block " + name);
+        glUniformBlockBinding(programId, blockIndex, binding);
+    }
+
+    public void setUniform(int uniform, Matrix4f value) {
+        uniformState.setUniform(uniform, value);
+    }
+
+    /**
+     * Sets a 4x4 matrix already stored in a buffer
+     * @param uniform Handle returned by {@link #createUniform(String)}
+     * @param value Buffer positioned at the matrix values in column major order
+     */
+    public void setUniform(int uniform, FloatBuffer value) {
+        uniformState.setUniform(uniform, value);
+    }
+
+    public void setUniform(int uniform, int value){
+        uniformState.setUniform(uniform, value);
+    }
+
+    public void setUniform(int uniform, Vector3f value){
+        uniformState.setUniform(uniform, value);
     }
 
     public void setUniform(String name, Matrix4f value) {
-        try(MemoryStack stack = MemoryStack.stackPush()){
-            FloatBuffer fb = stack.mallocFloat(16);
-            value.get(fb);
-            glUniformMatrix4fv(uniforms.get(name), false, fb);
-        }
+        setUniform(getUniform(name), value);
+    }
+
+    /**
+     * Sets a 4x4 matrix already stored in a buffer
+     * @param name Uniform name in shader code
+     * @param value Buffer positioned at the matrix values in column major order
+     */
+    public void setUniform(String name, FloatBuffer value) {
+        setUniform(getUniform(name), value);
     }
 
     public void setUniform(String name, int value){
-        glUniform1i(uniforms.get(name), value);
+        setUniform(getUniform(name), value);
     }
 
     public void setUniform(String name, Vector3f value){
-        glUniform3f(uniforms.get(name), value.x, value.y, value.z);
+        setUniform(getUniform(name), value);
+    }
+
+    /**
+     * @return Last values sent to the program's uniforms and how many uploads were skipped
+     */
+    public UniformState getUniformState() {
+        return uniformState;
     }
 }
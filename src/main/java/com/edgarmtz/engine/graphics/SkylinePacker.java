@@ -0,0 +1,152 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.IntList;
+
+/**
+ * Places rectangles inside a fixed size area without overlapping them. The top edge of what's placed so far is kept
+ * as a skyline of horizontal segments and each rectangle goes where it's bottom ends lowest, then leftmost. Doesn't
+ * use OpenGL and places the same rectangles in the same order at the same positions
+ */
+public class SkylinePacker {
+    private final int width;
+    private final int height;
+    // Segments from left to right, each one starts at x, covers width and has it's top at y
+    private final IntList segmentX;
+    private final IntList segmentY;
+    private final IntList segmentWidth;
+    private long usedArea;
+    private int x;
+    private int y;
+
+    /**
+     * @param width Area width
+     * @param height Area height
+     */
+    public SkylinePacker(int width, int height){
+        this.width = width;
+        this.height = height;
+        segmentX = new IntList();
+        segmentY = new IntList();
+        segmentWidth = new IntList();
+        segmentX.add(0);
+        segmentY.add(0);
+        segmentWidth.add(width);
+    }
+
+    /**
+     * Places a rectangle, read it's position with {@link #getX()} and {@link #getY()}
+     * @param rectangleWidth Rectangle width
+     * @param rectangleHeight Rectangle height
+     * @return False if it doesn't fit anywhere, nothing changes then
+     */
+    public boolean insert(int rectangleWidth, int rectangleHeight){
+        int bestSegment = -1;
+        int bestTop = Integer.MAX_VALUE;
+        int bestY = 0;
+        for (int i = 0; i < segmentX.size(); i++) {
+            int fitY = fit(i, rectangleWidth, rectangleHeight);
+            if(fitY < 0)
+                continue;
+            int top = fitY + rectangleHeight;
+            // Segments go left to right so ties keep the leftmost
+            if(top < bestTop){
+                bestSegment = i;
+                bestTop = top;
+                bestY = fitY;
+            }
+        }
+        if(bestSegment < 0)
+            return false;
+        x = segmentX.get(bestSegment);
+        y = bestY;
+        raise(bestSegment, rectangleWidth, bestTop);
+        usedArea += (long) rectangleWidth * rectangleHeight;
+        return true;
+    }
+
+    /**
+     * @return Left edge of the last rectangle placed
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return Top edge of the last rectangle placed, rows grow downwards like image rows
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return Area covered by every rectangle placed
+     */
+    public long getUsedArea() {
+        return usedArea;
+    }
+
+    /**
+     * @return Covered area divided by the whole area
+     */
+    public float getOccupancy() {
+        return (float) ((double) usedArea / ((long) width * height));
+    }
+
+    /**
+     * Finds where a rectangle starting at a segment's left edge would rest
+     * @return Rectangle's y, or -1 if it goes past the right or bottom edge
+     */
+    private int fit(int segment, int rectangleWidth, int rectangleHeight){
+        int left = segmentX.get(segment);
+        if(left + rectangleWidth > width)
+            return -1;
+        int fitY = 0;
+        int remaining = rectangleWidth;
+        for (int i = segment; remaining > 0; i++) {
+            fitY = Math.max(fitY, segmentY.get(i));
+            if(fitY + rectangleHeight > height)
+                return -1;
+            remaining -= segmentWidth.get(i);
+        }
+        return fitY;
+    }
+
+    /**
+     * Replaces the segments below a placed rectangle with one at it's top
+     */
+    private void raise(int segment, int rectangleWidth, int top){
+        int left = segmentX.get(segment);
+        int right = left + rectangleWidth;
+        segmentX.insert(segment, left);
+        segmentY.insert(segment, top);
+        segmentWidth.insert(segment, rectangleWidth);
+
+        // Cuts or removes the segments the new one covers
+        int i = segment + 1;
+        while(i < segmentX.size() && segmentX.get(i) < right){
+            int end = segmentX.get(i) + segmentWidth.get(i);
+            if(end <= right){
+                remove(i);
+                continue;
+            }
+            segmentWidth.set(i, end - right);
+            segmentX.set(i, right);
+            break;
+        }
+        // Joins neighbours at the same height
+        for (int j = Math.max(segment, 1); j < Math.min(segment + 2, segmentX.size()); ) {
+            if(segmentY.get(j - 1) == segmentY.get(j)){
+                segmentWidth.set(j - 1, segmentWidth.get(j - 1) + segmentWidth.get(j));
+                remove(j);
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private void remove(int segment){
+        segmentX.remove(segment);
+        segmentY.remove(segment);
+        segmentWidth.remove(segment);
+    }
+}
@@ -0,0 +1,31 @@
+package com.edgarmtz.engine.graphics;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.stb.STBImage.stbi_failure_reason;
+import static org.lwjgl.stb.STBImage.stbi_load_from_memory;
+
+/**
+ * Decodes png, jpeg, tga and other formats with stb_image, native code that's faster than {@link PngTextureDecoder}.
+ * Pixels are allocated by stb through LWJGL's allocator and freed as soon as the image is closed
+ */
+public class StbTextureDecoder implements TextureDecoder {
+    private static final int RGBA = 4;
+
+    @Override
+    public TextureData decode(ByteBuffer image) throws Exception {
+        try(MemoryStack stack = MemoryStack.stackPush()){
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            ByteBuffer pixels = stbi_load_from_memory(image, width, height, channels, RGBA);
+            if(pixels == null)
+                throw new Exception("Couldn't decode image: " + stbi_failure_reason());
+            return new TextureData(width.get(0), height.get(0), pixels, STBImage::stbi_image_free);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.edgarmtz.engine.graphics;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Buffer in gpu rewritten every frame, like instance matrices or uniform blocks. Each frame writes into it's own
+ * region so the cpu never has to wait for the gpu to finish reading a previous frame
+ */
+public interface StreamBuffer {
+    /**
+     * Starts using the next frame region, waits only if the gpu is still reading it
+     */
+    void beginFrame();
+
+    /**
+     * Reserves part of the current frame region
+     * @param size Bytes needed
+     * @param alignment Required offset alignment in bytes, a power of two up to 256
+     * @return Offset in bytes from the start of the buffer, -1 if the frame region is full
+     */
+    int allocate(int size, int alignment);
+
+    /**
+     * @return Memory where allocated bytes are written, at the offsets returned by {@link #allocate(int, int)}
+     */
+    ByteBuffer getMemory();
+
+    /**
+     * Makes bytes written by the cpu visible to the gpu, must be called before drawing with them
+     * @param offset Offset returned by {@link #allocate(int, int)}
+     * @param size Bytes written
+     */
+    void flush(int offset, int size);
+
+    /**
+     * Marks the point after the frame's last draw, the frame region is reused once the gpu passes it
+     */
+    void endFrame();
+
+    /**
+     * @return Buffer id in gpu, 0 for buffers not backed by one
+     */
+    int getBufferId();
+
+    /**
+     * @return Bytes available to each frame
+     */
+    int getFrameSize();
+
+    /**
+     * @return Times {@link #beginFrame()} had to wait for the gpu
+     */
+    int getStalls();
+
+    /**
+     * Deletes the buffer
+     */
+    void cleanup();
+
+    /**
+     * Creates a persistently mapped buffer if the driver supports buffer storage, otherwise a buffer orphaned every
+     * frame
+     * @param frameSize Bytes available to each frame
+     * @return New buffer
+     */
+    static StreamBuffer create(int frameSize){
+        GLCapabilities capabilities = GL.getCapabilities();
+        if(capabilities.OpenGL44 || capabilities.GL_ARB_buffer_storage)
+            return new PersistentStreamBuffer(frameSize, RingStreamBuffer.DEFAULT_SECTIONS);
+        return new OrphaningStreamBuffer(frameSize);
+    }
+}
@@ -1,8 +1,8 @@
 package com.edgarmtz.engine.graphics;
 
-import com.edgarmtz.engine.utils.Resources;
-import de.matthiasmann.twl.utils.PNGDecoder;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL30;
 
 import java.nio.ByteBuffer;
@@ -15,6 +15,10 @@ import static org.lwjgl.opengl.GL11.*;
  */
 public class Texture {
     private int id;
+    private int width;
+    private int height;
+    private long gpuBytes;
+    private boolean shared;
 
     /**
      * Creates and load a texture with {@link #loadTexture(String)} 
@@ -22,7 +26,43 @@ public class Texture {
      * @throws Exception if failed to load texture
      */
     public Texture(String  TextureName) throws Exception{
-        this.id = loadTexture(TextureName);
+        try(TextureData textureData = TextureData.decode(TextureName)){
+            load(textureData);
+        }
+    }
+
+    /**
+     * Loads an image already decoded into gpu, must be called from the thread owning the context. The image isn't
+     * closed so the caller can release it's pixels right after
+     * @param textureData Decoded image
+     */
+    public Texture(TextureData textureData){
+        load(textureData);
+    }
+
+    /**
+     * Loads every mipmap level of an image already laid out in a gpu format, like the ones stored by
+     * {@link TextureCache}, must be called from the thread owning the context. Compressed formats the gpu can't
+     * sample are decompressed first
+     * @param format Format levels are stored in
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param levels Levels from the image down to 1x1 or less, each one from position to limit
+     */
+    public Texture(TextureFormat format, int width, int height, ByteBuffer[] levels){
+        this.id = loadTexture(format, width, height, levels);
+        this.width = width;
+        this.height = height;
+        TextureFormat uploadedFormat = format.isSupported() ? format : TextureFormat.RGBA8;
+        this.gpuBytes = uploadedFormat.getSize(width, height, levels.length);
+    }
+
+    private void load(TextureData textureData){
+        this.id = loadTexture(textureData);
+        this.width = textureData.getWidth();
+        this.height = textureData.getHeight();
+        // Mipmaps add a third more
+        this.gpuBytes = (long) width * height * 4 * 4 / 3;
     }
 
     /**
@@ -32,26 +72,101 @@ public class Texture {
      * @throws Exception if image doesn't exist or can't be decoded
      */
     public static int loadTexture(String textureName) throws Exception{
-        // Get texture Image
-        PNGDecoder pngDecoder = new PNGDecoder(Resources.loadResource(textureName));
-        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * pngDecoder.getHeight() * pngDecoder.getWidth());
-        pngDecoder.decode(buffer, pngDecoder.getWidth() * 4, PNGDecoder.Format.RGBA);
-        buffer.flip();
+        try(TextureData textureData = TextureData.decode(textureName)){
+            return loadTexture(textureData);
+        }
+    }
 
+    /**
+     * Loads a decoded image into gpu and generates it's mipmaps
+     * @param textureData Decoded image
+     * @return Id associated to created texture in gpu memory
+     */
+    public static int loadTexture(TextureData textureData){
         //Load texture into graphic card
         int textureId = GL11.glGenTextures();
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
         GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
-        GL11.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, pngDecoder.getWidth(), pngDecoder.getHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
+        GL11.glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, textureData.getWidth(), textureData.getHeight(), 0, GL_RGBA,
+                GL_UNSIGNED_BYTE, textureData.getPixels());
         GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
 
         return textureId;
     }
 
+    /**
+     * Loads mipmap levels one by one without generating any
+     * @param format Format levels are stored in
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param levels Levels from the image down, each one from position to limit
+     * @return Id associated to created texture in gpu memory
+     */
+    public static int loadTexture(TextureFormat format, int width, int height, ByteBuffer[] levels){
+        int textureId = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_BASE_LEVEL, 0);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, levels.length - 1);
+        boolean supported = format.isSupported();
+        PixelBufferPool pool = PixelBufferPool.getShared();
+        for (int level = 0; level < levels.length; level++) {
+            int levelWidth = Math.max(1, width >> level);
+            int levelHeight = Math.max(1, height >> level);
+            if(!format.isCompressed()){
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, format.getInternalFormat(), levelWidth, levelHeight, 0,
+                        GL_RGBA, GL_UNSIGNED_BYTE, levels[level]);
+            } else if(supported){
+                GL13.glCompressedTexImage2D(GL11.GL_TEXTURE_2D, level, format.getInternalFormat(), levelWidth,
+                        levelHeight, 0, levels[level]);
+            } else {
+                ByteBuffer pixels = pool.acquire(levelWidth * levelHeight * 4);
+                try{
+                    BlockCompressor.decompress(levels[level], format, levelWidth, levelHeight, pixels);
+                    GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, TextureFormat.RGBA8.getInternalFormat(),
+                            levelWidth, levelHeight, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+                } finally {
+                    pool.release(pixels);
+                }
+            }
+        }
+        return textureId;
+    }
+
     public int getId() {
         return id;
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Estimated bytes in gpu of every mipmap level
+     */
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    /**
+     * @return If the texture is used by several meshes, see {@link #setShared(boolean)}
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Shared textures are deleted by whoever shares them, like an asset manager, instead of by the meshes using them
+     * @param shared If the texture is used by several meshes
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
     /**
      * Deletes any temporary data stored in systems memory
      */
@@ -0,0 +1,323 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.memSet;
+
+/**
+ * Packs small images into a few large pages so meshes using any of them share a texture, and draws sorted by texture
+ * bind it once. Images are placed by {@link SkylinePacker}, each one surrounded by copies of it's border pixels so
+ * filtering and the largest mipmaps don't mix neighbours. Meshes use an image through texture coordinates remapped
+ * into it's region, see {@link #remap(MeshData, String)}.
+ * <p>
+ * Layout, composing pages and remapping don't use OpenGL and always give the same result for the same images added in
+ * the same order
+ */
+public class TextureAtlas {
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int padding;
+    // In the order they were added
+    private final Map<String, Region> regions;
+    private final List<SkylinePacker> pages;
+    private Texture[] textures;
+
+    /**
+     * @param pageWidth Width of every page in pixels
+     * @param pageHeight Height of every page in pixels
+     * @param padding Border pixels repeated around each image
+     */
+    public TextureAtlas(int pageWidth, int pageHeight, int padding){
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.padding = padding;
+        regions = new LinkedHashMap<>();
+        pages = new ArrayList<>();
+        textures = new Texture[0];
+    }
+
+    /**
+     * Decodes images and loads them into as few pages as possible, must be called from the thread owning the context
+     * @param textureNames Image names, used to find their regions
+     * @param decoder Decoder used for every image
+     * @param pageSize Width and height of every page in pixels
+     * @param padding Border pixels repeated around each image
+     * @return Atlas with every page uploaded
+     * @throws Exception if an image doesn't exist, can't be decoded or is bigger than a page
+     */
+    public static TextureAtlas load(String[] textureNames, TextureDecoder decoder, int pageSize, int padding)
+            throws Exception {
+        TextureData[] images = TextureDecoder.decodeAll(decoder, textureNames,
+                Runtime.getRuntime().availableProcessors());
+        try{
+            TextureAtlas atlas = new TextureAtlas(pageSize, pageSize, padding);
+            Map<String, TextureData> namedImages = new HashMap<>();
+            for (int i = 0; i < images.length; i++) {
+                atlas.add(textureNames[i], images[i].getWidth(), images[i].getHeight());
+                namedImages.put(textureNames[i], images[i]);
+            }
+            atlas.pack();
+            atlas.upload(namedImages);
+            return atlas;
+        } finally {
+            for (TextureData image : images)
+                image.close();
+        }
+    }
+
+    /**
+     * Adds an image to be placed by {@link #pack()}
+     * @param name Name the image's region is found by
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @throws IllegalArgumentException if the name was already added or the image doesn't fit a page
+     * @throws IllegalStateException if the atlas was already packed
+     */
+    public void add(String name, int width, int height){
+        if(!pages.isEmpty())
+            throw new IllegalStateException("Texture atlas was already packed");
+        if(regions.containsKey(name))
+            throw new IllegalArgumentException("Texture " + name + " was already added");
+        if(width <= 0 || height <= 0 || width + 2 * padding > pageWidth || height + 2 * padding > pageHeight)
+            throw new IllegalArgumentException("Texture " + name + " of " + width + "x" + height
+                    + " doesn't fit a page of " + pageWidth + "x" + pageHeight);
+        regions.put(name, new Region(name, width, height));
+    }
+
+    /**
+     * Places every image added, tallest first, then widest, then in the order they were added. Each image goes in
+     * the first page it fits, a new page is started when it doesn't fit any
+     */
+    public void pack(){
+        if(!pages.isEmpty())
+            throw new IllegalStateException("Texture atlas was already packed");
+        List<Region> order = new ArrayList<>(regions.values());
+        // Sorting is stable so equal sizes keep the order they were added in
+        order.sort(Comparator.comparingInt((Region region) -> -region.height).thenComparingInt(region -> -region.width));
+        for (Region region : order) {
+            int page = 0;
+            while(page < pages.size() && !insert(pages.get(page), region))
+                page++;
+            if(page == pages.size()){
+                SkylinePacker packer = new SkylinePacker(pageWidth, pageHeight);
+                pages.add(packer);
+                insert(packer, region);
+            }
+            region.page = page;
+        }
+    }
+
+    private boolean insert(SkylinePacker packer, Region region){
+        if(!packer.insert(region.width + 2 * padding, region.height + 2 * padding))
+            return false;
+        region.x = packer.getX() + padding;
+        region.y = packer.getY() + padding;
+        return true;
+    }
+
+    /**
+     * Copies every image into it's page, repeating their borders over the padding. Pixels no image covers are
+     * transparent black
+     * @param page Page index
+     * @param images Decoded image of every name in the page, must have the size they were added with
+     * @param pool Where the page buffer is taken from
+     * @return Page pixels, must be closed once it's uploaded
+     * @throws IllegalArgumentException if an image is missing or it's size changed
+     */
+    public TextureData composePage(int page, Map<String, TextureData> images, PixelBufferPool pool){
+        ByteBuffer pixels = pool.acquire(pageWidth * pageHeight * 4);
+        memSet(pixels, 0);
+        for (Region region : regions.values()) {
+            if(region.page != page)
+                continue;
+            TextureData image = images.get(region.name);
+            if(image == null || image.getWidth() != region.width || image.getHeight() != region.height)
+                throw new IllegalArgumentException("Texture " + region.name + " is missing or changed it's size");
+            copy(image.getPixels(), region, pixels);
+        }
+        return new TextureData(pageWidth, pageHeight, pixels, pool::release);
+    }
+
+    /**
+     * Copies an image's rows into a page, rows and columns of the border are repeated over the padding
+     */
+    private void copy(ByteBuffer source, Region region, ByteBuffer page){
+        int rowBytes = region.width * 4;
+        for (int row = -padding; row < region.height + padding; row++) {
+            int sourceRow = Math.max(0, Math.min(row, region.height - 1));
+            int target = ((region.y + row) * pageWidth + region.x) * 4;
+            ByteBuffer line = source.duplicate();
+            line.position(source.position() + sourceRow * rowBytes).limit(line.position() + rowBytes);
+            ByteBuffer destination = page.duplicate();
+            destination.position(target);
+            destination.put(line);
+            for (int column = 1; column <= padding; column++) {
+                for (int channel = 0; channel < 4; channel++) {
+                    page.put(target - column * 4 + channel, page.get(target + channel));
+                    page.put(target + rowBytes + (column - 1) * 4 + channel, page.get(target + rowBytes - 4 + channel));
+                }
+            }
+        }
+    }
+
+    /**
+     * Composes and loads every page into gpu, must be called from the thread owning the context. Pages are shared so
+     * meshes using them don't delete them, {@link #cleanup()} does
+     * @param images Decoded image of every name added, aren't closed
+     */
+    public void upload(Map<String, TextureData> images){
+        cleanup();
+        textures = new Texture[pages.size()];
+        for (int page = 0; page < textures.length; page++) {
+            try(TextureData pixels = composePage(page, images, PixelBufferPool.getShared())){
+                textures[page] = new Texture(pixels);
+                textures[page].setShared(true);
+            }
+        }
+    }
+
+    /**
+     * Makes a copy of a model with it's texture coordinates moved into an image's region
+     * @param meshData Model using the whole image
+     * @param name Image name
+     * @return Model using the image through it's page
+     * @throws IllegalArgumentException if a coordinate is outside 0 to 1, models repeating their texture can't use an
+     *                                  atlas
+     */
+    public MeshData remap(MeshData meshData, String name){
+        Region region = getRegion(name);
+        float[] coordinates = meshData.getTextureCoordinates().clone();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            float u = coordinates[i];
+            float v = coordinates[i + 1];
+            if(u < 0 || u > 1 || v < 0 || v > 1)
+                throw new IllegalArgumentException("Texture coordinates of " + name + " repeat the texture");
+            coordinates[i] = region.getU(u);
+            coordinates[i + 1] = region.getV(v);
+        }
+        return new MeshData(meshData.getPositions(), coordinates, meshData.getNormals(), meshData.getIndices());
+    }
+
+    /**
+     * @param name Image name
+     * @return Where the image was placed
+     * @throws IllegalArgumentException if the image wasn't added
+     */
+    public Region getRegion(String name){
+        Region region = regions.get(name);
+        if(region == null)
+            throw new IllegalArgumentException("Texture " + name + " isn't in the atlas");
+        return region;
+    }
+
+    /**
+     * @param name Image name
+     * @return Uploaded page holding the image
+     */
+    public Texture getTexture(String name){
+        return textures[getRegion(name).page];
+    }
+
+    public int getPageCount(){
+        return pages.size();
+    }
+
+    /**
+     * @return Pixels covered by images, without padding, divided by the pixels of every page
+     */
+    public float getOccupancy(){
+        long area = 0;
+        for (Region region : regions.values())
+            area += (long) region.width * region.height;
+        return pages.isEmpty() ? 0 : (float) ((double) area / ((long) pageWidth * pageHeight * pages.size()));
+    }
+
+    /**
+     * @param page Page index
+     * @return Pixels of the page covered by images, without padding, divided by the page's pixels
+     */
+    public float getOccupancy(int page){
+        long area = 0;
+        for (Region region : regions.values()) {
+            if(region.page == page)
+                area += (long) region.width * region.height;
+        }
+        return (float) ((double) area / ((long) pageWidth * pageHeight));
+    }
+
+    /**
+     * Deletes every uploaded page
+     */
+    public void cleanup(){
+        for (Texture texture : textures)
+            texture.cleanup();
+        textures = new Texture[0];
+    }
+
+    /**
+     * Where an image is placed, pixel coordinates start at the page's first row
+     */
+    public class Region {
+        private final String name;
+        private final int width;
+        private final int height;
+        private int page;
+        private int x;
+        private int y;
+
+        private Region(String name, int width, int height){
+            this.name = name;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Page holding the image, also it's layer when pages are stored as an array texture
+         */
+        public int getPage() {
+            return page;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @param u Horizontal texture coordinate in the image, 0 to 1
+         * @return Same coordinate in the page
+         */
+        public float getU(float u){
+            return (x + u * width) / pageWidth;
+        }
+
+        /**
+         * @param v Vertical texture coordinate in the image, 0 to 1
+         * @return Same coordinate in the page
+         */
+        public float getV(float v){
+            return (y + v * height) / pageHeight;
+        }
+    }
+}
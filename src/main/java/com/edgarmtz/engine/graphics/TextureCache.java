@@ -0,0 +1,268 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.Resources;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Stores textures read from image files in a binary file with every mipmap level already made and, for compressed
+ * formats, already compressed. Following loads map the file and upload it level by level without decoding the image
+ * or generating mipmaps. Files are built the first time a texture is read, {@link #compile(String)} builds them ahead
+ * of time.
+ * <p>
+ * File layout, every value in native byte order:
+ * <pre>
+ * header    magic, version, byte order, format id, width, height, level count, srgb (8 ints),
+ *           source image CRC32 (long)
+ * levels    level count * offset and size in bytes (2 ints), from the image down to 1x1
+ * data      each level's pixels or blocks, starting at 16 bytes aligned offsets
+ * checksum  CRC32 of every previous byte (long)
+ * </pre>
+ */
+public class TextureCache {
+    private static final int MAGIC = 0x54584843;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * Integer.BYTES + Long.BYTES;
+    private static final int LEVEL_ALIGNMENT = 16;
+    private static final String EXTENSION = ".tex";
+
+    private final Path directory;
+    private final TextureFormat format;
+    private final TextureDecoder decoder;
+    private final boolean srgb;
+    private final MipmapGenerator mipmapGenerator;
+    private final PixelBufferPool pool;
+
+    /**
+     * Decodes png images with {@link PngTextureDecoder}, colors are taken as sRGB when making mipmaps
+     * @param directory Where binary files will be stored
+     * @param format Format textures are stored and uploaded in
+     */
+    public TextureCache(Path directory, TextureFormat format){
+        this(directory, format, new PngTextureDecoder(PixelBufferPool.getShared()), true);
+    }
+
+    /**
+     * @param directory Where binary files will be stored
+     * @param format Format textures are stored and uploaded in
+     * @param decoder Decoder used when a binary file has to be built
+     * @param srgb If image colors are stored in sRGB, see {@link MipmapGenerator}
+     */
+    public TextureCache(Path directory, TextureFormat format, TextureDecoder decoder, boolean srgb){
+        this.directory = directory;
+        this.format = format;
+        this.decoder = decoder;
+        this.srgb = srgb;
+        pool = PixelBufferPool.getShared();
+        mipmapGenerator = new MipmapGenerator(pool, srgb);
+    }
+
+    /**
+     * Loads a texture from its binary file, if it doesn't exist or was made from a different image or with different
+     * settings it's rebuilt first
+     * @param fileName Image file
+     * @return Texture with every mipmap level
+     * @throws Exception If image doesn't exist or binary file can't be written
+     */
+    public Texture loadTexture(String fileName) throws Exception {
+        return upload(read(fileName));
+    }
+
+    /**
+     * Maps a texture's binary file into memory rebuilding it first if needed, doesn't use OpenGL so it can run in any
+     * thread
+     * @param fileName Image file
+     * @return Whole binary file, read by {@link #upload(ByteBuffer)}
+     * @throws Exception If image doesn't exist or binary file can't be written
+     */
+    public ByteBuffer read(String fileName) throws Exception {
+        Path cacheFile = compile(fileName);
+        // Mapping stays valid after the channel is closed
+        try(FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)){
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            file.order(ByteOrder.nativeOrder());
+            return file;
+        }
+    }
+
+    /**
+     * Builds a texture's binary file if it doesn't exist or is outdated, so it's ready before the texture is used
+     * @param fileName Image file
+     * @return Binary file
+     * @throws Exception If image doesn't exist or binary file can't be written
+     */
+    public Path compile(String fileName) throws Exception {
+        long sourceHash = Resources.hashResource(fileName);
+        Path cacheFile = getCacheFile(fileName);
+        if(!Files.exists(cacheFile) || !isValid(cacheFile, sourceHash)){
+            try(TextureData image = decoder.decode(fileName)){
+                write(image, sourceHash, cacheFile);
+            }
+        }
+        return cacheFile;
+    }
+
+    /**
+     * Loads a binary file mapped by {@link #read(String)} into gpu, must be called from the thread owning the context
+     * @param file Whole binary file
+     * @return Texture with every mipmap level
+     */
+    public static Texture upload(ByteBuffer file){
+        TextureFormat format = TextureFormat.fromId(file.getInt(3 * Integer.BYTES));
+        int width = file.getInt(4 * Integer.BYTES);
+        int height = file.getInt(5 * Integer.BYTES);
+        ByteBuffer[] levels = new ByteBuffer[file.getInt(6 * Integer.BYTES)];
+        for (int level = 0; level < levels.length; level++) {
+            int offset = file.getInt(HEADER_SIZE + level * 2 * Integer.BYTES);
+            int size = file.getInt(HEADER_SIZE + level * 2 * Integer.BYTES + Integer.BYTES);
+            levels[level] = MeshCache.slice(file, offset, offset + size);
+        }
+        return new Texture(format, width, height, levels);
+    }
+
+    /**
+     * Writes a texture into a binary file making and compressing one level at a time, file is written completely
+     * before replacing an existing one
+     * @param image Decoded image, isn't closed
+     * @param sourceHash CRC32 of the image file
+     * @param cacheFile Binary file
+     * @throws Exception if file can't be written
+     */
+    public void write(TextureData image, long sourceHash, Path cacheFile) throws Exception {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int levelCount = MipmapGenerator.getLevelCount(width, height);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + levelCount * 2 * Integer.BYTES)
+                .order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC).putInt(VERSION).putInt(MeshCache.getByteOrderId()).putInt(format.getId())
+                .putInt(width).putInt(height).putInt(levelCount).putInt(srgb ? 1 : 0).putLong(sourceHash);
+        long offset = header.capacity();
+        for (int level = 0; level < levelCount; level++) {
+            offset = align(offset);
+            int size = getLevelSize(width, height, level);
+            header.putInt((int) offset).putInt(size);
+            offset += size;
+        }
+        if(offset + Long.BYTES > Integer.MAX_VALUE)
+            throw new Exception("Texture is too big to be mapped " + width + "x" + height);
+        header.flip();
+
+        Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+        Path temporaryFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        ByteBuffer blocks = format.isCompressed() ? pool.acquire(format.getLevelSize(width, height)) : null;
+        TextureData level = image;
+        try(FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            write(channel, header, checksum);
+            ByteBuffer padding = ByteBuffer.allocate(LEVEL_ALIGNMENT);
+            for (int i = 0; i < levelCount; i++) {
+                padding.clear().limit((int) (align(channel.position()) - channel.position()));
+                write(channel, padding, checksum);
+                if(i > 0){
+                    // Each level is made from the previous one, which isn't needed after
+                    TextureData next = mipmapGenerator.downsample(level);
+                    if(level != image)
+                        level.close();
+                    level = next;
+                }
+                if(blocks != null){
+                    blocks.clear();
+                    BlockCompressor.compress(level, format, blocks);
+                    blocks.flip();
+                    write(channel, blocks, checksum);
+                } else {
+                    write(channel, level.getPixels().duplicate(), checksum);
+                }
+            }
+            ByteBuffer checksumBuffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder());
+            checksumBuffer.putLong(checksum.getValue()).flip();
+            write(channel, checksumBuffer, null);
+        } finally {
+            if(level != image)
+                level.close();
+            if(blocks != null)
+                pool.release(blocks);
+        }
+        Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Checks a binary file was written by this version on a machine with the same byte order, from the same image
+     * file with the same settings and that it's content isn't damaged
+     * @param cacheFile Binary file
+     * @param sourceHash CRC32 of the image file
+     * @return If file can be used
+     * @throws Exception if file can't be read
+     */
+    private boolean isValid(Path cacheFile, long sourceHash) throws Exception {
+        try(FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER_SIZE + Long.BYTES || size > Integer.MAX_VALUE)
+                return false;
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            file.order(ByteOrder.nativeOrder());
+            if(file.getInt(0) != MAGIC || file.getInt(Integer.BYTES) != VERSION
+                    || file.getInt(2 * Integer.BYTES) != MeshCache.getByteOrderId()
+                    || file.getInt(3 * Integer.BYTES) != format.getId()
+                    || file.getInt(7 * Integer.BYTES) != (srgb ? 1 : 0)
+                    || file.getLong(8 * Integer.BYTES) != sourceHash)
+                return false;
+
+            int width = file.getInt(4 * Integer.BYTES);
+            int height = file.getInt(5 * Integer.BYTES);
+            int levelCount = file.getInt(6 * Integer.BYTES);
+            if(width <= 0 || height <= 0 || levelCount != MipmapGenerator.getLevelCount(width, height)
+                    || HEADER_SIZE + (long) levelCount * 2 * Integer.BYTES > size)
+                return false;
+            long offset = HEADER_SIZE + levelCount * 2 * Integer.BYTES;
+            for (int level = 0; level < levelCount; level++) {
+                offset = align(offset);
+                int levelSize = getLevelSize(width, height, level);
+                if(file.getInt(HEADER_SIZE + level * 2 * Integer.BYTES) != offset
+                        || file.getInt(HEADER_SIZE + level * 2 * Integer.BYTES + Integer.BYTES) != levelSize)
+                    return false;
+                offset += levelSize;
+            }
+            if(offset + Long.BYTES != size)
+                return false;
+
+            CRC32 checksum = new CRC32();
+            checksum.update(MeshCache.slice(file, 0, (int) size - Long.BYTES));
+            return file.getLong((int) size - Long.BYTES) == checksum.getValue();
+        }
+    }
+
+    /**
+     * @param fileName Image file
+     * @return Binary file associated to the image file
+     */
+    public Path getCacheFile(String fileName){
+        String name = fileName.startsWith("/") ? fileName.substring(1) : fileName;
+        return directory.resolve(name.replace('/', '_').replace('\\', '_') + EXTENSION);
+    }
+
+    private int getLevelSize(int width, int height, int level){
+        return format.getLevelSize(Math.max(1, width >> level), Math.max(1, height >> level));
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws Exception {
+        if(checksum != null)
+            checksum.update(buffer.duplicate());
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static long align(long offset){
+        return (offset + LEVEL_ALIGNMENT - 1) / LEVEL_ALIGNMENT * LEVEL_ALIGNMENT;
+    }
+}
@@ -0,0 +1,79 @@
+package com.edgarmtz.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Image decoded into system memory as RGBA pixels, made without OpenGL so it can be decoded by any thread. Closing
+ * it gives the pixels memory back to whoever allocated it, so it should be closed right after uploading it
+ */
+public class TextureData implements AutoCloseable {
+    private static final TextureDecoder DEFAULT_DECODER = new PngTextureDecoder(PixelBufferPool.getShared());
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer pixels;
+    private final Consumer<ByteBuffer> release;
+    private boolean closed;
+
+    /**
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param pixels Direct buffer with 4 bytes per pixel, rows from top to bottom, freed by the garbage collector
+     */
+    public TextureData(int width, int height, ByteBuffer pixels){
+        this(width, height, pixels, buffer -> {});
+    }
+
+    /**
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param pixels Direct buffer with 4 bytes per pixel, rows from top to bottom
+     * @param release Gives the pixels memory back once the image is closed
+     */
+    public TextureData(int width, int height, ByteBuffer pixels, Consumer<ByteBuffer> release){
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.release = release;
+    }
+
+    /**
+     * Decodes a png image with {@link PngTextureDecoder} into a buffer of the shared {@link PixelBufferPool}
+     * @param textureName Png image name
+     * @return Image pixels, must be closed once it's uploaded
+     * @throws Exception if image doesn't exist or can't be decoded
+     */
+    public static TextureData decode(String textureName) throws Exception{
+        return DEFAULT_DECODER.decode(textureName);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Pixels from position to limit
+     * @throws IllegalStateException if the image was closed
+     */
+    public ByteBuffer getPixels() {
+        if(closed)
+            throw new IllegalStateException("Texture data was closed");
+        return pixels;
+    }
+
+    /**
+     * Gives the pixels memory back, closing it again does nothing
+     */
+    @Override
+    public void close() {
+        if(closed)
+            return;
+        closed = true;
+        release.accept(pixels);
+    }
+}
@@ -0,0 +1,103 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.Resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Turns encoded images into RGBA pixels without OpenGL, implementations can be used from several threads at once
+ */
+public interface TextureDecoder {
+    /**
+     * @param image Direct buffer with an encoded image from position to limit, isn't modified or kept
+     * @return Decoded image, must be closed once it's uploaded
+     * @throws Exception if the image can't be decoded
+     */
+    TextureData decode(ByteBuffer image) throws Exception;
+
+    /**
+     * Decodes an image file, files in the file system are mapped instead of read
+     * @param textureName Image name
+     * @return Decoded image, must be closed once it's uploaded
+     * @throws Exception if the image doesn't exist or can't be decoded
+     */
+    default TextureData decode(String textureName) throws Exception {
+        Path path = Resources.getResourcePath(textureName);
+        if(path != null){
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+                return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        // Packed inside a jar
+        byte[] bytes;
+        try(InputStream in = Resources.loadResource(textureName)){
+            if(in == null)
+                throw new Exception("Couldn't find texture " + textureName);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] block = new byte[64 * 1024];
+            int read;
+            while((read = in.read(block)) != -1)
+                out.write(block, 0, read);
+            bytes = out.toByteArray();
+        }
+        ByteBuffer image = memAlloc(bytes.length);
+        try{
+            image.put(bytes).flip();
+            return decode(image);
+        } finally {
+            memFree(image);
+        }
+    }
+
+    /**
+     * Decodes several image files in parallel
+     * @param decoder Decoder used by every thread
+     * @param textureNames Image names
+     * @param threads Amount of threads decoding images
+     * @return Decoded images in the same order as their names, each one must be closed once it's uploaded
+     * @throws Exception if an image doesn't exist or can't be decoded, images already decoded are closed
+     */
+    static TextureData[] decodeAll(TextureDecoder decoder, String[] textureNames, int threads) throws Exception {
+        List<Callable<TextureData>> tasks = new ArrayList<>();
+        for (String textureName : textureNames)
+            tasks.add(() -> decoder.decode(textureName));
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+        try{
+            List<Future<TextureData>> results = pool.invokeAll(tasks);
+            TextureData[] textures = new TextureData[textureNames.length];
+            Exception error = null;
+            for (int i = 0; i < textures.length; i++) {
+                try{
+                    textures[i] = results.get(i).get();
+                } catch (ExecutionException e){
+                    if(error == null)
+                        error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            if(error != null){
+                for (TextureData texture : textures) {
+                    if(texture != null)
+                        texture.close();
+                }
+                throw error;
+            }
+            return textures;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
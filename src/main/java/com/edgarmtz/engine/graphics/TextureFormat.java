@@ -0,0 +1,108 @@
+package com.edgarmtz.engine.graphics;
+
+import org.lwjgl.opengl.GL;
+
+import static org.lwjgl.opengl.EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT;
+import static org.lwjgl.opengl.EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+import static org.lwjgl.opengl.GL11C.GL_RGBA8;
+
+/**
+ * Describes how texture pixels are stored in gpu memory, compressed formats store blocks of 4x4 pixels in a fixed
+ * amount of bytes
+ */
+public class TextureFormat {
+    /**
+     * Uncompressed, 4 bytes per pixel
+     */
+    public static final TextureFormat RGBA8 = new TextureFormat(0, "RGBA8", GL_RGBA8, 1, 4);
+    /**
+     * 8 bytes per block, 4 bits per pixel. Pixels are either opaque or completely transparent
+     */
+    public static final TextureFormat BC1 = new TextureFormat(1, "BC1", GL_COMPRESSED_RGBA_S3TC_DXT1_EXT, 4, 8);
+    /**
+     * 16 bytes per block, 8 bits per pixel. Colors are stored like {@link #BC1} plus a block of smooth alpha
+     */
+    public static final TextureFormat BC3 = new TextureFormat(2, "BC3", GL_COMPRESSED_RGBA_S3TC_DXT5_EXT, 4, 16);
+
+    private static final TextureFormat[] FORMATS = {RGBA8, BC1, BC3};
+
+    private final int id;
+    private final String name;
+    private final int internalFormat;
+    private final int blockSize;
+    private final int blockBytes;
+
+    private TextureFormat(int id, String name, int internalFormat, int blockSize, int blockBytes){
+        this.id = id;
+        this.name = name;
+        this.internalFormat = internalFormat;
+        this.blockSize = blockSize;
+        this.blockBytes = blockBytes;
+    }
+
+    /**
+     * @param id Value returned by {@link #getId()}
+     * @return Format with the id
+     * @throws IllegalArgumentException if no format has the id
+     */
+    public static TextureFormat fromId(int id){
+        if(id < 0 || id >= FORMATS.length)
+            throw new IllegalArgumentException("Unknown texture format " + id);
+        return FORMATS[id];
+    }
+
+    /**
+     * @return Value identifying the format in binary files
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return Format name passed to OpenGL
+     */
+    public int getInternalFormat() {
+        return internalFormat;
+    }
+
+    /**
+     * @return If pixels are stored in blocks instead of one by one
+     */
+    public boolean isCompressed() {
+        return blockSize > 1;
+    }
+
+    /**
+     * @return If the current OpenGL context can sample the format, must be called from the thread owning it
+     */
+    public boolean isSupported() {
+        return !isCompressed() || GL.getCapabilities().GL_EXT_texture_compression_s3tc;
+    }
+
+    /**
+     * @param width Level width in pixels
+     * @param height Level height in pixels
+     * @return Bytes a level takes, partial blocks on the borders take a whole block
+     */
+    public int getLevelSize(int width, int height){
+        return ((width + blockSize - 1) / blockSize) * ((height + blockSize - 1) / blockSize) * blockBytes;
+    }
+
+    /**
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param levels Mipmap levels stored
+     * @return Bytes every level takes together
+     */
+    public long getSize(int width, int height, int levels){
+        long size = 0;
+        for (int level = 0; level < levels; level++)
+            size += getLevelSize(Math.max(1, width >> level), Math.max(1, height >> level));
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
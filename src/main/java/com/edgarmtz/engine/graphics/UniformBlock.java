@@ -0,0 +1,136 @@
+package com.edgarmtz.engine.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL30C.glBindBufferRange;
+import static org.lwjgl.opengl.GL31C.GL_UNIFORM_BUFFER;
+
+/**
+ * Uniform block declared with std140 layout, members must be added in the same order as the shader declares them.
+ * Each time it's values change the block is written into a new region of a stream buffer and that region is bound to
+ * the block's binding point, programs read it after {@link ShaderProgram#bindUniformBlock(String, int)}
+ */
+public class UniformBlock {
+    private static final int SCALAR_BYTES = 4;
+    private static final int VECTOR_ALIGNMENT = 16;
+    private static final int MATRIX_BYTES = 16 * Float.BYTES;
+
+    private final int binding;
+    private int size;
+    private StreamBuffer stream;
+    private int offset;
+
+    /**
+     * @param binding Binding point shared with the programs reading the block
+     */
+    public UniformBlock(int binding){
+        this.binding = binding;
+    }
+
+    /**
+     * @return Offset of the new int member, used to set it's value
+     */
+    public int addInt(){
+        return addMember(SCALAR_BYTES, SCALAR_BYTES);
+    }
+
+    /**
+     * @return Offset of the new vec3 member, used to set it's value
+     */
+    public int addVector3(){
+        return addMember(VECTOR_ALIGNMENT, 3 * SCALAR_BYTES);
+    }
+
+    /**
+     * @return Offset of the new mat4 member, used to set it's value
+     */
+    public int addMatrix4(){
+        return addMember(VECTOR_ALIGNMENT, MATRIX_BYTES);
+    }
+
+    /**
+     * @return Bytes of the block, a multiple of 16
+     */
+    public int getSize() {
+        return align(size, VECTOR_ALIGNMENT);
+    }
+
+    /**
+     * @return Bytes a copy of the block takes from a stream buffer frame in the worst case
+     */
+    public int getStreamSize() {
+        return align(getSize(), RingStreamBuffer.MAX_ALIGNMENT);
+    }
+
+    /**
+     * Reserves a new copy of the block in the current frame region, members not set keep whatever the region had
+     * @param stream Buffer the block is written into
+     * @return False if the frame region doesn't have space left
+     */
+    public boolean begin(StreamBuffer stream){
+        // The largest offset alignment OpenGL allows for uniform buffers
+        int allocation = stream.allocate(getSize(), RingStreamBuffer.MAX_ALIGNMENT);
+        if(allocation < 0)
+            return false;
+        this.stream = stream;
+        offset = allocation;
+        return true;
+    }
+
+    public void setInt(int member, int value){
+        stream.getMemory().putInt(offset + member, value);
+    }
+
+    public void setVector3(int member, Vector3f value){
+        ByteBuffer memory = stream.getMemory();
+        memory.putFloat(offset + member, value.x);
+        memory.putFloat(offset + member + SCALAR_BYTES, value.y);
+        memory.putFloat(offset + member + 2 * SCALAR_BYTES, value.z);
+    }
+
+    public void setMatrix4(int member, Matrix4f value){
+        value.get(offset + member, stream.getMemory());
+    }
+
+    /**
+     * @param member Offset returned when the member was added
+     * @param value Buffer positioned at a 4x4 matrix in column major order
+     */
+    public void setMatrix4(int member, FloatBuffer value){
+        ByteBuffer memory = stream.getMemory();
+        ByteBuffer region = memory.duplicate();
+        region.position(offset + member);
+        FloatBuffer matrix = value.duplicate();
+        matrix.limit(matrix.position() + MATRIX_BYTES / Float.BYTES);
+        region.order(memory.order()).asFloatBuffer().put(matrix);
+    }
+
+    /**
+     * Makes the values written since {@link #begin(StreamBuffer)} visible to the gpu and binds them
+     */
+    void bind(){
+        stream.flush(offset, getSize());
+        glBindBufferRange(GL_UNIFORM_BUFFER, binding, stream.getBufferId(), offset, getSize());
+    }
+
+    /**
+     * @return Offset in the stream buffer of the last copy
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    private int addMember(int alignment, int bytes){
+        int member = align(size, alignment);
+        size = member + bytes;
+        return member;
+    }
+
+    private static int align(int value, int alignment){
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
@@ -0,0 +1,187 @@
+package com.edgarmtz.engine.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Remembers the last value sent to each uniform of a program and skips uploads that would set the same value again.
+ * OpenGL keeps uniform values inside the program so they stay valid across frames and after binding other programs,
+ * the program must be bound when a value is set. Uniforms are identified by the handle returned by
+ * {@link #addUniform(int)}, handles are numbered from zero so stored values don't depend on the locations the driver
+ * picks
+ */
+public class UniformState {
+    private static final int MATRIX_SIZE = 16;
+    private static final int INITIAL_UNIFORMS = 16;
+
+    private final GraphicsDevice device;
+    // Values indexed by handle, vectors and matrices use the first 3 or 16 values of their handle
+    private int[] locations;
+    private int count;
+    private boolean[] known;
+    private int[] intValues;
+    private float[] floatValues;
+    private final float[] matrixValues;
+    private final FloatBuffer matrix;
+
+    private int uploads;
+    private int avoidedUploads;
+
+    /**
+     * @param device Where uniforms that change are sent
+     */
+    public UniformState(GraphicsDevice device){
+        this.device = device;
+        locations = new int[INITIAL_UNIFORMS];
+        known = new boolean[INITIAL_UNIFORMS];
+        intValues = new int[INITIAL_UNIFORMS];
+        floatValues = new float[INITIAL_UNIFORMS * MATRIX_SIZE];
+        matrixValues = new float[MATRIX_SIZE];
+        matrix = memAllocFloat(MATRIX_SIZE);
+    }
+
+    /**
+     * @param location Uniform location in the program
+     * @return Handle used to set the uniform, -1 if location is -1 so values set to a removed uniform are ignored
+     */
+    public int addUniform(int location){
+        if(location < 0)
+            return -1;
+        if(count == locations.length)
+            grow(count * 2);
+        locations[count] = location;
+        return count++;
+    }
+
+    /**
+     * @param uniform Handle returned by {@link #addUniform(int)}
+     * @return Location of the uniform in the program
+     */
+    public int getLocation(int uniform){
+        return locations[uniform];
+    }
+
+    public void setUniform(int uniform, int value){
+        if(uniform < 0)
+            return;
+        if(known[uniform] && intValues[uniform] == value){
+            avoidedUploads++;
+            return;
+        }
+        device.setUniform(locations[uniform], value);
+        known[uniform] = true;
+        intValues[uniform] = value;
+        uploads++;
+    }
+
+    public void setUniform(int uniform, Vector3f value){
+        if(uniform < 0)
+            return;
+        int offset = uniform * MATRIX_SIZE;
+        if(known[uniform] && floatValues[offset] == value.x && floatValues[offset + 1] == value.y
+                && floatValues[offset + 2] == value.z){
+            avoidedUploads++;
+            return;
+        }
+        device.setUniform(locations[uniform], value.x, value.y, value.z);
+        known[uniform] = true;
+        floatValues[offset] = value.x;
+        floatValues[offset + 1] = value.y;
+        floatValues[offset + 2] = value.z;
+        uploads++;
+    }
+
+    public void setUniform(int uniform, Matrix4f value){
+        if(uniform < 0)
+            return;
+        value.get(matrixValues);
+        if(matches(uniform, matrixValues, 0))
+            return;
+        matrix.clear();
+        matrix.put(matrixValues).flip();
+        sendMatrix(uniform, matrix);
+    }
+
+    /**
+     * @param uniform Handle returned by {@link #addUniform(int)}
+     * @param value Buffer positioned at a 4x4 matrix in column major order
+     */
+    public void setUniform(int uniform, FloatBuffer value){
+        if(uniform < 0)
+            return;
+        int start = value.position();
+        for (int i = 0; i < MATRIX_SIZE; i++)
+            matrixValues[i] = value.get(start + i);
+        if(matches(uniform, matrixValues, 0))
+            return;
+        sendMatrix(uniform, value);
+    }
+
+    /**
+     * Forgets every value so the next ones are always sent, needed after uniforms are set without this class
+     */
+    public void invalidate(){
+        Arrays.fill(known, false);
+    }
+
+    public void resetCounters(){
+        uploads = 0;
+        avoidedUploads = 0;
+    }
+
+    /**
+     * @return Uniforms sent since counters were reset
+     */
+    public int getUploads() {
+        return uploads;
+    }
+
+    /**
+     * @return Uploads skipped since counters were reset because the uniform already had the value
+     */
+    public int getAvoidedUploads() {
+        return avoidedUploads;
+    }
+
+    /**
+     * Deletes the matrix buffer
+     */
+    public void cleanup(){
+        memFree(matrix);
+    }
+
+    /**
+     * Compares a matrix with the one stored for the uniform
+     * @return If they're equal, counted as an avoided upload
+     */
+    private boolean matches(int uniform, float[] values, int offset){
+        if(!known[uniform])
+            return false;
+        int stored = uniform * MATRIX_SIZE;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            if(floatValues[stored + i] != values[offset + i])
+                return false;
+        }
+        avoidedUploads++;
+        return true;
+    }
+
+    private void sendMatrix(int uniform, FloatBuffer value){
+        device.setUniformMatrix(locations[uniform], value);
+        known[uniform] = true;
+        System.arraycopy(matrixValues, 0, floatValues, uniform * MATRIX_SIZE, MATRIX_SIZE);
+        uploads++;
+    }
+
+    private void grow(int size){
+        locations = Arrays.copyOf(locations, size);
+        known = Arrays.copyOf(known, size);
+        intValues = Arrays.copyOf(intValues, size);
+        floatValues = Arrays.copyOf(floatValues, size * MATRIX_SIZE);
+    }
+}
@@ -0,0 +1,285 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.HalfFloat;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
+
+/**
+ * Describes how vertex attributes are interleaved in a single buffer, each vertex stores all of it's attributes one
+ * after another using {@link #getStride()} bytes
+ */
+public class VertexFormat {
+    /**
+     * Shader locations of the attributes used by the engine shaders
+     */
+    public static final int POSITION = 0;
+    public static final int TEXTURE_COORDINATE = 1;
+    public static final int NORMAL = 2;
+    /**
+     * First of the four locations holding the columns of each instance matrix, see {@link InstanceBuffer}
+     */
+    public static final int INSTANCE_MATRIX = 3;
+
+    /**
+     * Format used by {@link MeshData} models, every attribute is stored as 32 bit floats
+     */
+    public static final VertexFormat POSITION_TEXTURE_NORMAL = new VertexFormat(
+            new Attribute(POSITION, 3, GL_FLOAT, false),
+            new Attribute(TEXTURE_COORDINATE, 2, GL_FLOAT, false),
+            new Attribute(NORMAL, 3, GL_FLOAT, false)
+    );
+
+    private final Attribute[] attributes;
+    private final int[] offsets;
+    private final int stride;
+
+    /**
+     * Lays out attributes in the given order, every attribute starts at a 4 bytes aligned offset
+     * @param attributes Attributes stored by each vertex
+     */
+    public VertexFormat(Attribute... attributes){
+        this.attributes = attributes;
+        offsets = new int[attributes.length];
+        int offset = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            offsets[i] = offset;
+            offset += (attributes[i].getSize() + 3) & ~3;
+        }
+        stride = offset;
+    }
+
+    /**
+     * Interleaves a model's attributes into a buffer, attributes are matched with model data by their location
+     * @param meshData Model vertices
+     * @param target Buffer where vertices are written starting at it's current position, position is moved after
+     *               the last vertex
+     */
+    public void pack(MeshData meshData, ByteBuffer target){
+        float[][] streams = new float[attributes.length][];
+        for (int i = 0; i < attributes.length; i++) {
+            switch (attributes[i].location) {
+                case POSITION:
+                    streams[i] = meshData.getPositions();
+                    break;
+                case TEXTURE_COORDINATE:
+                    streams[i] = meshData.getTextureCoordinates();
+                    break;
+                case NORMAL:
+                    streams[i] = meshData.getNormals();
+                    break;
+                default:
+                    throw new IllegalArgumentException("No model data for attribute location " + attributes[i].location);
+            }
+        }
+        pack(meshData.getVertexCount(), streams, target);
+    }
+
+    /**
+     * Interleaves attribute values into a buffer
+     * @param vertexCount Amount of vertices to write
+     * @param streams Values of each attribute in the same order as the format attributes, each stream stores
+     *                {@link Attribute#getComponents()} values per vertex
+     * @param target Buffer where vertices are written starting at it's current position, position is moved after
+     *               the last vertex
+     */
+    public void pack(int vertexCount, float[][] streams, ByteBuffer target){
+        int start = target.position();
+        for (int i = 0; i < attributes.length; i++) {
+            Attribute attribute = attributes[i];
+            float[] stream = streams[i];
+            int components = attribute.components;
+            int offset = start + offsets[i];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                attribute.write(stream, vertex * components, target, offset);
+                offset += stride;
+            }
+        }
+        target.position(start + vertexCount * stride);
+    }
+
+    /**
+     * @return Bytes used by each vertex
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    public Attribute[] getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @param location Shader input location
+     * @return Index of the attribute read by that location or -1 if format doesn't have it
+     */
+    public int indexOf(int location) {
+        for (int i = 0; i < attributes.length; i++) {
+            if(attributes[i].location == location)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Normal vectors with only two components are octahedral encoded and have to be decoded by the shader
+     * @return If normal vectors are stored octahedral encoded
+     */
+    public boolean hasOctahedralNormals() {
+        int normal = indexOf(NORMAL);
+        return normal >= 0 && attributes[normal].components == 2;
+    }
+
+    /**
+     * @param attribute Index of the attribute in the format
+     * @return Byte offset of the attribute from the start of the vertex
+     */
+    public int getOffset(int attribute) {
+        return offsets[attribute];
+    }
+
+    /**
+     * Describes a single vertex attribute
+     */
+    public static class Attribute {
+        private final int location;
+        private final int components;
+        private final int type;
+        private final boolean normalized;
+
+        /**
+         * @param location Shader input location
+         * @param components Amount of values, between 1 and 4
+         * @param type Gl type each value is stored as: GL_FLOAT, GL_HALF_FLOAT, GL_BYTE, GL_UNSIGNED_BYTE, GL_SHORT or
+         *             GL_UNSIGNED_SHORT
+         * @param normalized If integer values are mapped to [0, 1] or [-1, 1] when read by the shader
+         */
+        public Attribute(int location, int components, int type, boolean normalized){
+            getTypeSize(type);
+            this.location = location;
+            this.components = components;
+            this.type = type;
+            this.normalized = normalized;
+        }
+
+        /**
+         * Writes one vertex values
+         * @param stream Attribute values
+         * @param index First value to write
+         * @param target Buffer to write into
+         * @param offset Byte where the first value is written
+         */
+        private void write(float[] stream, int index, ByteBuffer target, int offset){
+            int typeSize = getTypeSize(type);
+            for (int i = 0; i < components; i++) {
+                float value = stream[index + i];
+                int position = offset + i * typeSize;
+                switch (type) {
+                    case GL_FLOAT:
+                        target.putFloat(position, value);
+                        break;
+                    case GL_HALF_FLOAT:
+                        target.putShort(position, HalfFloat.fromFloat(value));
+                        break;
+                    case GL_BYTE:
+                        target.put(position, (byte) toInteger(value, Byte.MIN_VALUE, Byte.MAX_VALUE));
+                        break;
+                    case GL_UNSIGNED_BYTE:
+                        target.put(position, (byte) toInteger(value, 0, 0xFF));
+                        break;
+                    case GL_SHORT:
+                        target.putShort(position, (short) toInteger(value, Short.MIN_VALUE, Short.MAX_VALUE));
+                        break;
+                    default:
+                        target.putShort(position, (short) toInteger(value, 0, 0xFFFF));
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Reads a stored value as the shader would receive it
+         * @param source Buffer holding vertices
+         * @param offset Byte where the vertex attribute starts
+         * @param component Index of the value inside the attribute
+         * @return Attribute value
+         */
+        public float read(ByteBuffer source, int offset, int component) {
+            int position = offset + component * getTypeSize(type);
+            switch (type) {
+                case GL_FLOAT:
+                    return source.getFloat(position);
+                case GL_HALF_FLOAT:
+                    return HalfFloat.toFloat(source.getShort(position));
+                case GL_BYTE:
+                    return fromInteger(source.get(position), Byte.MAX_VALUE);
+                case GL_UNSIGNED_BYTE:
+                    return fromInteger(source.get(position) & 0xFF, 0xFF);
+                case GL_SHORT:
+                    return fromInteger(source.getShort(position), Short.MAX_VALUE);
+                default:
+                    return fromInteger(source.getShort(position) & 0xFFFF, 0xFFFF);
+            }
+        }
+
+        /**
+         * Converts a value into an integer type, normalized values are scaled from [-1, 1] or [0, 1] to the type range
+         */
+        private int toInteger(float value, int min, int max) {
+            float scaled = normalized ? value * max : value;
+            return Math.max(min, Math.min(max, Math.round(scaled)));
+        }
+
+        /**
+         * Converts a stored integer the same way gl does, signed normalized values are clamped to -1
+         */
+        private float fromInteger(int value, int max) {
+            return normalized ? Math.max(value / (float) max, -1f) : value;
+        }
+
+        public int getLocation() {
+            return location;
+        }
+
+        public int getComponents() {
+            return components;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public boolean isNormalized() {
+            return normalized;
+        }
+
+        /**
+         * @return Bytes used by the attribute values
+         */
+        public int getSize() {
+            return components * getTypeSize(type);
+        }
+
+        /**
+         * @param type Gl type
+         * @return Bytes used by a value of that type
+         */
+        private static int getTypeSize(int type) {
+            switch (type) {
+                case GL_FLOAT:
+                    return Float.BYTES;
+                case GL_HALF_FLOAT:
+                case GL_SHORT:
+                case GL_UNSIGNED_SHORT:
+                    return Short.BYTES;
+                case GL_BYTE:
+                case GL_UNSIGNED_BYTE:
+                    return Byte.BYTES;
+                default:
+                    throw new IllegalArgumentException("Unsupported vertex attribute type " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.edgarmtz.engine.graphics;
+
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
+
+/**
+ * Packs model vertices into smaller types before they are loaded into gpu:
+ * <ul>
+ *     <li>Positions are moved into [-1, 1] by the model bounds and stored as snorm16 or half floats, the shader
+ *     restores them with the mesh position scale and offset</li>
+ *     <li>Normal vectors are octahedral encoded into two snorm8 values</li>
+ *     <li>Texture coordinates are stored as unorm16 when they are inside [0, 1], floats otherwise</li>
+ * </ul>
+ */
+public class VertexQuantizer {
+    private final int positionType;
+
+    /**
+     * Quantizer storing positions as snorm16
+     */
+    public VertexQuantizer(){
+        this(GL_SHORT);
+    }
+
+    /**
+     * @param positionType GL_SHORT to store positions as snorm16 or GL_HALF_FLOAT to store them as half floats
+     */
+    public VertexQuantizer(int positionType){
+        if(positionType != GL_SHORT && positionType != GL_HALF_FLOAT)
+            throw new IllegalArgumentException("Unsupported position type " + positionType);
+        this.positionType = positionType;
+    }
+
+    /**
+     * Packs a model's vertices and measures the error introduced
+     * @param meshData Model vertices and faces
+     * @return Packed model
+     */
+    public QuantizedMeshData quantize(MeshData meshData){
+        float[] positions = meshData.getPositions();
+        float[] textureCoordinates = meshData.getTextureCoordinates();
+        float[] normals = meshData.getNormals();
+        int vertexCount = meshData.getVertexCount();
+
+        Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertexCount; i++) {
+            min.x = Math.min(min.x, positions[i * 3]);
+            min.y = Math.min(min.y, positions[i * 3 + 1]);
+            min.z = Math.min(min.z, positions[i * 3 + 2]);
+            max.x = Math.max(max.x, positions[i * 3]);
+            max.y = Math.max(max.y, positions[i * 3 + 1]);
+            max.z = Math.max(max.z, positions[i * 3 + 2]);
+        }
+        Vector3f offset = vertexCount == 0 ? new Vector3f() :
+                new Vector3f((min.x + max.x) / 2, (min.y + max.y) / 2, (min.z + max.z) / 2);
+        Vector3f scale = vertexCount == 0 ? new Vector3f(1, 1, 1) :
+                new Vector3f(halfExtent(min.x, max.x), halfExtent(min.y, max.y), halfExtent(min.z, max.z));
+
+        float[] normalizedPositions = new float[positions.length];
+        for (int i = 0; i < vertexCount; i++) {
+            normalizedPositions[i * 3] = (positions[i * 3] - offset.x) / scale.x;
+            normalizedPositions[i * 3 + 1] = (positions[i * 3 + 1] - offset.y) / scale.y;
+            normalizedPositions[i * 3 + 2] = (positions[i * 3 + 2] - offset.z) / scale.z;
+        }
+
+        float[] encodedNormals = new float[vertexCount * 2];
+        for (int i = 0; i < vertexCount; i++)
+            encodeOctahedral(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2], encodedNormals, i * 2);
+
+        boolean unitTextureCoordinates = true;
+        for (float textureCoordinate : textureCoordinates)
+            unitTextureCoordinates &= textureCoordinate >= 0 && textureCoordinate <= 1;
+
+        VertexFormat format = new VertexFormat(
+                new VertexFormat.Attribute(VertexFormat.POSITION, 3, positionType, positionType == GL_SHORT),
+                unitTextureCoordinates ?
+                        new VertexFormat.Attribute(VertexFormat.TEXTURE_COORDINATE, 2, GL_UNSIGNED_SHORT, true) :
+                        new VertexFormat.Attribute(VertexFormat.TEXTURE_COORDINATE, 2, GL_FLOAT, false),
+                new VertexFormat.Attribute(VertexFormat.NORMAL, 2, GL_BYTE, true)
+        );
+        ByteBuffer vertices = ByteBuffer.allocate(vertexCount * format.getStride()).order(ByteOrder.nativeOrder());
+        format.pack(vertexCount, new float[][]{normalizedPositions, textureCoordinates, encodedNormals}, vertices);
+        vertices.flip();
+
+        float[] decoded = new float[3];
+        float maxPositionError = 0;
+        float maxNormalError = 0;
+        float maxTextureCoordinateError = 0;
+        VertexFormat.Attribute[] attributes = format.getAttributes();
+        for (int i = 0; i < vertexCount; i++) {
+            int vertexStart = i * format.getStride();
+
+            int position = vertexStart + format.getOffset(0);
+            float dx = attributes[0].read(vertices, position, 0) * scale.x + offset.x - positions[i * 3];
+            float dy = attributes[0].read(vertices, position, 1) * scale.y + offset.y - positions[i * 3 + 1];
+            float dz = attributes[0].read(vertices, position, 2) * scale.z + offset.z - positions[i * 3 + 2];
+            maxPositionError = Math.max(maxPositionError, (float) Math.sqrt(dx * dx + dy * dy + dz * dz));
+
+            int textureCoordinate = vertexStart + format.getOffset(1);
+            for (int c = 0; c < 2; c++) {
+                float error = Math.abs(attributes[1].read(vertices, textureCoordinate, c) - textureCoordinates[i * 2 + c]);
+                maxTextureCoordinateError = Math.max(maxTextureCoordinateError, error);
+            }
+
+            float length = length(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]);
+            if(length > 0){
+                int normal = vertexStart + format.getOffset(2);
+                decodeOctahedral(attributes[2].read(vertices, normal, 0), attributes[2].read(vertices, normal, 1), decoded);
+                float cosine = (decoded[0] * normals[i * 3] + decoded[1] * normals[i * 3 + 1]
+                        + decoded[2] * normals[i * 3 + 2]) / length;
+                float angle = (float) Math.toDegrees(Math.acos(Math.min(1, Math.max(-1, cosine))));
+                maxNormalError = Math.max(maxNormalError, angle);
+            }
+        }
+
+        return new QuantizedMeshData(format, vertices, vertexCount, meshData.getIndices(), scale, offset,
+                maxPositionError, maxNormalError, maxTextureCoordinateError,
+                Mesh.computeBounds(format, vertices, scale, offset));
+    }
+
+    /**
+     * Projects a direction onto an octahedron unfolded into a square, then picks among the nearest snorm8 values
+     * the one that decodes closest to the original direction
+     * @param x Direction x component
+     * @param y Direction y component
+     * @param z Direction z component
+     * @param target Array where both encoded values in [-1, 1] are written
+     * @param offset First index written in target
+     */
+    static void encodeOctahedral(float x, float y, float z, float[] target, int offset){
+        float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+        if(l1 == 0){
+            target[offset] = 0;
+            target[offset + 1] = 0;
+            return;
+        }
+        float u = x / l1;
+        float v = y / l1;
+        if(z < 0){
+            float foldedU = (1 - Math.abs(v)) * signNotZero(u);
+            v = (1 - Math.abs(u)) * signNotZero(v);
+            u = foldedU;
+        }
+
+        float length = length(x, y, z);
+        float[] decoded = new float[3];
+        float bestU = u;
+        float bestV = v;
+        float bestCosine = Float.NEGATIVE_INFINITY;
+        float floorU = (float) Math.floor(u * Byte.MAX_VALUE);
+        float floorV = (float) Math.floor(v * Byte.MAX_VALUE);
+        for (int i = 0; i < 4; i++) {
+            float candidateU = Math.max(-1, Math.min(1, (floorU + (i & 1)) / Byte.MAX_VALUE));
+            float candidateV = Math.max(-1, Math.min(1, (floorV + (i >> 1)) / Byte.MAX_VALUE));
+            decodeOctahedral(candidateU, candidateV, decoded);
+            float cosine = (decoded[0] * x + decoded[1] * y + decoded[2] * z) / length;
+            if(cosine > bestCosine){
+                bestCosine = cosine;
+                bestU = candidateU;
+                bestV = candidateV;
+            }
+        }
+        target[offset] = bestU;
+        target[offset + 1] = bestV;
+    }
+
+    /**
+     * Restores a direction from it's octahedral encoding, same operation the vertex shader does
+     * @param u First encoded value
+     * @param v Second encoded value
+     * @param target Array where the unit length direction is written
+     */
+    static void decodeOctahedral(float u, float v, float[] target){
+        float x = u;
+        float y = v;
+        float z = 1 - Math.abs(u) - Math.abs(v);
+        if(z < 0){
+            x = (1 - Math.abs(v)) * signNotZero(u);
+            y = (1 - Math.abs(u)) * signNotZero(v);
+        }
+        float length = length(x, y, z);
+        target[0] = x / length;
+        target[1] = y / length;
+        target[2] = z / length;
+    }
+
+    private static float halfExtent(float min, float max){
+        float halfExtent = (max - min) / 2;
+        return halfExtent > 0 ? halfExtent : 1;
+    }
+
+    private static float signNotZero(float value){
+        return value >= 0 ? 1 : -1;
+    }
+
+    private static float length(float x, float y, float z){
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+}
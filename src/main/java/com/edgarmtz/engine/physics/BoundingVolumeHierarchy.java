@@ -0,0 +1,565 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dynamic tree of axis aligned boxes grouping nearby objects, so queries only visit the branches they touch instead
+ * of every object. Leaves store each object's world box grown by a margin, objects moving inside that box don't
+ * change the tree, objects leaving it are removed and inserted again. Insertion picks the sibling that grows the
+ * tree surface area the least and rotations keep the tree balanced, like Box2D's dynamic tree.
+ * Nodes are stored in flat arrays so queries don't follow object references
+ */
+public class BoundingVolumeHierarchy {
+    public static final int NULL_NODE = -1;
+    /**
+     * Distance leaves boxes are grown in every direction by default
+     */
+    public static final float DEFAULT_MARGIN = 0.5f;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final float margin;
+    /**
+     * Six values per node: min x, y, z and max x, y, z
+     */
+    private float[] boxes;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] secondChildren;
+    /**
+     * Leaves have height 0, free nodes -1
+     */
+    private int[] heights;
+    private GameObject[] gameObjects;
+    private int root;
+    private int freeList;
+    private int leafCount;
+    private int[] stack;
+    private int[] leafStack;
+
+    public BoundingVolumeHierarchy(){
+        this(DEFAULT_MARGIN);
+    }
+
+    /**
+     * @param margin Distance leaves boxes are grown in every direction, larger margins rebuild less branches when
+     *               objects move but make queries visit more nodes
+     */
+    public BoundingVolumeHierarchy(float margin){
+        this.margin = margin;
+        root = NULL_NODE;
+        freeList = NULL_NODE;
+        boxes = new float[0];
+        parents = new int[0];
+        firstChildren = new int[0];
+        secondChildren = new int[0];
+        heights = new int[0];
+        gameObjects = new GameObject[0];
+        grow(INITIAL_CAPACITY);
+        stack = new int[64];
+        leafStack = new int[64];
+    }
+
+    /**
+     * Adds an object to the tree
+     * @param gameObject Object to track
+     * @return Id of the object's leaf, used to update or remove it
+     */
+    public int insert(GameObject gameObject){
+        int leaf = allocateNode();
+        gameObjects[leaf] = gameObject;
+        heights[leaf] = 0;
+        setFatBox(leaf, gameObject.getWorldBounds());
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    /**
+     * Removes an object from the tree
+     * @param leaf Id returned when the object was inserted
+     */
+    public void remove(int leaf){
+        removeLeaf(leaf);
+        freeNode(leaf);
+        leafCount--;
+    }
+
+    /**
+     * Moves an object's leaf if it's world bounds left the leaf's box, leaf id doesn't change
+     * @param leaf Id returned when the object was inserted
+     * @return If the tree changed
+     */
+    public boolean update(int leaf){
+        Bounds bounds = gameObjects[leaf].getWorldBounds();
+        if(contains(leaf, bounds))
+            return false;
+        removeLeaf(leaf);
+        setFatBox(leaf, bounds);
+        insertLeaf(leaf);
+        return true;
+    }
+
+    /**
+     * Updates every leaf whose object moved out of it's box, call it once per frame after objects move
+     * @return Amount of leaves moved
+     */
+    public int refit(){
+        int moved = 0;
+        for (int node = 0; node < heights.length; node++) {
+            if(heights[node] == 0 && update(node))
+                moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Finds objects that may be seen by the camera, branches completely inside the frustum are added without
+     * testing their objects
+     * @param frustum Camera frustum
+     * @param result List where visible objects are added
+     */
+    public void queryFrustum(Frustum frustum, List<GameObject> result){
+        if(root == NULL_NODE)
+            return;
+        int size = 0;
+        stack[size++] = root;
+        while(size > 0){
+            int node = stack[--size];
+            int box = node * 6;
+            int classification = frustum.classifyBox(boxes[box], boxes[box + 1], boxes[box + 2], boxes[box + 3],
+                    boxes[box + 4], boxes[box + 5]);
+            if(classification == Frustum.OUTSIDE)
+                continue;
+            if(classification == Frustum.INSIDE){
+                addLeaves(node, result);
+            } else if(heights[node] == 0){
+                if(frustum.isVisible(gameObjects[node].getWorldBounds()))
+                    result.add(gameObjects[node]);
+            } else {
+                size = push(size, firstChildren[node]);
+                size = push(size, secondChildren[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds objects whose world box overlaps a box
+     * @param min Box smallest corner
+     * @param max Box largest corner
+     * @param result List where overlapping objects are added
+     */
+    public void queryOverlap(Vector3f min, Vector3f max, List<GameObject> result){
+        if(root == NULL_NODE)
+            return;
+        int size = 0;
+        stack[size++] = root;
+        while(size > 0){
+            int node = stack[--size];
+            int box = node * 6;
+            if(!overlaps(boxes[box], boxes[box + 1], boxes[box + 2], boxes[box + 3], boxes[box + 4], boxes[box + 5],
+                    min, max))
+                continue;
+            if(heights[node] == 0){
+                Bounds bounds = gameObjects[node].getWorldBounds();
+                Vector3f objectMin = bounds.getMin(), objectMax = bounds.getMax();
+                if(overlaps(objectMin.x, objectMin.y, objectMin.z, objectMax.x, objectMax.y, objectMax.z, min, max))
+                    result.add(gameObjects[node]);
+            } else {
+                size = push(size, firstChildren[node]);
+                size = push(size, secondChildren[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest object whose world box is crossed by a ray, branches further than the nearest hit found so
+     * far are skipped
+     * @param origin Ray start
+     * @param direction Ray direction, doesn't need to be normalized
+     * @param maxDistance Largest distance tested, measured in direction lengths
+     * @param hit Where the nearest object and it's distance are written
+     * @return If any object was hit
+     */
+    public boolean raycast(Vector3f origin, Vector3f direction, float maxDistance, RayHit hit){
+        hit.gameObject = null;
+        hit.distance = maxDistance;
+        if(root == NULL_NODE)
+            return false;
+        float inverseX = 1 / direction.x, inverseY = 1 / direction.y, inverseZ = 1 / direction.z;
+        int size = 0;
+        stack[size++] = root;
+        while(size > 0){
+            int node = stack[--size];
+            float distance = intersectRay(origin, inverseX, inverseY, inverseZ, node, hit.distance);
+            if(distance < 0)
+                continue;
+            if(heights[node] == 0){
+                Bounds bounds = gameObjects[node].getWorldBounds();
+                Vector3f min = bounds.getMin(), max = bounds.getMax();
+                distance = intersectRay(origin, inverseX, inverseY, inverseZ, min.x, min.y, min.z, max.x, max.y,
+                        max.z, hit.distance);
+                if(distance >= 0){
+                    hit.gameObject = gameObjects[node];
+                    hit.distance = distance;
+                }
+            } else {
+                // Nearest child is visited first so further branches can be skipped once it's hit
+                int first = firstChildren[node], second = secondChildren[node];
+                float firstDistance = intersectRay(origin, inverseX, inverseY, inverseZ, first, hit.distance);
+                float secondDistance = intersectRay(origin, inverseX, inverseY, inverseZ, second, hit.distance);
+                if(firstDistance >= 0 && secondDistance >= 0){
+                    boolean firstNearest = firstDistance <= secondDistance;
+                    size = push(size, firstNearest ? second : first);
+                    size = push(size, firstNearest ? first : second);
+                } else if(firstDistance >= 0){
+                    size = push(size, first);
+                } else if(secondDistance >= 0){
+                    size = push(size, second);
+                }
+            }
+        }
+        return hit.gameObject != null;
+    }
+
+    /**
+     * @return Amount of objects in the tree
+     */
+    public int size() {
+        return leafCount;
+    }
+
+    /**
+     * @return Longest path from root to a leaf, 0 if tree has a single object
+     */
+    public int getHeight() {
+        return root == NULL_NODE ? 0 : heights[root];
+    }
+
+    private void addLeaves(int node, List<GameObject> result){
+        int size = 0;
+        leafStack[size++] = node;
+        while(size > 0){
+            int current = leafStack[--size];
+            if(heights[current] == 0){
+                result.add(gameObjects[current]);
+            } else {
+                if(size + 2 > leafStack.length)
+                    leafStack = Arrays.copyOf(leafStack, leafStack.length * 2);
+                leafStack[size++] = firstChildren[current];
+                leafStack[size++] = secondChildren[current];
+            }
+        }
+    }
+
+    private int push(int size, int node){
+        if(size == stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[size] = node;
+        return size + 1;
+    }
+
+    /**
+     * Chooses the sibling with the lowest surface area cost, adds a parent joining both and rebalances every
+     * ancestor
+     */
+    private void insertLeaf(int leaf){
+        if(root == NULL_NODE){
+            root = leaf;
+            parents[leaf] = NULL_NODE;
+            return;
+        }
+
+        int leafBox = leaf * 6;
+        int sibling = root;
+        while(heights[sibling] > 0){
+            int first = firstChildren[sibling];
+            int second = secondChildren[sibling];
+            float area = surfaceArea(sibling);
+            float combinedArea = unionArea(sibling, leafBox);
+            float cost = 2 * combinedArea;
+            float inheritanceCost = 2 * (combinedArea - area);
+            float firstCost = unionArea(first, leafBox) + inheritanceCost
+                    - (heights[first] == 0 ? 0 : surfaceArea(first));
+            float secondCost = unionArea(second, leafBox) + inheritanceCost
+                    - (heights[second] == 0 ? 0 : surfaceArea(second));
+            if(cost < firstCost && cost < secondCost)
+                break;
+            sibling = firstCost < secondCost ? first : second;
+        }
+
+        int oldParent = parents[sibling];
+        int newParent = allocateNode();
+        parents[newParent] = oldParent;
+        gameObjects[newParent] = null;
+        heights[newParent] = heights[sibling] + 1;
+        union(newParent, sibling, leaf);
+        if(oldParent != NULL_NODE){
+            if(firstChildren[oldParent] == sibling)
+                firstChildren[oldParent] = newParent;
+            else
+                secondChildren[oldParent] = newParent;
+        } else {
+            root = newParent;
+        }
+        firstChildren[newParent] = sibling;
+        secondChildren[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+
+        refitAncestors(parents[leaf]);
+    }
+
+    private void removeLeaf(int leaf){
+        if(leaf == root){
+            root = NULL_NODE;
+            return;
+        }
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = firstChildren[parent] == leaf ? secondChildren[parent] : firstChildren[parent];
+        if(grandParent != NULL_NODE){
+            if(firstChildren[grandParent] == parent)
+                firstChildren[grandParent] = sibling;
+            else
+                secondChildren[grandParent] = sibling;
+            parents[sibling] = grandParent;
+            freeNode(parent);
+            refitAncestors(grandParent);
+        } else {
+            root = sibling;
+            parents[sibling] = NULL_NODE;
+            freeNode(parent);
+        }
+    }
+
+    private void refitAncestors(int node){
+        while(node != NULL_NODE){
+            node = balance(node);
+            int first = firstChildren[node];
+            int second = secondChildren[node];
+            heights[node] = 1 + Math.max(heights[first], heights[second]);
+            union(node, first, second);
+            node = parents[node];
+        }
+    }
+
+    /**
+     * Rotates the taller child up when children heights differ by more than one
+     * @return Node now in the given node's place
+     */
+    private int balance(int a){
+        if(heights[a] < 2)
+            return a;
+        int b = firstChildren[a];
+        int c = secondChildren[a];
+        int balance = heights[c] - heights[b];
+
+        if(balance > 1){
+            int f = firstChildren[c];
+            int g = secondChildren[c];
+            firstChildren[c] = a;
+            parents[c] = parents[a];
+            parents[a] = c;
+            replaceChild(parents[c], a, c);
+            if(heights[f] > heights[g]){
+                secondChildren[c] = f;
+                secondChildren[a] = g;
+                parents[g] = a;
+            } else {
+                secondChildren[c] = g;
+                secondChildren[a] = f;
+                parents[f] = a;
+            }
+            union(a, b, secondChildren[a]);
+            heights[a] = 1 + Math.max(heights[b], heights[secondChildren[a]]);
+            union(c, a, secondChildren[c]);
+            heights[c] = 1 + Math.max(heights[a], heights[secondChildren[c]]);
+            return c;
+        }
+
+        if(balance < -1){
+            int d = firstChildren[b];
+            int e = secondChildren[b];
+            firstChildren[b] = a;
+            parents[b] = parents[a];
+            parents[a] = b;
+            replaceChild(parents[b], a, b);
+            if(heights[d] > heights[e]){
+                secondChildren[b] = d;
+                firstChildren[a] = e;
+                parents[e] = a;
+            } else {
+                secondChildren[b] = e;
+                firstChildren[a] = d;
+                parents[d] = a;
+            }
+            union(a, c, firstChildren[a]);
+            heights[a] = 1 + Math.max(heights[c], heights[firstChildren[a]]);
+            union(b, a, secondChildren[b]);
+            heights[b] = 1 + Math.max(heights[a], heights[secondChildren[b]]);
+            return b;
+        }
+        return a;
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild){
+        if(parent == NULL_NODE){
+            root = newChild;
+        } else if(firstChildren[parent] == oldChild){
+            firstChildren[parent] = newChild;
+        } else {
+            secondChildren[parent] = newChild;
+        }
+    }
+
+    private boolean contains(int node, Bounds bounds){
+        int box = node * 6;
+        Vector3f min = bounds.getMin(), max = bounds.getMax();
+        return boxes[box] <= min.x && boxes[box + 1] <= min.y && boxes[box + 2] <= min.z
+                && boxes[box + 3] >= max.x && boxes[box + 4] >= max.y && boxes[box + 5] >= max.z;
+    }
+
+    private void setFatBox(int node, Bounds bounds){
+        int box = node * 6;
+        Vector3f min = bounds.getMin(), max = bounds.getMax();
+        boxes[box] = min.x - margin;
+        boxes[box + 1] = min.y - margin;
+        boxes[box + 2] = min.z - margin;
+        boxes[box + 3] = max.x + margin;
+        boxes[box + 4] = max.y + margin;
+        boxes[box + 5] = max.z + margin;
+    }
+
+    private void union(int target, int first, int second){
+        int t = target * 6, a = first * 6, b = second * 6;
+        for (int i = 0; i < 3; i++) {
+            boxes[t + i] = Math.min(boxes[a + i], boxes[b + i]);
+            boxes[t + 3 + i] = Math.max(boxes[a + 3 + i], boxes[b + 3 + i]);
+        }
+    }
+
+    private float surfaceArea(int node){
+        int box = node * 6;
+        float x = boxes[box + 3] - boxes[box], y = boxes[box + 4] - boxes[box + 1], z = boxes[box + 5] - boxes[box + 2];
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * @return Surface area of the box containing a node and another box
+     */
+    private float unionArea(int node, int otherBox){
+        int box = node * 6;
+        float x = Math.max(boxes[box + 3], boxes[otherBox + 3]) - Math.min(boxes[box], boxes[otherBox]);
+        float y = Math.max(boxes[box + 4], boxes[otherBox + 4]) - Math.min(boxes[box + 1], boxes[otherBox + 1]);
+        float z = Math.max(boxes[box + 5], boxes[otherBox + 5]) - Math.min(boxes[box + 2], boxes[otherBox + 2]);
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    private static boolean overlaps(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                                    Vector3f min, Vector3f max){
+        return minX <= max.x && maxX >= min.x && minY <= max.y && maxY >= min.y && minZ <= max.z && maxZ >= min.z;
+    }
+
+    private float intersectRay(Vector3f origin, float inverseX, float inverseY, float inverseZ, int node,
+                               float maxDistance){
+        int box = node * 6;
+        return intersectRay(origin, inverseX, inverseY, inverseZ, boxes[box], boxes[box + 1], boxes[box + 2],
+                boxes[box + 3], boxes[box + 4], boxes[box + 5], maxDistance);
+    }
+
+    /**
+     * Slab test between a ray and a box. A direction component of zero never leaves it's slab, the ray is inside it
+     * for any distance or misses the box, multiplying by it's infinite inverse would give NaN for origins on a slab
+     * plane
+     * @return Distance where the ray enters the box, 0 if it starts inside, -1 if it misses or enters further than
+     * the max distance
+     */
+    private static float intersectRay(Vector3f origin, float inverseX, float inverseY, float inverseZ,
+                                      float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                                      float maxDistance){
+        float near = 0, far = maxDistance;
+        if(Float.isInfinite(inverseX)){
+            if(origin.x < minX || origin.x > maxX)
+                return -1;
+        } else {
+            float x1 = (minX - origin.x) * inverseX, x2 = (maxX - origin.x) * inverseX;
+            near = Math.max(near, Math.min(x1, x2));
+            far = Math.min(far, Math.max(x1, x2));
+        }
+        if(Float.isInfinite(inverseY)){
+            if(origin.y < minY || origin.y > maxY)
+                return -1;
+        } else {
+            float y1 = (minY - origin.y) * inverseY, y2 = (maxY - origin.y) * inverseY;
+            near = Math.max(near, Math.min(y1, y2));
+            far = Math.min(far, Math.max(y1, y2));
+        }
+        if(Float.isInfinite(inverseZ)){
+            if(origin.z < minZ || origin.z > maxZ)
+                return -1;
+        } else {
+            float z1 = (minZ - origin.z) * inverseZ, z2 = (maxZ - origin.z) * inverseZ;
+            near = Math.max(near, Math.min(z1, z2));
+            far = Math.min(far, Math.max(z1, z2));
+        }
+        return near <= far ? near : -1;
+    }
+
+    private int allocateNode(){
+        if(freeList == NULL_NODE)
+            grow(heights.length * 2);
+        int node = freeList;
+        freeList = parents[node];
+        parents[node] = NULL_NODE;
+        firstChildren[node] = NULL_NODE;
+        secondChildren[node] = NULL_NODE;
+        heights[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node){
+        parents[node] = freeList;
+        heights[node] = -1;
+        gameObjects[node] = null;
+        freeList = node;
+    }
+
+    private void grow(int capacity){
+        int oldCapacity = heights.length;
+        boxes = Arrays.copyOf(boxes, capacity * 6);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        secondChildren = Arrays.copyOf(secondChildren, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        gameObjects = Arrays.copyOf(gameObjects, capacity);
+        // New nodes are linked into the free list in order
+        for (int node = capacity - 1; node >= oldCapacity; node--) {
+            parents[node] = freeList;
+            heights[node] = -1;
+            freeList = node;
+        }
+    }
+
+    /**
+     * Nearest object found by {@link #raycast(Vector3f, Vector3f, float, RayHit)}
+     */
+    public static class RayHit {
+        private GameObject gameObject;
+        private float distance;
+
+        public GameObject getGameObject() {
+            return gameObject;
+        }
+
+        /**
+         * @return Distance from ray origin to the object's box, in direction lengths
+         */
+        public float getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.edgarmtz.engine.physics;
+
+import org.joml.Vector3f;
+
+/**
+ * Axis aligned box and sphere enclosing a model, used to discard objects that can't be seen without testing every
+ * vertex
+ */
+public class Bounds {
+    private final Vector3f min;
+    private final Vector3f max;
+    private final Vector3f center;
+    private float radius;
+
+    /**
+     * Creates empty bounds, any point included becomes part of them
+     */
+    public Bounds(){
+        min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        center = new Vector3f();
+        radius = 0;
+    }
+
+    /**
+     * Creates bounds computed beforehand, like the ones stored with a model, the sphere is centered in the box
+     * @param radius Sphere radius
+     */
+    public Bounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float radius){
+        min = new Vector3f(minX, minY, minZ);
+        max = new Vector3f(maxX, maxY, maxZ);
+        center = new Vector3f((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+        this.radius = radius;
+    }
+
+    /**
+     * Creates the smallest box around a group of points and a sphere centered in that box
+     * @param points Points coordinates, three values per point
+     * @param count Amount of points
+     * @return Bounds of the points
+     */
+    public static Bounds of(float[] points, int count){
+        Bounds bounds = new Bounds();
+        for (int i = 0; i < count; i++)
+            bounds.include(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]);
+        for (int i = 0; i < count; i++)
+            bounds.includeInSphere(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]);
+        return bounds;
+    }
+
+    /**
+     * Grows the box to contain a point and moves the sphere center to the middle of the box, call
+     * {@link #includeInSphere(float, float, float)} for every point afterwards to compute the sphere radius
+     * @param x Point x coordinate
+     * @param y Point y coordinate
+     * @param z Point z coordinate
+     */
+    public void include(float x, float y, float z){
+        min.x = Math.min(min.x, x);
+        min.y = Math.min(min.y, y);
+        min.z = Math.min(min.z, z);
+        max.x = Math.max(max.x, x);
+        max.y = Math.max(max.y, y);
+        max.z = Math.max(max.z, z);
+        center.x = (min.x + max.x) / 2;
+        center.y = (min.y + max.y) / 2;
+        center.z = (min.z + max.z) / 2;
+    }
+
+    /**
+     * Grows the sphere to contain a point keeping it's center
+     * @param x Point x coordinate
+     * @param y Point y coordinate
+     * @param z Point z coordinate
+     */
+    public void includeInSphere(float x, float y, float z){
+        float dx = x - center.x, dy = y - center.y, dz = z - center.z;
+        radius = Math.max(radius, (float) Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+
+    /**
+     * Sets this bounds to a model's bounds moved by any affine matrix, the box is the smallest axis aligned box
+     * containing the moved local box
+     * @param local Bounds in model coordinates
+     * @param matrix Model to world matrix values in column major order
+     */
+    public void transform(Bounds local, float[] matrix){
+        float extentX = (local.max.x - local.min.x) / 2;
+        float extentY = (local.max.y - local.min.y) / 2;
+        float extentZ = (local.max.z - local.min.z) / 2;
+        Vector3f localCenter = local.center;
+        center.x = matrix[0] * localCenter.x + matrix[4] * localCenter.y + matrix[8] * localCenter.z + matrix[12];
+        center.y = matrix[1] * localCenter.x + matrix[5] * localCenter.y + matrix[9] * localCenter.z + matrix[13];
+        center.z = matrix[2] * localCenter.x + matrix[6] * localCenter.y + matrix[10] * localCenter.z + matrix[14];
+        float worldExtentX = Math.abs(matrix[0]) * extentX + Math.abs(matrix[4]) * extentY + Math.abs(matrix[8]) * extentZ;
+        float worldExtentY = Math.abs(matrix[1]) * extentX + Math.abs(matrix[5]) * extentY + Math.abs(matrix[9]) * extentZ;
+        float worldExtentZ = Math.abs(matrix[2]) * extentX + Math.abs(matrix[6]) * extentY + Math.abs(matrix[10]) * extentZ;
+        min.x = center.x - worldExtentX;
+        min.y = center.y - worldExtentY;
+        min.z = center.z - worldExtentZ;
+        max.x = center.x + worldExtentX;
+        max.y = center.y + worldExtentY;
+        max.z = center.z + worldExtentZ;
+        // Sphere grows by the largest axis scale so it still contains the model
+        float scaleX = matrix[0] * matrix[0] + matrix[1] * matrix[1] + matrix[2] * matrix[2];
+        float scaleY = matrix[4] * matrix[4] + matrix[5] * matrix[5] + matrix[6] * matrix[6];
+        float scaleZ = matrix[8] * matrix[8] + matrix[9] * matrix[9] + matrix[10] * matrix[10];
+        radius = local.radius * (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+    }
+
+    public Vector3f getMin() {
+        return min;
+    }
+
+    public Vector3f getMax() {
+        return max;
+    }
+
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,164 @@
+package com.edgarmtz.engine.physics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Volume visible by the camera delimited by six planes, objects completely outside any plane aren't drawn
+ */
+public class Frustum {
+    /**
+     * Results of {@link #classifyBox(float, float, float, float, float, float)}
+     */
+    public static final int OUTSIDE = 0;
+    public static final int INTERSECTING = 1;
+    public static final int INSIDE = 2;
+
+    private static final int PLANES = 6;
+
+    /**
+     * Plane normal and distance to origin, four values per plane: left, right, bottom, top, near and far
+     */
+    private final float[] planes;
+    private final float[] values;
+    private final Matrix4f projectionViewMatrix;
+
+    public Frustum(){
+        planes = new float[PLANES * 4];
+        values = new float[16];
+        projectionViewMatrix = new Matrix4f();
+    }
+
+    /**
+     * Extracts planes from the camera matrices
+     * @param projectionMatrix Camera projection
+     * @param viewMatrix Camera position and rotation
+     */
+    public void update(Matrix4f projectionMatrix, Matrix4f viewMatrix){
+        projectionMatrix.mul(viewMatrix, projectionViewMatrix);
+        projectionViewMatrix.get(values);
+        update(values);
+    }
+
+    /**
+     * Extracts planes from a projection and view matrix product (Gribb and Hartmann, "Fast Extraction of Viewing
+     * Frustum Planes from the World-View-Projection Matrix")
+     * @param matrix Projection times view matrix values in column major order
+     */
+    public void update(float[] matrix){
+        for (int i = 0; i < PLANES; i++) {
+            int row = i / 2;
+            float sign = i % 2 == 0 ? 1 : -1;
+            float x = matrix[3] + sign * matrix[row];
+            float y = matrix[7] + sign * matrix[4 + row];
+            float z = matrix[11] + sign * matrix[8 + row];
+            float w = matrix[15] + sign * matrix[12 + row];
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            planes[i * 4] = x / length;
+            planes[i * 4 + 1] = y / length;
+            planes[i * 4 + 2] = z / length;
+            planes[i * 4 + 3] = w / length;
+        }
+    }
+
+    /**
+     * Tests the bounds sphere first and only tests the box when the sphere crosses a plane
+     * @param bounds Object bounds in world coordinates
+     * @return If any part of the bounds may be inside the frustum
+     */
+    public boolean isVisible(Bounds bounds){
+        Vector3f center = bounds.getCenter();
+        float radius = bounds.getRadius();
+        boolean crossing = false;
+        for (int i = 0; i < PLANES; i++) {
+            float distance = planes[i * 4] * center.x + planes[i * 4 + 1] * center.y + planes[i * 4 + 2] * center.z
+                    + planes[i * 4 + 3];
+            if(distance < -radius)
+                return false;
+            crossing |= distance < radius;
+        }
+        return !crossing || isBoxVisible(bounds.getMin(), bounds.getMax());
+    }
+
+    /**
+     * Tests the box corner furthest along each plane normal
+     * @param min Box smallest corner
+     * @param max Box largest corner
+     * @return If any part of the box may be inside the frustum
+     */
+    public boolean isBoxVisible(Vector3f min, Vector3f max){
+        for (int i = 0; i < PLANES; i++) {
+            float nx = planes[i * 4], ny = planes[i * 4 + 1], nz = planes[i * 4 + 2];
+            float distance = nx * (nx >= 0 ? max.x : min.x) + ny * (ny >= 0 ? max.y : min.y)
+                    + nz * (nz >= 0 ? max.z : min.z) + planes[i * 4 + 3];
+            if(distance < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tests both the box corner furthest along each plane normal and the nearest one, so boxes completely inside can
+     * skip testing anything they contain
+     * @return {@link #OUTSIDE}, {@link #INTERSECTING} or {@link #INSIDE}
+     */
+    public int classifyBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ){
+        int result = INSIDE;
+        for (int i = 0; i < PLANES; i++) {
+            float nx = planes[i * 4], ny = planes[i * 4 + 1], nz = planes[i * 4 + 2], w = planes[i * 4 + 3];
+            float furthest = nx * (nx >= 0 ? maxX : minX) + ny * (ny >= 0 ? maxY : minY)
+                    + nz * (nz >= 0 ? maxZ : minZ) + w;
+            if(furthest < 0)
+                return OUTSIDE;
+            float nearest = nx * (nx >= 0 ? minX : maxX) + ny * (ny >= 0 ? minY : maxY)
+                    + nz * (nz >= 0 ? minZ : maxZ) + w;
+            if(nearest < 0)
+                result = INTERSECTING;
+        }
+        return result;
+    }
+
+    /**
+     * Tests many spheres at once, one plane at a time so the inner loop only streams through the arrays
+     * @param x Sphere center x coordinate, one value per sphere
+     * @param y Sphere center y coordinate
+     * @param z Sphere center z coordinate
+     * @param radius Sphere radius
+     * @param first Index of the first sphere tested
+     * @param count Amount of spheres
+     * @param visible Where is written if any part of each sphere may be inside the frustum, at the sphere index
+     * @return Amount of spheres that may be visible
+     */
+    public int cullSpheres(float[] x, float[] y, float[] z, float[] radius, int first, int count, boolean[] visible){
+        int end = first + count;
+        for (int i = first; i < end; i++)
+            visible[i] = true;
+        for (int plane = 0; plane < PLANES; plane++) {
+            float nx = planes[plane * 4], ny = planes[plane * 4 + 1], nz = planes[plane * 4 + 2];
+            float w = planes[plane * 4 + 3];
+            for (int i = first; i < end; i++)
+                visible[i] &= nx * x[i] + ny * y[i] + nz * z[i] + w >= -radius[i];
+        }
+        int visibleCount = 0;
+        for (int i = first; i < end; i++) {
+            if(visible[i])
+                visibleCount++;
+        }
+        return visibleCount;
+    }
+
+    /**
+     * @param center Sphere center
+     * @param radius Sphere radius
+     * @return If any part of the sphere may be inside the frustum
+     */
+    public boolean isSphereVisible(Vector3f center, float radius){
+        for (int i = 0; i < PLANES; i++) {
+            float distance = planes[i * 4] * center.x + planes[i * 4 + 1] * center.y + planes[i * 4 + 2] * center.z
+                    + planes[i * 4 + 3];
+            if(distance < -radius)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.edgarmtz.engine.physics;
+
+/**
+ * Operations on many 4x4 matrices stored one after another in a float array, sixteen values per matrix in column
+ * major order. Loops only touch arrays and local variables so the JIT can keep the shared matrix in registers and
+ * unroll or vectorize them
+ */
+public class MatrixBatch {
+    private static final int MATRIX_SIZE = 16;
+
+    /**
+     * Multiplies one matrix by many
+     * @param left Matrix applied after each one of the batch in column major order
+     * @param matrices Batch values
+     * @param offset Index of the first batch value
+     * @param count Amount of matrices in the batch
+     * @param dest Where the results are written, can be the same array and offset as the batch
+     * @param destOffset Index where the first result is written
+     */
+    public static void multiply(float[] left, float[] matrices, int offset, int count, float[] dest, int destOffset){
+        float l00 = left[0], l01 = left[1], l02 = left[2], l03 = left[3];
+        float l10 = left[4], l11 = left[5], l12 = left[6], l13 = left[7];
+        float l20 = left[8], l21 = left[9], l22 = left[10], l23 = left[11];
+        float l30 = left[12], l31 = left[13], l32 = left[14], l33 = left[15];
+        for (int i = 0; i < count; i++) {
+            int source = offset + i * MATRIX_SIZE;
+            int target = destOffset + i * MATRIX_SIZE;
+            // Each column is read whole before writing so results can replace the batch
+            for (int column = 0; column < 4; column++) {
+                float r0 = matrices[source + column * 4];
+                float r1 = matrices[source + column * 4 + 1];
+                float r2 = matrices[source + column * 4 + 2];
+                float r3 = matrices[source + column * 4 + 3];
+                dest[target + column * 4] = l00 * r0 + l10 * r1 + l20 * r2 + l30 * r3;
+                dest[target + column * 4 + 1] = l01 * r0 + l11 * r1 + l21 * r2 + l31 * r3;
+                dest[target + column * 4 + 2] = l02 * r0 + l12 * r1 + l22 * r2 + l32 * r3;
+                dest[target + column * 4 + 3] = l03 * r0 + l13 * r1 + l23 * r2 + l33 * r3;
+            }
+        }
+    }
+
+    /**
+     * Moves bounding spheres by their matrices, the radius grows by the largest axis scale of each matrix
+     * @param matrices Matrix of each sphere, sixteen values per sphere starting at the sphere index
+     * @param first Index of the first sphere
+     * @param count Amount of spheres
+     * @param localX Sphere center x coordinate in model coordinates, one value per sphere
+     * @param localY Sphere center y coordinate in model coordinates
+     * @param localZ Sphere center z coordinate in model coordinates
+     * @param localRadius Sphere radius in model coordinates
+     * @param worldX Where the center x coordinate in world is written, can be the same array as localX
+     * @param worldY Where the center y coordinate in world is written, can be the same array as localY
+     * @param worldZ Where the center z coordinate in world is written, can be the same array as localZ
+     * @param worldRadius Where the radius in world is written, can be the same array as localRadius
+     */
+    public static void transformSpheres(float[] matrices, int first, int count,
+                                        float[] localX, float[] localY, float[] localZ, float[] localRadius,
+                                        float[] worldX, float[] worldY, float[] worldZ, float[] worldRadius){
+        for (int i = first; i < first + count; i++) {
+            int m = i * MATRIX_SIZE;
+            float x = localX[i], y = localY[i], z = localZ[i];
+            worldX[i] = matrices[m] * x + matrices[m + 4] * y + matrices[m + 8] * z + matrices[m + 12];
+            worldY[i] = matrices[m + 1] * x + matrices[m + 5] * y + matrices[m + 9] * z + matrices[m + 13];
+            worldZ[i] = matrices[m + 2] * x + matrices[m + 6] * y + matrices[m + 10] * z + matrices[m + 14];
+            float scaleX = matrices[m] * matrices[m] + matrices[m + 1] * matrices[m + 1]
+                    + matrices[m + 2] * matrices[m + 2];
+            float scaleY = matrices[m + 4] * matrices[m + 4] + matrices[m + 5] * matrices[m + 5]
+                    + matrices[m + 6] * matrices[m + 6];
+            float scaleZ = matrices[m + 8] * matrices[m + 8] + matrices[m + 9] * matrices[m + 9]
+                    + matrices[m + 10] * matrices[m + 10];
+            worldRadius[i] = localRadius[i] * (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+        }
+    }
+}
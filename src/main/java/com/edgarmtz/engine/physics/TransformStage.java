@@ -0,0 +1,260 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Culls objects and calculates their model view matrices before drawing, splitting the objects between the threads
+ * of a pool. Each object only writes it's own entry in the results, so they're the same no matter how the work is
+ * split and the thread drawing only reads them once every object is done
+ */
+public class TransformStage {
+    /**
+     * Objects processed by a single task
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    private static final int MATRIX_SIZE = 16;
+    private static final byte CULLED = 0;
+    private static final byte REUSED = 1;
+    private static final byte RECOMPUTED = 2;
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private FloatBuffer matrices;
+    private byte[] results;
+    private int[] visibleIndices;
+    private int capacity;
+    private int visibleCount;
+    private int recomputedMatrices;
+    private int reusedMatrices;
+    private boolean batchKernels;
+    private final float[] viewValues;
+
+    // Used by the batch kernels, indexed by object like the results
+    private float[] worldMatrices;
+    private float[] sphereX;
+    private float[] sphereY;
+    private float[] sphereZ;
+    private float[] sphereRadius;
+    private boolean[] visible;
+
+    // Frame data read by every task
+    private GameObject[] gameObjects;
+    private Frustum frustum;
+    private Matrix4f viewMatrix;
+    private int viewVersion;
+
+    /**
+     * Uses the common pool
+     */
+    public TransformStage(){
+        this(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param pool Threads calculating matrices, null to calculate them in the calling thread
+     * @param batchSize Objects processed by a single task
+     */
+    public TransformStage(ForkJoinPool pool, int batchSize){
+        this.pool = pool;
+        this.batchSize = Math.max(batchSize, 1);
+        results = new byte[0];
+        visibleIndices = new int[0];
+        viewValues = new float[MATRIX_SIZE];
+    }
+
+    /**
+     * Processes each task's objects with {@link MatrixBatch} and {@link Frustum#cullSpheres} instead of one object
+     * at a time. Only bounding spheres are tested so a few more objects may be drawn, and every visible matrix is
+     * recalculated, it's faster when most objects move every frame
+     * @param batchKernels If the batch kernels are used
+     */
+    public void setBatchKernels(boolean batchKernels) {
+        this.batchKernels = batchKernels;
+    }
+
+    /**
+     * Tests every object against the frustum and writes the model view matrix of the visible ones, returns once every
+     * object is processed. An object can't appear twice in the array
+     * @param gameObjects Objects to process
+     * @param count Amount of objects used from the array
+     * @param frustum Camera's view volume
+     * @param viewMatrix Camera's view matrix, only read
+     * @param viewVersion Number that changes every time the view matrix changes
+     */
+    public void compute(GameObject[] gameObjects, int count, Frustum frustum, Matrix4f viewMatrix, int viewVersion){
+        ensureCapacity(count);
+        matrices.clear();
+        this.gameObjects = gameObjects;
+        this.frustum = frustum;
+        this.viewMatrix = viewMatrix;
+        this.viewVersion = viewVersion;
+        if(batchKernels)
+            viewMatrix.get(viewValues);
+        if(pool == null || count <= batchSize)
+            computeRange(0, count);
+        else
+            pool.invoke(new RangeTask(0, count));
+        this.gameObjects = null;
+
+        // Gathered in order so the results don't depend on which thread finished first
+        visibleCount = 0;
+        recomputedMatrices = 0;
+        reusedMatrices = 0;
+        for (int i = 0; i < count; i++) {
+            if(results[i] == CULLED)
+                continue;
+            visibleIndices[visibleCount++] = i;
+            if(results[i] == RECOMPUTED)
+                recomputedMatrices++;
+            else
+                reusedMatrices++;
+        }
+    }
+
+    /**
+     * @return Objects inside the frustum in the last {@link #compute(GameObject[], int, Frustum, Matrix4f, int)}
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * @param i Number between 0 and {@link #getVisibleCount()}
+     * @return Index in the objects array of the i-th visible object
+     */
+    public int getVisibleIndex(int i) {
+        return visibleIndices[i];
+    }
+
+    /**
+     * @param index Index in the objects array of a visible object
+     * @return Buffer positioned at the object's model view matrix, valid until the next call
+     */
+    public FloatBuffer getMatrix(int index) {
+        matrices.limit(index * MATRIX_SIZE + MATRIX_SIZE);
+        matrices.position(index * MATRIX_SIZE);
+        return matrices;
+    }
+
+    /**
+     * @return Model view matrices recalculated in the last call because their objects moved
+     */
+    public int getRecomputedMatrices() {
+        return recomputedMatrices;
+    }
+
+    /**
+     * @return Model view matrices reused in the last call
+     */
+    public int getReusedMatrices() {
+        return reusedMatrices;
+    }
+
+    /**
+     * Deletes the matrices buffer
+     */
+    public void cleanup(){
+        if(matrices != null){
+            memFree(matrices);
+            matrices = null;
+        }
+    }
+
+    private void computeRange(int from, int to){
+        if(batchKernels){
+            computeRangeBatched(from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            GameObject gameObject = gameObjects[i];
+            if(!frustum.isVisible(gameObject.getWorldBounds())){
+                results[i] = CULLED;
+                continue;
+            }
+            results[i] = gameObject.updateModelViewMatrix(viewMatrix, viewVersion) ? RECOMPUTED : REUSED;
+            gameObject.getModelViewMatrix().get(i * MATRIX_SIZE, matrices);
+        }
+    }
+
+    private void computeRangeBatched(int from, int to){
+        for (int i = from; i < to; i++) {
+            GameObject gameObject = gameObjects[i];
+            gameObject.getWorldMatrix().get(worldMatrices, i * MATRIX_SIZE);
+            Bounds bounds = gameObject.getBounds();
+            Vector3f center = bounds.getCenter();
+            sphereX[i] = center.x;
+            sphereY[i] = center.y;
+            sphereZ[i] = center.z;
+            sphereRadius[i] = bounds.getRadius();
+        }
+        int count = to - from;
+        // Spheres are moved into world in place
+        MatrixBatch.transformSpheres(worldMatrices, from, count, sphereX, sphereY, sphereZ, sphereRadius,
+                sphereX, sphereY, sphereZ, sphereRadius);
+        frustum.cullSpheres(sphereX, sphereY, sphereZ, sphereRadius, from, count, visible);
+        MatrixBatch.multiply(viewValues, worldMatrices, from * MATRIX_SIZE, count, worldMatrices, from * MATRIX_SIZE);
+        for (int i = from; i < to; i++) {
+            if(!visible[i]){
+                results[i] = CULLED;
+                continue;
+            }
+            results[i] = RECOMPUTED;
+            int offset = i * MATRIX_SIZE;
+            for (int value = 0; value < MATRIX_SIZE; value++)
+                matrices.put(offset + value, worldMatrices[offset + value]);
+        }
+    }
+
+    private void ensureCapacity(int count){
+        if(batchKernels && (worldMatrices == null || worldMatrices.length < count * MATRIX_SIZE)){
+            int batchCapacity = Math.max(count, capacity);
+            worldMatrices = new float[batchCapacity * MATRIX_SIZE];
+            sphereX = new float[batchCapacity];
+            sphereY = new float[batchCapacity];
+            sphereZ = new float[batchCapacity];
+            sphereRadius = new float[batchCapacity];
+            visible = new boolean[batchCapacity];
+        }
+        if(count <= capacity && matrices != null)
+            return;
+        capacity = Math.max(count, capacity * 2);
+        if(matrices != null)
+            memFree(matrices);
+        matrices = memAllocFloat(capacity * MATRIX_SIZE);
+        results = new byte[capacity];
+        visibleIndices = new int[capacity];
+    }
+
+    /**
+     * Splits it's range in halves until it's small enough to process directly
+     */
+    private class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        RangeTask(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= batchSize){
+                computeRange(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle), new RangeTask(middle, to));
+        }
+    }
+}
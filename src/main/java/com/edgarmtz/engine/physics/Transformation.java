@@ -10,10 +10,12 @@ import org.joml.Vector3f;
  */
 public class Transformation {
     private final Matrix4f projectionMatrix;
+    private final Matrix4f modelMatrix;
     private final Matrix4f modelViewMatrix;
     private final Matrix4f viewMatrix;
 
     public Transformation(){
+        modelMatrix = new Matrix4f();
         modelViewMatrix = new Matrix4f();
         projectionMatrix = new Matrix4f();
         viewMatrix = new Matrix4f();
@@ -39,17 +41,33 @@ public class Transformation {
      * Calculates model matrix for a object based on player's view matrix
      * @param gameObject Object which will be projected according to player's movement
      * @param viewMatrix Matrix describing player's movement
-     * @return Matrix defining how an object will be projected
+     * @return Matrix defining how an object will be projected, it's reused by the next call
      */
     public Matrix4f getModelViewMatrix(GameObject gameObject, Matrix4f viewMatrix) {
-        Vector3f rotation = gameObject.getRotation();
-        modelViewMatrix.identity().translate(gameObject.getPosition()).
-                rotateX((float)Math.toRadians(-rotation.x)).
-                rotateY((float)Math.toRadians(-rotation.y)).
-                rotateZ((float)Math.toRadians(-rotation.z)).
-                scale(gameObject.getScale());
-        Matrix4f viewCurr = new Matrix4f(viewMatrix);
-        return viewCurr.mul(modelViewMatrix);
+        return getModelViewMatrix(gameObject, viewMatrix, modelViewMatrix);
+    }
+
+    /**
+     * Calculates model matrix for a object based on player's view matrix without creating any object
+     * @param gameObject Object which will be projected according to player's movement
+     * @param viewMatrix Matrix describing player's movement
+     * @param dest Matrix where the result is written
+     * @return dest
+     */
+    public Matrix4f getModelViewMatrix(GameObject gameObject, Matrix4f viewMatrix, Matrix4f dest) {
+        getModelMatrix(gameObject, modelMatrix);
+        return viewMatrix.mul(modelMatrix, dest);
+    }
+
+    /**
+     * Calculates the matrix moving an object from it's model coordinates into the world, same as translating,
+     * rotating around x, y and z by the negated rotation and scaling, but every value is written at once
+     * @param gameObject Object to move into world
+     * @param dest Matrix where the result is written
+     * @return dest
+     */
+    public static Matrix4f getModelMatrix(GameObject gameObject, Matrix4f dest) {
+        return gameObject.getLocalMatrix(dest);
     }
 
     /**
@@ -61,8 +79,8 @@ public class Transformation {
         Vector3f cameraPosition = camera.getPosition();
         Vector3f cameraRotation = camera.getRotation();
         viewMatrix.identity().
-                rotate((float)Math.toRadians(cameraRotation.x), new Vector3f(1, 0, 0)).
-                rotate((float)Math.toRadians(cameraRotation.y), new Vector3f(0, 1, 0)).
+                rotateX((float)Math.toRadians(cameraRotation.x)).
+                rotateY((float)Math.toRadians(cameraRotation.y)).
                 translate(-cameraPosition.x, -cameraPosition.y, -cameraPosition.z);
         return viewMatrix;
     }
@@ -0,0 +1,111 @@
+package com.edgarmtz.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive floats, collects values without boxing or creating an object per value
+ */
+public class FloatList {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private float[] values;
+    private int size;
+
+    public FloatList(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity Amount of values that can be stored before the backing array grows
+     */
+    public FloatList(int initialCapacity){
+        values = new float[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(float value){
+        if(size == values.length)
+            grow(size + 1);
+        values[size++] = value;
+    }
+
+    public void add(float x, float y){
+        if(size + 2 > values.length)
+            grow(size + 2);
+        values[size++] = x;
+        values[size++] = y;
+    }
+
+    public void add(float x, float y, float z){
+        if(size + 3 > values.length)
+            grow(size + 3);
+        values[size++] = x;
+        values[size++] = y;
+        values[size++] = z;
+    }
+
+    /**
+     * Appends every value stored in another list
+     * @param other List whose values will be copied at the end of this one
+     */
+    public void addAll(FloatList other){
+        if(size + other.size > values.length)
+            grow(size + other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index isn't below {@link #size()}
+     */
+    public float get(int index){
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index isn't below {@link #size()}
+     */
+    public void set(int index, float value){
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * @return Backing array, only the first {@link #size()} values are valid
+     */
+    public float[] getValues(){
+        return values;
+    }
+
+    /**
+     * @return Copy of the stored values trimmed to the list size
+     */
+    public float[] toArray(){
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * The backing array is usually longer than the list, values past the size must not be read as if they were stored
+     */
+    private void checkIndex(int index){
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Increases backing array length at least to the requested capacity
+     * @param minCapacity Amount of values that must fit in the backing array
+     */
+    private void grow(int minCapacity){
+        int capacity = Math.max(values.length + (values.length >> 1), minCapacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,66 @@
+package com.edgarmtz.engine.utils;
+
+/**
+ * Converts between 32 bit floats and IEEE 754 16 bit half floats stored in a short
+ */
+public class HalfFloat {
+
+    /**
+     * Rounds a float to the nearest half float, values too big become infinity and too small become zero
+     * @param value Float value
+     * @return Half float bits
+     */
+    public static short fromFloat(float value){
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if(exponent == 0xFF)
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+
+        int halfExponent = exponent - 127 + 15;
+        if(halfExponent >= 0x1F)
+            return (short) (sign | 0x7C00);
+
+        if(halfExponent <= 0){
+            if(halfExponent < -10)
+                return (short) sign;
+            // Subnormal half, shift implicit leading one into the mantissa
+            mantissa |= 0x800000;
+            int shift = 14 - halfExponent;
+            int halfMantissa = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if(remainder > halfway || (remainder == halfway && (halfMantissa & 1) != 0))
+                halfMantissa++;
+            return (short) (sign | halfMantissa);
+        }
+
+        int half = sign | (halfExponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        // Round to nearest even, a carry into the exponent is still a valid half
+        if(remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0))
+            half++;
+        return (short) half;
+    }
+
+    /**
+     * @param half Half float bits
+     * @return Exact float value of the half float
+     */
+    public static float toFloat(short half){
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if(exponent == 0){
+            float value = mantissa * (1f / (1 << 24));
+            return sign != 0 ? -value : value;
+        }
+        if(exponent == 0x1F)
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
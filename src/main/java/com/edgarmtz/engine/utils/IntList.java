@@ -0,0 +1,130 @@
+package com.edgarmtz.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints, collects values without boxing or creating an object per value
+ */
+public class IntList {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] values;
+    private int size;
+
+    public IntList(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity Amount of values that can be stored before the backing array grows
+     */
+    public IntList(int initialCapacity){
+        values = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(int value){
+        if(size == values.length)
+            grow(size + 1);
+        values[size++] = value;
+    }
+
+    public void add(int x, int y){
+        if(size + 2 > values.length)
+            grow(size + 2);
+        values[size++] = x;
+        values[size++] = y;
+    }
+
+    public void add(int x, int y, int z){
+        if(size + 3 > values.length)
+            grow(size + 3);
+        values[size++] = x;
+        values[size++] = y;
+        values[size++] = z;
+    }
+
+    /**
+     * Appends every value stored in another list
+     * @param other List whose values will be copied at the end of this one
+     */
+    public void addAll(IntList other){
+        if(size + other.size > values.length)
+            grow(size + other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Stores a value at an index moving it and every following value one place forward
+     */
+    public void insert(int index, int value){
+        if(size == values.length)
+            grow(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Removes the value at an index moving every following value one place back
+     */
+    public void remove(int index){
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index isn't below {@link #size()}
+     */
+    public int get(int index){
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index isn't below {@link #size()}
+     */
+    public void set(int index, int value){
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * @return Backing array, only the first {@link #size()} values are valid
+     */
+    public int[] getValues(){
+        return values;
+    }
+
+    /**
+     * @return Copy of the stored values trimmed to the list size
+     */
+    public int[] toArray(){
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * The backing array is usually longer than the list, values past the size must not be read as if they were stored
+     */
+    private void checkIndex(int index){
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Increases backing array length at least to the requested capacity
+     * @param minCapacity Amount of values that must fit in the backing array
+     */
+    private void grow(int minCapacity){
+        int capacity = Math.max(values.length + (values.length >> 1), minCapacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -3,15 +3,21 @@ package com.edgarmtz.engine.utils;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.zip.CRC32;
 
 /**
  * Provides utilities to load files
  */
 public class Resources{
+    private static final int HASH_BLOCK_SIZE = 64 * 1024;
+
     /**
      * Loads a file's text in a String object
      * @param fileName file's directory
@@ -36,6 +42,19 @@ public class Resources{
         return Resources.class.getResourceAsStream(fileName);
     }
 
+    /**
+     * Finds the file system location of a file, only files that aren't packed inside a jar have one
+     * @param fileName file's directory
+     * @return file's path or null if file doesn't exist or isn't stored directly in the file system
+     * @throws Exception if file location is malformed
+     */
+    public static Path getResourcePath(String fileName) throws Exception{
+        URL url = Resources.class.getResource(fileName);
+        if(url == null || !"file".equals(url.getProtocol()))
+            return null;
+        return Paths.get(url.toURI());
+    }
+
     /**
      * Loads a file text separated by each line
      * @param fileName file's directory
@@ -52,4 +71,23 @@ public class Resources{
         }
         return lines;
     }
+
+    /**
+     * Calculates a file CRC32 to detect when it changes
+     * @param fileName file's directory
+     * @return file content CRC32
+     * @throws Exception if file doesn't exist or can't be read
+     */
+    public static long hashResource(String fileName) throws Exception{
+        CRC32 hash = new CRC32();
+        try(InputStream in = loadResource(fileName)){
+            if(in == null)
+                throw new Exception("Couldn't find file " + fileName);
+            byte[] block = new byte[HASH_BLOCK_SIZE];
+            int read;
+            while((read = in.read(block)) != -1)
+                hash.update(block, 0, read);
+        }
+        return hash.getValue();
+    }
 }
@@ -0,0 +1,109 @@
+package com.edgarmtz.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from three int keys to an int value, keys and values are stored in flat primitive
+ * arrays so no entry objects or boxed integers are created
+ */
+public class TripleIndexMap {
+    public static final int NO_VALUE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize Amount of entries expected, map grows if it's exceeded
+     */
+    public TripleIndexMap(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Stores a value for a key unless the key already has one
+     * @param a First key component
+     * @param b Second key component
+     * @param c Third key component
+     * @param value Value associated if key is new
+     * @return Value already associated to the key or {@link #NO_VALUE} if the given value was stored
+     */
+    public int putIfAbsent(int a, int b, int c, int value){
+        int slot = hash(a, b, c) & mask;
+        while(values[slot] != NO_VALUE){
+            int keyOffset = slot * 3;
+            if(keys[keyOffset] == a && keys[keyOffset + 1] == b && keys[keyOffset + 2] == c)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, a, b, c, value);
+        if(++size * 2 > values.length)
+            rehash();
+        return NO_VALUE;
+    }
+
+    /**
+     * @param a First key component
+     * @param b Second key component
+     * @param c Third key component
+     * @return Value associated to the key or {@link #NO_VALUE} if there isn't one
+     */
+    public int get(int a, int b, int c){
+        int slot = hash(a, b, c) & mask;
+        while(values[slot] != NO_VALUE){
+            int keyOffset = slot * 3;
+            if(keys[keyOffset] == a && keys[keyOffset + 1] == b && keys[keyOffset + 2] == c)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    private void insert(int slot, int a, int b, int c, int value){
+        int keyOffset = slot * 3;
+        keys[keyOffset] = a;
+        keys[keyOffset + 1] = b;
+        keys[keyOffset + 2] = c;
+        values[slot] = value;
+    }
+
+    /**
+     * Doubles the amount of slots and reinserts every entry
+     */
+    private void rehash(){
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for(int i = 0; i < oldValues.length; i++){
+            if(oldValues[i] == NO_VALUE)
+                continue;
+            int a = oldKeys[i * 3];
+            int b = oldKeys[i * 3 + 1];
+            int c = oldKeys[i * 3 + 2];
+            int slot = hash(a, b, c) & mask;
+            while(values[slot] != NO_VALUE)
+                slot = (slot + 1) & mask;
+            insert(slot, a, b, c, oldValues[i]);
+        }
+    }
+
+    private void allocate(int capacity){
+        keys = new int[capacity * 3];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    private static int hash(int a, int b, int c){
+        int hash = a * 0x9E3779B1;
+        hash = (hash ^ (hash >>> 15)) + b * 0x85EBCA77;
+        hash = (hash ^ (hash >>> 13)) + c * 0xC2B2AE3D;
+        return hash ^ (hash >>> 16);
+    }
+}
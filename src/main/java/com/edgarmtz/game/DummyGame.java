@@ -1,29 +1,50 @@
 package com.edgarmtz.game;
 
 import com.edgarmtz.engine.IGameLogic;
+import com.edgarmtz.engine.assets.AssetHandle;
+import com.edgarmtz.engine.assets.AssetManager;
+import com.edgarmtz.engine.assets.AssetPipeline;
+import com.edgarmtz.engine.assets.CompiledTextureAssetType;
+import com.edgarmtz.engine.assets.MeshAssetType;
 import com.edgarmtz.engine.controllers.MouseInput;
 import com.edgarmtz.engine.entities.Camera;
 import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
 import com.edgarmtz.engine.graphics.*;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
+import java.nio.file.Paths;
+
 import static org.lwjgl.glfw.GLFW.*;
 
 public class DummyGame implements IGameLogic {
 
     private final Renderer renderer;
     private GameObject[] gameObjects;
+    private final TransformStore transforms;
     private final Vector3f cameraDisplacement;
     private final Camera camera;
+    private final AssetPipeline assetPipeline;
+    private AssetManager<Mesh> meshes;
+    private AssetManager<Texture> textures;
+    private AssetHandle<Mesh> mesh;
+    private AssetHandle<Texture> texture;
 
     private static final float CAMERA_POS_STEP = 0.05f;
     private static final float MOUSE_SENSITIVITY = 0.2f;
+    private static final String CACHE_DIRECTORY = "cache";
+    private static final int LOADER_THREADS = 2;
+    private static final long MESH_GPU_BUDGET = 64L << 20;
+    private static final long TEXTURE_GPU_BUDGET = 256L << 20;
+    private static final long HOST_BUDGET = 64L << 20;
 
     public DummyGame(){
         renderer = new Renderer();
         camera = new Camera();
         cameraDisplacement = new Vector3f();
+        transforms = new TransformStore();
+        assetPipeline = new AssetPipeline(LOADER_THREADS);
     }
 
     @Override
@@ -126,12 +147,16 @@ public class DummyGame implements IGameLogic {
                 // Back face
                 4, 6, 7, 5, 4, 7,};
 
-        Texture texture = new Texture("/textures/grassblock.png");
-        Mesh mesh = ObjLoader.loadMesh("/models/cube.obj");
-        mesh.setTexture(texture);
-        GameObject gameObject = new GameObject(mesh);
+        // Assets load in the background, objects are created once they're uploaded
+        MeshCache meshCache = new MeshCache(Paths.get(CACHE_DIRECTORY));
+        TextureCache textureCache = new TextureCache(Paths.get(CACHE_DIRECTORY), TextureFormat.BC1);
+        meshes = new AssetManager<>(assetPipeline, new MeshAssetType(meshCache), MESH_GPU_BUDGET, HOST_BUDGET);
+        textures = new AssetManager<>(assetPipeline, new CompiledTextureAssetType(textureCache), TEXTURE_GPU_BUDGET,
+                HOST_BUDGET);
+        texture = textures.acquire("/textures/grassblock.png");
+        mesh = meshes.acquire("/models/cube.obj");
 
-        gameObjects = new GameObject[]{gameObject};
+        gameObjects = new GameObject[0];
     }
 
     @Override
@@ -163,14 +188,33 @@ public class DummyGame implements IGameLogic {
 
     @Override
     public void render(WindowManager window) {
+        assetPipeline.processUploads(AssetPipeline.DEFAULT_UPLOAD_BUDGET);
+        if(gameObjects.length == 0){
+            // Throws if an asset failed to load
+            Mesh loadedMesh = mesh.get();
+            Texture loadedTexture = texture.get();
+            if(loadedMesh != null && loadedTexture != null){
+                loadedMesh.setTexture(loadedTexture);
+                gameObjects = new GameObject[]{new GameObject(loadedMesh, transforms)};
+            }
+        }
         renderer.render(window, camera, gameObjects);
     }
 
     @Override
     public void cleanup(){
+        assetPipeline.cleanup();
         renderer.cleanup();
         for (GameObject gameObject : gameObjects) {
             gameObject.cleanup();
         }
+        if(meshes != null){
+            meshes.release(mesh);
+            meshes.cleanup();
+        }
+        if(textures != null){
+            textures.release(texture);
+            textures.cleanup();
+        }
     }
 }
@@ -4,8 +4,14 @@ in vec2 outTextureCoord;
 out vec4 fragColor;
 
 uniform sampler2D texture_sampler;
-uniform vec3 color;
-uniform int useColor;
+
+layout(std140) uniform MeshBlock{
+    vec3 color;
+    int useColor;
+    vec3 positionScale;
+    int octahedralNormals;
+    vec3 positionOffset;
+};
 
 void main(){
     if( useColor == 1 ){
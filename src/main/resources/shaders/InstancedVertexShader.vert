@@ -0,0 +1,42 @@
+#version 330
+
+layout(location=0) in vec3 position;
+layout(location=1) in vec2 textureCoord;
+layout(location=2) in vec3 vertexNormal;
+// Model view matrix of each copy, occupies locations 3 to 6
+layout(location=3) in mat4 instanceMatrix;
+
+out vec2 outTextureCoord;
+out vec3 outVertexNormal;
+
+// Values shared by every draw of the frame
+layout(std140) uniform FrameBlock{
+    mat4 projectionMatrix;
+};
+
+// Values of the mesh being drawn, members are ordered so each vec3 is followed by an int filling it's 16 bytes
+layout(std140) uniform MeshBlock{
+    vec3 color;
+    int useColor;
+    // Quantized meshes store positions inside [-1, 1], scale and offset restore model coordinates
+    vec3 positionScale;
+    // Quantized meshes store normals octahedral encoded in two components
+    int octahedralNormals;
+    vec3 positionOffset;
+};
+
+vec3 decodeOctahedral(vec2 encoded){
+    vec3 normal = vec3(encoded, 1.0 - abs(encoded.x) - abs(encoded.y));
+    if( normal.z < 0 ){
+        vec2 signs = vec2(normal.x >= 0.0 ? 1.0 : -1.0, normal.y >= 0.0 ? 1.0 : -1.0);
+        normal.xy = (1.0 - abs(normal.yx)) * signs;
+    }
+    return normalize(normal);
+}
+
+void main(){
+    vec3 modelPosition = position * positionScale + positionOffset;
+    gl_Position = projectionMatrix * instanceMatrix * vec4(modelPosition, 1.0);
+    outTextureCoord = textureCoord;
+    outVertexNormal = octahedralNormals == 1 ? decodeOctahedral(vertexNormal.xy) : vertexNormal;
+}
\ No newline at end of file
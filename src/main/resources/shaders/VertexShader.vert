@@ -2,13 +2,41 @@
 
 layout(location=0) in vec3 position;
 layout(location=1) in vec2 textureCoord;
+layout(location=2) in vec3 vertexNormal;
 
 out vec2 outTextureCoord;
+out vec3 outVertexNormal;
 
-uniform mat4 projectionMatrix;
 uniform mat4 worldMatrix;
 
+// Values shared by every draw of the frame
+layout(std140) uniform FrameBlock{
+    mat4 projectionMatrix;
+};
+
+// Values of the mesh being drawn, members are ordered so each vec3 is followed by an int filling it's 16 bytes
+layout(std140) uniform MeshBlock{
+    vec3 color;
+    int useColor;
+    // Quantized meshes store positions inside [-1, 1], scale and offset restore model coordinates
+    vec3 positionScale;
+    // Quantized meshes store normals octahedral encoded in two components
+    int octahedralNormals;
+    vec3 positionOffset;
+};
+
+vec3 decodeOctahedral(vec2 encoded){
+    vec3 normal = vec3(encoded, 1.0 - abs(encoded.x) - abs(encoded.y));
+    if( normal.z < 0 ){
+        vec2 signs = vec2(normal.x >= 0.0 ? 1.0 : -1.0, normal.y >= 0.0 ? 1.0 : -1.0);
+        normal.xy = (1.0 - abs(normal.yx)) * signs;
+    }
+    return normalize(normal);
+}
+
 void main(){
-    gl_Position = projectionMatrix * worldMatrix * vec4(position, 1.0);
+    vec3 modelPosition = position * positionScale + positionOffset;
+    gl_Position = projectionMatrix * worldMatrix * vec4(modelPosition, 1.0);
     outTextureCoord = textureCoord;
+    outVertexNormal = octahedralNormals == 1 ? decodeOctahedral(vertexNormal.xy) : vertexNormal;
 }
\ No newline at end of file
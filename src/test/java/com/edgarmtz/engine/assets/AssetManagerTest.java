@@ -0,0 +1,217 @@
+package com.edgarmtz.engine.assets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AssetManagerTest {
+    private static final long GPU_BYTES = 40;
+    private static final long HOST_BYTES = 5;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    private AssetPipeline pipeline;
+    private final List<String> disposed = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Set<String> failingPaths = Collections.synchronizedSet(new HashSet<>());
+
+    /**
+     * Stand-in for textures or meshes, every asset takes the same memory and remembers when it's deleted
+     */
+    private final AssetType<String, FakeAsset> type = new AssetType<String, FakeAsset>() {
+        @Override
+        public String load(String path) throws Exception {
+            loads.incrementAndGet();
+            if(failingPaths.remove(path))
+                throw new Exception("Couldn't read " + path);
+            return path;
+        }
+
+        @Override
+        public FakeAsset upload(String data) {
+            return new FakeAsset(data);
+        }
+
+        @Override
+        public long getGpuBytes(FakeAsset asset) {
+            return GPU_BYTES;
+        }
+
+        @Override
+        public long getHostBytes(FakeAsset asset) {
+            return HOST_BYTES;
+        }
+
+        @Override
+        public void dispose(FakeAsset asset) {
+            disposed.add(asset.path);
+        }
+    };
+
+    @Before
+    public void createPipeline(){
+        pipeline = new AssetPipeline(2);
+    }
+
+    @After
+    public void deletePipeline(){
+        pipeline.cleanup();
+    }
+
+    @Test
+    public void sharesHandlesAndCountsReferences(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 1000, 1000);
+        AssetHandle<FakeAsset> first = manager.acquire("grass");
+        AssetHandle<FakeAsset> second = manager.acquire("grass");
+        awaitLoaded(first);
+
+        assertSame(first, second);
+        assertEquals(2, manager.getReferences("grass"));
+        assertEquals(1, manager.getHits());
+        assertEquals(1, manager.getMisses());
+        assertEquals(1, loads.get());
+        assertEquals(GPU_BYTES, manager.getGpuBytes());
+        assertEquals(HOST_BYTES, manager.getHostBytes());
+
+        manager.release(first);
+        assertEquals(1, manager.getReferences("grass"));
+        manager.release("grass");
+        assertEquals(0, manager.getReferences("grass"));
+        // Under budget so it stays loaded for the next acquire
+        assertEquals(1, manager.size());
+        assertTrue(disposed.isEmpty());
+    }
+
+    @Test
+    public void referencedAssetsAreKeptOverBudget(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, GPU_BYTES, 1000);
+        awaitLoaded(manager.acquire("a"), manager.acquire("b"), manager.acquire("c"));
+
+        assertEquals(3 * GPU_BYTES, manager.getGpuBytes());
+        assertEquals(0, manager.getEvictions());
+        assertTrue(disposed.isEmpty());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 2 * GPU_BYTES, 1000);
+        awaitLoaded(manager.acquire("a"), manager.acquire("b"), manager.acquire("c"));
+
+        manager.release("a");
+        assertEquals(Collections.singletonList("a"), disposed);
+        assertEquals(1, manager.getEvictions());
+        assertEquals(2 * GPU_BYTES, manager.getGpuBytes());
+
+        // Released c before b so b is the most recently used
+        manager.release("c");
+        manager.release("b");
+        awaitLoaded(manager.acquire("d"));
+        assertEquals(2, manager.getEvictions());
+        assertEquals("c", disposed.get(1));
+
+        AssetHandle<FakeAsset> b = manager.acquire("b");
+        assertTrue(b.isReady());
+        assertEquals(4, loads.get());
+        assertEquals(1, manager.getHits());
+    }
+
+    @Test
+    public void hostBudgetEvictsToo(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 1000, HOST_BYTES);
+        awaitLoaded(manager.acquire("a"), manager.acquire("b"));
+
+        manager.release("a");
+        manager.release("b");
+
+        assertEquals(Collections.singletonList("a"), disposed);
+        assertEquals(HOST_BYTES, manager.getHostBytes());
+    }
+
+    @Test
+    public void assetsReleasedWhileLoadingAreTrimmedOnceUploaded(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 0, 0);
+        AssetHandle<FakeAsset> handle = manager.acquire("a");
+        manager.release("a");
+
+        assertEquals(1, manager.size());
+        awaitLoaded(handle);
+        assertEquals(0, manager.size());
+        assertEquals(Collections.singletonList("a"), disposed);
+        assertEquals(0, manager.getGpuBytes());
+    }
+
+    @Test
+    public void failedAssetsAreLoadedAgain(){
+        failingPaths.add("broken");
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 1000, 1000);
+        AssetHandle<FakeAsset> failed = manager.acquire("broken");
+        awaitLoaded(failed);
+        assertTrue(failed.isFailed());
+
+        AssetHandle<FakeAsset> retried = manager.acquire("broken");
+        awaitLoaded(retried);
+
+        assertTrue(retried.isReady());
+        assertEquals(2, manager.getMisses());
+        assertEquals(2, manager.getReferences("broken"));
+        manager.release(failed);
+        manager.release(retried);
+        assertEquals(0, manager.getReferences("broken"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingUnacquiredAssetThrows(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 1000, 1000);
+        awaitLoaded(manager.acquire("a"));
+        manager.release("a");
+        manager.release("a");
+    }
+
+    @Test
+    public void cleanupDeletesEveryAsset(){
+        AssetManager<FakeAsset> manager = new AssetManager<>(pipeline, type, 1000, 1000);
+        awaitLoaded(manager.acquire("a"), manager.acquire("b"));
+        AssetHandle<FakeAsset> loading = manager.acquire("c");
+
+        manager.cleanup();
+        assertEquals(2, disposed.size());
+        assertEquals(0, manager.size());
+        assertEquals(0, manager.getGpuBytes());
+
+        awaitLoaded(loading);
+        assertTrue(disposed.contains("c"));
+    }
+
+    /**
+     * Processes uploads like the game loop would until every handle is done
+     */
+    @SafeVarargs
+    private final void awaitLoaded(AssetHandle<FakeAsset>... handles){
+        long deadline = System.nanoTime() + TIMEOUT;
+        for (AssetHandle<FakeAsset> handle : handles) {
+            while(!handle.isReady() && !handle.isFailed()){
+                if(System.nanoTime() > deadline)
+                    fail("Asset " + handle.getName() + " didn't load");
+                pipeline.processUploads(TIMEOUT);
+                Thread.yield();
+            }
+        }
+    }
+
+    private static class FakeAsset {
+        private final String path;
+
+        private FakeAsset(String path){
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.edgarmtz.engine.assets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class AssetPipelineTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+    private static final long UNLIMITED_BUDGET = TimeUnit.SECONDS.toNanos(10);
+
+    private AssetPipeline pipeline;
+    private final List<String> uploadThreads = new ArrayList<>();
+
+    @Before
+    public void createPipeline(){
+        pipeline = new AssetPipeline(2);
+    }
+
+    @After
+    public void deletePipeline(){
+        pipeline.cleanup();
+    }
+
+    @Test
+    public void loadsInWorkersAndUploadsInTheCallingThread() throws Exception {
+        AssetHandle<String> handle = pipeline.load("grass", () -> Thread.currentThread().getName(), this::upload);
+        awaitQueueDepth(1);
+
+        assertFalse(handle.isReady());
+        assertEquals("placeholder", handle.getOrDefault("placeholder"));
+        assertEquals(1, pipeline.processUploads(UNLIMITED_BUDGET));
+        assertTrue(handle.isReady());
+        assertTrue(handle.get().startsWith("asset-loader-"));
+        assertEquals(Thread.currentThread().getName(), uploadThreads.get(0));
+        assertEquals(0, pipeline.getQueueDepth());
+        assertEquals(0, pipeline.getLoadingCount());
+    }
+
+    @Test
+    public void uploadsOneAssetPerFrameWhenTheBudgetIsSpent(){
+        List<AssetHandle<String>> handles = loadMany(5);
+        awaitQueueDepth(5);
+
+        for (int frame = 1; frame <= 5; frame++) {
+            assertEquals(1, pipeline.processUploads(0));
+            assertEquals(1, pipeline.getFrameUploads());
+            assertEquals(5 - frame, pipeline.getQueueDepth());
+        }
+        for (AssetHandle<String> handle : handles)
+            assertTrue(handle.isReady());
+        assertEquals(0, pipeline.processUploads(0));
+    }
+
+    @Test
+    public void uploadsEverythingWithinALargeBudget(){
+        List<AssetHandle<String>> handles = loadMany(20);
+        awaitQueueDepth(20);
+
+        assertEquals(20, pipeline.processUploads(UNLIMITED_BUDGET));
+        assertEquals(20, uploadThreads.size());
+        for (AssetHandle<String> handle : handles)
+            assertTrue(handle.isReady());
+    }
+
+    @Test
+    public void stopsOnceTheBudgetRunsOut(){
+        long uploadTime = TimeUnit.MILLISECONDS.toNanos(20);
+        for (int i = 0; i < 10; i++)
+            pipeline.load("slow" + i, () -> "data", data -> slowUpload(data, uploadTime));
+        awaitQueueDepth(10);
+
+        int uploaded = pipeline.processUploads(uploadTime * 3 / 2);
+
+        assertTrue(uploaded >= 1 && uploaded < 10);
+        assertEquals(10 - uploaded, pipeline.getQueueDepth());
+        assertTrue(pipeline.getFrameUploadTime() >= uploadTime * uploaded);
+    }
+
+    @Test
+    public void loaderFailureFailsTheHandle(){
+        AssetHandle<String> handle = pipeline.load("missing", () -> {
+            throw new Exception("Couldn't find missing");
+        }, this::upload);
+        awaitDone(handle);
+
+        assertTrue(handle.isFailed());
+        awaitLoadingCount(0);
+        assertEquals(0, pipeline.getQueueDepth());
+        try{
+            handle.get();
+            fail("Failed asset returned a value");
+        } catch (IllegalStateException e){
+            assertEquals("Couldn't find missing", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void uploaderFailureFailsOnlyThatHandle(){
+        AssetHandle<String> broken = pipeline.load("broken", () -> "data", data -> {
+            throw new Exception("Couldn't upload");
+        });
+        AssetHandle<String> working = pipeline.load("working", () -> "data", this::upload);
+        awaitQueueDepth(2);
+
+        assertEquals(2, pipeline.processUploads(UNLIMITED_BUDGET));
+        assertTrue(broken.isFailed());
+        assertTrue(working.isReady());
+    }
+
+    @Test
+    public void cleanupReleasesDataWaitingForUpload() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        AutoCloseable data = closed::countDown;
+        AssetHandle<String> handle = pipeline.load("image", () -> data, loaded -> "uploaded");
+        awaitQueueDepth(1);
+
+        pipeline.cleanup();
+
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        assertTrue(handle.isFailed());
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    @Test
+    public void cleanupFailsAssetsStillLoading() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<AssetHandle<String>> handles = new ArrayList<>();
+        // Both workers block so the rest wait in the executor queue, cleanup interrupts the first ones
+        for (int i = 0; i < 5; i++) {
+            handles.add(pipeline.load("blocked" + i, () -> {
+                release.await();
+                return "data";
+            }, this::upload));
+        }
+
+        pipeline.cleanup();
+        release.countDown();
+
+        for (AssetHandle<String> handle : handles) {
+            awaitDone(handle);
+            assertTrue(handle.isFailed());
+        }
+        awaitLoadingCount(0);
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    @Test
+    public void cleanupReleasesDataOfLoadersFinishingAfterIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicBoolean release = new AtomicBoolean();
+        AutoCloseable data = closed::countDown;
+        AssetHandle<String> handle = pipeline.load("image", () -> {
+            started.countDown();
+            // Ignores the interrupt sent by cleanup, like a loader stuck in native code
+            while(!release.get())
+                Thread.yield();
+            return data;
+        }, loaded -> "uploaded");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        pipeline.cleanup();
+        release.set(true);
+
+        awaitDone(handle);
+        assertTrue(handle.isFailed());
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        awaitLoadingCount(0);
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    private List<AssetHandle<String>> loadMany(int count){
+        List<AssetHandle<String>> handles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "asset" + i;
+            handles.add(pipeline.load(name, () -> name, this::upload));
+        }
+        return handles;
+    }
+
+    /**
+     * Stand-in for the OpenGL upload, remembers which thread made it
+     */
+    private String upload(String data){
+        uploadThreads.add(Thread.currentThread().getName());
+        return data;
+    }
+
+    private String slowUpload(String data, long time){
+        long start = System.nanoTime();
+        while(System.nanoTime() - start < time)
+            Thread.yield();
+        return upload(data);
+    }
+
+    private void awaitQueueDepth(int depth){
+        long deadline = System.nanoTime() + TIMEOUT;
+        while(pipeline.getQueueDepth() < depth){
+            if(System.nanoTime() > deadline)
+                fail("Workers didn't prepare " + depth + " assets");
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Workers fail the handle before they stop counting the task as loading
+     */
+    private void awaitLoadingCount(int count){
+        long deadline = System.nanoTime() + TIMEOUT;
+        while(pipeline.getLoadingCount() != count){
+            if(System.nanoTime() > deadline)
+                fail("Loading count didn't reach " + count);
+            Thread.yield();
+        }
+    }
+
+    private static void awaitDone(AssetHandle<?> handle){
+        try{
+            handle.getFuture().get(10, TimeUnit.SECONDS);
+        } catch (Exception ignored){
+            // Failures are checked through the handle
+        }
+    }
+}
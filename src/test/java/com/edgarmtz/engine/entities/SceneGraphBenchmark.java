@@ -0,0 +1,106 @@
+package com.edgarmtz.engine.entities;
+
+import com.edgarmtz.engine.graphics.Mesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structural changes and updates on a deep hierarchy, a single chain of nodes, and on a wide one, a single parent
+ * with every other node as it's child. Removing and adding back a small subtree should cost the same no matter how
+ * large or deep the rest of the graph is, only rebuilding the order visits every node
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SceneGraphBenchmark {
+    private static final int SUBTREE_SIZE = 16;
+
+    @Param({"deep", "wide"})
+    public String shape;
+
+    @Param({"1000", "100000"})
+    public int nodes;
+
+    private SceneGraph sceneGraph;
+    private GameObject root;
+    private GameObject[] subtree;
+    private int subtreeParent;
+    private int subtreeRoot;
+
+    @Setup
+    public void createGraph(){
+        TransformStore transforms = new TransformStore(nodes + SUBTREE_SIZE);
+        sceneGraph = new SceneGraph();
+        root = new GameObject((Mesh) null, transforms);
+        int rootNode = sceneGraph.add(root, SceneGraph.NO_PARENT);
+        int parent = rootNode;
+        for (int i = 1; i < nodes; i++) {
+            GameObject gameObject = new GameObject((Mesh) null, transforms);
+            gameObject.setPosition(0, 1, 0);
+            int node = sceneGraph.add(gameObject, parent);
+            if(shape.equals("deep"))
+                parent = node;
+        }
+        subtreeParent = parent;
+        subtree = new GameObject[SUBTREE_SIZE];
+        for (int i = 0; i < SUBTREE_SIZE; i++)
+            subtree[i] = new GameObject((Mesh) null, transforms);
+        subtreeRoot = addSubtree();
+        sceneGraph.update();
+    }
+
+    /**
+     * Takes a small branch out of the deepest node and puts it back, the order is rebuilt later
+     */
+    @Benchmark
+    public int removeAndAdd(){
+        sceneGraph.remove(subtreeRoot);
+        subtreeRoot = addSubtree();
+        return subtreeRoot;
+    }
+
+    /**
+     * Same change followed by the breadth first order rebuild, which visits every node
+     */
+    @Benchmark
+    public int removeAddAndRebuild(){
+        sceneGraph.remove(subtreeRoot);
+        subtreeRoot = addSubtree();
+        return sceneGraph.size();
+    }
+
+    /**
+     * Moves the root so every node is recalculated
+     */
+    @Benchmark
+    public int updateAll(){
+        root.setPosition(root.getTransforms().getPositionX(root.getTransformIndex()) + 1, 0, 0);
+        return sceneGraph.update();
+    }
+
+    /**
+     * Moves only the branch, nodes before it are skipped
+     */
+    @Benchmark
+    public int updateBranch(){
+        GameObject gameObject = subtree[0];
+        gameObject.setPosition(gameObject.getTransforms().getPositionX(gameObject.getTransformIndex()) + 1, 0, 0);
+        return sceneGraph.update();
+    }
+
+    /**
+     * Adds the branch as a chain under the subtree parent
+     * @return Branch root node
+     */
+    private int addSubtree(){
+        int first = sceneGraph.add(subtree[0], subtreeParent);
+        int parent = first;
+        for (int i = 1; i < SUBTREE_SIZE; i++)
+            parent = sceneGraph.add(subtree[i], parent);
+        return first;
+    }
+}
@@ -0,0 +1,121 @@
+package com.edgarmtz.engine.entities;
+
+import com.edgarmtz.engine.graphics.Mesh;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SceneGraphTest {
+    private static final float EPSILON = 1e-5f;
+
+    private final TransformStore transforms = new TransformStore();
+    private final float[] values = new float[16];
+    private SceneGraph sceneGraph;
+
+    @Before
+    public void createGraph(){
+        sceneGraph = new SceneGraph();
+    }
+
+    @Test
+    public void childrenFollowTheirParent(){
+        GameObject root = createObject(1, 0, 0);
+        GameObject child = createObject(0, 2, 0);
+        GameObject grandchild = createObject(0, 0, 3);
+        int rootNode = sceneGraph.add(root, SceneGraph.NO_PARENT);
+        int childNode = sceneGraph.add(child, rootNode);
+        sceneGraph.add(grandchild, childNode);
+
+        assertEquals(3, sceneGraph.update());
+        assertTranslation(grandchild, 1, 2, 3);
+
+        root.setPosition(5, 0, 0);
+        assertEquals(3, sceneGraph.update());
+        assertTranslation(grandchild, 5, 2, 3);
+        assertTranslation(child, 5, 2, 0);
+
+        sceneGraph.setParent(childNode, SceneGraph.NO_PARENT);
+        sceneGraph.update();
+        assertTranslation(grandchild, 0, 2, 3);
+    }
+
+    @Test
+    public void removeTakesTheWholeSubtree(){
+        int rootNode = sceneGraph.add(createObject(0, 0, 0), SceneGraph.NO_PARENT);
+        int removedNode = sceneGraph.add(createObject(1, 0, 0), rootNode);
+        int keptNode = sceneGraph.add(createObject(2, 0, 0), rootNode);
+        GameObject[] removed = new GameObject[6];
+        int parent = removedNode;
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = createObject(0, 1, 0);
+            int node = sceneGraph.add(removed[i], i % 2 == 0 ? removedNode : parent);
+            parent = node;
+        }
+        GameObject keptChild = createObject(0, 0, 1);
+        sceneGraph.add(keptChild, keptNode);
+        assertEquals(10, sceneGraph.size());
+
+        GameObject removedObject = sceneGraph.getNodeObject(removedNode);
+        sceneGraph.remove(removedNode);
+        assertEquals(3, sceneGraph.size());
+        assertFalse(sceneGraph.contains(removedNode));
+        assertNull(removedObject.getSceneGraph());
+        for (GameObject gameObject : removed)
+            assertNull(gameObject.getSceneGraph());
+        assertSame(sceneGraph, keptChild.getSceneGraph());
+
+        // Freed ids are reused without keeping old children
+        int reused = sceneGraph.add(createObject(0, 0, 0), rootNode);
+        assertEquals(4, sceneGraph.size());
+        sceneGraph.remove(reused);
+        assertEquals(3, sceneGraph.size());
+        sceneGraph.update();
+        assertTranslation(keptChild, 2, 0, 1);
+    }
+
+    @Test
+    public void parentsComeBeforeChildren(){
+        int rootNode = sceneGraph.add(createObject(0, 0, 0), SceneGraph.NO_PARENT);
+        int[] nodes = new int[20];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = sceneGraph.add(createObject(0, 0, 0), i == 0 ? rootNode : nodes[(i - 1) / 2]);
+        // Reattached after it's children were added
+        sceneGraph.setParent(nodes[1], nodes[12]);
+
+        int[] order = new int[sceneGraph.size()];
+        for (int i = 0; i < order.length; i++) {
+            GameObject gameObject = sceneGraph.getGameObject(i);
+            order[i] = gameObject.sceneNode;
+        }
+        for (int i = 0; i < order.length; i++) {
+            int parent = sceneGraph.getParent(order[i]);
+            if(parent == SceneGraph.NO_PARENT)
+                continue;
+            boolean found = false;
+            for (int j = 0; j < i; j++)
+                found |= order[j] == parent;
+            assertTrue(found);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodeCantBeItsOwnAncestor(){
+        int rootNode = sceneGraph.add(createObject(0, 0, 0), SceneGraph.NO_PARENT);
+        int child = sceneGraph.add(createObject(0, 0, 0), rootNode);
+        sceneGraph.setParent(rootNode, child);
+    }
+
+    private GameObject createObject(float x, float y, float z){
+        GameObject gameObject = new GameObject((Mesh) null, transforms);
+        gameObject.setPosition(x, y, z);
+        return gameObject;
+    }
+
+    private void assertTranslation(GameObject gameObject, float x, float y, float z){
+        gameObject.getWorldMatrix().get(values);
+        assertEquals(x, values[12], EPSILON);
+        assertEquals(y, values[13], EPSILON);
+        assertEquals(z, values[14], EPSILON);
+    }
+}
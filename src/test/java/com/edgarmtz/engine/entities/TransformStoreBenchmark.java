@@ -0,0 +1,137 @@
+package com.edgarmtz.engine.entities;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same per frame work done over a {@link TransformStore}, one array per component, and over one object per transform
+ * holding every component as fields, the layout game objects used before the store. Moving every transform only
+ * touches positions, the store reads them in order while the objects drag their rotation and scale along
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransformStoreBenchmark {
+    private static final float INTERVAL = 1 / 60f;
+    private static final int MATRIX_SIZE = 16;
+
+    @Param({"10000", "100000", "1000000"})
+    public int transforms;
+
+    private TransformStore store;
+    private Transform[] objects;
+    private float[] velocityX;
+    private float[] velocityY;
+    private float[] velocityZ;
+    private float[] matrices;
+
+    @Setup
+    public void createTransforms(){
+        Random random = new Random(7);
+        store = new TransformStore(transforms);
+        objects = new Transform[transforms];
+        velocityX = new float[transforms];
+        velocityY = new float[transforms];
+        velocityZ = new float[transforms];
+        for (int i = 0; i < transforms; i++) {
+            float x = random.nextFloat() * 100, y = random.nextFloat() * 100, z = random.nextFloat() * 100;
+            float rx = random.nextFloat() * 360, ry = random.nextFloat() * 360, rz = random.nextFloat() * 360;
+            int index = store.allocate();
+            store.setPosition(index, x, y, z);
+            store.setRotation(index, rx, ry, rz);
+            objects[i] = new Transform(x, y, z, rx, ry, rz);
+            velocityX[i] = random.nextFloat() - 0.5f;
+            velocityY[i] = random.nextFloat() - 0.5f;
+            velocityZ[i] = random.nextFloat() - 0.5f;
+        }
+        // Objects allocated together end up next to each other, shuffling them is closer to a game that creates and
+        // destroys objects while running
+        for (int i = transforms - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Transform swap = objects[i];
+            objects[i] = objects[j];
+            objects[j] = swap;
+        }
+        matrices = new float[transforms * MATRIX_SIZE];
+    }
+
+    @Benchmark
+    public float integrateArrays(){
+        store.integrate(0, transforms, velocityX, velocityY, velocityZ, INTERVAL);
+        return store.getPositionX(transforms - 1);
+    }
+
+    @Benchmark
+    public float integrateObjects(){
+        for (int i = 0; i < transforms; i++) {
+            Transform transform = objects[i];
+            transform.x += velocityX[i] * INTERVAL;
+            transform.y += velocityY[i] * INTERVAL;
+            transform.z += velocityZ[i] * INTERVAL;
+            transform.version++;
+        }
+        return objects[transforms - 1].x;
+    }
+
+    @Benchmark
+    public float[] matricesArrays(){
+        store.getMatrices(0, transforms, matrices, 0);
+        return matrices;
+    }
+
+    @Benchmark
+    public float[] matricesObjects(){
+        for (int i = 0; i < transforms; i++)
+            objects[i].getMatrix(matrices, i * MATRIX_SIZE);
+        return matrices;
+    }
+
+    /**
+     * One object per transform, same values and matrix formula as the store
+     */
+    private static class Transform {
+        private float x, y, z;
+        private final float rotationX, rotationY, rotationZ;
+        private final float scale = 1;
+        private int version;
+
+        private Transform(float x, float y, float z, float rotationX, float rotationY, float rotationZ){
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.rotationX = rotationX;
+            this.rotationY = rotationY;
+            this.rotationZ = rotationZ;
+        }
+
+        private void getMatrix(float[] dest, int offset){
+            double ax = Math.toRadians(-rotationX);
+            double ay = Math.toRadians(-rotationY);
+            double az = Math.toRadians(-rotationZ);
+            float cx = (float) Math.cos(ax), sx = (float) Math.sin(ax);
+            float cy = (float) Math.cos(ay), sy = (float) Math.sin(ay);
+            float cz = (float) Math.cos(az), sz = (float) Math.sin(az);
+            dest[offset] = cy * cz * scale;
+            dest[offset + 1] = (sx * sy * cz + cx * sz) * scale;
+            dest[offset + 2] = (-cx * sy * cz + sx * sz) * scale;
+            dest[offset + 3] = 0;
+            dest[offset + 4] = -cy * sz * scale;
+            dest[offset + 5] = (-sx * sy * sz + cx * cz) * scale;
+            dest[offset + 6] = (cx * sy * sz + sx * cz) * scale;
+            dest[offset + 7] = 0;
+            dest[offset + 8] = sy * scale;
+            dest[offset + 9] = -sx * cy * scale;
+            dest[offset + 10] = cx * cy * scale;
+            dest[offset + 11] = 0;
+            dest[offset + 12] = x;
+            dest[offset + 13] = y;
+            dest[offset + 14] = z;
+            dest[offset + 15] = 1;
+        }
+    }
+}
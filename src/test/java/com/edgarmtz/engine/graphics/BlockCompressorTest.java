@@ -0,0 +1,133 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlockCompressorTest {
+    // Smooth images like most textures lose much less, these catch a broken encoder without depending on it's tuning
+    private static final double MIN_COLOR_PSNR = 33;
+    private static final double MIN_ALPHA_PSNR = 45;
+
+    @Test
+    public void bc1RoundTripKeepsColors(){
+        TextureData image = createImage(64, 64, false);
+        ByteBuffer pixels = roundTrip(image, TextureFormat.BC1);
+        assertTrue(psnr(image, pixels, 0, 3) > MIN_COLOR_PSNR);
+    }
+
+    @Test
+    public void bc3RoundTripKeepsColorsAndAlpha(){
+        TextureData image = createImage(64, 64, true);
+        ByteBuffer pixels = roundTrip(image, TextureFormat.BC3);
+        assertTrue(psnr(image, pixels, 0, 3) > MIN_COLOR_PSNR);
+        assertTrue(psnr(image, pixels, 3, 1) > MIN_ALPHA_PSNR);
+    }
+
+    @Test
+    public void constantBlocksAreExact(){
+        TextureData image = new TextureData(8, 8, ByteBuffer.allocateDirect(8 * 8 * 4));
+        for (int i = 0; i < 64; i++)
+            setPixel(image, i, 255, 0, 255, 255);
+        ByteBuffer pixels = roundTrip(image, TextureFormat.BC1);
+        assertTrue(Double.isInfinite(psnr(image, pixels, 0, 4)));
+    }
+
+    @Test
+    public void bc1KeepsTransparentPixels(){
+        TextureData image = new TextureData(4, 4, ByteBuffer.allocateDirect(4 * 4 * 4));
+        for (int i = 0; i < 16; i++)
+            setPixel(image, i, i * 16, 100, 0, i < 8 ? 255 : 0);
+        ByteBuffer pixels = roundTrip(image, TextureFormat.BC1);
+        for (int i = 0; i < 16; i++)
+            assertEquals(i < 8 ? 255 : 0, pixels.get(i * 4 + 3) & 0xFF);
+    }
+
+    @Test
+    public void sizesThatArentMultiplesOfFourFillEveryBlock(){
+        TextureData image = crop(createImage(64, 64, false), 6, 5);
+        ByteBuffer blocks = ByteBuffer.allocateDirect(TextureFormat.BC3.getLevelSize(6, 5));
+        BlockCompressor.compress(image, TextureFormat.BC3, blocks);
+        assertEquals(4 * 16, blocks.position());
+
+        blocks.flip();
+        ByteBuffer pixels = ByteBuffer.allocateDirect(6 * 5 * 4);
+        BlockCompressor.decompress(blocks, TextureFormat.BC3, 6, 5, pixels);
+        assertTrue(psnr(image, pixels, 0, 3) > MIN_COLOR_PSNR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uncompressedFormatThrows(){
+        TextureData image = createImage(4, 4, false);
+        BlockCompressor.compress(image, TextureFormat.RGBA8, ByteBuffer.allocateDirect(64));
+    }
+
+    private static ByteBuffer roundTrip(TextureData image, TextureFormat format){
+        ByteBuffer blocks = ByteBuffer.allocateDirect(format.getLevelSize(image.getWidth(), image.getHeight()));
+        BlockCompressor.compress(image, format, blocks);
+        assertEquals(blocks.capacity(), blocks.position());
+        blocks.flip();
+        ByteBuffer pixels = ByteBuffer.allocateDirect(image.getWidth() * image.getHeight() * 4);
+        BlockCompressor.decompress(blocks, format, image.getWidth(), image.getHeight(), pixels);
+        assertEquals(0, blocks.position());
+        return pixels;
+    }
+
+    /**
+     * Smooth gradients with a little noise
+     * @param fade Whether alpha fades diagonally, BC1 would store the faded half as transparent black
+     */
+    private static TextureData createImage(int width, int height, boolean fade){
+        TextureData image = new TextureData(width, height, ByteBuffer.allocateDirect(width * height * 4));
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(9) - 4;
+                setPixel(image, y * width + x, clamp(x * 255 / width + noise), clamp(y * 255 / height + noise),
+                        clamp(128 + (int) (100 * Math.sin(x * 0.1 + y * 0.05))), fade ? (x + y) * 255 / (width + height) : 255);
+            }
+        }
+        return image;
+    }
+
+    private static TextureData crop(TextureData image, int width, int height){
+        TextureData cropped = new TextureData(width, height, ByteBuffer.allocateDirect(width * height * 4));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                cropped.getPixels().putInt((y * width + x) * 4, image.getPixels().getInt((y * image.getWidth() + x) * 4));
+        }
+        return cropped;
+    }
+
+    private static void setPixel(TextureData image, int pixel, int red, int green, int blue, int alpha){
+        ByteBuffer pixels = image.getPixels();
+        pixels.put(pixel * 4, (byte) red);
+        pixels.put(pixel * 4 + 1, (byte) green);
+        pixels.put(pixel * 4 + 2, (byte) blue);
+        pixels.put(pixel * 4 + 3, (byte) alpha);
+    }
+
+    private static int clamp(int value){
+        return Math.max(0, Math.min(255, value));
+    }
+
+    /**
+     * Peak signal to noise ratio of some channels, infinite when they're equal
+     */
+    private static double psnr(TextureData image, ByteBuffer pixels, int firstChannel, int channels){
+        ByteBuffer original = image.getPixels();
+        int count = image.getWidth() * image.getHeight();
+        double squaredError = 0;
+        for (int i = 0; i < count; i++) {
+            for (int c = firstChannel; c < firstChannel + channels; c++) {
+                int difference = (original.get(i * 4 + c) & 0xFF) - (pixels.get(i * 4 + c) & 0xFF);
+                squaredError += difference * difference;
+            }
+        }
+        double meanError = squaredError / ((double) count * channels);
+        return 10 * Math.log10(255 * 255 / meanError);
+    }
+}
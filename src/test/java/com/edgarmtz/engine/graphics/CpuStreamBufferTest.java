@@ -0,0 +1,133 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class CpuStreamBufferTest {
+    private static final int SECTIONS = 3;
+
+    private CpuStreamBuffer buffer;
+
+    @After
+    public void deleteBuffer(){
+        if(buffer != null)
+            buffer.cleanup();
+    }
+
+    @Test
+    public void roundsFrameSizeToMaxAlignment(){
+        buffer = new CpuStreamBuffer(1000, SECTIONS, 1);
+
+        assertEquals(1024, buffer.getFrameSize());
+        assertEquals(1024 * SECTIONS, buffer.getMemory().capacity());
+    }
+
+    @Test
+    public void alignsAllocations(){
+        buffer = new CpuStreamBuffer(1024, SECTIONS, 1);
+        buffer.beginFrame();
+
+        assertEquals(0, buffer.allocate(10, 4));
+        assertEquals(16, buffer.allocate(64, 16));
+        assertEquals(256, buffer.allocate(1, 256));
+        assertEquals(260, buffer.allocate(4, 4));
+        assertEquals(264, buffer.getFrameUsage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAlignmentThatIsntAPowerOfTwo(){
+        buffer = new CpuStreamBuffer(1024, SECTIONS, 1);
+        buffer.beginFrame();
+        buffer.allocate(16, 24);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAlignmentAboveTheMaximum(){
+        buffer = new CpuStreamBuffer(1024, SECTIONS, 1);
+        buffer.beginFrame();
+        buffer.allocate(16, RingStreamBuffer.MAX_ALIGNMENT * 2);
+    }
+
+    @Test
+    public void failsOnceTheFrameIsFull(){
+        buffer = new CpuStreamBuffer(256, SECTIONS, 1);
+        buffer.beginFrame();
+
+        assertEquals(0, buffer.allocate(200, 4));
+        assertEquals(-1, buffer.allocate(100, 4));
+        // A failed allocation doesn't use space
+        assertEquals(200, buffer.allocate(56, 4));
+        assertEquals(-1, buffer.allocate(1, 1));
+    }
+
+    @Test
+    public void wrapsAroundSections(){
+        buffer = new CpuStreamBuffer(512, SECTIONS, 1);
+        for (int frame = 0; frame < SECTIONS * 3; frame++) {
+            buffer.beginFrame();
+            assertEquals((frame % SECTIONS) * 512, buffer.allocate(64, 16));
+            assertEquals((frame % SECTIONS) * 512 + 64, buffer.allocate(64, 16));
+            buffer.endFrame();
+        }
+    }
+
+    /**
+     * Frames still being read keep their bytes while later frames are written
+     */
+    @Test
+    public void framesInFlightArentOverwritten(){
+        buffer = new CpuStreamBuffer(256, SECTIONS, SECTIONS - 1);
+        ByteBuffer memory = buffer.getMemory();
+        int[] offsets = new int[10];
+        for (int frame = 0; frame < offsets.length; frame++) {
+            buffer.beginFrame();
+            offsets[frame] = buffer.allocate(256, 4);
+            for (int i = 0; i < 256; i++)
+                memory.put(offsets[frame] + i, (byte) frame);
+            buffer.flush(offsets[frame], 256);
+            buffer.endFrame();
+            long completed = buffer.getCompletedFrames();
+            for (int previous = (int) completed; previous < frame; previous++) {
+                for (int i = 0; i < 256; i++)
+                    assertEquals((byte) previous, memory.get(offsets[previous] + i));
+            }
+        }
+        assertEquals(256L * offsets.length, buffer.getFlushedBytes());
+    }
+
+    @Test
+    public void doesntStallWhileTheGpuKeepsUp(){
+        buffer = new CpuStreamBuffer(256, SECTIONS, SECTIONS - 1);
+        runFrames(20);
+
+        assertEquals(0, buffer.getStalls());
+    }
+
+    @Test
+    public void stallsWhenTheGpuFallsBehind(){
+        buffer = new CpuStreamBuffer(256, SECTIONS, SECTIONS);
+        runFrames(20);
+
+        // Every frame after the first pass over the sections waits for it's section
+        assertEquals(20 - SECTIONS, buffer.getStalls());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsFlushOutsideTheBuffer(){
+        buffer = new CpuStreamBuffer(256, SECTIONS, 1);
+        buffer.beginFrame();
+        buffer.flush(256 * SECTIONS - 8, 16);
+    }
+
+    private void runFrames(int frames){
+        for (int frame = 0; frame < frames; frame++) {
+            buffer.beginFrame();
+            assertTrue(buffer.allocate(128, 16) >= 0);
+            buffer.endFrame();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class InstanceBatcherTest {
+    private static final int MATRIX_SIZE = 16;
+
+    private InstanceBatcher<Object> batcher;
+    private FloatBuffer matrices;
+
+    @Before
+    public void createBatcher(){
+        batcher = new InstanceBatcher<>();
+        // Object i's matrix holds i * 100 + value index
+        matrices = ByteBuffer.allocateDirect(100 * MATRIX_SIZE * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i = 0; i < 100; i++) {
+            for (int value = 0; value < MATRIX_SIZE; value++)
+                matrices.put(i * MATRIX_SIZE + value, i * 100 + value);
+        }
+    }
+
+    @After
+    public void deleteBatcher(){
+        batcher.cleanup();
+    }
+
+    @Test
+    public void groupsByKeyInFirstAddedOrder(){
+        Object rock = new Object(), tree = new Object(), grass = new Object();
+        Object[] keys = {tree, rock, tree, grass, rock, tree};
+        for (int i = 0; i < keys.length; i++)
+            add(keys[i], i);
+
+        assertEquals(3, batcher.getBatchCount());
+        assertSame(tree, batcher.getBatch(0).getKey());
+        assertSame(rock, batcher.getBatch(1).getKey());
+        assertSame(grass, batcher.getBatch(2).getKey());
+        assertInstances(batcher.getBatch(0), 0, 2, 5);
+        assertInstances(batcher.getBatch(1), 1, 4);
+        assertInstances(batcher.getBatch(2), 3);
+    }
+
+    @Test
+    public void comparesKeysByIdentity(){
+        String first = new String("mesh"), second = new String("mesh");
+        add(first, 0);
+        add(second, 1);
+
+        assertEquals(2, batcher.getBatchCount());
+    }
+
+    @Test
+    public void growsPastInitialCapacity(){
+        Object key = new Object();
+        for (int i = 0; i < 100; i++)
+            add(key, i);
+
+        assertEquals(1, batcher.getBatchCount());
+        int[] expected = new int[100];
+        for (int i = 0; i < expected.length; i++)
+            expected[i] = i;
+        assertInstances(batcher.getBatch(0), expected);
+    }
+
+    @Test
+    public void clearStartsAnEmptyFrame(){
+        Object rock = new Object(), tree = new Object();
+        add(rock, 0);
+        add(tree, 1);
+        batcher.clear();
+        assertEquals(0, batcher.getBatchCount());
+
+        add(tree, 7);
+        assertEquals(1, batcher.getBatchCount());
+        assertSame(tree, batcher.getBatch(0).getKey());
+        assertInstances(batcher.getBatch(0), 7);
+    }
+
+    private void add(Object key, int object){
+        batcher.add(key, matrices, object * MATRIX_SIZE);
+    }
+
+    /**
+     * Checks the batch holds the matrices of the objects in the given order
+     */
+    private static void assertInstances(InstanceBatcher.Batch<Object> batch, int... objects){
+        assertEquals(objects.length, batch.getInstanceCount());
+        FloatBuffer packed = batch.getMatrices();
+        assertEquals(0, packed.position());
+        assertEquals(objects.length * MATRIX_SIZE, packed.limit());
+        for (int i = 0; i < objects.length; i++) {
+            for (int value = 0; value < MATRIX_SIZE; value++)
+                assertEquals(objects[i] * 100 + value, packed.get(i * MATRIX_SIZE + value), 0);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class InstanceBufferTest {
+    private static final int MATRIX_SIZE = 16;
+
+    private final CpuStreamBuffer stream = new CpuStreamBuffer(1024, 2, 1);
+
+    @After
+    public void deleteBuffer(){
+        stream.cleanup();
+    }
+
+    @Test
+    public void copiesMatricesFromPositionToLimit(){
+        FloatBuffer matrices = FloatBuffer.allocate(3 * MATRIX_SIZE);
+        for (int i = 0; i < matrices.capacity(); i++)
+            matrices.put(i, i);
+        matrices.position(MATRIX_SIZE);
+        stream.beginFrame();
+        stream.allocate(10, 4);
+
+        InstanceBuffer instances = new InstanceBuffer(stream);
+        assertTrue(instances.upload(matrices));
+
+        assertEquals(2, instances.getInstanceCount());
+        assertEquals(MATRIX_SIZE, matrices.position());
+        ByteBuffer memory = stream.getMemory();
+        assertEquals(0, memory.position());
+        // First allocation after the 10 bytes aligned to a whole matrix
+        for (int i = 0; i < 2 * MATRIX_SIZE; i++)
+            assertEquals(MATRIX_SIZE + i, memory.getFloat(64 + i * Float.BYTES), 0);
+    }
+
+    @Test
+    public void failsWhenFrameIsFull(){
+        stream.beginFrame();
+        stream.allocate(1000, 4);
+
+        assertFalse(new InstanceBuffer(stream).upload(FloatBuffer.allocate(MATRIX_SIZE)));
+    }
+}
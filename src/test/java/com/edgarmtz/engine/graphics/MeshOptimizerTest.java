@@ -0,0 +1,212 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MeshOptimizerTest {
+    @Test
+    public void stripTransformsEachVertexOnce(){
+        // Each triangle after the first adds a single vertex
+        int[] strip = {0, 1, 2, 2, 1, 3, 2, 3, 4, 4, 3, 5};
+        MeshOptimizer.CacheStatistics statistics = MeshOptimizer.analyzeVertexCache(strip, 6, 3);
+        assertEquals(6, statistics.getMisses());
+        assertEquals(1.5f, statistics.getAcmr(), 0);
+        assertEquals(1f, statistics.getAtvr(), 0);
+    }
+
+    @Test
+    public void fifoCacheForgetsAfterCacheSizeMisses(){
+        int[] repeated = {0, 1, 2, 0, 1, 2};
+        // Three misses since vertex 0 was added still fit a cache of three
+        MeshOptimizer.CacheStatistics fits = MeshOptimizer.analyzeVertexCache(repeated, 3, 3);
+        assertEquals(3, fits.getMisses());
+        assertEquals(1.5f, fits.getAcmr(), 0);
+
+        MeshOptimizer.CacheStatistics evicted = MeshOptimizer.analyzeVertexCache(repeated, 3, 2);
+        assertEquals(6, evicted.getMisses());
+        assertEquals(3f, evicted.getAcmr(), 0);
+        assertEquals(2f, evicted.getAtvr(), 0);
+    }
+
+    @Test
+    public void unusedVerticesDontCountForAtvr(){
+        MeshOptimizer.CacheStatistics statistics = MeshOptimizer.analyzeVertexCache(new int[]{0, 2, 4}, 5, 16);
+        assertEquals(1f, statistics.getAtvr(), 0);
+        assertEquals(0, MeshOptimizer.analyzeVertexCache(new int[0], 0, 16).getAcmr(), 0);
+    }
+
+    @Test
+    public void vertexCacheOptimizationKeepsTrianglesAndLowersAcmr(){
+        MeshData sphere = createSphere(48, 96);
+        int[] shuffled = shuffleTriangles(sphere.getIndices(), 3);
+        int[] optimized = MeshOptimizer.optimizeVertexCache(shuffled, sphere.getVertexCount());
+
+        assertArrayEquals(sortedTriangles(shuffled), sortedTriangles(optimized));
+        float before = acmr(shuffled, sphere.getVertexCount());
+        float after = acmr(optimized, sphere.getVertexCount());
+        assertTrue(before > 2.5f);
+        // Regular grids can't go below 0.5, a good order gets close to it
+        assertTrue("ACMR " + after, after < 0.75f);
+        assertTrue(after < acmr(sphere.getIndices(), sphere.getVertexCount()));
+    }
+
+    @Test
+    public void overdrawOptimizationKeepsTrianglesAndMostOfTheCacheGain(){
+        MeshData sphere = createSphere(48, 96);
+        int[] shuffled = shuffleTriangles(sphere.getIndices(), 5);
+        int[] cacheOptimized = MeshOptimizer.optimizeVertexCache(shuffled, sphere.getVertexCount());
+        int[] optimized = MeshOptimizer.optimizeOverdraw(cacheOptimized, sphere.getPositions(),
+                MeshOptimizer.DEFAULT_OVERDRAW_THRESHOLD);
+
+        assertArrayEquals(sortedTriangles(shuffled), sortedTriangles(optimized));
+        float cacheAcmr = acmr(cacheOptimized, sphere.getVertexCount());
+        float after = acmr(optimized, sphere.getVertexCount());
+        assertTrue("ACMR " + after, after < acmr(shuffled, sphere.getVertexCount()) / 2);
+        // Clusters may lose up to the threshold each, measured about 4% here
+        assertTrue("ACMR " + after + " over " + cacheAcmr, after < cacheAcmr * 1.1f);
+    }
+
+    @Test
+    public void vertexFetchRenumbersByFirstUseAndDropsUnusedVertices(){
+        // Vertex i has every attribute set to i, vertex 1 isn't used
+        int vertexCount = 5;
+        float[] positions = new float[vertexCount * 3];
+        float[] textureCoordinates = new float[vertexCount * 2];
+        float[] normals = new float[vertexCount * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            Arrays.fill(positions, v * 3, v * 3 + 3, v);
+            Arrays.fill(textureCoordinates, v * 2, v * 2 + 2, v);
+            Arrays.fill(normals, v * 3, v * 3 + 3, v);
+        }
+        MeshData meshData = new MeshData(positions, textureCoordinates, normals, new int[]{4, 2, 0, 0, 2, 3});
+
+        MeshData optimized = MeshOptimizer.optimizeVertexFetch(meshData);
+
+        assertArrayEquals(new int[]{0, 1, 2, 2, 1, 3}, optimized.getIndices());
+        assertEquals(4, optimized.getVertexCount());
+        float[] order = {4, 2, 0, 3};
+        for (int v = 0; v < order.length; v++) {
+            assertEquals(order[v], optimized.getPositions()[v * 3 + 2], 0);
+            assertEquals(order[v], optimized.getTextureCoordinates()[v * 2 + 1], 0);
+            assertEquals(order[v], optimized.getNormals()[v * 3], 0);
+        }
+    }
+
+    @Test
+    public void optimizeKeepsEveryTriangle(){
+        MeshData sphere = createSphere(16, 32);
+        MeshData shuffled = new MeshData(sphere.getPositions(), sphere.getTextureCoordinates(), sphere.getNormals(),
+                shuffleTriangles(sphere.getIndices(), 7));
+        MeshData optimized = MeshOptimizer.optimize(shuffled);
+
+        assertArrayEquals(positionTriangles(shuffled), positionTriangles(optimized));
+        assertTrue(acmr(optimized.getIndices(), optimized.getVertexCount())
+                < acmr(shuffled.getIndices(), shuffled.getVertexCount()));
+    }
+
+    private static float acmr(int[] indices, int vertexCount){
+        return MeshOptimizer.analyzeVertexCache(indices, vertexCount, MeshOptimizer.CACHE_SIZE).getAcmr();
+    }
+
+    /**
+     * Unit sphere made of rings of quads, poles are rings of degenerate quads so every row has the same vertices. The
+     * first and last column share positions but not texture coordinates
+     */
+    static MeshData createSphere(int rings, int segments){
+        int columns = segments + 1;
+        int vertexCount = (rings + 1) * columns;
+        float[] positions = new float[vertexCount * 3];
+        float[] textureCoordinates = new float[vertexCount * 2];
+        float[] normals = new float[vertexCount * 3];
+        for (int ring = 0; ring <= rings; ring++) {
+            double polar = Math.PI * ring / rings;
+            // Poles and the last column repeat positions exactly like a modeled sphere
+            double radius = ring == 0 || ring == rings ? 0 : Math.sin(polar);
+            for (int segment = 0; segment <= segments; segment++) {
+                double azimuth = 2 * Math.PI * (segment % segments) / segments;
+                int v = ring * columns + segment;
+                normals[v * 3] = positions[v * 3] = (float) (radius * Math.cos(azimuth));
+                normals[v * 3 + 1] = positions[v * 3 + 1] = (float) Math.cos(polar);
+                normals[v * 3 + 2] = positions[v * 3 + 2] = (float) (radius * Math.sin(azimuth));
+                textureCoordinates[v * 2] = (float) segment / segments;
+                textureCoordinates[v * 2 + 1] = (float) ring / rings;
+            }
+        }
+        int[] indices = new int[rings * segments * 6];
+        int i = 0;
+        for (int ring = 0; ring < rings; ring++) {
+            for (int segment = 0; segment < segments; segment++) {
+                int corner = ring * columns + segment;
+                indices[i++] = corner;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + columns;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + columns + 1;
+                indices[i++] = corner + columns;
+            }
+        }
+        return new MeshData(positions, textureCoordinates, normals, indices);
+    }
+
+    static int[] shuffleTriangles(int[] indices, long seed){
+        int[] shuffled = indices.clone();
+        Random random = new Random(seed);
+        for (int t = shuffled.length / 3 - 1; t > 0; t--) {
+            int other = random.nextInt(t + 1);
+            for (int k = 0; k < 3; k++) {
+                int swap = shuffled[t * 3 + k];
+                shuffled[t * 3 + k] = shuffled[other * 3 + k];
+                shuffled[other * 3 + k] = swap;
+            }
+        }
+        return shuffled;
+    }
+
+    /**
+     * Every triangle rotated so it's smallest index is first, which keeps the winding, then sorted
+     */
+    static long[] sortedTriangles(int[] indices){
+        long[] triangles = new long[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+            while(a > b || a > c){
+                int swap = a;
+                a = b;
+                b = c;
+                c = swap;
+            }
+            triangles[t] = ((long) a << 42) | ((long) b << 21) | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+
+    /**
+     * Triangles as position values so meshes with renumbered vertices can be compared, each one starts at it's
+     * smallest corner to keep the winding
+     */
+    private static String[] positionTriangles(MeshData meshData){
+        int[] indices = meshData.getIndices();
+        float[] positions = meshData.getPositions();
+        String[] triangles = new String[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            String[] corners = new String[3];
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                corners[k] = positions[v * 3] + "," + positions[v * 3 + 1] + "," + positions[v * 3 + 2];
+            }
+            int first = 0;
+            for (int k = 1; k < 3; k++) {
+                if(corners[k].compareTo(corners[first]) < 0)
+                    first = k;
+            }
+            triangles[t] = corners[first] + " " + corners[(first + 1) % 3] + " " + corners[(first + 2) % 3];
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+}
@@ -0,0 +1,36 @@
+package com.edgarmtz.engine.graphics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates five levels of detail, each with half the triangles of the previous one, for spheres of an increasing
+ * amount of triangles, the cost of simplifying a model when it's loaded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MeshSimplifierBenchmark {
+    /**
+     * Rings of the sphere, each one has twice as many segments
+     */
+    @Param({"24", "64", "160"})
+    public int rings;
+
+    private MeshData sphere;
+
+    @Setup
+    public void createSphere(){
+        sphere = MeshOptimizerTest.createSphere(rings, rings * 2);
+    }
+
+    @Benchmark
+    public List<MeshSimplifier.Level> generateLevels(){
+        return MeshSimplifier.generateLevels(sphere, 5, 0.5f);
+    }
+}
@@ -0,0 +1,249 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MeshSimplifierTest {
+    private static final int GRID_SIZE = 33;
+
+    @Test
+    public void levelsReachTheirTargets(){
+        MeshData sphere = MeshOptimizerTest.createSphere(24, 48);
+        List<MeshSimplifier.Level> levels = MeshSimplifier.generateLevels(sphere, 5, 0.5f);
+
+        assertEquals(5, levels.size());
+        assertSame(sphere, levels.get(0).getMeshData());
+        float target = sphere.getIndices().length / 3f;
+        for (int i = 1; i < levels.size(); i++) {
+            target *= 0.5f;
+            int triangles = levels.get(i).getMeshData().getIndices().length / 3;
+            // Interior collapses remove two triangles so a level may end one below it's target
+            assertTrue(triangles + " for " + target, triangles <= (int) target && triangles >= (int) target - 2);
+            assertTrue(levels.get(i).getError() >= levels.get(i - 1).getError());
+        }
+    }
+
+    @Test
+    public void bordersStayOnTheOutline(){
+        MeshData grid = createGrid(false, 0);
+        MeshData simplified = MeshSimplifier.simplify(grid, 100, Float.MAX_VALUE).getMeshData();
+        assertTrue(simplified.getIndices().length / 3 <= 100);
+
+        float[] positions = simplified.getPositions();
+        int[] indices = simplified.getIndices();
+        for (int[] edge : borderEdges(indices)) {
+            for (int vertex : edge) {
+                float x = positions[vertex * 3], y = positions[vertex * 3 + 1];
+                assertTrue(x + ", " + y, x == 0 || x == 1 || y == 0 || y == 1);
+            }
+        }
+        // A flat square keeps covering itself when the outline doesn't move inwards and nothing folds
+        assertEquals(1, area(simplified), 1e-4f);
+    }
+
+    @Test
+    public void seamsKeepTheirTextureCoordinates(){
+        MeshData grid = createGrid(true, 0.05f);
+        MeshData simplified = MeshSimplifier.simplify(grid, 150, Float.MAX_VALUE).getMeshData();
+        assertTrue(simplified.getIndices().length / 3 <= 150);
+
+        float[] positions = simplified.getPositions();
+        float[] textureCoordinates = simplified.getTextureCoordinates();
+        int[] indices = simplified.getIndices();
+        for (int i = 0; i < indices.length; i += 3) {
+            // Right half vertices have their texture moved by one, a triangle can't mix both halves
+            int chart = textureCoordinates[indices[i] * 2] > 1 ? 1 : 0;
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[i + k];
+                assertEquals(chart, textureCoordinates[vertex * 2] > 1 ? 1 : 0);
+                assertEquals(positions[vertex * 3] + chart, textureCoordinates[vertex * 2], 1e-6f);
+                if(chart == 0)
+                    assertTrue(positions[vertex * 3] <= 0.5f);
+                else
+                    assertTrue(positions[vertex * 3] >= 0.5f);
+            }
+        }
+    }
+
+    @Test
+    public void trianglesDontFlip(){
+        // Collapses may tilt a triangle up to 75 degrees, gentle waves keep every unflipped triangle facing up
+        MeshData grid = createGrid(false, 0.01f);
+        for (MeshSimplifier.Level level : MeshSimplifier.generateLevels(grid, 6, 0.5f)) {
+            MeshData meshData = level.getMeshData();
+            float[] normal = new float[3];
+            for (int i = 0; i < meshData.getIndices().length; i += 3) {
+                normal(meshData, i, normal);
+                assertTrue(normal[2] > 0);
+            }
+        }
+
+        // The original sphere has triangles without area at the poles, only simplified levels are checked
+        MeshData sphere = MeshOptimizerTest.createSphere(24, 48);
+        List<MeshSimplifier.Level> levels = MeshSimplifier.generateLevels(sphere, 5, 0.5f);
+        for (MeshSimplifier.Level level : levels.subList(1, levels.size())) {
+            MeshData meshData = level.getMeshData();
+            float[] positions = meshData.getPositions();
+            int[] indices = meshData.getIndices();
+            float[] normal = new float[3];
+            for (int i = 0; i < indices.length; i += 3) {
+                normal(meshData, i, normal);
+                // Faces point away from the center, measured from their corners
+                float outwards = 0;
+                for (int k = 0; k < 3; k++) {
+                    int vertex = indices[i + k] * 3;
+                    outwards += normal[0] * positions[vertex] + normal[1] * positions[vertex + 1]
+                            + normal[2] * positions[vertex + 2];
+                }
+                assertTrue(outwards > 0);
+            }
+        }
+    }
+
+    @Test
+    public void errorBoundsTheDistanceToTheOriginalVertices(){
+        for (MeshData meshData : new MeshData[]{MeshOptimizerTest.createSphere(24, 48), createGrid(true, 0.05f)}) {
+            for (MeshSimplifier.Level level : MeshSimplifier.generateLevels(meshData, 5, 0.5f)) {
+                float deviation = deviation(meshData, level.getMeshData());
+                assertTrue(deviation + " over " + level.getError(), deviation <= level.getError() + 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void maxErrorStopsCollapsesOnCurvedSurfaces(){
+        MeshData sphere = MeshOptimizerTest.createSphere(24, 48);
+        MeshSimplifier.Level level = MeshSimplifier.simplify(sphere, 0, 1e-6f);
+        // Only the triangles at the poles, which have no area, are removed
+        assertEquals(24 * 48 * 2 - 2 * 48, level.getMeshData().getIndices().length / 3);
+        assertEquals(0, level.getError(), 1e-6f);
+
+        MeshData flat = createGrid(false, 0);
+        assertTrue(MeshSimplifier.simplify(flat, 0, 1e-6f).getMeshData().getIndices().length / 3 < 50);
+    }
+
+    /**
+     * Unit square in the xy plane made of quads, optionally waved along z
+     * @param seam If vertices at x 0.5 are repeated so the right half has it's own texture coordinates, one unit
+     *             further right
+     * @param wave Height of the waves
+     */
+    private static MeshData createGrid(boolean seam, float wave){
+        int columns = GRID_SIZE + (seam ? 1 : 0);
+        int middle = GRID_SIZE / 2;
+        int vertexCount = GRID_SIZE * columns;
+        float[] positions = new float[vertexCount * 3];
+        float[] textureCoordinates = new float[vertexCount * 2];
+        float[] normals = new float[vertexCount * 3];
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int column = 0; column < columns; column++) {
+                int x = seam && column > middle ? column - 1 : column;
+                int v = y * columns + column;
+                positions[v * 3] = x / (GRID_SIZE - 1f);
+                positions[v * 3 + 1] = y / (GRID_SIZE - 1f);
+                positions[v * 3 + 2] = (float) (wave * Math.sin(x * 0.4) * Math.cos(y * 0.3));
+                textureCoordinates[v * 2] = positions[v * 3] + (seam && column > middle ? 1 : 0);
+                textureCoordinates[v * 2 + 1] = positions[v * 3 + 1];
+                normals[v * 3 + 2] = 1;
+            }
+        }
+        int[] indices = new int[(GRID_SIZE - 1) * (GRID_SIZE - 1) * 6];
+        int i = 0;
+        for (int y = 0; y < GRID_SIZE - 1; y++) {
+            for (int x = 0; x < GRID_SIZE - 1; x++) {
+                int column = seam && x >= middle ? x + 1 : x;
+                int corner = y * columns + column;
+                indices[i++] = corner;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + columns;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + columns + 1;
+                indices[i++] = corner + columns;
+            }
+        }
+        return new MeshData(positions, textureCoordinates, normals, indices);
+    }
+
+    /**
+     * @return Edges used by a single triangle, compared by vertex
+     */
+    private static int[][] borderEdges(int[] indices){
+        long[] edges = new long[indices.length];
+        for (int i = 0; i < indices.length; i += 3) {
+            for (int k = 0; k < 3; k++) {
+                int a = indices[i + k], b = indices[i + (k + 1) % 3];
+                edges[i + k] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+            }
+        }
+        Arrays.sort(edges);
+        int[][] border = new int[edges.length][];
+        int count = 0;
+        for (int i = 0; i < edges.length; i++) {
+            boolean repeated = (i > 0 && edges[i - 1] == edges[i]) || (i + 1 < edges.length && edges[i + 1] == edges[i]);
+            if(!repeated)
+                border[count++] = new int[]{(int) (edges[i] >>> 32), (int) edges[i]};
+        }
+        return Arrays.copyOf(border, count);
+    }
+
+    /**
+     * @return Sum of the triangles area projected on the xy plane, negative for triangles facing down
+     */
+    private static float area(MeshData meshData){
+        float[] positions = meshData.getPositions();
+        int[] indices = meshData.getIndices();
+        double area = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = indices[i] * 3, b = indices[i + 1] * 3, c = indices[i + 2] * 3;
+            area += ((positions[b] - positions[a]) * (positions[c + 1] - positions[a + 1])
+                    - (positions[b + 1] - positions[a + 1]) * (positions[c] - positions[a])) / 2;
+        }
+        return (float) area;
+    }
+
+    /**
+     * Writes a triangle's unit normal
+     * @param triangle Index of the triangle's first corner
+     */
+    private static void normal(MeshData meshData, int triangle, float[] target){
+        float[] positions = meshData.getPositions();
+        int[] indices = meshData.getIndices();
+        int a = indices[triangle] * 3, b = indices[triangle + 1] * 3, c = indices[triangle + 2] * 3;
+        float abX = positions[b] - positions[a], abY = positions[b + 1] - positions[a + 1];
+        float abZ = positions[b + 2] - positions[a + 2];
+        float acX = positions[c] - positions[a], acY = positions[c + 1] - positions[a + 1];
+        float acZ = positions[c + 2] - positions[a + 2];
+        target[0] = abY * acZ - abZ * acY;
+        target[1] = abZ * acX - abX * acZ;
+        target[2] = abX * acY - abY * acX;
+        float length = (float) Math.sqrt(target[0] * target[0] + target[1] * target[1] + target[2] * target[2]);
+        assertTrue(length > 0);
+        for (int k = 0; k < 3; k++)
+            target[k] /= length;
+    }
+
+    /**
+     * @return Largest distance from an original vertex to the closest simplified triangle, checking every triangle
+     */
+    private static float deviation(MeshData original, MeshData simplified){
+        // Simplified levels have their own vertices, both are measured in a single array
+        int offset = original.getPositions().length;
+        float[] positions = Arrays.copyOf(original.getPositions(), offset + simplified.getPositions().length);
+        System.arraycopy(simplified.getPositions(), 0, positions, offset, simplified.getPositions().length);
+        int[] indices = simplified.getIndices();
+        float deviation = 0;
+        for (int v = 0; v < original.getVertexCount(); v++) {
+            float closest = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < indices.length; i += 3) {
+                closest = Math.min(closest, MeshSimplifier.pointTriangleDistance(positions, v * 3,
+                        offset + indices[i] * 3, offset + indices[i + 1] * 3, offset + indices[i + 2] * 3));
+            }
+            deviation = Math.max(deviation, closest);
+        }
+        return deviation;
+    }
+}
@@ -0,0 +1,116 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MipmapGeneratorTest {
+    private PixelBufferPool pool;
+    private MipmapGenerator srgb;
+    private MipmapGenerator linear;
+
+    @Before
+    public void createGenerators(){
+        pool = new PixelBufferPool(PixelBufferPool.DEFAULT_MAX_POOLED_BYTES);
+        srgb = new MipmapGenerator(pool, true);
+        linear = new MipmapGenerator(pool, false);
+    }
+
+    @After
+    public void deletePool(){
+        pool.cleanup();
+    }
+
+    @Test
+    public void levelCountsReachOnePixel(){
+        assertEquals(1, MipmapGenerator.getLevelCount(1, 1));
+        assertEquals(3, MipmapGenerator.getLevelCount(5, 3));
+        assertEquals(11, MipmapGenerator.getLevelCount(1024, 1024));
+        assertEquals(11, MipmapGenerator.getLevelCount(1024, 16));
+    }
+
+    @Test
+    public void chainHalvesSizesDownToOnePixel(){
+        TextureData level = createImage(13, 6, 200, 30, 90, 255);
+        int levels = 1;
+        while(level.getWidth() > 1 || level.getHeight() > 1){
+            TextureData next = srgb.downsample(level);
+            assertEquals(Math.max(1, level.getWidth() / 2), next.getWidth());
+            assertEquals(Math.max(1, level.getHeight() / 2), next.getHeight());
+            level.close();
+            level = next;
+            levels++;
+        }
+        assertEquals(MipmapGenerator.getLevelCount(13, 6), levels);
+        level.close();
+        assertEquals(0, pool.getUsedBytes());
+    }
+
+    @Test
+    public void constantColorIsKept(){
+        TextureData level = srgb.downsample(createImage(5, 3, 200, 30, 90, 255));
+        assertEquals(2, level.getWidth());
+        assertEquals(1, level.getHeight());
+        for (int x = 0; x < 2; x++) {
+            assertPixel(level, x, 0, 200, 30, 90, 255);
+        }
+    }
+
+    @Test
+    public void srgbAveragesLightNotValues(){
+        TextureData checkerboard = createImage(4, 4, 0, 0, 0, 255);
+        for (int i = 0; i < 16; i++) {
+            if((i % 4 + i / 4) % 2 == 0)
+                setColor(checkerboard, i, 255, 255, 255);
+        }
+        // Half the light of white is 188 once encoded back to sRGB
+        assertPixel(srgb.downsample(checkerboard), 1, 1, 188, 188, 188, 255);
+        assertPixel(linear.downsample(checkerboard), 1, 1, 128, 128, 128, 255);
+    }
+
+    @Test
+    public void oddSizesWeightEveryPixel(){
+        TextureData row = createImage(3, 1, 0, 0, 0, 255);
+        setColor(row, 1, 255, 255, 255);
+        assertPixel(linear.downsample(row), 0, 0, 85, 85, 85, 255);
+    }
+
+    @Test
+    public void transparentPixelsDontBleed(){
+        TextureData image = createImage(2, 2, 0, 0, 255, 255);
+        // Invisible red next to opaque blue must not tint the smaller level
+        for (int i = 0; i < 4; i += 2) {
+            setColor(image, i, 255, 0, 0);
+            image.getPixels().put(i * 4 + 3, (byte) 0);
+        }
+        assertPixel(srgb.downsample(image), 0, 0, 0, 0, 255, 128);
+    }
+
+    private static TextureData createImage(int width, int height, int red, int green, int blue, int alpha){
+        TextureData image = new TextureData(width, height, ByteBuffer.allocateDirect(width * height * 4));
+        for (int i = 0; i < width * height; i++) {
+            setColor(image, i, red, green, blue);
+            image.getPixels().put(i * 4 + 3, (byte) alpha);
+        }
+        return image;
+    }
+
+    private static void setColor(TextureData image, int pixel, int red, int green, int blue){
+        image.getPixels().put(pixel * 4, (byte) red);
+        image.getPixels().put(pixel * 4 + 1, (byte) green);
+        image.getPixels().put(pixel * 4 + 2, (byte) blue);
+    }
+
+    private static void assertPixel(TextureData image, int x, int y, int red, int green, int blue, int alpha){
+        int offset = (y * image.getWidth() + x) * 4;
+        ByteBuffer pixels = image.getPixels();
+        assertEquals(red, pixels.get(offset) & 0xFF);
+        assertEquals(green, pixels.get(offset + 1) & 0xFF);
+        assertEquals(blue, pixels.get(offset + 2) & 0xFF);
+        assertEquals(alpha, pixels.get(offset + 3) & 0xFF);
+    }
+}
@@ -0,0 +1,165 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.utils.Resources;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the line splitting loader the engine used to have with the streaming parser on generated obj files. Files
+ * are written next to the test classes so both loaders read them as resources, the largest one needs a big heap for
+ * the old loader. {@link ObjLoaderScalingBenchmark} measures the parallel parser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class ObjLoaderBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int faces;
+
+    private String fileName;
+    private Path file;
+
+    @Setup
+    public void writeFile() throws Exception {
+        fileName = "/benchmark-" + faces + ".obj";
+        file = Paths.get(ObjLoaderBenchmark.class.getResource("/").toURI()).resolve(fileName.substring(1));
+        writeGrid(file, faces);
+    }
+
+    @TearDown
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public MeshData lineSplitting() throws Exception {
+        return LineSplittingLoader.load(fileName);
+    }
+
+    @Benchmark
+    public MeshData streaming() throws Exception {
+        return ObjLoader.loadMeshData(fileName);
+    }
+
+    /**
+     * Writes a flat grid of quads split into triangles, every corner has position, texture and normal indices
+     * @param file Where the obj file is written
+     * @param faces Amount of triangles
+     */
+    static void writeGrid(Path file, int faces) throws Exception {
+        int side = (int) Math.ceil(Math.sqrt(faces / 2.0));
+        int columns = side + 1;
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)){
+            for (int z = 0; z <= side; z++) {
+                for (int x = 0; x <= side; x++)
+                    writer.write("v " + x * 0.5f + " " + (float) Math.sin(x * z * 0.01) + " " + z * 0.5f + "\n");
+            }
+            for (int z = 0; z <= side; z++) {
+                for (int x = 0; x <= side; x++)
+                    writer.write("vt " + (float) x / side + " " + (float) z / side + "\n");
+            }
+            writer.write("vn 0.0 1.0 0.0\n");
+            int written = 0;
+            for (int z = 0; z < side && written < faces; z++) {
+                for (int x = 0; x < side && written < faces; x++) {
+                    int corner = z * columns + x + 1;
+                    writeFace(writer, corner, corner + columns, corner + 1);
+                    if(++written < faces)
+                        writeFace(writer, corner + 1, corner + columns, corner + columns + 1);
+                    written++;
+                }
+            }
+        }
+    }
+
+    private static void writeFace(BufferedWriter writer, int a, int b, int c) throws Exception {
+        writer.write("f " + a + "/" + a + "/1 " + b + "/" + b + "/1 " + c + "/" + c + "/1\n");
+    }
+
+    /**
+     * The loader before the streaming parser, reads every line as a String and splits it, creates a vector per
+     * attribute and boxes every index. It stops at the arrays instead of creating the mesh
+     */
+    static class LineSplittingLoader {
+        static MeshData load(String fileName) throws Exception {
+            List<Vector3f> vertices = new ArrayList<>();
+            List<Vector2f> textures = new ArrayList<>();
+            List<Vector3f> normals = new ArrayList<>();
+            List<int[][]> faces = new ArrayList<>();
+
+            for (String line : Resources.loadResourceLines(fileName)) {
+                String[] tokens = line.split("\\s+");
+                switch (tokens[0]) {
+                    case "v":
+                        vertices.add(new Vector3f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]),
+                                Float.parseFloat(tokens[3])));
+                        break;
+                    case "vt":
+                        textures.add(new Vector2f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2])));
+                        break;
+                    case "vn":
+                        normals.add(new Vector3f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]),
+                                Float.parseFloat(tokens[3])));
+                        break;
+                    case "f":
+                        faces.add(new int[][]{parseCorner(tokens[1]), parseCorner(tokens[2]), parseCorner(tokens[3])});
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            List<Integer> indices = new ArrayList<>();
+            float[] positionsArray = new float[vertices.size() * 3];
+            for (int i = 0; i < vertices.size(); i++) {
+                positionsArray[i * 3] = vertices.get(i).x;
+                positionsArray[i * 3 + 1] = vertices.get(i).y;
+                positionsArray[i * 3 + 2] = vertices.get(i).z;
+            }
+            float[] texturesArray = new float[vertices.size() * 2];
+            float[] normalsArray = new float[vertices.size() * 3];
+            for (int[][] face : faces) {
+                for (int[] corner : face) {
+                    int position = corner[0];
+                    indices.add(position);
+                    if(corner[1] >= 0){
+                        Vector2f texture = textures.get(corner[1]);
+                        texturesArray[position * 2] = texture.x;
+                        texturesArray[position * 2 + 1] = 1 - texture.y;
+                    }
+                    if(corner[2] >= 0){
+                        Vector3f normal = normals.get(corner[2]);
+                        normalsArray[position * 3] = normal.x;
+                        normalsArray[position * 3 + 1] = normal.y;
+                        normalsArray[position * 3 + 2] = normal.z;
+                    }
+                }
+            }
+            int[] indicesArray = indices.stream().mapToInt((Integer v) -> v).toArray();
+            return new MeshData(positionsArray, texturesArray, normalsArray, indicesArray);
+        }
+
+        private static int[] parseCorner(String token){
+            String[] values = token.split("/");
+            int[] corner = {Integer.parseInt(values[0]) - 1, ObjParser.NO_VALUE, ObjParser.NO_VALUE};
+            if(values.length > 1 && values[1].length() > 0)
+                corner[1] = Integer.parseInt(values[1]) - 1;
+            if(values.length > 2)
+                corner[2] = Integer.parseInt(values[2]) - 1;
+            return corner;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.edgarmtz.engine.graphics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads generated obj files with the parallel parser and an increasing amount of threads, one thread is the streaming
+ * parser alone so every other count reads as a speedup over it. Counts past the machine's cores show where it
+ * flattens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ObjLoaderScalingBenchmark {
+    @Param({"1000000", "10000000"})
+    public int faces;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private String fileName;
+    private Path file;
+
+    @Setup
+    public void writeFile() throws Exception {
+        fileName = "/scaling-" + faces + ".obj";
+        file = Paths.get(ObjLoaderScalingBenchmark.class.getResource("/").toURI()).resolve(fileName.substring(1));
+        ObjLoaderBenchmark.writeGrid(file, faces);
+    }
+
+    @TearDown
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public MeshData parallel() throws Exception {
+        return ObjLoader.loadMeshData(fileName, threads);
+    }
+}
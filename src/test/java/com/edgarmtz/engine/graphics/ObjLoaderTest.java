@@ -0,0 +1,64 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class ObjLoaderTest {
+    private static final String FILE_NAME = "/loader-test.obj";
+    private static final String VERTICES = "v 0 0 0\nv 1 0 0\nv 0 1 0\nvt 0 0\nvt 1 1\nvn 0 0 1\n";
+
+    private Path file;
+
+    @After
+    public void deleteFile() throws Exception {
+        if(file != null)
+            Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void loadsValidFaces() throws Exception {
+        write(VERTICES + "f 1/1/1 2/2/1 3/1/1\nf -3/-2/-1 -2/-1/-1 -1/-2/-1\n");
+        MeshData meshData = ObjLoader.loadMeshData(FILE_NAME);
+        assertEquals(3, meshData.getPositions().length / 3);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, meshData.getIndices());
+    }
+
+    @Test
+    public void positionPastTheEndThrows() throws Exception {
+        write(VERTICES + "f 1/1/1 2/2/1 3/1/1\nf 1/1/1 2/2/1 4/1/1\n");
+        assertThrowsMessage("Invalid obj face 2, position 4 doesn't exist, file has 3");
+    }
+
+    @Test
+    public void textureCoordinatePastTheEndThrows() throws Exception {
+        write(VERTICES + "f 1/1/1 2/3/1 3/1/1\n");
+        assertThrowsMessage("Invalid obj face 1, texture coordinate 3 doesn't exist, file has 2");
+    }
+
+    @Test
+    public void relativeIndexBeforeTheStartThrows() throws Exception {
+        write(VERTICES + "f -4//1 -2//1 -1//1\n");
+        assertThrowsMessage("Invalid obj face 1, position 0 doesn't exist, file has 3");
+    }
+
+    private void write(String content) throws Exception {
+        file = Paths.get(ObjLoaderTest.class.getResource("/").toURI()).resolve(FILE_NAME.substring(1));
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void assertThrowsMessage(String message){
+        try{
+            ObjLoader.loadMeshData(FILE_NAME);
+            fail("Invalid face was loaded");
+        } catch (Exception e){
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
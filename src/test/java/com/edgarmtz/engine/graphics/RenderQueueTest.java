@@ -0,0 +1,86 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RenderQueueTest {
+    private RenderQueue queue;
+
+    @Before
+    public void createQueue(){
+        queue = new RenderQueue();
+    }
+
+    @Test
+    public void ordersByProgramTextureMeshAndDepth(){
+        queue.add(RenderQueue.createKey(2, 1, 1, 0.1f), 0);
+        queue.add(RenderQueue.createKey(1, 5, 1, 0.1f), 1);
+        queue.add(RenderQueue.createKey(1, 3, 9, 0.1f), 2);
+        queue.add(RenderQueue.createKey(1, 3, 4, 0.9f), 3);
+        queue.add(RenderQueue.createKey(1, 3, 4, 0.2f), 4);
+        queue.sort();
+
+        assertArrayEquals(new int[]{4, 3, 2, 1, 0}, items());
+    }
+
+    @Test
+    public void keepsAddedOrderForEqualKeys(){
+        long key = RenderQueue.createKey(1, 2, 3, 0.5f);
+        for (int i = 0; i < 10; i++)
+            queue.add(key, i);
+        queue.sort();
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, items());
+    }
+
+    @Test
+    public void clampsDepth(){
+        assertEquals(RenderQueue.createKey(1, 1, 1, 0), RenderQueue.createKey(1, 1, 1, -3));
+        assertEquals(RenderQueue.createKey(1, 1, 1, 1), RenderQueue.createKey(1, 1, 1, 7));
+        assertTrue(RenderQueue.createKey(1, 1, 1, 1) < RenderQueue.createKey(1, 1, 2, 0));
+    }
+
+    @Test
+    public void sortsManyKeysLikeASortedArray(){
+        Random random = new Random(11);
+        int count = 5000;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = RenderQueue.createKey(random.nextInt(3), random.nextInt(40), random.nextInt(200),
+                    random.nextFloat());
+            queue.add(keys[i], i);
+        }
+        queue.sort();
+
+        assertEquals(count, queue.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(keys[queue.getItem(i)], queue.getKey(i));
+            if(i > 0){
+                assertTrue(queue.getKey(i - 1) <= queue.getKey(i));
+                if(queue.getKey(i - 1) == queue.getKey(i))
+                    assertTrue(queue.getItem(i - 1) < queue.getItem(i));
+            }
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheQueue(){
+        queue.add(RenderQueue.createKey(1, 1, 1, 0), 0);
+        queue.clear();
+        queue.add(RenderQueue.createKey(1, 1, 1, 0), 5);
+        queue.sort();
+
+        assertArrayEquals(new int[]{5}, items());
+    }
+
+    private int[] items(){
+        int[] items = new int[queue.size()];
+        for (int i = 0; i < items.length; i++)
+            items[i] = queue.getItem(i);
+        return items;
+    }
+}
@@ -0,0 +1,127 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RenderStateTest {
+    private static final int PROGRAM = 3;
+    private static final int INDEX_TYPE = 0x1405;
+
+    private RecordingGraphicsDevice device;
+    private RenderState state;
+
+    @Before
+    public void createState(){
+        device = new RecordingGraphicsDevice();
+        state = new RenderState(device);
+    }
+
+    @Test
+    public void skipsBindingTheSameValueAgain(){
+        state.beginFrame();
+        state.useProgram(PROGRAM);
+        state.useProgram(PROGRAM);
+        state.bindTexture(4);
+        state.bindTexture(4);
+        assertTrue(state.bindVertexArray(7));
+        assertFalse(state.bindVertexArray(7));
+        state.bindTexture(5);
+
+        assertEquals(Arrays.asList("useProgram 3", "bindTexture 4", "bindVertexArray 7", "bindTexture 5"),
+                device.getCalls());
+        assertEquals(4, state.getStateChanges());
+        assertEquals(3, state.getAvoidedStateChanges());
+    }
+
+    @Test
+    public void beginFrameForgetsValuesAndCounters(){
+        state.beginFrame();
+        state.bindTexture(4);
+        state.drawElements(6, INDEX_TYPE);
+        state.beginFrame();
+        state.bindTexture(4);
+
+        assertEquals(2, device.count("bindTexture"));
+        assertEquals(1, state.getStateChanges());
+        assertEquals(0, state.getAvoidedStateChanges());
+        assertEquals(0, state.getDrawCalls());
+    }
+
+    /**
+     * Draws alternating between two textures and three meshes, sorted draws bind each texture and mesh once
+     */
+    @Test
+    public void sortedQueueBindsEachStateOnce(){
+        int[] textures = {10, 20, 10, 20, 10, 20, 10, 20, 10};
+        int[] meshes = {1, 2, 3, 1, 2, 3, 1, 2, 3};
+
+        state.beginFrame();
+        for (int i = 0; i < textures.length; i++)
+            draw(textures[i], meshes[i]);
+        int unsortedChanges = state.getStateChanges();
+
+        RenderQueue queue = new RenderQueue();
+        for (int i = 0; i < textures.length; i++)
+            queue.add(RenderQueue.createKey(PROGRAM, textures[i], meshes[i], i / 10f), i);
+        queue.sort();
+        device.clear();
+        state.beginFrame();
+        for (int i = 0; i < queue.size(); i++) {
+            int item = queue.getItem(i);
+            draw(textures[item], meshes[item]);
+        }
+
+        assertEquals(textures.length, state.getDrawCalls());
+        assertEquals(1, device.count("useProgram"));
+        assertEquals(2, device.count("bindTexture"));
+        // Each texture uses the three meshes, so every mesh is bound once per texture
+        assertEquals(6, device.count("bindVertexArray"));
+        assertTrue(state.getStateChanges() < unsortedChanges);
+        assertEquals(textures.length * 3 - state.getStateChanges(), state.getAvoidedStateChanges());
+    }
+
+    @Test
+    public void uniformStateSkipsUnchangedValues(){
+        UniformState uniforms = new UniformState(device);
+        int uniform = uniforms.addUniform(1);
+        uniforms.setUniform(uniform, 0);
+        uniforms.setUniform(uniform, 0);
+        uniforms.setUniform(uniform, 2);
+        uniforms.setUniform(uniforms.addUniform(-1), 5);
+
+        assertEquals(Arrays.asList("uniform 1 0", "uniform 1 2"), device.getCalls());
+        assertEquals(2, uniforms.getUploads());
+        assertEquals(1, uniforms.getAvoidedUploads());
+        uniforms.cleanup();
+    }
+
+    @Test
+    public void uniformHandlesAreDenseForSparseLocations(){
+        UniformState uniforms = new UniformState(device);
+        int far = uniforms.addUniform(100000);
+        int near = uniforms.addUniform(3);
+        assertEquals(0, far);
+        assertEquals(1, near);
+        assertEquals(-1, uniforms.addUniform(-1));
+        assertEquals(100000, uniforms.getLocation(far));
+
+        uniforms.setUniform(far, 4);
+        uniforms.setUniform(near, 4);
+        uniforms.setUniform(far, 4);
+
+        assertEquals(Arrays.asList("uniform 100000 4", "uniform 3 4"), device.getCalls());
+        assertEquals(1, uniforms.getAvoidedUploads());
+        uniforms.cleanup();
+    }
+
+    private void draw(int texture, int mesh){
+        state.useProgram(PROGRAM);
+        state.bindTexture(texture);
+        state.bindVertexArray(mesh);
+        state.drawElements(3, INDEX_TYPE);
+    }
+}
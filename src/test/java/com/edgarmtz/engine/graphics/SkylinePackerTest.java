@@ -0,0 +1,100 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SkylinePackerTest {
+    private static final int SIZE = 256;
+
+    @Test
+    public void firstRectangleGoesInTheCorner(){
+        SkylinePacker packer = new SkylinePacker(SIZE, SIZE);
+        assertTrue(packer.insert(30, 20));
+        assertEquals(0, packer.getX());
+        assertEquals(0, packer.getY());
+        assertTrue(packer.insert(30, 20));
+        assertEquals(30, packer.getX());
+        assertEquals(0, packer.getY());
+    }
+
+    @Test
+    public void rectanglesDontOverlapOrLeaveTheArea(){
+        int[][] placed = packRandom(new SkylinePacker(SIZE, SIZE), 400, 7);
+        boolean[] covered = new boolean[SIZE * SIZE];
+        int count = 0;
+        for (int[] rectangle : placed) {
+            if(rectangle == null)
+                continue;
+            count++;
+            int x = rectangle[0], y = rectangle[1], width = rectangle[2], height = rectangle[3];
+            assertTrue(x >= 0 && y >= 0 && x + width <= SIZE && y + height <= SIZE);
+            for (int row = y; row < y + height; row++) {
+                for (int column = x; column < x + width; column++) {
+                    assertFalse("Overlap at " + column + ", " + row, covered[row * SIZE + column]);
+                    covered[row * SIZE + column] = true;
+                }
+            }
+        }
+        assertTrue(count > 100);
+    }
+
+    @Test
+    public void samePlacementsEveryTime(){
+        int[][] first = packRandom(new SkylinePacker(SIZE, SIZE), 400, 11);
+        int[][] second = packRandom(new SkylinePacker(SIZE, SIZE), 400, 11);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void rejectsRectanglesThatDontFit(){
+        SkylinePacker packer = new SkylinePacker(SIZE, SIZE);
+        assertFalse(packer.insert(SIZE + 1, 1));
+        assertFalse(packer.insert(1, SIZE + 1));
+        assertTrue(packer.insert(SIZE, SIZE - 10));
+        assertFalse(packer.insert(20, 20));
+        // Failed inserts change nothing
+        assertTrue(packer.insert(SIZE, 10));
+        assertEquals(SIZE - 10, packer.getY());
+        assertEquals(1f, packer.getOccupancy(), 0);
+    }
+
+    @Test
+    public void occupancyCountsPlacedArea(){
+        SkylinePacker packer = new SkylinePacker(100, 100);
+        packer.insert(50, 20);
+        packer.insert(10, 10);
+        assertEquals(1100, packer.getUsedArea());
+        assertEquals(0.11f, packer.getOccupancy(), 1e-6f);
+    }
+
+    @Test
+    public void sortedSquaresFillMostOfTheArea(){
+        SkylinePacker packer = new SkylinePacker(SIZE, SIZE);
+        // Tallest first like the atlas packs them
+        for (int side = 64; side >= 8; side /= 2) {
+            for (int i = 0; i < 8; i++)
+                packer.insert(side, side);
+        }
+        while(packer.insert(4, 4)){
+            // Fills the gaps left
+        }
+        assertTrue(packer.getOccupancy() > 0.95f);
+    }
+
+    /**
+     * @return Position and size of every rectangle, null for the ones that didn't fit
+     */
+    private static int[][] packRandom(SkylinePacker packer, int count, long seed){
+        Random random = new Random(seed);
+        int[][] placed = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int width = 1 + random.nextInt(40), height = 1 + random.nextInt(40);
+            if(packer.insert(width, height))
+                placed[i] = new int[]{packer.getX(), packer.getY(), width, height};
+        }
+        return placed;
+    }
+}
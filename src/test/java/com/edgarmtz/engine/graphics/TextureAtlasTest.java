@@ -0,0 +1,138 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Covers packing, page composition and remapping, which don't need a gl context
+ */
+public class TextureAtlasTest {
+    private static final int PAGE_SIZE = 64;
+    private static final int PADDING = 2;
+
+    private PixelBufferPool pool;
+
+    @Before
+    public void createPool(){
+        pool = new PixelBufferPool(PixelBufferPool.DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    @After
+    public void deletePool(){
+        pool.cleanup();
+    }
+
+    @Test
+    public void paddedRegionsDontOverlap(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING);
+        String[] names = {"a", "b", "c", "d", "e", "f"};
+        for (int i = 0; i < names.length; i++)
+            atlas.add(names[i], 10 + i * 3, 20 - i * 2);
+        atlas.pack();
+
+        assertEquals(1, atlas.getPageCount());
+        for (int i = 0; i < names.length; i++) {
+            TextureAtlas.Region first = atlas.getRegion(names[i]);
+            assertTrue(first.getX() >= PADDING && first.getX() + first.getWidth() + PADDING <= PAGE_SIZE);
+            assertTrue(first.getY() >= PADDING && first.getY() + first.getHeight() + PADDING <= PAGE_SIZE);
+            for (int j = i + 1; j < names.length; j++) {
+                TextureAtlas.Region second = atlas.getRegion(names[j]);
+                boolean apart = first.getX() + first.getWidth() + PADDING <= second.getX() - PADDING
+                        || second.getX() + second.getWidth() + PADDING <= first.getX() - PADDING
+                        || first.getY() + first.getHeight() + PADDING <= second.getY() - PADDING
+                        || second.getY() + second.getHeight() + PADDING <= first.getY() - PADDING;
+                assertTrue(names[i] + " overlaps " + names[j], apart);
+            }
+        }
+    }
+
+    @Test
+    public void startsPagesWhenFull(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, 0);
+        for (int i = 0; i < 5; i++)
+            atlas.add("quarter" + i, PAGE_SIZE / 2, PAGE_SIZE / 2);
+        atlas.pack();
+
+        assertEquals(2, atlas.getPageCount());
+        assertEquals(1, atlas.getRegion("quarter4").getPage());
+        assertEquals(1f, atlas.getOccupancy(0), 0);
+        assertEquals(0.25f, atlas.getOccupancy(1), 0);
+        assertEquals(5 / 8f, atlas.getOccupancy(), 1e-6f);
+    }
+
+    @Test
+    public void remapMovesCoordinatesIntoTheRegion(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING);
+        atlas.add("big", 40, 40);
+        atlas.add("small", 16, 8);
+        atlas.pack();
+        TextureAtlas.Region region = atlas.getRegion("small");
+
+        MeshData meshData = new MeshData(new float[6], new float[]{0, 0, 1, 1}, new float[6], new int[]{0, 1, 0});
+        float[] coordinates = atlas.remap(meshData, "small").getTextureCoordinates();
+
+        assertEquals((float) region.getX() / PAGE_SIZE, coordinates[0], 1e-6f);
+        assertEquals((float) region.getY() / PAGE_SIZE, coordinates[1], 1e-6f);
+        assertEquals((float) (region.getX() + 16) / PAGE_SIZE, coordinates[2], 1e-6f);
+        assertEquals((float) (region.getY() + 8) / PAGE_SIZE, coordinates[3], 1e-6f);
+        // The model keeps it's own coordinates
+        assertEquals(1, meshData.getTextureCoordinates()[2], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void remapRejectsRepeatingCoordinates(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING);
+        atlas.add("tile", 8, 8);
+        atlas.pack();
+        atlas.remap(new MeshData(new float[3], new float[]{2, 0}, new float[3], new int[]{0}), "tile");
+    }
+
+    @Test
+    public void composedPageRepeatsBordersOverPadding(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING);
+        atlas.add("image", 2, 2);
+        atlas.pack();
+        TextureData image = new TextureData(2, 2, ByteBuffer.allocateDirect(16));
+        // Only red is set so every pixel is told apart by one byte
+        for (int i = 0; i < 4; i++)
+            image.getPixels().put(i * 4, (byte) (i + 1));
+        Map<String, TextureData> images = new HashMap<>();
+        images.put("image", image);
+
+        try(TextureData page = atlas.composePage(0, images, pool)){
+            TextureAtlas.Region region = atlas.getRegion("image");
+            ByteBuffer pixels = page.getPixels();
+            for (int y = -PADDING; y < 2 + PADDING; y++) {
+                for (int x = -PADDING; x < 2 + PADDING; x++) {
+                    int sourceX = Math.max(0, Math.min(x, 1)), sourceY = Math.max(0, Math.min(y, 1));
+                    int offset = ((region.getY() + y) * PAGE_SIZE + region.getX() + x) * 4;
+                    assertEquals(sourceY * 2 + sourceX + 1, pixels.get(offset));
+                }
+            }
+            // Pixels no image covers stay transparent
+            int last = (PAGE_SIZE * PAGE_SIZE - 1) * 4;
+            for (int channel = 0; channel < 4; channel++)
+                assertEquals(0, pixels.get(last + channel));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsImagesBiggerThanAPage(){
+        new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING).add("huge", PAGE_SIZE - 2, 8);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cantAddAfterPacking(){
+        TextureAtlas atlas = new TextureAtlas(PAGE_SIZE, PAGE_SIZE, PADDING);
+        atlas.add("a", 8, 8);
+        atlas.pack();
+        atlas.add("b", 8, 8);
+    }
+}
@@ -0,0 +1,102 @@
+package com.edgarmtz.engine.graphics;
+
+import de.matthiasmann.twl.utils.PNGDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Decodes a generated png with the decoder the engine used to have, {@link PNGDecoder} into a new
+ * {@link ByteBuffer#allocateDirect(int)} buffer per image, and with both {@link TextureDecoder} implementations,
+ * closing every image after it's decoded like textures do once uploaded. The direct memory each path needed is printed
+ * when the trial ends, the pooled path reports {@link PixelBufferPool#getPeakBytes()} while the old one can only
+ * report what it allocated, it's freed whenever the garbage collector gets to it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextureDecoderBenchmark {
+    @Param({"512", "2048"})
+    public int size;
+
+    private byte[] png;
+    private ByteBuffer image;
+    private PixelBufferPool pool;
+    private PngTextureDecoder pngDecoder;
+    private StbTextureDecoder stbDecoder;
+    private long allocatedDirectBytes;
+
+    @Setup
+    public void encodeImage() throws Exception {
+        // Smooth gradients with some noise, compresses about as well as a painted texture
+        BufferedImage rgba = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(13);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int red = (x * 255 / size + random.nextInt(8)) & 0xFF;
+                int green = (y * 255 / size + random.nextInt(8)) & 0xFF;
+                int blue = ((x + y) * 127 / size) & 0xFF;
+                rgba.setRGB(x, y, 0xFF000000 | red << 16 | green << 8 | blue);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if(!ImageIO.write(rgba, "png", out))
+            throw new Exception("Couldn't encode benchmark image");
+        png = out.toByteArray();
+        image = memAlloc(png.length);
+        image.put(png).flip();
+
+        pool = new PixelBufferPool(PixelBufferPool.DEFAULT_MAX_POOLED_BYTES);
+        pngDecoder = new PngTextureDecoder(pool);
+        stbDecoder = new StbTextureDecoder();
+        allocatedDirectBytes = 0;
+    }
+
+    @TearDown
+    public void printMemory(){
+        System.out.println("Image " + size + "x" + size + ", pool peak bytes: " + pool.getPeakBytes()
+                + " (" + pool.getAllocations() + " allocations, " + pool.getReuses() + " reuses)"
+                + ", allocateDirect bytes: " + allocatedDirectBytes);
+        pool.cleanup();
+        memFree(image);
+    }
+
+    /**
+     * Decoding as the engine did before the decoders, the buffer is left to the garbage collector
+     */
+    @Benchmark
+    public int allocateDirect() throws Exception {
+        PNGDecoder decoder = new PNGDecoder(new ByteArrayInputStream(png));
+        int stride = decoder.getWidth() * 4;
+        ByteBuffer pixels = ByteBuffer.allocateDirect(stride * decoder.getHeight());
+        allocatedDirectBytes += pixels.capacity();
+        decoder.decode(pixels, stride, PNGDecoder.Format.RGBA);
+        pixels.flip();
+        return pixels.get(0);
+    }
+
+    @Benchmark
+    public int pooledPng() throws Exception {
+        try(TextureData data = pngDecoder.decode(image)){
+            return data.getPixels().get(0);
+        }
+    }
+
+    @Benchmark
+    public int stb() throws Exception {
+        try(TextureData data = stbDecoder.decode(image)){
+            return data.getPixels().get(0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.edgarmtz.engine.graphics;
+
+import org.joml.Vector3f;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class UniformBlockTest {
+    private final CpuStreamBuffer stream = new CpuStreamBuffer(1024, 2, 1);
+
+    @After
+    public void deleteBuffer(){
+        stream.cleanup();
+    }
+
+    @Test
+    public void membersFollowStd140(){
+        UniformBlock block = new UniformBlock(0);
+        assertEquals(0, block.addInt());
+        assertEquals(16, block.addVector3());
+        assertEquals(32, block.addMatrix4());
+        assertEquals(96, block.getSize());
+    }
+
+    @Test
+    public void writesMatrixFromBufferPosition(){
+        UniformBlock block = new UniformBlock(0);
+        int color = block.addVector3();
+        int matrix = block.addMatrix4();
+        int after = block.addInt();
+        FloatBuffer values = FloatBuffer.allocate(20);
+        for (int i = 0; i < values.capacity(); i++)
+            values.put(i, i);
+        values.position(2);
+        stream.beginFrame();
+        stream.allocate(4, 4);
+
+        assertTrue(block.begin(stream));
+        block.setVector3(color, new Vector3f(-1, -2, -3));
+        block.setInt(after, 7);
+        block.setMatrix4(matrix, values);
+
+        assertEquals(2, values.position());
+        ByteBuffer memory = stream.getMemory();
+        assertEquals(0, memory.position());
+        int offset = block.getOffset();
+        assertTrue(offset > 0);
+        for (int i = 0; i < 16; i++)
+            assertEquals(2 + i, memory.getFloat(offset + matrix + i * Float.BYTES), 0);
+        assertEquals(-3, memory.getFloat(offset + color + 2 * Float.BYTES), 0);
+        assertEquals(7, memory.getInt(offset + after));
+    }
+}
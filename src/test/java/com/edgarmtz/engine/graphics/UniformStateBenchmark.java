@@ -0,0 +1,149 @@
+package com.edgarmtz.engine.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets the uniforms an object needs, a matrix, an int and a vector, the way {@link ShaderProgram} used to with
+ * names looked up in a map and a stack frame per matrix, and through {@link UniformState} handles. Calls end in a
+ * device doing nothing so only the cpu side is measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UniformStateBenchmark {
+    private static final int DRAWS = 1024;
+    private static final int VALUES = 64;
+    private static final String[] NAMES = {"projectionMatrix", "worldMatrix", "texture_sampler", "color", "useColor"};
+    private static final int WORLD_MATRIX = 1;
+    private static final int COLOR = 3;
+    private static final int USE_COLOR = 4;
+
+    private final NoOpGraphicsDevice device = new NoOpGraphicsDevice();
+    private final Map<String, Integer> uniforms = new HashMap<>();
+    private final Matrix4f[] matrices = new Matrix4f[VALUES];
+    private final Vector3f[] colors = new Vector3f[VALUES];
+    private UniformState uniformState;
+
+    @Setup
+    public void createValues(){
+        uniformState = new UniformState(device);
+        // Handles are given in order, so they're the same numbers as the locations
+        for (int i = 0; i < NAMES.length; i++) {
+            uniforms.put(NAMES[i], i);
+            uniformState.addUniform(i);
+        }
+        for (int i = 0; i < VALUES; i++) {
+            matrices[i] = new Matrix4f().translate(i, i * 2, i * 3);
+            colors[i] = new Vector3f(i, i + 1, i + 2);
+        }
+    }
+
+    @TearDown
+    public void deleteState(){
+        uniformState.cleanup();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public long namesLookedUp(){
+        for (int i = 0; i < DRAWS; i++) {
+            try(MemoryStack stack = MemoryStack.stackPush()){
+                FloatBuffer buffer = stack.mallocFloat(16);
+                matrices[i % VALUES].get(buffer);
+                device.setUniformMatrix(uniforms.get("worldMatrix"), buffer);
+            }
+            device.setUniform(uniforms.get("useColor"), i & 1);
+            Vector3f color = colors[i % VALUES];
+            device.setUniform(uniforms.get("color"), color.x, color.y, color.z);
+        }
+        return device.calls;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public long handlesChangingValues(){
+        for (int i = 0; i < DRAWS; i++) {
+            uniformState.setUniform(WORLD_MATRIX, matrices[i % VALUES]);
+            uniformState.setUniform(USE_COLOR, i & 1);
+            uniformState.setUniform(COLOR, colors[i % VALUES]);
+        }
+        return device.calls;
+    }
+
+    /**
+     * Objects sharing the same values, like a batch of static props, every upload after the first is skipped
+     */
+    @Benchmark
+    @OperationsPerInvocation(DRAWS)
+    public long handlesRepeatedValues(){
+        for (int i = 0; i < DRAWS; i++) {
+            uniformState.setUniform(WORLD_MATRIX, matrices[0]);
+            uniformState.setUniform(USE_COLOR, 1);
+            uniformState.setUniform(COLOR, colors[0]);
+        }
+        return device.calls;
+    }
+
+    /**
+     * Counts calls so they can't be removed as dead code
+     */
+    private static class NoOpGraphicsDevice implements GraphicsDevice {
+        private long calls;
+
+        @Override
+        public void useProgram(int programId) {
+            calls++;
+        }
+
+        @Override
+        public void bindTexture(int textureId) {
+            calls++;
+        }
+
+        @Override
+        public void bindVertexArray(int vaoId) {
+            calls++;
+        }
+
+        @Override
+        public void enableVertexAttribArray(int location) {
+            calls++;
+        }
+
+        @Override
+        public void setUniform(int location, int value) {
+            calls += value;
+        }
+
+        @Override
+        public void setUniform(int location, float x, float y, float z) {
+            calls += (long) x;
+        }
+
+        @Override
+        public void setUniformMatrix(int location, FloatBuffer value) {
+            calls += (long) value.get(value.position() + 12);
+        }
+
+        @Override
+        public void drawElements(int count, int indexType) {
+            calls++;
+        }
+
+        @Override
+        public void drawElementsInstanced(int count, int indexType, int instances) {
+            calls++;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.edgarmtz.engine.graphics;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
+
+public class VertexFormatTest {
+    private static final float[] UNIT_VALUES = {0, 1, 0.5f, 0.25f, 0.123f, 0.999f, 1 / 3f};
+    private static final float[] SIGNED_VALUES = {0, 1, -1, 0.5f, -0.25f, 0.123f, -0.999f};
+
+    @Test
+    public void attributesStartFourBytesAligned(){
+        VertexFormat format = new VertexFormat(
+                new VertexFormat.Attribute(0, 3, GL_BYTE, true),
+                new VertexFormat.Attribute(1, 3, GL_HALF_FLOAT, false),
+                new VertexFormat.Attribute(2, 1, GL_UNSIGNED_SHORT, true),
+                new VertexFormat.Attribute(3, 2, GL_FLOAT, false)
+        );
+        assertEquals(0, format.getOffset(0));
+        assertEquals(4, format.getOffset(1));
+        assertEquals(12, format.getOffset(2));
+        assertEquals(16, format.getOffset(3));
+        assertEquals(24, format.getStride());
+    }
+
+    @Test
+    public void floatsAreExact(){
+        assertRoundTrip(GL_FLOAT, false, new float[]{0, -1.5f, 1e-7f, 12345.678f, Float.MAX_VALUE}, 0);
+    }
+
+    @Test
+    public void halfFloatsKeepElevenSignificantBits(){
+        float[] values = {0, 1, -2.5f, 0.1f, 1000, -0.0001f};
+        ByteBuffer vertices = pack(GL_HALF_FLOAT, false, values);
+        VertexFormat.Attribute attribute = new VertexFormat.Attribute(0, 1, GL_HALF_FLOAT, false);
+        for (int i = 0; i < values.length; i++) {
+            float read = attribute.read(vertices, i * 4, 0);
+            assertEquals(values[i], read, Math.abs(values[i]) / 1024 + 1e-7f);
+        }
+    }
+
+    @Test
+    public void normalizedIntegersRoundToTheNearestStep(){
+        assertRoundTrip(GL_UNSIGNED_BYTE, true, UNIT_VALUES, 0.5f / 0xFF);
+        assertRoundTrip(GL_UNSIGNED_SHORT, true, UNIT_VALUES, 0.5f / 0xFFFF);
+        assertRoundTrip(GL_BYTE, true, SIGNED_VALUES, 0.5f / Byte.MAX_VALUE);
+        assertRoundTrip(GL_SHORT, true, SIGNED_VALUES, 0.5f / Short.MAX_VALUE);
+    }
+
+    @Test
+    public void integersAreRoundedAndClamped(){
+        ByteBuffer vertices = pack(GL_UNSIGNED_BYTE, false, new float[]{3.4f, 300, -5});
+        VertexFormat.Attribute attribute = new VertexFormat.Attribute(0, 1, GL_UNSIGNED_BYTE, false);
+        assertEquals(3, attribute.read(vertices, 0, 0), 0);
+        assertEquals(255, attribute.read(vertices, 4, 0), 0);
+        assertEquals(0, attribute.read(vertices, 8, 0), 0);
+
+        vertices = pack(GL_BYTE, true, new float[]{2, -2});
+        attribute = new VertexFormat.Attribute(0, 1, GL_BYTE, true);
+        assertEquals(1, attribute.read(vertices, 0, 0), 0);
+        assertEquals(-1, attribute.read(vertices, 4, 0), 0);
+    }
+
+    @Test
+    public void signedNormalizedMinimumReadsAsMinusOne(){
+        ByteBuffer vertices = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+        vertices.put(0, Byte.MIN_VALUE);
+        vertices.putShort(2, Short.MIN_VALUE);
+        assertEquals(-1, new VertexFormat.Attribute(0, 1, GL_BYTE, true).read(vertices, 0, 0), 0);
+        assertEquals(-1, new VertexFormat.Attribute(0, 1, GL_SHORT, true).read(vertices, 2, 0), 0);
+    }
+
+    @Test
+    public void packInterleavesEveryAttribute(){
+        MeshData meshData = new MeshData(new float[]{1, 2, 3, 4, 5, 6}, new float[]{0.1f, 0.2f, 0.3f, 0.4f},
+                new float[]{7, 8, 9, 10, 11, 12}, new int[]{0, 1, 1});
+        VertexFormat format = VertexFormat.POSITION_TEXTURE_NORMAL;
+        ByteBuffer vertices = ByteBuffer.allocate(4 + 2 * format.getStride()).order(ByteOrder.nativeOrder());
+        vertices.position(4);
+        format.pack(meshData, vertices);
+
+        assertEquals(32, format.getStride());
+        assertEquals(vertices.capacity(), vertices.position());
+        float[] expected = {1, 2, 3, 0.1f, 0.2f, 7, 8, 9, 4, 5, 6, 0.3f, 0.4f, 10, 11, 12};
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], vertices.getFloat(4 + i * 4), 0);
+    }
+
+    @Test
+    public void mixedTypesKeepTheirOwnOffsets(){
+        VertexFormat format = new VertexFormat(
+                new VertexFormat.Attribute(VertexFormat.POSITION, 3, GL_SHORT, true),
+                new VertexFormat.Attribute(VertexFormat.TEXTURE_COORDINATE, 2, GL_UNSIGNED_SHORT, true),
+                new VertexFormat.Attribute(VertexFormat.NORMAL, 2, GL_BYTE, true)
+        );
+        float[][] streams = {{0.5f, -0.5f, 1, -1, 0, 0.25f}, {0, 1, 0.5f, 0.75f}, {-1, 1, 0.5f, -0.5f}};
+        ByteBuffer vertices = ByteBuffer.allocate(2 * format.getStride()).order(ByteOrder.nativeOrder());
+        format.pack(2, streams, vertices);
+
+        assertEquals(16, format.getStride());
+        VertexFormat.Attribute[] attributes = format.getAttributes();
+        for (int vertex = 0; vertex < 2; vertex++) {
+            for (int attribute = 0; attribute < attributes.length; attribute++) {
+                int components = attributes[attribute].getComponents();
+                int offset = vertex * format.getStride() + format.getOffset(attribute);
+                for (int c = 0; c < components; c++) {
+                    assertEquals(streams[attribute][vertex * components + c],
+                            attributes[attribute].read(vertices, offset, c), 1f / Byte.MAX_VALUE);
+                }
+            }
+        }
+        assertTrue(format.hasOctahedralNormals());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedTypeThrows(){
+        new VertexFormat.Attribute(0, 1, GL_DOUBLE, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void locationWithoutModelDataThrows(){
+        VertexFormat format = new VertexFormat(new VertexFormat.Attribute(VertexFormat.INSTANCE_MATRIX, 4, GL_FLOAT,
+                false));
+        format.pack(new MeshData(new float[3], new float[2], new float[3], new int[]{0}), ByteBuffer.allocate(16));
+    }
+
+    /**
+     * Packs a single component attribute, one value per vertex
+     */
+    private static ByteBuffer pack(int type, boolean normalized, float[] values){
+        VertexFormat format = new VertexFormat(new VertexFormat.Attribute(0, 1, type, normalized));
+        assertEquals(4, format.getStride());
+        ByteBuffer vertices = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        format.pack(values.length, new float[][]{values}, vertices);
+        return vertices;
+    }
+
+    private static void assertRoundTrip(int type, boolean normalized, float[] values, float tolerance){
+        ByteBuffer vertices = pack(type, normalized, values);
+        VertexFormat.Attribute attribute = new VertexFormat.Attribute(0, 1, type, normalized);
+        for (int i = 0; i < values.length; i++)
+            assertEquals(values[i], attribute.read(vertices, i * 4, 0), tolerance + 1e-6f);
+    }
+}
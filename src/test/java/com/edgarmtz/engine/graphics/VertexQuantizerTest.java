@@ -0,0 +1,119 @@
+package com.edgarmtz.engine.graphics;
+
+import com.edgarmtz.engine.physics.Bounds;
+import org.joml.Vector3f;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
+
+public class VertexQuantizerTest {
+    // Worst case measured over a million random directions is about 0.63 degrees
+    private static final float MAX_NORMAL_DEGREES = 0.75f;
+
+    @Test
+    public void octahedralNormalsStayWithinBound(){
+        Random random = new Random(1);
+        float[] encoded = new float[2];
+        float[] decoded = new float[3];
+        for (int i = 0; i < 100_000; i++) {
+            float x = (float) random.nextGaussian(), y = (float) random.nextGaussian(), z = (float) random.nextGaussian();
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            VertexQuantizer.encodeOctahedral(x, y, z, encoded, 0);
+            // Values must already be snorm8 steps so storing them doesn't move them again
+            assertEquals(encoded[0], Math.round(encoded[0] * Byte.MAX_VALUE) / (float) Byte.MAX_VALUE, 1e-6f);
+            assertEquals(encoded[1], Math.round(encoded[1] * Byte.MAX_VALUE) / (float) Byte.MAX_VALUE, 1e-6f);
+            VertexQuantizer.decodeOctahedral(encoded[0], encoded[1], decoded);
+            float cosine = (decoded[0] * x + decoded[1] * y + decoded[2] * z) / length;
+            assertTrue(Math.toDegrees(Math.acos(Math.min(1, cosine))) < MAX_NORMAL_DEGREES);
+        }
+    }
+
+    @Test
+    public void axesAreExact(){
+        float[] encoded = new float[2];
+        float[] decoded = new float[3];
+        float[][] axes = {{1, 0, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+        for (float[] axis : axes) {
+            VertexQuantizer.encodeOctahedral(axis[0], axis[1], axis[2], encoded, 0);
+            VertexQuantizer.decodeOctahedral(encoded[0], encoded[1], decoded);
+            assertArrayEquals(axis, decoded, 1e-6f);
+        }
+    }
+
+    @Test
+    public void unitTextureCoordinatesUseUnorm16(){
+        QuantizedMeshData quantized = new VertexQuantizer().quantize(createMesh(new float[]{0, 0, 1, 0.5f, 0.25f, 1}));
+        VertexFormat.Attribute textureCoordinate = quantized.getFormat().getAttributes()[1];
+        assertEquals(GL_UNSIGNED_SHORT, textureCoordinate.getType());
+        assertTrue(textureCoordinate.isNormalized());
+        assertTrue(quantized.getMaxTextureCoordinateError() <= 0.5f / 0xFFFF + 1e-6f);
+        assertEquals(16, quantized.getBytesPerVertex());
+    }
+
+    @Test
+    public void repeatingTextureCoordinatesFallBackToFloats(){
+        QuantizedMeshData quantized = new VertexQuantizer().quantize(createMesh(new float[]{0, 0, 2, 0.5f, -1, 1}));
+        VertexFormat.Attribute textureCoordinate = quantized.getFormat().getAttributes()[1];
+        assertEquals(GL_FLOAT, textureCoordinate.getType());
+        assertEquals(0, quantized.getMaxTextureCoordinateError(), 0);
+        assertEquals(20, quantized.getBytesPerVertex());
+    }
+
+    @Test
+    public void positionsDecodeWithinAStep(){
+        MeshData meshData = createMesh(new float[6]);
+        QuantizedMeshData quantized = new VertexQuantizer().quantize(meshData);
+        // Largest half extent is 50 so a snorm16 step is 50 / 32767
+        assertTrue(quantized.getMaxPositionError() <= (float) (Math.sqrt(3) * 0.5 * 50 / Short.MAX_VALUE) + 1e-5f);
+        assertEquals(45, quantized.getPositionOffset().x, 0);
+        assertEquals(0, quantized.getPositionOffset().y, 0);
+        assertEquals(2, quantized.getPositionOffset().z, 0);
+        assertEquals(50, quantized.getPositionScale().x, 0);
+        assertEquals(GL_SHORT, quantized.getFormat().getAttributes()[0].getType());
+
+        QuantizedMeshData half = new VertexQuantizer(GL_HALF_FLOAT).quantize(meshData);
+        assertEquals(GL_HALF_FLOAT, half.getFormat().getAttributes()[0].getType());
+        assertTrue(half.getMaxPositionError() < 50f / 1024);
+        assertTrue(quantized.getMaxNormalError() < MAX_NORMAL_DEGREES);
+    }
+
+    @Test
+    public void boundsEncloseDecodedPositions(){
+        MeshData meshData = createMesh(new float[6]);
+        QuantizedMeshData quantized = new VertexQuantizer().quantize(meshData);
+        Bounds bounds = quantized.getBounds();
+        float error = quantized.getMaxPositionError();
+        assertEquals(-5, bounds.getMin().x, error);
+        assertEquals(-1, bounds.getMin().y, error);
+        assertEquals(0, bounds.getMin().z, error);
+        assertEquals(95, bounds.getMax().x, error);
+        assertEquals(1, bounds.getMax().y, error);
+        assertEquals(4, bounds.getMax().z, error);
+
+        float[] positions = meshData.getPositions();
+        Vector3f center = bounds.getCenter();
+        for (int i = 0; i < meshData.getVertexCount(); i++) {
+            float dx = positions[i * 3] - center.x, dy = positions[i * 3 + 1] - center.y;
+            float dz = positions[i * 3 + 2] - center.z;
+            assertTrue((float) Math.sqrt(dx * dx + dy * dy + dz * dz) <= bounds.getRadius() + error);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedPositionTypeThrows(){
+        new VertexQuantizer(GL_BYTE);
+    }
+
+    /**
+     * Three vertices spanning 100 units along x, normals point in different directions
+     */
+    private static MeshData createMesh(float[] textureCoordinates){
+        float[] positions = {-5, -1, 0, 95, 1, 4, 10.123f, 0.5f, 2.75f};
+        float[] normals = {0, 1, 0, 0.6f, 0, -0.8f, -0.3f, 0.4f, 0.1f};
+        return new MeshData(positions, textureCoordinates, normals, new int[]{0, 1, 2});
+    }
+}
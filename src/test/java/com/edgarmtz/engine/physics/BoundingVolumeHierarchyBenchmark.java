@@ -0,0 +1,157 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares frustum, overlap and ray queries of the hierarchy with testing every object, objects are scattered over a
+ * wide flat world like a level. Objects only have bounds so no gl context is needed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoundingVolumeHierarchyBenchmark {
+    private static final float WORLD_SIZE = 2000;
+    private static final float MOVED_FRACTION = 0.1f;
+
+    @Param({"10000", "200000"})
+    public int objects;
+
+    private GameObject[] gameObjects;
+    private BoundingVolumeHierarchy hierarchy;
+    private Frustum frustum;
+    private final List<GameObject> result = new ArrayList<>();
+    private final Vector3f overlapMin = new Vector3f(-50, -20, -50);
+    private final Vector3f overlapMax = new Vector3f(50, 20, 50);
+    private final Vector3f rayOrigin = new Vector3f(0, 0, 0);
+    private final Vector3f rayDirection = new Vector3f(0.6f, 0.02f, 0.8f);
+    private final BoundingVolumeHierarchy.RayHit hit = new BoundingVolumeHierarchy.RayHit();
+    private final Vector3f position = new Vector3f();
+    private int frame;
+
+    @Setup
+    public void createScene(){
+        Bounds cube = Bounds.of(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}, 2);
+        TransformStore transforms = new TransformStore(objects);
+        Random random = new Random(5);
+        gameObjects = new GameObject[objects];
+        hierarchy = new BoundingVolumeHierarchy();
+        for (int i = 0; i < objects; i++) {
+            GameObject gameObject = new GameObject(cube, transforms);
+            gameObject.setPosition(random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2, random.nextFloat() * 200 - 100,
+                    random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2);
+            gameObject.setRotation(0, random.nextFloat() * 360, 0);
+            gameObject.setScale(1 + random.nextFloat());
+            gameObjects[i] = gameObject;
+            hierarchy.insert(gameObject);
+        }
+
+        // Perspective with a 60 degrees field of view looking down -z from the origin
+        float focal = (float) (1 / Math.tan(Math.toRadians(30))), near = 0.01f, far = 250;
+        float[] projection = new float[16];
+        projection[0] = focal;
+        projection[5] = focal;
+        projection[10] = (far + near) / (near - far);
+        projection[11] = -1;
+        projection[14] = 2 * far * near / (near - far);
+        frustum = new Frustum();
+        frustum.update(projection);
+    }
+
+    @Benchmark
+    public int frustumHierarchy(){
+        result.clear();
+        hierarchy.queryFrustum(frustum, result);
+        return result.size();
+    }
+
+    @Benchmark
+    public int frustumLinear(){
+        int visible = 0;
+        for (GameObject gameObject : gameObjects) {
+            if(frustum.isVisible(gameObject.getWorldBounds()))
+                visible++;
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int overlapHierarchy(){
+        result.clear();
+        hierarchy.queryOverlap(overlapMin, overlapMax, result);
+        return result.size();
+    }
+
+    @Benchmark
+    public int overlapLinear(){
+        int overlapping = 0;
+        for (GameObject gameObject : gameObjects) {
+            Bounds bounds = gameObject.getWorldBounds();
+            Vector3f min = bounds.getMin(), max = bounds.getMax();
+            if(min.x <= overlapMax.x && max.x >= overlapMin.x && min.y <= overlapMax.y && max.y >= overlapMin.y
+                    && min.z <= overlapMax.z && max.z >= overlapMin.z)
+                overlapping++;
+        }
+        return overlapping;
+    }
+
+    @Benchmark
+    public boolean raycastHierarchy(){
+        return hierarchy.raycast(rayOrigin, rayDirection, WORLD_SIZE, hit);
+    }
+
+    @Benchmark
+    public GameObject raycastLinear(){
+        float closest = WORLD_SIZE;
+        GameObject closestObject = null;
+        for (GameObject gameObject : gameObjects) {
+            float distance = intersect(gameObject.getWorldBounds(), closest);
+            if(distance >= 0){
+                closest = distance;
+                closestObject = gameObject;
+            }
+        }
+        return closestObject;
+    }
+
+    /**
+     * Moves a tenth of the objects a little, like a frame of a busy scene, and refits the hierarchy
+     */
+    @Benchmark
+    public int moveAndRefit(){
+        frame++;
+        float offset = (frame & 1) == 0 ? 0.25f : -0.25f;
+        int step = (int) (1 / MOVED_FRACTION);
+        for (int i = frame % step; i < gameObjects.length; i += step) {
+            Vector3f position = gameObjects[i].getPosition(this.position);
+            gameObjects[i].setPosition(position.x + offset, position.y, position.z);
+        }
+        return hierarchy.refit();
+    }
+
+    /**
+     * Slab test of the ray against a box
+     * @return Distance to the box, -1 if it's missed or further than maxDistance
+     */
+    private float intersect(Bounds bounds, float maxDistance){
+        Vector3f min = bounds.getMin(), max = bounds.getMax();
+        float firstX = (min.x - rayOrigin.x) / rayDirection.x, secondX = (max.x - rayOrigin.x) / rayDirection.x;
+        float firstY = (min.y - rayOrigin.y) / rayDirection.y, secondY = (max.y - rayOrigin.y) / rayDirection.y;
+        float firstZ = (min.z - rayOrigin.z) / rayDirection.z, secondZ = (max.z - rayOrigin.z) / rayDirection.z;
+        float near = Math.max(0, Math.max(Math.min(firstX, secondX),
+                Math.max(Math.min(firstY, secondY), Math.min(firstZ, secondZ))));
+        float far = Math.min(maxDistance, Math.min(Math.max(firstX, secondX),
+                Math.min(Math.max(firstY, secondY), Math.max(firstZ, secondZ))));
+        return near <= far ? near : -1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import org.joml.Vector3f;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoundingVolumeHierarchyTest {
+    private final Bounds cube = Bounds.of(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}, 2);
+    private final BoundingVolumeHierarchy.RayHit hit = new BoundingVolumeHierarchy.RayHit();
+    private BoundingVolumeHierarchy hierarchy;
+    private GameObject near;
+    private GameObject far;
+
+    @Before
+    public void createScene(){
+        TransformStore transforms = new TransformStore();
+        hierarchy = new BoundingVolumeHierarchy(0);
+        near = new GameObject(cube, transforms);
+        near.setPosition(0, 0, 5);
+        far = new GameObject(cube, transforms);
+        far.setPosition(0, 0, 10);
+        hierarchy.insert(near);
+        hierarchy.insert(far);
+        for (int i = 0; i < 8; i++) {
+            GameObject aside = new GameObject(cube, transforms);
+            aside.setPosition(3 + i, i % 3, -i);
+            hierarchy.insert(aside);
+        }
+    }
+
+    @Test
+    public void raycastFindsTheNearestObject(){
+        assertTrue(hierarchy.raycast(new Vector3f(0.1f, 0.2f, 0), new Vector3f(0, 0, 2), 100, hit));
+        assertSame(near, hit.getGameObject());
+        assertEquals(2.25f, hit.getDistance(), 1e-6f);
+
+        assertFalse(hierarchy.raycast(new Vector3f(0.1f, 0.2f, 0), new Vector3f(0, 0, 1), 4, hit));
+        assertFalse(hierarchy.raycast(new Vector3f(0.1f, 0.2f, 0), new Vector3f(0, 0, -1), 100, hit));
+    }
+
+    @Test
+    public void raycastAlongAFaceHits(){
+        // Origin on the x and y slab planes with no movement along them
+        assertTrue(hierarchy.raycast(new Vector3f(-0.5f, 0.5f, 0), new Vector3f(0, 0, 1), 100, hit));
+        assertSame(near, hit.getGameObject());
+        assertEquals(4.5f, hit.getDistance(), 1e-6f);
+
+        assertTrue(hierarchy.raycast(new Vector3f(-0.5f, 0.5f, 0), new Vector3f(-0f, -0f, 1), 100, hit));
+        assertSame(near, hit.getGameObject());
+    }
+
+    @Test
+    public void raycastBesideAFaceMisses(){
+        assertFalse(hierarchy.raycast(new Vector3f(-0.5001f, 0, 0), new Vector3f(0, 0, 1), 100, hit));
+        assertFalse(hierarchy.raycast(new Vector3f(0, 0.5001f, 0), new Vector3f(0, 0, 1), 100, hit));
+    }
+}
@@ -0,0 +1,107 @@
+package com.edgarmtz.engine.physics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Culls randomly placed and rotated cubes around a camera looking down -z, the loop the renderer runs every frame.
+ * Objects either keep their world bounds or move and transform them again before being tested
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FrustumBenchmark {
+    private static final float WORLD_SIZE = 500;
+
+    @Param({"100000"})
+    public int objects;
+
+    private Frustum frustum;
+    private Bounds cube;
+    private float[][] matrices;
+    private Bounds[] worldBounds;
+    private float[] sphereX;
+    private float[] sphereY;
+    private float[] sphereZ;
+    private float[] sphereRadius;
+    private boolean[] visible;
+
+    @Setup
+    public void createScene(){
+        cube = Bounds.of(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}, 2);
+        Random random = new Random(9);
+        matrices = new float[objects][];
+        worldBounds = new Bounds[objects];
+        sphereX = new float[objects];
+        sphereY = new float[objects];
+        sphereZ = new float[objects];
+        sphereRadius = new float[objects];
+        visible = new boolean[objects];
+        for (int i = 0; i < objects; i++) {
+            // Rotation around y and a uniform scale, column major
+            double angle = random.nextDouble() * 2 * Math.PI;
+            float scale = 1 + random.nextFloat();
+            float cos = (float) Math.cos(angle) * scale, sin = (float) Math.sin(angle) * scale;
+            matrices[i] = new float[]{cos, 0, -sin, 0, 0, scale, 0, 0, sin, 0, cos, 0,
+                    random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2, random.nextFloat() * 100 - 50,
+                    random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2, 1};
+            worldBounds[i] = new Bounds();
+            worldBounds[i].transform(cube, matrices[i]);
+            sphereX[i] = worldBounds[i].getCenter().x;
+            sphereY[i] = worldBounds[i].getCenter().y;
+            sphereZ[i] = worldBounds[i].getCenter().z;
+            sphereRadius[i] = worldBounds[i].getRadius();
+        }
+
+        // Perspective with a 60 degrees field of view looking down -z from the origin
+        float focal = (float) (1 / Math.tan(Math.toRadians(30))), near = 0.01f, far = 250;
+        float[] projection = new float[16];
+        projection[0] = focal;
+        projection[5] = focal;
+        projection[10] = (far + near) / (near - far);
+        projection[11] = -1;
+        projection[14] = 2 * far * near / (near - far);
+        frustum = new Frustum();
+        frustum.update(projection);
+    }
+
+    /**
+     * Static objects, sphere first and box only when the sphere crosses a plane
+     */
+    @Benchmark
+    public int staticBounds(){
+        int count = 0;
+        for (Bounds bounds : worldBounds) {
+            if(frustum.isVisible(bounds))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Every object moved, world bounds are transformed from the model bounds first
+     */
+    @Benchmark
+    public int movedBounds(){
+        int count = 0;
+        for (int i = 0; i < objects; i++) {
+            worldBounds[i].transform(cube, matrices[i]);
+            if(frustum.isVisible(worldBounds[i]))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Spheres stored in separate arrays and tested one plane at a time, as the batch kernels do
+     */
+    @Benchmark
+    public int sphereArrays(){
+        return frustum.cullSpheres(sphereX, sphereY, sphereZ, sphereRadius, 0, objects, visible);
+    }
+}
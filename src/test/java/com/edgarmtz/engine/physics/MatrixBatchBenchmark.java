@@ -0,0 +1,72 @@
+package com.edgarmtz.engine.physics;
+
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * View matrix times every world matrix, the multiplication the renderer does before drawing. The batch kernel reads
+ * and writes one array, JOML multiplies one Matrix4f per object, either keeping a result object per object or
+ * copying each result into an array the way the transform stage collects them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatrixBatchBenchmark {
+    private static final int MATRIX_SIZE = 16;
+
+    @Param({"1000", "10000", "100000"})
+    public int matrices;
+
+    private float[] viewValues;
+    private float[] worldValues;
+    private float[] resultValues;
+    private Matrix4f viewMatrix;
+    private Matrix4f[] worldMatrices;
+    private Matrix4f[] resultMatrices;
+    private final Matrix4f result = new Matrix4f();
+
+    @Setup
+    public void createMatrices(){
+        Random random = new Random(11);
+        viewMatrix = new Matrix4f().translate(1, -2, -5).rotateY(0.3f);
+        viewValues = viewMatrix.get(new float[MATRIX_SIZE]);
+        worldValues = new float[matrices * MATRIX_SIZE];
+        resultValues = new float[matrices * MATRIX_SIZE];
+        worldMatrices = new Matrix4f[matrices];
+        resultMatrices = new Matrix4f[matrices];
+        for (int i = 0; i < matrices; i++) {
+            worldMatrices[i] = new Matrix4f()
+                    .translate(random.nextFloat() * 100, random.nextFloat() * 100, random.nextFloat() * 100)
+                    .rotateY(random.nextFloat() * 6.28f)
+                    .scale(1 + random.nextFloat());
+            worldMatrices[i].get(worldValues, i * MATRIX_SIZE);
+            resultMatrices[i] = new Matrix4f();
+        }
+    }
+
+    @Benchmark
+    public float[] batch(){
+        MatrixBatch.multiply(viewValues, worldValues, 0, matrices, resultValues, 0);
+        return resultValues;
+    }
+
+    @Benchmark
+    public Matrix4f[] jomlPerObject(){
+        for (int i = 0; i < matrices; i++)
+            viewMatrix.mul(worldMatrices[i], resultMatrices[i]);
+        return resultMatrices;
+    }
+
+    @Benchmark
+    public float[] jomlIntoArray(){
+        for (int i = 0; i < matrices; i++)
+            viewMatrix.mul(worldMatrices[i], result).get(resultValues, i * MATRIX_SIZE);
+        return resultValues;
+    }
+}
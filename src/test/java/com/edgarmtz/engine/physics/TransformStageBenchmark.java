@@ -0,0 +1,96 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame preparation for randomly placed cubes with the stage running in the calling thread or split between the
+ * common pool threads, one object at a time or with the batch kernels. The parallel speedup depends on the cores
+ * of the machine running it, with a single core it only measures the cost of splitting the work
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransformStageBenchmark {
+    private static final float WORLD_SIZE = 500;
+
+    @Param({"10000", "100000"})
+    public int objects;
+
+    @Param({"serial", "parallel"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean batchKernels;
+
+    private TransformStage stage;
+    private TransformStore transforms;
+    private GameObject[] gameObjects;
+    private Frustum frustum;
+    private Matrix4f viewMatrix;
+    private int viewVersion;
+    private float step = 0.01f;
+
+    @Setup
+    public void createScene(){
+        ForkJoinPool pool = mode.equals("parallel") ? ForkJoinPool.commonPool() : null;
+        stage = new TransformStage(pool, TransformStage.DEFAULT_BATCH_SIZE);
+        stage.setBatchKernels(batchKernels);
+        Bounds cube = Bounds.of(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}, 2);
+        transforms = new TransformStore(objects);
+        gameObjects = new GameObject[objects];
+        Random random = new Random(3);
+        for (int i = 0; i < objects; i++) {
+            gameObjects[i] = new GameObject(cube, transforms);
+            gameObjects[i].setPosition(random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2,
+                    random.nextFloat() * 100 - 50, random.nextFloat() * WORLD_SIZE - WORLD_SIZE / 2);
+            gameObjects[i].setRotation(0, random.nextFloat() * 360, 0);
+        }
+
+        // Perspective with a 60 degrees field of view looking down -z from the origin
+        float focal = (float) (1 / Math.tan(Math.toRadians(30))), near = 0.01f, far = 250;
+        float[] projection = new float[16];
+        projection[0] = focal;
+        projection[5] = focal;
+        projection[10] = (far + near) / (near - far);
+        projection[11] = -1;
+        projection[14] = 2 * far * near / (near - far);
+        frustum = new Frustum();
+        frustum.update(projection);
+        viewMatrix = new Matrix4f();
+    }
+
+    @TearDown
+    public void cleanup(){
+        stage.cleanup();
+    }
+
+    /**
+     * Nothing moves, only objects seen for the first time need their matrices
+     */
+    @Benchmark
+    public int still(){
+        stage.compute(gameObjects, objects, frustum, viewMatrix, viewVersion);
+        return stage.getVisibleCount();
+    }
+
+    /**
+     * Every object moves back and forth, every visible matrix and bounds are recalculated
+     */
+    @Benchmark
+    public int moving(){
+        step = -step;
+        transforms.translate(0, objects, step, 0, 0);
+        stage.compute(gameObjects, objects, frustum, viewMatrix, viewVersion);
+        return stage.getVisibleCount();
+    }
+}
@@ -0,0 +1,109 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import org.joml.Matrix4f;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class TransformStageTest {
+    private static final int OBJECTS = 5000;
+    private static final int BATCH_SIZE = 64;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final TransformStage serial = new TransformStage(null, BATCH_SIZE);
+    private final TransformStage parallel = new TransformStage(pool, BATCH_SIZE);
+
+    @After
+    public void cleanup(){
+        serial.cleanup();
+        parallel.cleanup();
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelMatchesSerial(){
+        assertSameFrames(false);
+    }
+
+    @Test
+    public void parallelBatchKernelsMatchSerial(){
+        assertSameFrames(true);
+    }
+
+    /**
+     * Runs a still frame and a frame where some objects and the camera moved over two identical scenes, one with
+     * each stage
+     */
+    private void assertSameFrames(boolean batchKernels){
+        serial.setBatchKernels(batchKernels);
+        parallel.setBatchKernels(batchKernels);
+        GameObject[] serialObjects = createScene(), parallelObjects = createScene();
+        Frustum frustum = createFrustum();
+        Matrix4f viewMatrix = new Matrix4f();
+
+        serial.compute(serialObjects, OBJECTS, frustum, viewMatrix, 0);
+        parallel.compute(parallelObjects, OBJECTS, frustum, viewMatrix, 0);
+        assertSameResults();
+
+        for (int i = 0; i < OBJECTS; i += 7) {
+            serialObjects[i].setPosition(i % 50 - 25, 0, -i % 100);
+            parallelObjects[i].setPosition(i % 50 - 25, 0, -i % 100);
+        }
+        viewMatrix.translate(1, 0, 2);
+        serial.compute(serialObjects, OBJECTS, frustum, viewMatrix, 1);
+        parallel.compute(parallelObjects, OBJECTS, frustum, viewMatrix, 1);
+        assertSameResults();
+    }
+
+    private void assertSameResults(){
+        assertTrue(serial.getVisibleCount() > 0);
+        assertTrue(serial.getVisibleCount() < OBJECTS);
+        assertEquals(serial.getVisibleCount(), parallel.getVisibleCount());
+        assertEquals(serial.getRecomputedMatrices(), parallel.getRecomputedMatrices());
+        assertEquals(serial.getReusedMatrices(), parallel.getReusedMatrices());
+        for (int i = 0; i < serial.getVisibleCount(); i++) {
+            int index = serial.getVisibleIndex(i);
+            assertEquals(index, parallel.getVisibleIndex(i));
+            FloatBuffer expected = serial.getMatrix(index), actual = parallel.getMatrix(index);
+            for (int value = 0; value < 16; value++)
+                assertEquals(expected.get(expected.position() + value), actual.get(actual.position() + value), 0);
+        }
+    }
+
+    private static GameObject[] createScene(){
+        Bounds cube = Bounds.of(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}, 2);
+        TransformStore transforms = new TransformStore(OBJECTS);
+        Random random = new Random(5);
+        GameObject[] gameObjects = new GameObject[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            gameObjects[i] = new GameObject(cube, transforms);
+            gameObjects[i].setPosition(random.nextFloat() * 200 - 100, random.nextFloat() * 20 - 10,
+                    random.nextFloat() * 200 - 100);
+            gameObjects[i].setRotation(0, random.nextFloat() * 360, 0);
+        }
+        return gameObjects;
+    }
+
+    /**
+     * Perspective with a 60 degrees field of view looking down -z from the origin
+     */
+    private static Frustum createFrustum(){
+        float focal = (float) (1 / Math.tan(Math.toRadians(30))), near = 0.01f, far = 250;
+        float[] projection = new float[16];
+        projection[0] = focal;
+        projection[5] = focal;
+        projection[10] = (far + near) / (near - far);
+        projection[11] = -1;
+        projection[14] = 2 * far * near / (near - far);
+        Frustum frustum = new Frustum();
+        frustum.update(projection);
+        return frustum;
+    }
+}
@@ -0,0 +1,69 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.Camera;
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import com.edgarmtz.engine.graphics.Mesh;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the model view matrix of every object in a frame, with the composed matrix written into reused storage
+ * and with the chained operations and copy of the view matrix the engine used to make per object
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransformationBenchmark {
+    @Param({"50000"})
+    public int objects;
+
+    private Transformation transformation;
+    private GameObject[] gameObjects;
+    private Camera camera;
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Vector3f position = new Vector3f();
+    private final Vector3f rotation = new Vector3f();
+
+    @Setup
+    public void createObjects(){
+        transformation = new Transformation();
+        TransformStore transforms = new TransformStore(objects);
+        gameObjects = new GameObject[objects];
+        for (int i = 0; i < objects; i++) {
+            gameObjects[i] = new GameObject((Mesh) null, transforms);
+            gameObjects[i].setPosition(i % 100, i / 100 % 100, -i / 10000);
+            gameObjects[i].setRotation(i % 360, i * 7 % 360, i * 13 % 360);
+            gameObjects[i].setScale(0.5f + i % 4);
+        }
+        camera = new Camera(new Vector3f(3, 2, 10), new Vector3f(15, 30, 0));
+    }
+
+    @Benchmark
+    public void composed(Blackhole blackhole){
+        Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+        for (GameObject gameObject : gameObjects)
+            blackhole.consume(transformation.getModelViewMatrix(gameObject, viewMatrix));
+    }
+
+    @Benchmark
+    public void chainedAllocating(Blackhole blackhole){
+        Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+        for (GameObject gameObject : gameObjects) {
+            gameObject.getRotation(rotation);
+            modelMatrix.identity().translate(gameObject.getPosition(position)).
+                    rotateX((float) Math.toRadians(-rotation.x)).
+                    rotateY((float) Math.toRadians(-rotation.y)).
+                    rotateZ((float) Math.toRadians(-rotation.z)).
+                    scale(gameObject.getScale());
+            blackhole.consume(new Matrix4f(viewMatrix).mul(modelMatrix));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.edgarmtz.engine.physics;
+
+import com.edgarmtz.engine.entities.Camera;
+import com.edgarmtz.engine.entities.GameObject;
+import com.edgarmtz.engine.entities.TransformStore;
+import com.edgarmtz.engine.graphics.Mesh;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class TransformationTest {
+    private static final int OBJECTS = 50000;
+    private static final int WARMUP_FRAMES = 20;
+    private static final float EPSILON = 1e-3f;
+
+    private Transformation transformation;
+    private GameObject[] gameObjects;
+    private Camera camera;
+    private final float[] values = new float[16];
+
+    @Before
+    public void createObjects(){
+        transformation = new Transformation();
+        TransformStore transforms = new TransformStore(OBJECTS);
+        gameObjects = new GameObject[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            // Transforms don't need a mesh
+            gameObjects[i] = new GameObject((Mesh) null, transforms);
+            gameObjects[i].setPosition(i % 100, i / 100 % 100, -i / 10000);
+            gameObjects[i].setRotation(i % 360, i * 7 % 360, i * 13 % 360);
+            gameObjects[i].setScale(0.5f + i % 4);
+        }
+        camera = new Camera(new Vector3f(3, 2, 10), new Vector3f(15, 30, 0));
+    }
+
+    @Test
+    public void modelViewMatrixDoesntAllocate(){
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        float checksum = 0;
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++)
+            checksum += frame(checksum);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        checksum += frame(checksum);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertFalse(Float.isNaN(checksum));
+        assertEquals("Bytes allocated per object", 0, allocated / OBJECTS);
+    }
+
+    @Test
+    public void modelViewMatrixMatchesChainedOperations(){
+        Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+        Matrix4f expected = new Matrix4f();
+        float[] expectedValues = new float[16], actualValues = new float[16];
+        Vector3f position = new Vector3f(), rotation = new Vector3f();
+        for (int i = 0; i < OBJECTS; i += 97) {
+            GameObject gameObject = gameObjects[i];
+            gameObject.getRotation(rotation);
+            expected.identity().translate(gameObject.getPosition(position)).
+                    rotateX((float) Math.toRadians(-rotation.x)).
+                    rotateY((float) Math.toRadians(-rotation.y)).
+                    rotateZ((float) Math.toRadians(-rotation.z)).
+                    scale(gameObject.getScale());
+            new Matrix4f(viewMatrix).mul(expected).get(expectedValues);
+            transformation.getModelViewMatrix(gameObject, viewMatrix).get(actualValues);
+            assertArrayEquals("Object " + i, expectedValues, actualValues, EPSILON);
+        }
+    }
+
+    private float frame(float checksum){
+        Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+        for (GameObject gameObject : gameObjects)
+            checksum += transformation.getModelViewMatrix(gameObject, viewMatrix).get(values)[12];
+        return checksum;
+    }
+}